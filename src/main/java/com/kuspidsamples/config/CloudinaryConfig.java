@@ -2,11 +2,22 @@ package com.kuspidsamples.config;
 
 import com.cloudinary.Cloudinary;
 import com.cloudinary.utils.ObjectUtils;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
+
 @Configuration
+@ConditionalOnProperty(name = "storage.type", havingValue = "cloudinary", matchIfMissing = true)
 public class CloudinaryConfig {
 
     @Value("${cloudinary.cloud-name:}")
@@ -18,21 +29,72 @@ public class CloudinaryConfig {
     @Value("${cloudinary.api-secret:}")
     private String apiSecret;
 
+    @Value("${cloudinary.http.max-connections:10}")
+    private int maxConnections;
+
+    @Value("${cloudinary.http.keep-alive:60s}")
+    private Duration keepAlive;
+
+    /**
+     * Connections to Cloudinary, shared by every uploader and Admin API client the SDK
+     * builds. All calls go to one host, so the per-route limit is the total. Should
+     * match cloudinary.bulkhead.max-concurrent. A connection is reused for at most
+     * keep-alive. Pool usage is published as httpcomponents.httpclient.pool.*{httpclient="cloudinary"}.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public PoolingHttpClientConnectionManager cloudinaryConnectionManager(MeterRegistry meterRegistry) {
+        PoolingHttpClientConnectionManager connectionManager =
+                new PoolingHttpClientConnectionManager(keepAlive.toMillis(), TimeUnit.MILLISECONDS);
+        connectionManager.setMaxTotal(Math.max(1, maxConnections));
+        connectionManager.setDefaultMaxPerRoute(Math.max(1, maxConnections));
+        registerPoolGauge(meterRegistry, connectionManager, "httpcomponents.httpclient.pool.total.connections",
+                "leased", "Connections in use", PoolStats::getLeased);
+        registerPoolGauge(meterRegistry, connectionManager, "httpcomponents.httpclient.pool.total.connections",
+                "available", "Idle connections kept alive", PoolStats::getAvailable);
+        registerPoolGauge(meterRegistry, connectionManager, "httpcomponents.httpclient.pool.total.pending",
+                null, "Calls waiting for a connection", PoolStats::getPending);
+        registerPoolGauge(meterRegistry, connectionManager, "httpcomponents.httpclient.pool.total.max",
+                null, "Most connections the pool will open", PoolStats::getMax);
+        return connectionManager;
+    }
+
+    /**
+     * Same names and tags as Micrometer's deprecated binder for this pool, so existing
+     * dashboards keep working
+     */
+    private static void registerPoolGauge(MeterRegistry meterRegistry,
+                                          PoolingHttpClientConnectionManager connectionManager,
+                                          String name, String state, String description,
+                                          ToDoubleFunction<PoolStats> stat) {
+        Gauge.Builder<PoolingHttpClientConnectionManager> gauge = Gauge.builder(name, connectionManager,
+                        manager -> stat.applyAsDouble(manager.getTotalStats()))
+                .description(description)
+                .tag("httpclient", "cloudinary");
+        if (state != null) {
+            gauge.tag("state", state);
+        }
+        gauge.register(meterRegistry);
+    }
+
     @Bean
-    public Cloudinary cloudinary() {
+    public Cloudinary cloudinary(PoolingHttpClientConnectionManager cloudinaryConnectionManager) {
+        Map<String, Object> properties = Map.of("connectionManager", cloudinaryConnectionManager);
+
         // Allow startup even if Cloudinary is not configured (for testing)
         // But log a warning
         if (cloudName == null || cloudName.isEmpty() || cloudName.isBlank()) {
             System.err.println("⚠️  WARNING: Cloudinary cloud-name is not configured!");
             System.err.println("⚠️  File upload features will not work.");
             System.err.println("⚠️  Please set CLOUDINARY_CLOUD_NAME, CLOUDINARY_API_KEY, and CLOUDINARY_API_SECRET");
+            System.err.println("⚠️  or set storage.type=local to keep uploads on this server");
 
             // Return a dummy Cloudinary instance to prevent startup failure
             return new Cloudinary(ObjectUtils.asMap(
                     "cloud_name", "dummy",
                     "api_key", "dummy",
                     "api_secret", "dummy",
-                    "secure", true
+                    "secure", true,
+                    "properties", properties
             ));
         }
 
@@ -42,7 +104,8 @@ public class CloudinaryConfig {
                     "cloud_name", "dummy",
                     "api_key", "dummy",
                     "api_secret", "dummy",
-                    "secure", true
+                    "secure", true,
+                    "properties", properties
             ));
         }
 
@@ -52,7 +115,8 @@ public class CloudinaryConfig {
                     "cloud_name", "dummy",
                     "api_key", "dummy",
                     "api_secret", "dummy",
-                    "secure", true
+                    "secure", true,
+                    "properties", properties
             ));
         }
 
@@ -63,9 +127,8 @@ public class CloudinaryConfig {
                 "cloud_name", cloudName,
                 "api_key", apiKey,
                 "api_secret", apiSecret,
-                "secure", true
+                "secure", true,
+                "properties", properties
         ));
     }
 }
-
-// please work
\ No newline at end of file
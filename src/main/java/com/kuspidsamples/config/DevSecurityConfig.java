@@ -70,6 +70,7 @@ public class DevSecurityConfig {
                         .requestMatchers(Constants.PUBLIC_URLS).permitAll()
                         .requestMatchers("/", "/health", "/actuator/**").permitAll()
                         .requestMatchers("/h2-console/**").permitAll()
+                        .requestMatchers(Constants.ADMIN_BASE_PATH + "/**").hasRole("ADMIN")
                         .anyRequest().permitAll()
                 );
 
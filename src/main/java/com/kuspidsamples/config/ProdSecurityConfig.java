@@ -1,5 +1,6 @@
 package com.kuspidsamples.config;
 
+import com.kuspidsamples.util.Constants;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
@@ -23,7 +24,10 @@ public class ProdSecurityConfig {
                 .cors(Customizer.withDefaults())
                 .csrf(csrf -> csrf.disable())
                 .authorizeHttpRequests(auth -> auth
-                        .requestMatchers("/api/auth/**").permitAll()
+                        .requestMatchers("/api/auth/**", "/.well-known/jwks.json", "/ws/**").permitAll()
+                        .requestMatchers(HttpMethod.GET, Constants.FILES_BASE_PATH + "/**").permitAll()
+                        .requestMatchers(HttpMethod.HEAD, Constants.FILES_BASE_PATH + "/**").permitAll()
+                        .requestMatchers("/api/admin/**", "/actuator/heavyhitters").hasRole("ADMIN")
                         .anyRequest().authenticated()
                 );
 
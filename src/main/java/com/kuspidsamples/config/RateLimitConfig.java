@@ -0,0 +1,33 @@
+package com.kuspidsamples.config;
+
+import io.github.bucket4j.distributed.jdbc.BucketTableSettings;
+import io.github.bucket4j.distributed.jdbc.SQLProxyConfiguration;
+import io.github.bucket4j.distributed.proxy.ProxyManager;
+import io.github.bucket4j.postgresql.PostgreSQLadvisoryLockBasedProxyManager;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+
+/**
+ * Shared bucket state in Postgres for rate-limit.distributed.enabled=true.
+ * Each bucket is one row, updated under a transaction-scoped advisory lock.
+ */
+@Configuration
+@ConditionalOnProperty(name = "rate-limit.distributed.enabled", havingValue = "true")
+public class RateLimitConfig {
+
+    @Bean
+    public ProxyManager<Long> rateLimitProxyManager(DataSource dataSource) {
+        // Not a JPA entity, so ddl-auto will not create it
+        new JdbcTemplate(dataSource).execute(
+                "CREATE TABLE IF NOT EXISTS bucket (id BIGINT PRIMARY KEY, state BYTEA)");
+
+        SQLProxyConfiguration<Long> configuration = SQLProxyConfiguration.builder()
+                .withTableSettings(BucketTableSettings.getDefault())
+                .build(dataSource);
+        return new PostgreSQLadvisoryLockBasedProxyManager<>(configuration);
+    }
+}
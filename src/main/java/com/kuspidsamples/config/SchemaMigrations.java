@@ -0,0 +1,103 @@
+package com.kuspidsamples.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Locale;
+
+/**
+ * Schema changes that spring.jpa.hibernate.ddl-auto=update cannot make by itself,
+ * run before Hibernate touches the schema (see {@link JpaConfig}). Hibernate only adds
+ * tables, columns and constraints; it never drops a column or clears rows that would
+ * break a new NOT NULL column. Every step checks the live schema first, so running
+ * this on each startup is harmless.
+ */
+@Component
+public class SchemaMigrations implements InitializingBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(SchemaMigrations.class);
+
+    private final DataSource dataSource;
+
+    public SchemaMigrations(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    @Override
+    public void afterPropertiesSet() throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            migrateRefreshTokens(connection);
+            addRefreshTokenVersion(connection);
+        }
+    }
+
+    /**
+     * refresh_tokens used to hold the raw token in a NOT NULL unique "token" column; it
+     * now holds a SHA-256 digest per (user, device). Old rows cannot be converted (no
+     * device, and the raw value must not be kept), so they are deleted, which signs
+     * those sessions out once, and the column is dropped. Hibernate then adds
+     * token_hash, previous_token_hash and device_id with their constraints to the
+     * empty table.
+     */
+    void migrateRefreshTokens(Connection connection) throws SQLException {
+        if (!hasColumn(connection, "refresh_tokens", "token")) {
+            return;
+        }
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try (Statement statement = connection.createStatement()) {
+            int removed = statement.executeUpdate("DELETE FROM refresh_tokens");
+            statement.executeUpdate("ALTER TABLE refresh_tokens DROP COLUMN token");
+            connection.commit();
+            logger.warn("Migrated refresh_tokens to hashed per-device tokens; removed {} legacy session(s)", removed);
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+
+    /**
+     * refresh_tokens gained a NOT NULL optimistic-lock version. Hibernate would add it
+     * without a default, which fails on a table that already has rows.
+     */
+    void addRefreshTokenVersion(Connection connection) throws SQLException {
+        if (!hasTable(connection, "refresh_tokens") || hasColumn(connection, "refresh_tokens", "version")) {
+            return;
+        }
+        try (Statement statement = connection.createStatement()) {
+            statement.executeUpdate("ALTER TABLE refresh_tokens ADD COLUMN version BIGINT DEFAULT 0 NOT NULL");
+            logger.info("Added refresh_tokens.version");
+        }
+    }
+
+    private static boolean hasTable(Connection connection, String table) throws SQLException {
+        DatabaseMetaData metaData = connection.getMetaData();
+        if (metaData.storesUpperCaseIdentifiers()) {
+            table = table.toUpperCase(Locale.ROOT);
+        }
+        try (ResultSet tables = metaData.getTables(connection.getCatalog(), connection.getSchema(), table, null)) {
+            return tables.next();
+        }
+    }
+
+    private static boolean hasColumn(Connection connection, String table, String column) throws SQLException {
+        DatabaseMetaData metaData = connection.getMetaData();
+        if (metaData.storesUpperCaseIdentifiers()) {
+            table = table.toUpperCase(Locale.ROOT);
+            column = column.toUpperCase(Locale.ROOT);
+        }
+        try (ResultSet columns = metaData.getColumns(connection.getCatalog(), connection.getSchema(), table, column)) {
+            return columns.next();
+        }
+    }
+}
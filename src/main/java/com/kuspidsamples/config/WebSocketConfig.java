@@ -1,15 +1,37 @@
 package com.kuspidsamples.config;
 
+import com.kuspidsamples.security.JwtTokenProvider;
+import com.kuspidsamples.security.TokenRevocationService;
+import com.kuspidsamples.util.Constants;
+import io.jsonwebtoken.Claims;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
 
+import java.util.List;
+
 @Configuration
 @EnableWebSocketMessageBroker
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
+    private final JwtTokenProvider tokenProvider;
+    private final TokenRevocationService revocationService;
+
+    public WebSocketConfig(JwtTokenProvider tokenProvider, TokenRevocationService revocationService) {
+        this.tokenProvider = tokenProvider;
+        this.revocationService = revocationService;
+    }
+
     @Override
     public void configureMessageBroker(MessageBrokerRegistry config) {
         // Enable a simple in-memory message broker
@@ -30,6 +52,29 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
                 .setAllowedOriginPatterns("*")
                 .withSockJS(); // Enable SockJS fallback options
     }
+
+    @Override
+    public void configureClientInboundChannel(ChannelRegistration registration) {
+        // Browsers cannot set headers on the handshake, so the access token comes in the
+        // STOMP CONNECT frame; it names the session's user for /user/queue/... messages
+        registration.interceptors(new ChannelInterceptor() {
+            @Override
+            public Message<?> preSend(Message<?> message, MessageChannel channel) {
+                StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+                if (accessor != null && StompCommand.CONNECT.equals(accessor.getCommand())) {
+                    String bearerToken = accessor.getFirstNativeHeader(Constants.HEADER_STRING);
+                    if (bearerToken != null && bearerToken.startsWith(Constants.TOKEN_PREFIX)) {
+                        Claims claims = tokenProvider.resolveClaims(bearerToken.substring(Constants.TOKEN_PREFIX.length()))
+                                .orElse(null);
+                        if (claims != null && !revocationService.isRevoked(claims.getId())) {
+                            accessor.setUser(new UsernamePasswordAuthenticationToken(claims.getSubject(), null, List.of()));
+                        }
+                    }
+                }
+                return message;
+            }
+        });
+    }
 }
 
 /**
@@ -3,9 +3,12 @@ package com.kuspidsamples.controller;
 import com.kuspidsamples.dto.request.LoginRequest;
 import com.kuspidsamples.dto.request.RegisterRequest;
 import com.kuspidsamples.dto.response.AuthResponse;
+import com.kuspidsamples.security.ClientIpResolver;
 import com.kuspidsamples.service.AuthService;
 import com.kuspidsamples.util.Constants;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -17,21 +20,27 @@ import java.util.Map;
 public class AuthController {
 
     private final AuthService authService;
+    private final ClientIpResolver clientIpResolver;
 
-    public AuthController(AuthService authService) {
+    public AuthController(AuthService authService, ClientIpResolver clientIpResolver) {
         this.authService = authService;
+        this.clientIpResolver = clientIpResolver;
     }
 
     @PostMapping("/register")
-    public ResponseEntity<ApiResponse<AuthResponse>> register(@Valid @RequestBody RegisterRequest request) {
-        AuthResponse response = authService.register(request);
+    public ResponseEntity<ApiResponse<AuthResponse>> register(
+            @Valid @RequestBody RegisterRequest request,
+            @RequestHeader(value = HttpHeaders.USER_AGENT, required = false) String userAgent) {
+        AuthResponse response = authService.register(request, userAgent);
         return ResponseEntity.status(HttpStatus.CREATED)
                 .body(new ApiResponse<>(true, Constants.REGISTRATION_SUCCESS, response));
     }
 
     @PostMapping("/login")
-    public ResponseEntity<ApiResponse<AuthResponse>> login(@Valid @RequestBody LoginRequest request) {
-        AuthResponse response = authService.login(request);
+    public ResponseEntity<ApiResponse<AuthResponse>> login(@Valid @RequestBody LoginRequest request,
+                                                           HttpServletRequest httpRequest) {
+        AuthResponse response = authService.login(request, clientIpResolver.resolveAsString(httpRequest),
+                httpRequest.getHeader(HttpHeaders.USER_AGENT));
         return ResponseEntity.ok(new ApiResponse<>(true, Constants.LOGIN_SUCCESS, response));
     }
 
@@ -43,9 +52,14 @@ public class AuthController {
     }
 
     @PostMapping("/logout")
-    public ResponseEntity<ApiResponse<Void>> logout(@RequestBody Map<String, String> request) {
+    public ResponseEntity<ApiResponse<Void>> logout(
+            @RequestBody Map<String, String> request,
+            @RequestHeader(value = Constants.HEADER_STRING, required = false) String authorization) {
         String refreshToken = request.get("refreshToken");
-        authService.logout(refreshToken);
+        String accessToken = authorization != null && authorization.startsWith(Constants.TOKEN_PREFIX)
+                ? authorization.substring(Constants.TOKEN_PREFIX.length())
+                : null;
+        authService.logout(refreshToken, accessToken);
         return ResponseEntity.ok(new ApiResponse<>(true, Constants.LOGOUT_SUCCESS, null));
     }
 
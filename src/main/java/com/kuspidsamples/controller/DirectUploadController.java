@@ -0,0 +1,42 @@
+package com.kuspidsamples.controller;
+
+import com.kuspidsamples.controller.AuthController.ApiResponse;
+import com.kuspidsamples.dto.request.DirectUploadConfirmRequest;
+import com.kuspidsamples.dto.request.DirectUploadRequest;
+import com.kuspidsamples.dto.response.DirectUploadResponse;
+import com.kuspidsamples.service.DirectUploadService;
+import com.kuspidsamples.util.Constants;
+import jakarta.validation.Valid;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping(Constants.UPLOAD_BASE_PATH + "/direct")
+@ConditionalOnProperty(name = "storage.type", havingValue = "cloudinary", matchIfMissing = true)
+public class DirectUploadController {
+
+    private final DirectUploadService directUploadService;
+
+    public DirectUploadController(DirectUploadService directUploadService) {
+        this.directUploadService = directUploadService;
+    }
+
+    /**
+     * Signed parameters for uploading one image straight to Cloudinary
+     */
+    @PostMapping
+    public ResponseEntity<ApiResponse<DirectUploadResponse>> issue(@Valid @RequestBody DirectUploadRequest request) {
+        DirectUploadResponse upload = directUploadService.issue(request);
+        return ResponseEntity.ok(new ApiResponse<>(true, "Upload signed", upload));
+    }
+
+    /**
+     * Attach a finished direct upload, given Cloudinary's signed upload response
+     */
+    @PostMapping("/confirm")
+    public ResponseEntity<ApiResponse<?>> confirm(@Valid @RequestBody DirectUploadConfirmRequest request) {
+        Object updated = directUploadService.confirm(request);
+        return ResponseEntity.ok(new ApiResponse<>(true, "Upload attached", updated));
+    }
+}
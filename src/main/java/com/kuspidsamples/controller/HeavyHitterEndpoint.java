@@ -0,0 +1,40 @@
+package com.kuspidsamples.controller;
+
+import com.kuspidsamples.service.HeavyHitterSketch.HeavyHitter;
+import com.kuspidsamples.service.HeavyHitterTracker;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * /actuator/heavyhitters: the clients currently sending the most requests, getting
+ * rate limited most often and costing the most server time. Keys are "user:&lt;id&gt;"
+ * for signed-in clients and the address prefix for everyone else.
+ */
+@Component
+@Endpoint(id = "heavyhitters")
+public class HeavyHitterEndpoint {
+
+    private final HeavyHitterTracker tracker;
+
+    public HeavyHitterEndpoint(HeavyHitterTracker tracker) {
+        this.tracker = tracker;
+    }
+
+    @ReadOperation
+    public Map<String, Object> heavyHitters() {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("requests", tracker.topRequests());
+        body.put("rejections", tracker.topRejections());
+        body.put("serverTimeMillis", toMillis(tracker.topServerTime()));
+        return body;
+    }
+
+    private List<HeavyHitter> toMillis(List<HeavyHitter> micros) {
+        return micros.stream().map(hitter -> new HeavyHitter(hitter.key(), hitter.count() / 1_000)).toList();
+    }
+}
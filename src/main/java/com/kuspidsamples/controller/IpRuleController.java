@@ -0,0 +1,79 @@
+package com.kuspidsamples.controller;
+
+import com.kuspidsamples.controller.AuthController.ApiResponse;
+import com.kuspidsamples.dto.request.IpRuleRequest;
+import com.kuspidsamples.exception.BadRequestException;
+import com.kuspidsamples.exception.ResourceNotFoundException;
+import com.kuspidsamples.security.IpRule;
+import com.kuspidsamples.security.IpRuleService;
+import com.kuspidsamples.util.Constants;
+import jakarta.validation.Valid;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Runtime IP allow/block rules (admins only). Changes apply to this instance
+ * immediately and are not persisted; see {@link IpRuleService}.
+ */
+@RestController
+@RequestMapping(Constants.ADMIN_BASE_PATH + "/ip-rules")
+public class IpRuleController {
+
+    private final IpRuleService ipRuleService;
+
+    public IpRuleController(IpRuleService ipRuleService) {
+        this.ipRuleService = ipRuleService;
+    }
+
+    /**
+     * List the rules in force
+     */
+    @GetMapping
+    public ResponseEntity<ApiResponse<List<Map<String, String>>>> getRules() {
+        List<Map<String, String>> rules = ipRuleService.getRules().stream().map(this::toView).toList();
+        return ResponseEntity.ok(new ApiResponse<>(true, "IP rules retrieved", rules));
+    }
+
+    /**
+     * Add or replace the rule for a network
+     */
+    @PostMapping
+    public ResponseEntity<ApiResponse<Map<String, String>>> addRule(@Valid @RequestBody IpRuleRequest request) {
+        IpRule rule;
+        try {
+            rule = IpRule.parse(IpRule.parseAction(request.getAction()), request.getCidr());
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException(e.getMessage());
+        }
+        return ResponseEntity.ok(new ApiResponse<>(true, "IP rule added", toView(ipRuleService.addRule(rule))));
+    }
+
+    /**
+     * Remove a runtime rule
+     */
+    @DeleteMapping
+    public ResponseEntity<ApiResponse<Void>> removeRule(@RequestParam String cidr) {
+        boolean removed;
+        try {
+            removed = ipRuleService.removeRule(cidr);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException(e.getMessage());
+        }
+        if (!removed) {
+            throw new ResourceNotFoundException("No runtime IP rule for " + cidr);
+        }
+        return ResponseEntity.ok(new ApiResponse<>(true, "IP rule removed", null));
+    }
+
+    private Map<String, String> toView(IpRule rule) {
+        Map<String, String> view = new LinkedHashMap<>();
+        view.put("action", rule.action().name().toLowerCase(Locale.ROOT));
+        view.put("cidr", rule.cidr());
+        return view;
+    }
+}
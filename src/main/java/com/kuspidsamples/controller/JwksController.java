@@ -0,0 +1,104 @@
+package com.kuspidsamples.controller;
+
+import com.kuspidsamples.security.SigningKeyManager;
+import com.kuspidsamples.security.SigningKeyManager.VerificationKey;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.math.BigInteger;
+import java.security.AlgorithmParameters;
+import java.security.GeneralSecurityException;
+import java.security.interfaces.ECPublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.security.spec.ECParameterSpec;
+import java.security.spec.EllipticCurve;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publishes the JWT verification keys (RFC 7517) so other replicas and sidecars
+ * can verify access tokens without sharing a secret.
+ */
+@RestController
+public class JwksController {
+
+    private static final Map<String, EllipticCurve> NAMED_CURVES = Map.of(
+            "P-256", curve("secp256r1"),
+            "P-384", curve("secp384r1"),
+            "P-521", curve("secp521r1"));
+
+    private final SigningKeyManager keyManager;
+
+    public JwksController(SigningKeyManager keyManager) {
+        this.keyManager = keyManager;
+    }
+
+    @GetMapping("/.well-known/jwks.json")
+    public ResponseEntity<Map<String, Object>> jwks() {
+        List<Map<String, Object>> keys = new ArrayList<>();
+        for (VerificationKey key : keyManager.publishedKeys()) {
+            if (key.publicKey() instanceof ECPublicKey ecKey) {
+                keys.add(toJwk(key, ecKey));
+            }
+        }
+
+        // New keys are published ahead of use, so verifiers can cache this for a while
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.maxAge(5, TimeUnit.MINUTES).cachePublic())
+                .body(Map.of("keys", keys));
+    }
+
+    private Map<String, Object> toJwk(VerificationKey key, ECPublicKey ecKey) {
+        int fieldBytes = (ecKey.getParams().getCurve().getField().getFieldSize() + 7) / 8;
+
+        Map<String, Object> jwk = new LinkedHashMap<>();
+        jwk.put("kty", "EC");
+        jwk.put("use", "sig");
+        jwk.put("alg", key.algorithm());
+        jwk.put("kid", key.kid());
+        jwk.put("crv", curveName(key, ecKey.getParams().getCurve()));
+        jwk.put("x", encodeCoordinate(ecKey.getW().getAffineX(), fieldBytes));
+        jwk.put("y", encodeCoordinate(ecKey.getW().getAffineY(), fieldBytes));
+        return jwk;
+    }
+
+    /**
+     * JWK name of the key's curve. Matched on the curve itself, not its size: secp256k1
+     * is as wide as P-256, and a verifier given the wrong crv rejects every token.
+     */
+    private String curveName(VerificationKey key, EllipticCurve curve) {
+        for (Map.Entry<String, EllipticCurve> named : NAMED_CURVES.entrySet()) {
+            if (named.getValue().equals(curve)) {
+                return named.getKey();
+            }
+        }
+        throw new IllegalStateException("JWT signing key " + key.kid() + " is not on P-256, P-384 or P-521");
+    }
+
+    private static EllipticCurve curve(String stdName) {
+        try {
+            AlgorithmParameters parameters = AlgorithmParameters.getInstance("EC");
+            parameters.init(new ECGenParameterSpec(stdName));
+            return parameters.getParameterSpec(ECParameterSpec.class).getCurve();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("EC curve " + stdName + " is not available", e);
+        }
+    }
+
+    /**
+     * Unsigned big-endian, left-padded to the curve's field size, base64url without padding
+     */
+    private String encodeCoordinate(BigInteger value, int fieldBytes) {
+        byte[] raw = value.toByteArray();
+        byte[] fixed = new byte[fieldBytes];
+        int copy = Math.min(raw.length, fieldBytes);
+        System.arraycopy(raw, raw.length - copy, fixed, fieldBytes - copy, copy);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(fixed);
+    }
+}
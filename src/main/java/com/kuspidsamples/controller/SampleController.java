@@ -4,6 +4,7 @@ import com.kuspidsamples.controller.AuthController.ApiResponse;
 import com.kuspidsamples.dto.request.SampleRequest;
 import com.kuspidsamples.dto.response.SampleResponse;
 import com.kuspidsamples.service.SampleService;
+import com.kuspidsamples.service.UploadJobService;
 import com.kuspidsamples.util.Constants;
 import jakarta.validation.Valid;
 import org.springframework.data.domain.Page;
@@ -20,18 +21,25 @@ import java.util.List;
 public class SampleController {
 
     private final SampleService sampleService;
+    private final UploadJobService uploadJobService;
 
-    public SampleController(SampleService sampleService) {
+    public SampleController(SampleService sampleService, UploadJobService uploadJobService) {
         this.sampleService = sampleService;
+        this.uploadJobService = uploadJobService;
     }
 
     /**
-     * Create a new sample
+     * Create a new sample. With async=true and an image, returns 202 with an upload job
+     * to follow instead of waiting for the upload.
      */
     @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
-    public ResponseEntity<ApiResponse<SampleResponse>> createSample(
+    public ResponseEntity<ApiResponse<?>> createSample(
             @Valid @ModelAttribute SampleRequest request,
-            @RequestParam(required = false) MultipartFile image) {
+            @RequestParam(required = false) MultipartFile image,
+            @RequestParam(defaultValue = "false") boolean async) {
+        if (async && image != null && !image.isEmpty()) {
+            return UploadJobController.accepted(uploadJobService.submitCreateSample(request, image));
+        }
         SampleResponse sample = sampleService.createSample(request, image);
         return ResponseEntity.status(HttpStatus.CREATED)
                 .body(new ApiResponse<>(true, "Sample created successfully", sample));
@@ -79,13 +87,17 @@ public class SampleController {
     }
 
     /**
-     * Update sample
+     * Update sample (async=true works as for create)
      */
     @PutMapping(value = "/{id}", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
-    public ResponseEntity<ApiResponse<SampleResponse>> updateSample(
+    public ResponseEntity<ApiResponse<?>> updateSample(
             @PathVariable Long id,
             @Valid @ModelAttribute SampleRequest request,
-            @RequestParam(required = false) MultipartFile image) {
+            @RequestParam(required = false) MultipartFile image,
+            @RequestParam(defaultValue = "false") boolean async) {
+        if (async && image != null && !image.isEmpty()) {
+            return UploadJobController.accepted(uploadJobService.submitUpdateSample(id, request, image));
+        }
         SampleResponse sample = sampleService.updateSample(id, request, image);
         return ResponseEntity.ok(new ApiResponse<>(true, "Sample updated successfully", sample));
     }
@@ -98,4 +110,4 @@ public class SampleController {
         sampleService.deleteSample(id);
         return ResponseEntity.ok(new ApiResponse<>(true, "Sample deleted successfully", null));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,39 @@
+package com.kuspidsamples.controller;
+
+import com.kuspidsamples.controller.AuthController.ApiResponse;
+import com.kuspidsamples.dto.response.UploadJobResponse;
+import com.kuspidsamples.service.UploadJobService;
+import com.kuspidsamples.util.Constants;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.net.URI;
+
+@RestController
+@RequestMapping(Constants.UPLOAD_BASE_PATH)
+public class UploadJobController {
+
+    private final UploadJobService uploadJobService;
+
+    public UploadJobController(UploadJobService uploadJobService) {
+        this.uploadJobService = uploadJobService;
+    }
+
+    /**
+     * Status of an async upload started by the current user
+     */
+    @GetMapping("/{jobId}")
+    public ResponseEntity<ApiResponse<UploadJobResponse>> getJob(@PathVariable String jobId) {
+        UploadJobResponse job = uploadJobService.getJob(jobId);
+        return ResponseEntity.ok(new ApiResponse<>(true, "Upload job found", job));
+    }
+
+    /**
+     * 202 Accepted pointing at the job's status URL
+     */
+    static ResponseEntity<ApiResponse<?>> accepted(UploadJobResponse job) {
+        return ResponseEntity.accepted()
+                .location(URI.create(Constants.UPLOAD_BASE_PATH + "/" + job.getJobId()))
+                .body(new ApiResponse<>(true, "Upload accepted", job));
+    }
+}
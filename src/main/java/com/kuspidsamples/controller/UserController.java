@@ -2,6 +2,7 @@ package com.kuspidsamples.controller;
 
 import com.kuspidsamples.controller.AuthController.ApiResponse;
 import com.kuspidsamples.dto.response.UserResponse;
+import com.kuspidsamples.service.UploadJobService;
 import com.kuspidsamples.service.UserService;
 import com.kuspidsamples.util.Constants;
 import org.springframework.http.MediaType;
@@ -14,9 +15,11 @@ import org.springframework.web.multipart.MultipartFile;
 public class UserController {
 
     private final UserService userService;
+    private final UploadJobService uploadJobService;
 
-    public UserController(UserService userService) {
+    public UserController(UserService userService, UploadJobService uploadJobService) {
         this.userService = userService;
+        this.uploadJobService = uploadJobService;
     }
 
     /**
@@ -38,12 +41,16 @@ public class UserController {
     }
 
     /**
-     * Update current user's profile
+     * Update current user's profile (async=true with an image returns 202 and an upload job)
      */
     @PatchMapping(value = "/me", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
-    public ResponseEntity<ApiResponse<UserResponse>> updateProfile(
+    public ResponseEntity<ApiResponse<?>> updateProfile(
             @RequestParam(required = false) String fullName,
-            @RequestParam(required = false) MultipartFile profileImage) {
+            @RequestParam(required = false) MultipartFile profileImage,
+            @RequestParam(defaultValue = "false") boolean async) {
+        if (async && profileImage != null && !profileImage.isEmpty()) {
+            return UploadJobController.accepted(uploadJobService.submitProfileUpdate(fullName, profileImage));
+        }
         UserResponse user = userService.updateProfile(fullName, profileImage);
         return ResponseEntity.ok(new ApiResponse<>(true, Constants.PROFILE_UPDATED, user));
     }
@@ -0,0 +1,51 @@
+// DirectUploadConfirmRequest.java
+package com.kuspidsamples.dto.request;
+
+import jakarta.validation.constraints.NotBlank;
+
+public class DirectUploadConfirmRequest {
+
+    @NotBlank(message = "Public ID is required")
+    private String publicId; // public_id from Cloudinary's upload response
+
+    @NotBlank(message = "Version is required")
+    private String version; // version from Cloudinary's upload response
+
+    @NotBlank(message = "Signature is required")
+    private String signature; // signature from Cloudinary's upload response
+
+    // Constructors
+    public DirectUploadConfirmRequest() {
+    }
+
+    public DirectUploadConfirmRequest(String publicId, String version, String signature) {
+        this.publicId = publicId;
+        this.version = version;
+        this.signature = signature;
+    }
+
+    // Getters and Setters
+    public String getPublicId() {
+        return publicId;
+    }
+
+    public void setPublicId(String publicId) {
+        this.publicId = publicId;
+    }
+
+    public String getVersion() {
+        return version;
+    }
+
+    public void setVersion(String version) {
+        this.version = version;
+    }
+
+    public String getSignature() {
+        return signature;
+    }
+
+    public void setSignature(String signature) {
+        this.signature = signature;
+    }
+}
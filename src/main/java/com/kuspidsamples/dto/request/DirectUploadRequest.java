@@ -0,0 +1,38 @@
+// DirectUploadRequest.java
+package com.kuspidsamples.dto.request;
+
+import jakarta.validation.constraints.NotBlank;
+
+public class DirectUploadRequest {
+
+    @NotBlank(message = "Target is required")
+    private String target; // SAMPLE or PROFILE
+
+    private Long sampleId; // Required when target is SAMPLE
+
+    // Constructors
+    public DirectUploadRequest() {
+    }
+
+    public DirectUploadRequest(String target, Long sampleId) {
+        this.target = target;
+        this.sampleId = sampleId;
+    }
+
+    // Getters and Setters
+    public String getTarget() {
+        return target;
+    }
+
+    public void setTarget(String target) {
+        this.target = target;
+    }
+
+    public Long getSampleId() {
+        return sampleId;
+    }
+
+    public void setSampleId(Long sampleId) {
+        this.sampleId = sampleId;
+    }
+}
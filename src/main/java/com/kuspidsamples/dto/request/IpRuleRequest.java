@@ -0,0 +1,39 @@
+// IpRuleRequest.java
+package com.kuspidsamples.dto.request;
+
+import jakarta.validation.constraints.NotBlank;
+
+public class IpRuleRequest {
+
+    @NotBlank(message = "Action is required")
+    private String action; // allow or block
+
+    @NotBlank(message = "Network is required")
+    private String cidr; // "203.0.113.0/24", "2001:db8::/32" or a single address
+
+    // Constructors
+    public IpRuleRequest() {
+    }
+
+    public IpRuleRequest(String action, String cidr) {
+        this.action = action;
+        this.cidr = cidr;
+    }
+
+    // Getters and Setters
+    public String getAction() {
+        return action;
+    }
+
+    public void setAction(String action) {
+        this.action = action;
+    }
+
+    public String getCidr() {
+        return cidr;
+    }
+
+    public void setCidr(String cidr) {
+        this.cidr = cidr;
+    }
+}
@@ -2,6 +2,7 @@
 package com.kuspidsamples.dto.request;
 
 import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Size;
 
 public class LoginRequest {
 
@@ -11,6 +12,9 @@ public class LoginRequest {
     @NotBlank(message = "Password is required")
     private String password;
 
+    @Size(max = 64, message = "Device id must not exceed 64 characters")
+    private String deviceId; // optional; one refresh session is kept per device
+
     // Constructors
     public LoginRequest() {
     }
@@ -36,4 +40,12 @@ public class LoginRequest {
     public void setPassword(String password) {
         this.password = password;
     }
+
+    public String getDeviceId() {
+        return deviceId;
+    }
+
+    public void setDeviceId(String deviceId) {
+        this.deviceId = deviceId;
+    }
 }
\ No newline at end of file
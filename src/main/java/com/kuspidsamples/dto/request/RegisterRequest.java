@@ -21,6 +21,9 @@ public class RegisterRequest {
 
     private String fullName;
 
+    @Size(max = 64, message = "Device id must not exceed 64 characters")
+    private String deviceId; // optional; one refresh session is kept per device
+
     // Constructors
     public RegisterRequest() {
     }
@@ -64,4 +67,12 @@ public class RegisterRequest {
     public void setFullName(String fullName) {
         this.fullName = fullName;
     }
+
+    public String getDeviceId() {
+        return deviceId;
+    }
+
+    public void setDeviceId(String deviceId) {
+        this.deviceId = deviceId;
+    }
 }
\ No newline at end of file
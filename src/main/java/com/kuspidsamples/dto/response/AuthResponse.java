@@ -12,6 +12,7 @@ public class AuthResponse {
     private String username;
     private String email;
     private Role role;
+    private String deviceId;
 
     // Constructors
     public AuthResponse() {
@@ -27,6 +28,12 @@ public class AuthResponse {
         this.role = role;
     }
 
+    public AuthResponse(String accessToken, String refreshToken, Long userId,
+                        String username, String email, Role role, String deviceId) {
+        this(accessToken, refreshToken, userId, username, email, role);
+        this.deviceId = deviceId;
+    }
+
     // Getters and Setters
     public String getAccessToken() {
         return accessToken;
@@ -83,4 +90,12 @@ public class AuthResponse {
     public void setRole(Role role) {
         this.role = role;
     }
+
+    public String getDeviceId() {
+        return deviceId;
+    }
+
+    public void setDeviceId(String deviceId) {
+        this.deviceId = deviceId;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,86 @@
+package com.kuspidsamples.dto.response;
+
+import java.time.LocalDateTime;
+
+public class DirectUploadResponse {
+
+    private String uploadUrl; // POST the file here as multipart, with the fields below
+    private String apiKey;
+    private String publicId;
+    private long timestamp;
+    private String signature;
+    private String allowedFormats; // Send as allowed_formats; it is part of the signature
+    private LocalDateTime expiresAt; // Confirm before this, or the upload is discarded
+
+    // Constructors
+    public DirectUploadResponse() {
+    }
+
+    public DirectUploadResponse(String uploadUrl, String apiKey, String publicId, long timestamp,
+                                String signature, String allowedFormats, LocalDateTime expiresAt) {
+        this.uploadUrl = uploadUrl;
+        this.apiKey = apiKey;
+        this.publicId = publicId;
+        this.timestamp = timestamp;
+        this.signature = signature;
+        this.allowedFormats = allowedFormats;
+        this.expiresAt = expiresAt;
+    }
+
+    // Getters and Setters
+    public String getUploadUrl() {
+        return uploadUrl;
+    }
+
+    public void setUploadUrl(String uploadUrl) {
+        this.uploadUrl = uploadUrl;
+    }
+
+    public String getApiKey() {
+        return apiKey;
+    }
+
+    public void setApiKey(String apiKey) {
+        this.apiKey = apiKey;
+    }
+
+    public String getPublicId() {
+        return publicId;
+    }
+
+    public void setPublicId(String publicId) {
+        this.publicId = publicId;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public void setTimestamp(long timestamp) {
+        this.timestamp = timestamp;
+    }
+
+    public String getSignature() {
+        return signature;
+    }
+
+    public void setSignature(String signature) {
+        this.signature = signature;
+    }
+
+    public String getAllowedFormats() {
+        return allowedFormats;
+    }
+
+    public void setAllowedFormats(String allowedFormats) {
+        this.allowedFormats = allowedFormats;
+    }
+
+    public LocalDateTime getExpiresAt() {
+        return expiresAt;
+    }
+
+    public void setExpiresAt(LocalDateTime expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+}
@@ -0,0 +1,42 @@
+package com.kuspidsamples.dto.response;
+
+/**
+ * Resized and re-encoded versions of an uploaded image. Built once per image and
+ * shared between responses, so it has no setters.
+ */
+public class ImageVariants {
+
+    private final String thumbnail;
+    private final String medium;
+    private final String optimized;
+    private final String avatar;
+
+    // Constructors
+    public ImageVariants(String thumbnail, String medium, String optimized, String avatar) {
+        this.thumbnail = thumbnail;
+        this.medium = medium;
+        this.optimized = optimized;
+        this.avatar = avatar;
+    }
+
+    // Getters
+    /** Small square crop for lists and grids */
+    public String getThumbnail() {
+        return thumbnail;
+    }
+
+    /** Fits within a detail view, never upscaled */
+    public String getMedium() {
+        return medium;
+    }
+
+    /** Full size, in the best format and quality the client accepts */
+    public String getOptimized() {
+        return optimized;
+    }
+
+    /** Square crop centred on a face, for profile pictures */
+    public String getAvatar() {
+        return avatar;
+    }
+}
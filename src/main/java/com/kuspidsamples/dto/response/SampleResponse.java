@@ -8,6 +8,7 @@ public class SampleResponse {
     private String name;
     private String description;
     private String imageUrl;
+    private ImageVariants imageVariants;
     private Long userId;
     private String username;
     private LocalDateTime createdAt;
@@ -63,6 +64,14 @@ public class SampleResponse {
         this.imageUrl = imageUrl;
     }
 
+    public ImageVariants getImageVariants() {
+        return imageVariants;
+    }
+
+    public void setImageVariants(ImageVariants imageVariants) {
+        this.imageVariants = imageVariants;
+    }
+
     public Long getUserId() {
         return userId;
     }
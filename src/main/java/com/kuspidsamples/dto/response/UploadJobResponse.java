@@ -0,0 +1,86 @@
+package com.kuspidsamples.dto.response;
+
+import java.time.LocalDateTime;
+
+public class UploadJobResponse {
+
+    private String jobId;
+    private String type; // SAMPLE_CREATE, SAMPLE_UPDATE or PROFILE_UPDATE
+    private String status; // QUEUED, PROCESSING, COMPLETED or FAILED
+    private Object result; // SampleResponse or UserResponse once completed
+    private String error;
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+
+    // Constructors
+    public UploadJobResponse() {
+    }
+
+    public UploadJobResponse(String jobId, String type, String status, Object result, String error,
+                             LocalDateTime createdAt, LocalDateTime updatedAt) {
+        this.jobId = jobId;
+        this.type = type;
+        this.status = status;
+        this.result = result;
+        this.error = error;
+        this.createdAt = createdAt;
+        this.updatedAt = updatedAt;
+    }
+
+    // Getters and Setters
+    public String getJobId() {
+        return jobId;
+    }
+
+    public void setJobId(String jobId) {
+        this.jobId = jobId;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public Object getResult() {
+        return result;
+    }
+
+    public void setResult(Object result) {
+        this.result = result;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
@@ -10,6 +10,7 @@ public class UserResponse {
     private String email;
     private String fullName;
     private String profileImageUrl;
+    private ImageVariants profileImageVariants;
     private Role role;
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
@@ -72,6 +73,14 @@ public class UserResponse {
         this.profileImageUrl = profileImageUrl;
     }
 
+    public ImageVariants getProfileImageVariants() {
+        return profileImageVariants;
+    }
+
+    public void setProfileImageVariants(ImageVariants profileImageVariants) {
+        this.profileImageVariants = profileImageVariants;
+    }
+
     public Role getRole() {
         return role;
     }
@@ -3,16 +3,34 @@ package com.kuspidsamples.entity;
 import jakarta.persistence.*;
 import java.time.Instant;
 
+/**
+ * One refresh session per (user, device). Only SHA-256 digests of the raw
+ * tokens are stored; the raw value exists solely in the client.
+ */
 @Entity
-@Table(name = "refresh_tokens")
+@Table(name = "refresh_tokens",
+        indexes = {
+                @Index(name = "idx_refresh_token_expiry", columnList = "expiry_date"),
+                @Index(name = "idx_refresh_token_previous_hash", columnList = "previous_token_hash")
+        },
+        uniqueConstraints = {
+                @UniqueConstraint(name = "uk_refresh_token_user_device", columnNames = {"user_id", "device_id"})
+        }
+)
 public class RefreshToken {
 
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
-    @Column(nullable = false, unique = true)
-    private String token;
+    @Column(name = "token_hash", nullable = false, unique = true, length = 32)
+    private byte[] tokenHash; // SHA-256 of the current raw token
+
+    @Column(name = "previous_token_hash", length = 32)
+    private byte[] previousTokenHash; // SHA-256 of the token it replaced, for reuse detection
+
+    @Column(name = "device_id", nullable = false, length = 64)
+    private String deviceId;
 
     @Column(nullable = false)
     private Instant expiryDate;
@@ -21,11 +39,16 @@ public class RefreshToken {
     @JoinColumn(name = "user_id", nullable = false)
     private User user;
 
+    @Version
+    @Column(nullable = false)
+    private Long version; // bumped on every rotation, so two concurrent refreshes cannot both win
+
     // Constructors
     public RefreshToken() {}
 
-    public RefreshToken(String token, Instant expiryDate, User user) {
-        this.token = token;
+    public RefreshToken(byte[] tokenHash, String deviceId, Instant expiryDate, User user) {
+        this.tokenHash = tokenHash;
+        this.deviceId = deviceId;
         this.expiryDate = expiryDate;
         this.user = user;
     }
@@ -39,12 +62,28 @@ public class RefreshToken {
         this.id = id;
     }
 
-    public String getToken() {
-        return token;
+    public byte[] getTokenHash() {
+        return tokenHash;
+    }
+
+    public void setTokenHash(byte[] tokenHash) {
+        this.tokenHash = tokenHash;
+    }
+
+    public byte[] getPreviousTokenHash() {
+        return previousTokenHash;
     }
 
-    public void setToken(String token) {
-        this.token = token;
+    public void setPreviousTokenHash(byte[] previousTokenHash) {
+        this.previousTokenHash = previousTokenHash;
+    }
+
+    public String getDeviceId() {
+        return deviceId;
+    }
+
+    public void setDeviceId(String deviceId) {
+        this.deviceId = deviceId;
     }
 
     public Instant getExpiryDate() {
@@ -62,4 +101,12 @@ public class RefreshToken {
     public void setUser(User user) {
         this.user = user;
     }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
 }
@@ -0,0 +1,119 @@
+package com.kuspidsamples.entity;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+
+/**
+ * One entry of the rotating JWT key set. Every replica signs with the newest
+ * active key and verifies with any key that has not reached verifyUntil.
+ */
+@Entity
+@Table(name = "signing_keys", indexes = {
+        @Index(name = "idx_signing_key_verify_until", columnList = "verify_until")
+})
+public class SigningKey extends BaseEntity {
+
+    @Column(name = "kid", nullable = false, unique = true, length = 64)
+    private String kid;
+
+    @Column(name = "algorithm", nullable = false, length = 10)
+    private String algorithm;
+
+    @Column(name = "public_key", nullable = false, length = 1024)
+    private byte[] publicKey; // X.509 encoded
+
+    @Column(name = "private_key", nullable = false, length = 2048)
+    private byte[] privateKey; // PKCS#8 encoded, AES-GCM wrapped when encrypted is true
+
+    @Column(name = "encrypted", nullable = false)
+    private Boolean encrypted = false;
+
+    @Column(name = "active_from", nullable = false)
+    private Instant activeFrom; // first instant the key may sign
+
+    @Column(name = "sign_until", nullable = false)
+    private Instant signUntil; // last instant the key may sign
+
+    @Column(name = "verify_until", nullable = false)
+    private Instant verifyUntil; // published in JWKS until tokens signed with it have expired
+
+    // Constructors
+    public SigningKey() {}
+
+    // Getters and Setters
+    public String getKid() {
+        return kid;
+    }
+
+    public void setKid(String kid) {
+        this.kid = kid;
+    }
+
+    public String getAlgorithm() {
+        return algorithm;
+    }
+
+    public void setAlgorithm(String algorithm) {
+        this.algorithm = algorithm;
+    }
+
+    public byte[] getPublicKey() {
+        return publicKey;
+    }
+
+    public void setPublicKey(byte[] publicKey) {
+        this.publicKey = publicKey;
+    }
+
+    public byte[] getPrivateKey() {
+        return privateKey;
+    }
+
+    public void setPrivateKey(byte[] privateKey) {
+        this.privateKey = privateKey;
+    }
+
+    public Boolean getEncrypted() {
+        return encrypted;
+    }
+
+    public void setEncrypted(Boolean encrypted) {
+        this.encrypted = encrypted;
+    }
+
+    public Instant getActiveFrom() {
+        return activeFrom;
+    }
+
+    public void setActiveFrom(Instant activeFrom) {
+        this.activeFrom = activeFrom;
+    }
+
+    public Instant getSignUntil() {
+        return signUntil;
+    }
+
+    public void setSignUntil(Instant signUntil) {
+        this.signUntil = signUntil;
+    }
+
+    public Instant getVerifyUntil() {
+        return verifyUntil;
+    }
+
+    public void setVerifyUntil(Instant verifyUntil) {
+        this.verifyUntil = verifyUntil;
+    }
+
+    @Override
+    public String toString() {
+        return "SigningKey{" +
+                "kid='" + kid + '\'' +
+                ", algorithm='" + algorithm + '\'' +
+                ", activeFrom=" + activeFrom +
+                ", signUntil=" + signUntil +
+                ", verifyUntil=" + verifyUntil +
+                '}';
+    }
+}
@@ -0,0 +1,106 @@
+package com.kuspidsamples.entity;
+
+import jakarta.persistence.*;
+import java.time.Instant;
+
+/**
+ * One uploaded Cloudinary asset, keyed by the SHA-256 of its content so identical
+ * uploads share it. refCount is the number of samples and profiles pointing at it;
+ * rows that stay at zero past a grace period are reclaimed and the asset deleted.
+ */
+@Entity
+@Table(name = "stored_assets", indexes = {
+        @Index(name = "idx_stored_asset_ref_count_updated_at", columnList = "ref_count, updated_at")
+})
+public class StoredAsset {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "hash", nullable = false, unique = true, length = 64)
+    private String hash;
+
+    @Column(name = "public_id", nullable = false, unique = true)
+    private String publicId;
+
+    @Column(name = "url", nullable = false)
+    private String url;
+
+    @Column(name = "ref_count", nullable = false)
+    private int refCount;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+
+    @Column(name = "updated_at", nullable = false)
+    private Instant updatedAt;
+
+    // Constructors
+    public StoredAsset() {}
+
+    public StoredAsset(String hash, String publicId, String url, Instant createdAt) {
+        this.hash = hash;
+        this.publicId = publicId;
+        this.url = url;
+        this.createdAt = createdAt;
+        this.updatedAt = createdAt;
+    }
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getHash() {
+        return hash;
+    }
+
+    public void setHash(String hash) {
+        this.hash = hash;
+    }
+
+    public String getPublicId() {
+        return publicId;
+    }
+
+    public void setPublicId(String publicId) {
+        this.publicId = publicId;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public void setUrl(String url) {
+        this.url = url;
+    }
+
+    public int getRefCount() {
+        return refCount;
+    }
+
+    public void setRefCount(int refCount) {
+        this.refCount = refCount;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(Instant createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(Instant updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
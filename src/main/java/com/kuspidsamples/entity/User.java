@@ -64,6 +64,9 @@ public class User extends BaseEntity {
     @Column(name = "failed_login_attempts")
     private Integer failedLoginAttempts = 0;
 
+    @Column(name = "locked_until")
+    private java.time.LocalDateTime lockedUntil; // null = no automatic unlock
+
     @Column(name = "last_login")
     private java.time.LocalDateTime lastLogin;
 
@@ -181,6 +184,14 @@ public class User extends BaseEntity {
         this.failedLoginAttempts = failedLoginAttempts;
     }
 
+    public java.time.LocalDateTime getLockedUntil() {
+        return lockedUntil;
+    }
+
+    public void setLockedUntil(java.time.LocalDateTime lockedUntil) {
+        this.lockedUntil = lockedUntil;
+    }
+
     public java.time.LocalDateTime getLastLogin() {
         return lastLogin;
     }
@@ -237,6 +248,15 @@ public class User extends BaseEntity {
     public void resetFailedLoginAttempts() {
         this.failedLoginAttempts = 0;
         this.accountNonLocked = true;
+        this.lockedUntil = null;
+    }
+
+    /**
+     * Locked, and either locked indefinitely or the timed lock has not run out yet
+     */
+    public boolean isLockActive() {
+        return !accountNonLocked
+                && (lockedUntil == null || lockedUntil.isAfter(java.time.LocalDateTime.now()));
     }
 
     public void updateLastLogin() {
@@ -0,0 +1,29 @@
+package com.kuspidsamples.repository;
+
+import com.kuspidsamples.entity.PendingAssetDeletion;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+
+@Repository
+public interface PendingAssetDeletionRepository extends JpaRepository<PendingAssetDeletion, Long> {
+
+    @Query("select d from PendingAssetDeletion d where d.nextAttemptAt <= :now order by d.nextAttemptAt")
+    List<PendingAssetDeletion> findDue(@Param("now") Instant now, Pageable pageable);
+
+    @Modifying
+    @Transactional
+    @Query("delete from PendingAssetDeletion d where d.id in :ids")
+    int deleteByIdIn(@Param("ids") List<Long> ids);
+
+    @Modifying
+    @Query("delete from PendingAssetDeletion d where d.publicId = :publicId")
+    int deleteByPublicId(@Param("publicId") String publicId);
+}
@@ -3,17 +3,47 @@ package com.kuspidsamples.repository;
 
 import com.kuspidsamples.entity.RefreshToken;
 import com.kuspidsamples.entity.User;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface RefreshTokenRepository extends JpaRepository<RefreshToken, Long> {
 
-    Optional<RefreshToken> findByToken(String token);
+    Optional<RefreshToken> findByTokenHash(byte[] tokenHash);
 
-    void deleteByToken(String token);
+    Optional<RefreshToken> findByPreviousTokenHash(byte[] previousTokenHash);
+
+    Optional<RefreshToken> findByUserAndDeviceId(User user, String deviceId);
+
+    void deleteByTokenHash(byte[] tokenHash);
+
+    /**
+     * Rotate the row only if it still has the version it was read with; 0 means a
+     * concurrent refresh rotated it first
+     */
+    @Modifying
+    @Transactional
+    @Query("update RefreshToken r set r.tokenHash = :tokenHash, r.previousTokenHash = :previousTokenHash,"
+            + " r.expiryDate = :expiryDate, r.version = r.version + 1 where r.id = :id and r.version = :version")
+    int rotate(@Param("id") Long id, @Param("version") Long version, @Param("tokenHash") byte[] tokenHash,
+               @Param("previousTokenHash") byte[] previousTokenHash, @Param("expiryDate") Instant expiryDate);
 
     void deleteByUser(User user);
-}
\ No newline at end of file
+
+    @Query("select r.id from RefreshToken r where r.expiryDate < :now order by r.expiryDate")
+    List<Long> findExpiredIds(@Param("now") Instant now, Pageable pageable);
+
+    @Modifying
+    @Transactional
+    @Query("delete from RefreshToken r where r.id in :ids")
+    int deleteByIdIn(@Param("ids") List<Long> ids);
+}
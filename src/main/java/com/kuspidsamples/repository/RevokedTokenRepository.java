@@ -0,0 +1,21 @@
+package com.kuspidsamples.repository;
+
+import com.kuspidsamples.entity.RevokedToken;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+
+@Repository
+public interface RevokedTokenRepository extends JpaRepository<RevokedToken, Long> {
+
+    boolean existsByJti(String jti);
+
+    List<RevokedToken> findByRevokedAtGreaterThanEqualOrderByRevokedAtAsc(Instant since, Pageable pageable);
+
+    @Transactional
+    long deleteByExpiresAtBefore(Instant now);
+}
@@ -0,0 +1,18 @@
+package com.kuspidsamples.repository;
+
+import com.kuspidsamples.entity.SigningKey;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+
+@Repository
+public interface SigningKeyRepository extends JpaRepository<SigningKey, Long> {
+
+    List<SigningKey> findByVerifyUntilAfterOrderByActiveFromDesc(Instant now);
+
+    @Transactional
+    long deleteByVerifyUntilBefore(Instant now);
+}
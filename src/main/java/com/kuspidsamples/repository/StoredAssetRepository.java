@@ -0,0 +1,46 @@
+package com.kuspidsamples.repository;
+
+import com.kuspidsamples.entity.StoredAsset;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface StoredAssetRepository extends JpaRepository<StoredAsset, Long> {
+
+    Optional<StoredAsset> findByHash(String hash);
+
+    boolean existsByPublicId(String publicId);
+
+    @Modifying
+    @Query("update StoredAsset a set a.refCount = a.refCount + 1, a.updatedAt = :now where a.publicId = :publicId")
+    int incrementRefCount(@Param("publicId") String publicId, @Param("now") Instant now);
+
+    @Modifying
+    @Query("update StoredAsset a set a.refCount = a.refCount - 1, a.updatedAt = :now "
+            + "where a.publicId = :publicId and a.refCount > 0")
+    int decrementRefCount(@Param("publicId") String publicId, @Param("now") Instant now);
+
+    /**
+     * Restart the asset's grace period; 0 if it has already been reclaimed
+     */
+    @Modifying
+    @Transactional
+    @Query("update StoredAsset a set a.updatedAt = :now where a.id = :id")
+    int touch(@Param("id") Long id, @Param("now") Instant now);
+
+    @Query("select a from StoredAsset a where a.refCount = 0 and a.updatedAt < :cutoff order by a.updatedAt")
+    List<StoredAsset> findUnreferenced(@Param("cutoff") Instant cutoff, Pageable pageable);
+
+    @Modifying
+    @Query("delete from StoredAsset a where a.id = :id and a.refCount = 0 and a.updatedAt < :cutoff")
+    int deleteIfUnreferenced(@Param("id") Long id, @Param("cutoff") Instant cutoff);
+}
@@ -3,8 +3,14 @@ package com.kuspidsamples.repository;
 
 import com.kuspidsamples.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.Optional;
 
 @Repository
@@ -19,4 +25,16 @@ public interface UserRepository extends JpaRepository<User, Long> {
     Boolean existsByUsername(String username);
 
     Boolean existsByEmail(String email);
+
+    /**
+     * Lock an account in its own transaction, so the lock survives the
+     * rollback of the failed login that triggered it
+     */
+    @Modifying
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    @Query("update User u set u.accountNonLocked = false, u.failedLoginAttempts = :attempts, " +
+            "u.lockedUntil = :lockedUntil where u.username = :usernameOrEmail or u.email = :usernameOrEmail")
+    int lockAccount(@Param("usernameOrEmail") String usernameOrEmail,
+                    @Param("attempts") int attempts,
+                    @Param("lockedUntil") LocalDateTime lockedUntil);
 }
\ No newline at end of file
@@ -0,0 +1,295 @@
+package com.kuspidsamples.security;
+
+/**
+ * A parsed IPv4 or IPv6 address held as primitives (IPv4 in the low 32 bits of lo).
+ * Instances are mutable so the request path can reuse one per thread; parsing
+ * works on a range of a CharSequence and never allocates.
+ */
+public final class ClientAddress {
+
+    private boolean ipv6;
+    private long hi;
+    private long lo;
+
+    public boolean isIpv6() {
+        return ipv6;
+    }
+
+    public long getHi() {
+        return hi;
+    }
+
+    public long getLo() {
+        return lo;
+    }
+
+    public void set(boolean ipv6, long hi, long lo) {
+        this.ipv6 = ipv6;
+        this.hi = hi;
+        this.lo = lo;
+    }
+
+    public void copyFrom(ClientAddress other) {
+        set(other.ipv6, other.hi, other.lo);
+    }
+
+    /**
+     * Keep only the first prefixBits of the address (e.g. /24 or /64 aggregation)
+     */
+    public void truncate(int prefixBits) {
+        if (ipv6) {
+            hi &= highMask(prefixBits);
+            lo &= lowMask(prefixBits);
+        } else {
+            lo &= prefixBits <= 0 ? 0 : (0xFFFFFFFFL << (32 - Math.min(prefixBits, 32))) & 0xFFFFFFFFL;
+        }
+    }
+
+    /**
+     * True if this address falls inside network/prefixBits (same family only)
+     */
+    public boolean isIn(ClientAddress network, int prefixBits) {
+        if (ipv6 != network.ipv6) {
+            return false;
+        }
+        if (ipv6) {
+            long maskHi = highMask(prefixBits);
+            long maskLo = lowMask(prefixBits);
+            return (hi & maskHi) == (network.hi & maskHi) && (lo & maskLo) == (network.lo & maskLo);
+        }
+        long mask = prefixBits <= 0 ? 0 : (0xFFFFFFFFL << (32 - Math.min(prefixBits, 32))) & 0xFFFFFFFFL;
+        return (lo & mask) == (network.lo & mask);
+    }
+
+    /**
+     * Well-mixed 64-bit key for rate limiting; families never collide by construction
+     */
+    public long key() {
+        if (!ipv6) {
+            return mix(0x4000000000000000L | lo);
+        }
+        return mix(hi ^ mix(lo ^ 0x6000000000000000L));
+    }
+
+    /**
+     * Parse s[from, to) as an IPv4 or IPv6 address. Accepts "[v6]", "[v6]:port",
+     * "v4:port" and zone ids, and maps ::ffff:a.b.c.d to IPv4. Returns false on garbage.
+     */
+    public boolean parse(CharSequence s, int from, int to) {
+        while (from < to && s.charAt(from) == ' ') {
+            from++;
+        }
+        while (to > from && s.charAt(to - 1) == ' ') {
+            to--;
+        }
+        if (from >= to) {
+            return false;
+        }
+
+        if (s.charAt(from) == '[') {
+            int close = indexOf(s, ']', from, to);
+            if (close < 0) {
+                return false;
+            }
+            return parseIpv6(s, from + 1, close);
+        }
+
+        int firstColon = indexOf(s, ':', from, to);
+        if (firstColon < 0) {
+            return parseIpv4(s, from, to);
+        }
+        if (indexOf(s, ':', firstColon + 1, to) < 0) {
+            // Exactly one colon: IPv4 with a port
+            return parseIpv4(s, from, firstColon);
+        }
+        return parseIpv6(s, from, to);
+    }
+
+    public boolean parse(CharSequence s) {
+        return s != null && parse(s, 0, s.length());
+    }
+
+    private boolean parseIpv4(CharSequence s, int from, int to) {
+        long value = parseIpv4Value(s, from, to);
+        if (value < 0) {
+            return false;
+        }
+        set(false, 0, value);
+        return true;
+    }
+
+    private static long parseIpv4Value(CharSequence s, int from, int to) {
+        long value = 0;
+        int octet = -1;
+        int dots = 0;
+        for (int i = from; i < to; i++) {
+            char c = s.charAt(i);
+            if (c >= '0' && c <= '9') {
+                octet = (octet < 0 ? 0 : octet * 10) + (c - '0');
+                if (octet > 255) {
+                    return -1;
+                }
+            } else if (c == '.' && octet >= 0 && dots < 3) {
+                value = (value << 8) | octet;
+                octet = -1;
+                dots++;
+            } else {
+                return -1;
+            }
+        }
+        if (dots != 3 || octet < 0) {
+            return -1;
+        }
+        return (value << 8) | octet;
+    }
+
+    private boolean parseIpv6(CharSequence s, int from, int to) {
+        int zone = indexOf(s, '%', from, to);
+        if (zone >= 0) {
+            to = zone;
+        }
+
+        long headHi = 0, headLo = 0, tailHi = 0, tailLo = 0;
+        int headGroups = 0, tailGroups = 0;
+        boolean compressed = false;
+        int i = from;
+
+        if (to - from >= 2 && s.charAt(from) == ':' && s.charAt(from + 1) == ':') {
+            compressed = true;
+            i = from + 2;
+        }
+
+        while (i < to) {
+            int end = i;
+            int group = 0;
+            while (end < to && end - i < 5 && Character.digit(s.charAt(end), 16) >= 0) {
+                group = (group << 4) | Character.digit(s.charAt(end), 16);
+                end++;
+            }
+
+            if (end < to && s.charAt(end) == '.') {
+                // Trailing embedded IPv4 counts as two groups
+                long v4 = parseIpv4Value(s, i, to);
+                if (v4 < 0) {
+                    return false;
+                }
+                for (int g = 0; g < 2; g++) {
+                    int part = (int) (v4 >>> (16 * (1 - g))) & 0xFFFF;
+                    if (compressed) {
+                        tailHi = (tailHi << 16) | (tailLo >>> 48);
+                        tailLo = (tailLo << 16) | part;
+                        tailGroups++;
+                    } else {
+                        headHi = (headHi << 16) | (headLo >>> 48);
+                        headLo = (headLo << 16) | part;
+                        headGroups++;
+                    }
+                }
+                i = to;
+                break;
+            }
+
+            if (end == i || end - i > 4) {
+                return false;
+            }
+            if (compressed) {
+                tailHi = (tailHi << 16) | (tailLo >>> 48);
+                tailLo = (tailLo << 16) | group;
+                tailGroups++;
+            } else {
+                headHi = (headHi << 16) | (headLo >>> 48);
+                headLo = (headLo << 16) | group;
+                headGroups++;
+            }
+
+            if (end == to) {
+                i = to;
+                break;
+            }
+            if (s.charAt(end) != ':') {
+                return false;
+            }
+            if (end + 1 < to && s.charAt(end + 1) == ':') {
+                if (compressed) {
+                    return false;
+                }
+                compressed = true;
+                i = end + 2;
+            } else {
+                i = end + 1;
+                if (i == to) {
+                    return false;
+                }
+            }
+        }
+
+        int groups = headGroups + tailGroups;
+        if (groups > 8 || (!compressed && groups != 8) || (compressed && groups == 8)) {
+            return false;
+        }
+
+        // Shift the head groups into place, then OR in the tail
+        int shift = 8 - headGroups;
+        for (int g = 0; g < shift; g++) {
+            headHi = (headHi << 16) | (headLo >>> 48);
+            headLo <<= 16;
+        }
+        long addrHi = headHi | tailHi;
+        long addrLo = headLo | tailLo;
+
+        if (addrHi == 0 && (addrLo >>> 32) == 0xFFFFL) {
+            set(false, 0, addrLo & 0xFFFFFFFFL);
+        } else {
+            set(true, addrHi, addrLo);
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        if (!ipv6) {
+            return ((lo >>> 24) & 0xFF) + "." + ((lo >>> 16) & 0xFF) + "." + ((lo >>> 8) & 0xFF) + "." + (lo & 0xFF);
+        }
+        StringBuilder sb = new StringBuilder(39);
+        for (int g = 0; g < 8; g++) {
+            long word = g < 4 ? hi : lo;
+            if (g > 0) {
+                sb.append(':');
+            }
+            sb.append(Long.toHexString((word >>> (16 * (3 - (g & 3)))) & 0xFFFF));
+        }
+        return sb.toString();
+    }
+
+    static long highMask(int prefixBits) {
+        if (prefixBits <= 0) {
+            return 0;
+        }
+        return prefixBits >= 64 ? -1L : -1L << (64 - prefixBits);
+    }
+
+    static long lowMask(int prefixBits) {
+        if (prefixBits <= 64) {
+            return 0;
+        }
+        return prefixBits >= 128 ? -1L : -1L << (128 - prefixBits);
+    }
+
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    private static int indexOf(CharSequence s, char c, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (s.charAt(i) == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,137 @@
+package com.kuspidsamples.security;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Works out the real client address behind our own proxies. X-Forwarded-For is
+ * only believed for hops added by a trusted proxy: the header is walked from the
+ * right, skipping trusted addresses, and the first untrusted one is the client.
+ * Anything further left was written by the client itself and is ignored.
+ * Parsing is done in place on the header, into a per-thread {@link ClientAddress}.
+ */
+@Component
+public class ClientIpResolver {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClientIpResolver.class);
+
+    private static final String FORWARDED_FOR = "X-Forwarded-For";
+
+    private final ClientAddress[] trustedNetworks;
+    private final int[] trustedPrefixes;
+    private final int ipv4KeyPrefix;
+    private final int ipv6KeyPrefix;
+
+    private final ThreadLocal<ClientAddress> result = ThreadLocal.withInitial(ClientAddress::new);
+    private final ThreadLocal<ClientAddress> scratch = ThreadLocal.withInitial(ClientAddress::new);
+
+    public ClientIpResolver(@Value("${rate-limit.trusted-proxies:}") List<String> trustedProxies,
+                            @Value("${rate-limit.key.ipv4-prefix:32}") int ipv4KeyPrefix,
+                            @Value("${rate-limit.key.ipv6-prefix:64}") int ipv6KeyPrefix) {
+        List<ClientAddress> networks = new ArrayList<>();
+        List<Integer> prefixes = new ArrayList<>();
+        for (String cidr : trustedProxies) {
+            if (cidr == null || cidr.isBlank()) {
+                continue;
+            }
+            String trimmed = cidr.trim();
+            int slash = trimmed.indexOf('/');
+            ClientAddress network = new ClientAddress();
+            if (!network.parse(trimmed, 0, slash < 0 ? trimmed.length() : slash)) {
+                throw new IllegalArgumentException("Invalid trusted proxy CIDR: " + cidr);
+            }
+            int maxBits = network.isIpv6() ? 128 : 32;
+            int prefix = slash < 0 ? maxBits : Integer.parseInt(trimmed.substring(slash + 1));
+            if (prefix < 0 || prefix > maxBits) {
+                throw new IllegalArgumentException("Invalid trusted proxy CIDR: " + cidr);
+            }
+            networks.add(network);
+            prefixes.add(prefix);
+        }
+        this.trustedNetworks = networks.toArray(new ClientAddress[0]);
+        this.trustedPrefixes = prefixes.stream().mapToInt(Integer::intValue).toArray();
+        this.ipv4KeyPrefix = ipv4KeyPrefix;
+        this.ipv6KeyPrefix = ipv6KeyPrefix;
+
+        if (trustedNetworks.length == 0) {
+            logger.info("No trusted proxies configured; X-Forwarded-For is ignored");
+        }
+    }
+
+    /**
+     * The client address for this request. The returned instance belongs to the
+     * current thread and is overwritten by the next call; copy it to keep it.
+     * Returns null only if the socket address itself cannot be parsed.
+     */
+    public ClientAddress resolve(HttpServletRequest request) {
+        ClientAddress client = result.get();
+        if (!client.parse(request.getRemoteAddr())) {
+            return null;
+        }
+        if (!isTrusted(client)) {
+            return client;
+        }
+
+        String forwarded = request.getHeader(FORWARDED_FOR);
+        if (forwarded == null) {
+            return client;
+        }
+
+        ClientAddress hop = scratch.get();
+        int end = forwarded.length();
+        while (end > 0) {
+            int comma = forwarded.lastIndexOf(',', end - 1);
+            if (!hop.parse(forwarded, comma + 1, end)) {
+                // Garbage in a hop: stop at the last address we could vouch for
+                return client;
+            }
+            client.copyFrom(hop);
+            if (!isTrusted(client)) {
+                return client;
+            }
+            end = comma < 0 ? 0 : comma;
+        }
+        return client;
+    }
+
+    /**
+     * Resolve and reduce to the configured rate-limit prefix (/32 and /64 by default),
+     * so one subscriber's rotating IPv6 addresses share a bucket
+     */
+    public ClientAddress resolveKeyAddress(HttpServletRequest request) {
+        return toKeyAddress(resolve(request));
+    }
+
+    /**
+     * Reduce an already resolved address to its rate-limit prefix, in place
+     */
+    public ClientAddress toKeyAddress(ClientAddress client) {
+        if (client != null) {
+            client.truncate(client.isIpv6() ? ipv6KeyPrefix : ipv4KeyPrefix);
+        }
+        return client;
+    }
+
+    /**
+     * Client address as text, for places that are not on the hot path
+     */
+    public String resolveAsString(HttpServletRequest request) {
+        ClientAddress client = resolve(request);
+        return client == null ? request.getRemoteAddr() : client.toString();
+    }
+
+    private boolean isTrusted(ClientAddress address) {
+        for (int i = 0; i < trustedNetworks.length; i++) {
+            if (address.isIn(trustedNetworks[i], trustedPrefixes[i])) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
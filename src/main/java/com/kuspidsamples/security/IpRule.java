@@ -0,0 +1,80 @@
+package com.kuspidsamples.security;
+
+import com.kuspidsamples.security.IpRuleTrie.Action;
+
+import java.util.Locale;
+
+/**
+ * An allow or block rule for one network. The address is stored already masked
+ * to the prefix, so "203.0.113.9/24" and "203.0.113.0/24" are the same rule.
+ */
+public record IpRule(Action action, boolean ipv6, long hi, long lo, int prefix) {
+
+    /**
+     * Parse "a.b.c.d", "a.b.c.d/nn", "v6" or "v6/nn"; a bare address is a single host
+     */
+    public static IpRule parse(Action action, String cidr) {
+        if (action == null || action == Action.NONE) {
+            throw new IllegalArgumentException("IP rule action must be allow or block");
+        }
+        if (cidr == null || cidr.isBlank()) {
+            throw new IllegalArgumentException("IP rule needs a network");
+        }
+        String trimmed = cidr.trim();
+        int slash = trimmed.indexOf('/');
+        ClientAddress network = new ClientAddress();
+        if (!network.parse(trimmed, 0, slash < 0 ? trimmed.length() : slash)) {
+            throw new IllegalArgumentException("Invalid network: " + cidr);
+        }
+        int maxBits = network.isIpv6() ? 128 : 32;
+        int prefix;
+        try {
+            prefix = slash < 0 ? maxBits : Integer.parseInt(trimmed.substring(slash + 1).trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid network: " + cidr);
+        }
+        if (prefix < 0 || prefix > maxBits) {
+            throw new IllegalArgumentException("Invalid network: " + cidr);
+        }
+        network.truncate(prefix);
+        return new IpRule(action, network.isIpv6(), network.getHi(), network.getLo(), prefix);
+    }
+
+    /**
+     * Parse a rules-file line such as "block 203.0.113.0/24"
+     */
+    public static IpRule parseLine(String line) {
+        String trimmed = line.trim();
+        int space = trimmed.indexOf(' ');
+        if (space < 0) {
+            throw new IllegalArgumentException("Expected '<allow|block> <cidr>': " + line);
+        }
+        return parse(parseAction(trimmed.substring(0, space)), trimmed.substring(space + 1));
+    }
+
+    public static Action parseAction(String value) {
+        if (value != null) {
+            switch (value.trim().toLowerCase(Locale.ROOT)) {
+                case "allow":
+                    return Action.ALLOW;
+                case "block":
+                case "deny":
+                    return Action.BLOCK;
+                default:
+                    break;
+            }
+        }
+        throw new IllegalArgumentException("IP rule action must be allow or block: " + value);
+    }
+
+    public String cidr() {
+        ClientAddress network = new ClientAddress();
+        network.set(ipv6, hi, lo);
+        return network + "/" + prefix;
+    }
+
+    @Override
+    public String toString() {
+        return action.name().toLowerCase(Locale.ROOT) + " " + cidr();
+    }
+}
@@ -0,0 +1,152 @@
+package com.kuspidsamples.security;
+
+import com.kuspidsamples.security.IpRuleTrie.Action;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.io.Resource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * IP allow/block rules checked before any rate limit bucket is touched. Rules come
+ * from an optional file (one "allow|block &lt;cidr&gt;" per line, # for comments),
+ * re-read periodically, plus rules added at runtime through the admin API.
+ * Runtime rules live in memory on this instance only; put anything that must
+ * survive a restart or apply to every replica in the file.
+ * Every change builds a fresh {@link IpRuleTrie} and publishes it with one volatile write.
+ */
+@Component
+public class IpRuleService {
+
+    private static final Logger logger = LoggerFactory.getLogger(IpRuleService.class);
+
+    private final Resource location;
+    private final Counter blockedCounter;
+
+    private final Map<String, IpRule> runtimeRules = new LinkedHashMap<>();
+    private volatile List<IpRule> fileRules = List.of();
+    private volatile String loadedContent;
+    private volatile IpRuleTrie trie = IpRuleTrie.EMPTY;
+
+    public IpRuleService(@Value("${rate-limit.ip-rules.location:}") String location,
+                         MeterRegistry meterRegistry) {
+        this.location = location == null || location.isBlank()
+                ? null
+                : new DefaultResourceLoader().getResource(location.trim());
+        this.blockedCounter = Counter.builder("ip_rules.blocked")
+                .description("Requests rejected by an IP block rule")
+                .register(meterRegistry);
+        Gauge.builder("ip_rules.count", this, service -> service.trie.getRuleCount())
+                .description("IP allow/block rules in force")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void init() {
+        reload();
+    }
+
+    /**
+     * Action of the most specific rule covering the address, or NONE
+     */
+    public Action check(ClientAddress address) {
+        Action action = trie.lookup(address);
+        if (action == Action.BLOCK) {
+            blockedCounter.increment();
+        }
+        return action;
+    }
+
+    /**
+     * All rules in force, file rules first; a runtime rule replaces a file rule for the same network
+     */
+    public synchronized List<IpRule> getRules() {
+        return List.copyOf(merged().values());
+    }
+
+    public synchronized IpRule addRule(IpRule rule) {
+        runtimeRules.put(rule.cidr(), rule);
+        rebuild();
+        logger.info("Added runtime IP rule: {}", rule);
+        return rule;
+    }
+
+    /**
+     * Remove a runtime rule; rules from the file can only be removed by editing it
+     */
+    public synchronized boolean removeRule(String cidr) {
+        String key = IpRule.parse(Action.BLOCK, cidr).cidr();
+        IpRule removed = runtimeRules.remove(key);
+        if (removed == null) {
+            return false;
+        }
+        rebuild();
+        logger.info("Removed runtime IP rule: {}", removed);
+        return true;
+    }
+
+    /**
+     * Re-read the rules file; a broken edit is logged and the previous rules stay in force
+     */
+    @Scheduled(initialDelayString = "${rate-limit.ip-rules.reload-interval:30000}",
+            fixedDelayString = "${rate-limit.ip-rules.reload-interval:30000}")
+    public void reload() {
+        if (location == null) {
+            return;
+        }
+        try (InputStream in = location.getInputStream()) {
+            String content = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            if (content.equals(loadedContent)) {
+                return;
+            }
+            List<IpRule> parsed = parse(content);
+            synchronized (this) {
+                fileRules = parsed;
+                loadedContent = content;
+                rebuild();
+            }
+            logger.info("Loaded {} IP rules from {}", parsed.size(), location);
+        } catch (IOException | RuntimeException e) {
+            logger.error("Could not load IP rules from {}; keeping the current set", location, e);
+        }
+    }
+
+    static List<IpRule> parse(String content) {
+        List<IpRule> rules = new ArrayList<>();
+        for (String line : content.split("\\R")) {
+            int comment = line.indexOf('#');
+            String rule = (comment < 0 ? line : line.substring(0, comment)).trim();
+            if (!rule.isEmpty()) {
+                rules.add(IpRule.parseLine(rule));
+            }
+        }
+        return rules;
+    }
+
+    private Map<String, IpRule> merged() {
+        Map<String, IpRule> rules = new LinkedHashMap<>();
+        for (IpRule rule : fileRules) {
+            rules.put(rule.cidr(), rule);
+        }
+        rules.putAll(runtimeRules);
+        return rules;
+    }
+
+    private void rebuild() {
+        trie = IpRuleTrie.build(new ArrayList<>(merged().values()));
+    }
+}
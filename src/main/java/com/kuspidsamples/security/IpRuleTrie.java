@@ -0,0 +1,190 @@
+package com.kuspidsamples.security;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Immutable longest-prefix-match table of allow/block CIDR rules. IPv4 rules are
+ * stored as IPv4-mapped IPv6 (::ffff:0:0/96), so both families share one 128-bit
+ * binary trie. Chains of rule-less single-child nodes are collapsed (path
+ * compression) and the nodes are flattened into parallel primitive arrays, so a
+ * lookup is at most a few dozen mask compares and never allocates.
+ * Changing the rules means building a new trie and swapping it in.
+ */
+public final class IpRuleTrie {
+
+    public enum Action { NONE, ALLOW, BLOCK }
+
+    private static final Action[] ACTIONS = Action.values();
+    private static final long IPV4_MAPPED = 0x0000FFFF00000000L;
+
+    public static final IpRuleTrie EMPTY = build(List.of());
+
+    private final long[] hi;
+    private final long[] lo;
+    private final int[] length;
+    private final int[] zero;
+    private final int[] one;
+    private final byte[] action;
+    private final int ruleCount;
+
+    private IpRuleTrie(long[] hi, long[] lo, int[] length, int[] zero, int[] one, byte[] action, int ruleCount) {
+        this.hi = hi;
+        this.lo = lo;
+        this.length = length;
+        this.zero = zero;
+        this.one = one;
+        this.action = action;
+        this.ruleCount = ruleCount;
+    }
+
+    /**
+     * Build from rules in any order. If the same network is listed twice, ALLOW wins.
+     */
+    public static IpRuleTrie build(List<IpRule> rules) {
+        BuildNode root = new BuildNode();
+        int nodes = 1;
+        for (IpRule rule : rules) {
+            long ruleHi = rule.ipv6() ? rule.hi() : 0;
+            long ruleLo = rule.ipv6() ? rule.lo() : IPV4_MAPPED | rule.lo();
+            int bits = rule.ipv6() ? rule.prefix() : rule.prefix() + 96;
+
+            BuildNode node = root;
+            for (int depth = 0; depth < bits; depth++) {
+                if (bit(ruleHi, ruleLo, depth) == 0) {
+                    if (node.zero == null) {
+                        node.zero = new BuildNode();
+                        nodes++;
+                    }
+                    node = node.zero;
+                } else {
+                    if (node.one == null) {
+                        node.one = new BuildNode();
+                        nodes++;
+                    }
+                    node = node.one;
+                }
+            }
+            if (node.action != Action.ALLOW) {
+                node.action = rule.action();
+            }
+        }
+
+        Flattener flattener = new Flattener(nodes);
+        flattener.emit(root, 0, 0, 0);
+        return flattener.finish(rules.size());
+    }
+
+    /**
+     * Action of the most specific rule covering the address, or NONE
+     */
+    public Action lookup(ClientAddress address) {
+        long addressHi = address.isIpv6() ? address.getHi() : 0;
+        long addressLo = address.isIpv6() ? address.getLo() : IPV4_MAPPED | address.getLo();
+        return lookup(addressHi, addressLo);
+    }
+
+    public Action lookup(long addressHi, long addressLo) {
+        int best = 0;
+        int node = 0;
+        while (node >= 0) {
+            int bits = length[node];
+            long maskHi = ClientAddress.highMask(bits);
+            long maskLo = ClientAddress.lowMask(bits);
+            if ((addressHi & maskHi) != hi[node] || (addressLo & maskLo) != lo[node]) {
+                break;
+            }
+            if (action[node] != 0) {
+                best = action[node];
+            }
+            if (bits == 128) {
+                break;
+            }
+            node = bit(addressHi, addressLo, bits) == 0 ? zero[node] : one[node];
+        }
+        return ACTIONS[best];
+    }
+
+    public int getRuleCount() {
+        return ruleCount;
+    }
+
+    public int getNodeCount() {
+        return length.length;
+    }
+
+    private static int bit(long hi, long lo, int index) {
+        return index < 64
+                ? (int) (hi >>> (63 - index)) & 1
+                : (int) (lo >>> (127 - index)) & 1;
+    }
+
+    private static final class BuildNode {
+        BuildNode zero;
+        BuildNode one;
+        Action action = Action.NONE;
+    }
+
+    private static final class Flattener {
+
+        private final long[] hi;
+        private final long[] lo;
+        private final int[] length;
+        private final int[] zero;
+        private final int[] one;
+        private final byte[] action;
+        private int count;
+
+        Flattener(int capacity) {
+            hi = new long[capacity];
+            lo = new long[capacity];
+            length = new int[capacity];
+            zero = new int[capacity];
+            one = new int[capacity];
+            action = new byte[capacity];
+        }
+
+        int emit(BuildNode node, int depth, long prefixHi, long prefixLo) {
+            // Skip down through nodes that carry no rule and do not branch
+            while (node.action == Action.NONE && (node.zero == null) != (node.one == null)) {
+                if (node.one != null) {
+                    if (depth < 64) {
+                        prefixHi |= 1L << (63 - depth);
+                    } else {
+                        prefixLo |= 1L << (127 - depth);
+                    }
+                    node = node.one;
+                } else {
+                    node = node.zero;
+                }
+                depth++;
+            }
+
+            int index = count++;
+            hi[index] = prefixHi;
+            lo[index] = prefixLo;
+            length[index] = depth;
+            action[index] = (byte) node.action.ordinal();
+            zero[index] = node.zero == null ? -1 : emit(node.zero, depth + 1, prefixHi, prefixLo);
+            if (node.one == null) {
+                one[index] = -1;
+            } else if (depth < 64) {
+                one[index] = emit(node.one, depth + 1, prefixHi | 1L << (63 - depth), prefixLo);
+            } else {
+                one[index] = emit(node.one, depth + 1, prefixHi, prefixLo | 1L << (127 - depth));
+            }
+            return index;
+        }
+
+        IpRuleTrie finish(int ruleCount) {
+            return new IpRuleTrie(
+                    Arrays.copyOf(hi, count),
+                    Arrays.copyOf(lo, count),
+                    Arrays.copyOf(length, count),
+                    Arrays.copyOf(zero, count),
+                    Arrays.copyOf(one, count),
+                    Arrays.copyOf(action, count),
+                    ruleCount);
+        }
+    }
+}
@@ -1,7 +1,13 @@
 package com.kuspidsamples.security;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.kuspidsamples.entity.User;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -9,31 +15,126 @@ import org.springframework.stereotype.Component;
 
 import jakarta.annotation.PostConstruct;
 import javax.crypto.SecretKey;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
-import java.util.Base64;
+import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
+/**
+ * The application's single JWT engine: issues and verifies access tokens.
+ * The signing key and parser are built once at startup and shared by all threads.
+ * ES* algorithms sign with the rotating key set from {@link SigningKeyManager};
+ * HS* algorithms use the shared jwt.secret.
+ */
 @Component
 public class JwtTokenProvider {
 
-    @Value("${jwt.secret:}") // fallback empty
-    private String jwtSecret;
+    private static final Logger logger = LoggerFactory.getLogger(JwtTokenProvider.class);
 
-    @Value("${jwt.expiration:3600000}") // default 1 hour
-    private long jwtExpiration;
+    private static final long INVALID_TOKEN_LOG_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    private final String jwtSecret;
+    private final long jwtExpiration;
+    private final long cacheMaxSize;
+    private final SignatureAlgorithm algorithm;
+    private final SigningKeyManager keyManager;
 
     private SecretKey key;
 
+    private JwtParser parser;
+
+    /**
+     * Verified claims keyed by the SHA-256 digest of the raw token, so repeat
+     * requests with the same access token skip signature checks and JSON decoding.
+     * Each entry lives until the token's own expiration.
+     */
+    private Cache<ByteBuffer, Claims> verifiedTokens;
+
+    // Invalid tokens are logged at most once per interval; a flood of them must not flood the log
+    private final AtomicLong nextInvalidTokenLog = new AtomicLong(System.nanoTime());
+    private final LongAdder unloggedInvalidTokens = new LongAdder();
+
+    public JwtTokenProvider(@Value("${jwt.secret:}") String jwtSecret,
+                            @Value("${jwt.expiration:3600000}") long jwtExpiration,
+                            @Value("${jwt.cache.max-size:10000}") long cacheMaxSize,
+                            @Value("${jwt.algorithm:ES256}") String algorithm,
+                            SigningKeyManager keyManager) {
+        this.jwtSecret = jwtSecret;
+        this.jwtExpiration = jwtExpiration;
+        this.cacheMaxSize = cacheMaxSize;
+        this.algorithm = resolveAlgorithm(algorithm);
+        this.keyManager = keyManager;
+    }
+
     @PostConstruct
     public void init() {
-        // Ensure key is at least 256 bits for HS512
-        if (jwtSecret == null || jwtSecret.length() < 32) {
-            key = Keys.secretKeyFor(SignatureAlgorithm.HS512); // guaranteed secure
-            jwtSecret = Base64.getEncoder().encodeToString(key.getEncoded());
-            System.out.println("⚠️ JWT_SECRET was empty or too weak. Generated temporary secret for dev: " + jwtSecret);
+        if (algorithm.isHmac()) {
+            initSharedSecret();
+        } else {
+            // ES256/384/512: sign with the rotating key set, verify by the token's kid header
+            parser = Jwts.parserBuilder()
+                    .setSigningKeyResolver(new SigningKeyResolverAdapter() {
+                        // jjwt 0.11 declares this parameter raw, so JwsHeader<?> would not override it
+                        @Override
+                        @SuppressWarnings("rawtypes")
+                        public Key resolveSigningKey(JwsHeader header, Claims claims) {
+                            return keyManager.resolveVerificationKey(header.getKeyId());
+                        }
+                    })
+                    .build();
+        }
+
+        verifiedTokens = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfter(new Expiry<ByteBuffer, Claims>() {
+                    @Override
+                    public long expireAfterCreate(ByteBuffer digest, Claims claims, long currentTime) {
+                        long remainingMs = claims.getExpiration().getTime() - System.currentTimeMillis();
+                        return TimeUnit.MILLISECONDS.toNanos(Math.max(remainingMs, 0));
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(ByteBuffer digest, Claims claims,
+                                                  long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+
+                    @Override
+                    public long expireAfterRead(ByteBuffer digest, Claims claims,
+                                                long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+    }
+
+    private void initSharedSecret() {
+        // HS256/384/512 need a key at least as long as the hash output (32/48/64 bytes)
+        int minKeyBytes = algorithm.getMinKeyLength() / Byte.SIZE;
+        if (jwtSecret == null || jwtSecret.getBytes(StandardCharsets.UTF_8).length < minKeyBytes) {
+            key = Keys.secretKeyFor(algorithm); // guaranteed secure
+            // Never log the key itself: anyone reading the logs could mint tokens with it
+            logger.warn("JWT_SECRET is empty or too weak for {}; signing with a random key for this process only"
+                    + " (tokens will not verify on other instances or after a restart; prefer jwt.algorithm=ES256)",
+                    algorithm.getValue());
         } else {
             key = Keys.hmacShaKeyFor(jwtSecret.getBytes(StandardCharsets.UTF_8));
         }
+
+        // Built parsers are immutable and thread-safe, so one instance serves every request
+        parser = Jwts.parserBuilder()
+                .setSigningKey(key)
+                .build();
     }
 
     public String generateToken(Authentication authentication) {
@@ -41,41 +142,151 @@ public class JwtTokenProvider {
         return generateTokenFromUsername(userDetails.getUsername());
     }
 
+    /**
+     * Issue a token that also carries the user's id and role
+     */
+    public String generateToken(User user) {
+        Map<String, Object> claims = new HashMap<>();
+        claims.put("role", user.getRole().name());
+        claims.put("id", user.getId());
+
+        return buildToken(claims, user.getUsername());
+    }
+
     public String generateTokenFromUsername(String username) {
+        return buildToken(null, username);
+    }
+
+    private String buildToken(Map<String, Object> claims, String username) {
         Date now = new Date();
         Date expiryDate = new Date(now.getTime() + jwtExpiration);
 
-        return Jwts.builder()
+        JwtBuilder builder = Jwts.builder();
+        if (claims != null) {
+            builder.setClaims(claims);
+        }
+
+        // jti lets a single token be revoked before it expires (see TokenRevocationService)
+        builder.setId(UUID.randomUUID().toString())
                 .setSubject(username)
                 .setIssuedAt(now)
-                .setExpiration(expiryDate)
-                .signWith(key, SignatureAlgorithm.HS512)
-                .compact();
-    }
+                .setExpiration(expiryDate);
 
-    public String getUsernameFromToken(String token) {
-        Claims claims = Jwts.parserBuilder()
-                .setSigningKey(key)
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
-        return claims.getSubject();
+        if (algorithm.isHmac()) {
+            builder.signWith(key, algorithm);
+        } else {
+            SigningKeyManager.ActiveKey activeKey = keyManager.currentSigningKey();
+            builder.setHeaderParam(JwsHeader.KEY_ID, activeKey.kid())
+                    .signWith(activeKey.privateKey(), algorithm);
+        }
+        return builder.compact();
     }
 
-    public boolean validateToken(String token) {
+    /**
+     * Verify the token once and return its claims, or empty if it is invalid or expired.
+     * Tokens seen before are answered from the cache without touching the signature.
+     */
+    public Optional<Claims> resolveClaims(String token) {
+        if (token == null || token.isEmpty()) {
+            return Optional.empty();
+        }
+
+        ByteBuffer digest = digest(token);
+        Claims cached = verifiedTokens.getIfPresent(digest);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+
         try {
-            Jwts.parserBuilder()
-                    .setSigningKey(key)
-                    .build()
-                    .parseClaimsJws(token);
-            return true;
+            Claims claims = parseClaims(token);
+            if (claims.getExpiration() != null) {
+                verifiedTokens.put(digest, claims);
+            }
+            return Optional.of(claims);
         } catch (JwtException | IllegalArgumentException e) {
-            System.err.println("Invalid JWT token: " + e.getMessage());
+            logInvalidToken(e);
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Claims of a token that was already verified and is still in the cache, without
+     * verifying anything. Costs one digest, so it is safe to call before rate limiting.
+     */
+    public Optional<Claims> cachedClaims(String token) {
+        if (token == null || token.isEmpty()) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(verifiedTokens.getIfPresent(digest(token)));
+    }
+
+    private void logInvalidToken(RuntimeException e) {
+        if (!logger.isDebugEnabled()) {
+            return;
         }
-        return false;
+        long now = System.nanoTime();
+        long due = nextInvalidTokenLog.get();
+        if (now - due < 0 || !nextInvalidTokenLog.compareAndSet(due, now + INVALID_TOKEN_LOG_INTERVAL_NANOS)) {
+            unloggedInvalidTokens.increment();
+            return;
+        }
+        logger.debug("Invalid JWT token: {} ({} more since last report)", e.getMessage(), unloggedInvalidTokens.sumThenReset());
+    }
+
+    /**
+     * Full signature check and decode, bypassing the verified-token cache
+     */
+    public Claims parseClaims(String token) {
+        return parser.parseClaimsJws(token).getBody();
+    }
+
+    public String getUsernameFromToken(String token) {
+        return resolveClaims(token)
+                .map(Claims::getSubject)
+                .orElseThrow(() -> new MalformedJwtException("Invalid JWT token"));
+    }
+
+    public boolean validateToken(String token) {
+        return resolveClaims(token).isPresent();
     }
 
     public long getJwtExpiration() {
         return jwtExpiration;
     }
+
+    public SignatureAlgorithm getAlgorithm() {
+        return algorithm;
+    }
+
+    /**
+     * Entries in the verified-token cache once pending evictions have run
+     */
+    long cachedTokenCount() {
+        verifiedTokens.cleanUp();
+        return verifiedTokens.estimatedSize();
+    }
+
+    static SignatureAlgorithm resolveAlgorithm(String name) {
+        SignatureAlgorithm resolved;
+        try {
+            resolved = SignatureAlgorithm.forName(name.trim().toUpperCase(Locale.ROOT));
+        } catch (JwtException e) {
+            // Not an algorithm name jjwt knows
+            resolved = null;
+        }
+        if (resolved == null || (!resolved.isHmac() && !resolved.isEllipticCurve())) {
+            throw new IllegalStateException("Unsupported jwt.algorithm " + name
+                    + "; use ES256, ES384, ES512, HS256, HS384 or HS512");
+        }
+        return resolved;
+    }
+
+    private static ByteBuffer digest(String token) {
+        try {
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            return ByteBuffer.wrap(sha256.digest(token.getBytes(StandardCharsets.US_ASCII)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
 }
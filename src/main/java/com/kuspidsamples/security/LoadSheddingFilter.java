@@ -0,0 +1,152 @@
+package com.kuspidsamples.security;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kuspidsamples.service.AdaptiveConcurrencyLimiter;
+import com.kuspidsamples.service.AdaptiveConcurrencyLimiter.Priority;
+import com.kuspidsamples.util.Constants;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Turns requests away with a fast 503 once the adaptive in-flight limit is reached,
+ * instead of letting them queue on Tomcat threads while the database or Cloudinary
+ * is slow. Runs ahead of Spring Security so a shed request costs next to nothing;
+ * priority is judged from the method, path and whether the request carries a token
+ * that was already verified (a cache lookup, no signature check).
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+public class LoadSheddingFilter extends OncePerRequestFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(LoadSheddingFilter.class);
+
+    private final AdaptiveConcurrencyLimiter limiter;
+    private final JwtTokenProvider tokenProvider;
+    private final boolean enabled;
+    private final ObjectMapper objectMapper;
+    private final Map<Priority, Counter> rejectedCounters = new EnumMap<>(Priority.class);
+
+    public LoadSheddingFilter(MeterRegistry meterRegistry,
+                              ObjectMapper objectMapper,
+                              JwtTokenProvider tokenProvider,
+                              @Value("${concurrency.adaptive.enabled:true}") boolean enabled,
+                              @Value("${concurrency.adaptive.initial-limit:20}") int initialLimit,
+                              @Value("${concurrency.adaptive.min-limit:5}") int minLimit,
+                              @Value("${concurrency.adaptive.max-limit:200}") int maxLimit,
+                              @Value("${concurrency.adaptive.tolerance:1.5}") double tolerance,
+                              @Value("${concurrency.adaptive.smoothing:0.2}") double smoothing,
+                              @Value("${concurrency.adaptive.window:1s}") Duration window,
+                              @Value("${concurrency.adaptive.min-window-samples:20}") int minWindowSamples) {
+        this.objectMapper = objectMapper;
+        this.tokenProvider = tokenProvider;
+        this.enabled = enabled;
+        this.limiter = new AdaptiveConcurrencyLimiter(initialLimit, minLimit, maxLimit,
+                tolerance, smoothing, window.toNanos(), minWindowSamples);
+
+        Gauge.builder("concurrency.limit", limiter, AdaptiveConcurrencyLimiter::getLimit)
+                .description("Current adaptive in-flight request limit")
+                .register(meterRegistry);
+        Gauge.builder("concurrency.in_flight", limiter, AdaptiveConcurrencyLimiter::getInFlight)
+                .description("Requests currently being served")
+                .register(meterRegistry);
+        Gauge.builder("concurrency.rtt.baseline", limiter, AdaptiveConcurrencyLimiter::getLongRttMillis)
+                .description("Long-term average response time the limit is judged against")
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+        for (Priority priority : Priority.values()) {
+            rejectedCounters.put(priority, Counter.builder("concurrency.rejected")
+                    .description("Requests shed because the in-flight limit was reached")
+                    .tag("priority", priority.name().toLowerCase(Locale.ROOT))
+                    .register(meterRegistry));
+        }
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        // WebSocket sessions are long-lived and would hold a slot for their whole life
+        return !enabled || request.getRequestURI().startsWith("/ws");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+
+        Priority priority = classify(request);
+        if (!limiter.tryAcquire(priority)) {
+            rejectedCounters.get(priority).increment();
+            logger.debug("Shedding {} {} ({} priority, limit {})",
+                    request.getMethod(), request.getRequestURI(), priority, limiter.getLimit());
+            sendOverloaded(response);
+            return;
+        }
+
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            filterChain.doFilter(request, response);
+            failed = false;
+        } finally {
+            // Failed and async requests say little about steady-state latency
+            limiter.release(failed || request.isAsyncStarted() ? -1 : System.nanoTime() - start);
+        }
+    }
+
+    Priority classify(HttpServletRequest request) {
+        String method = request.getMethod();
+        String path = request.getRequestURI();
+        if ("OPTIONS".equals(method) || "/health".equals(path) || "/".equals(path)
+                || path.startsWith("/actuator/health")) {
+            return Priority.CRITICAL;
+        }
+        if (path.startsWith(Constants.AUTH_BASE_PATH)) {
+            return Priority.MEDIUM;
+        }
+
+        // Any client can send "Bearer x"; only a token seen valid before earns the higher priority
+        String authorization = request.getHeader(Constants.HEADER_STRING);
+        boolean authenticated = authorization != null && authorization.startsWith(Constants.TOKEN_PREFIX)
+                && tokenProvider.cachedClaims(authorization.substring(Constants.TOKEN_PREFIX.length())).isPresent();
+        boolean read = "GET".equals(method) || "HEAD".equals(method);
+        if (!authenticated) {
+            return read ? Priority.LOW : Priority.MEDIUM;
+        }
+        return read ? Priority.MEDIUM : Priority.HIGH;
+    }
+
+    private void sendOverloaded(HttpServletResponse response) throws IOException {
+        response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+
+        Map<String, Object> errorDetails = new HashMap<>();
+        errorDetails.put("status", HttpStatus.SERVICE_UNAVAILABLE.value());
+        errorDetails.put("message", "Server is busy. Please try again shortly.");
+        errorDetails.put("timestamp", LocalDateTime.now().toString());
+
+        response.getWriter().write(objectMapper.writeValueAsString(errorDetails));
+    }
+}
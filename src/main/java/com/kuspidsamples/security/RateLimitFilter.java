@@ -1,34 +1,92 @@
 package com.kuspidsamples.security;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kuspidsamples.service.HeavyHitterSketch.HeavyHitter;
+import com.kuspidsamples.service.HeavyHitterTracker;
+import com.kuspidsamples.service.RateLimitPolicy;
+import com.kuspidsamples.service.RateLimitPolicyRegistry;
+import com.kuspidsamples.service.RateLimitResult;
 import com.kuspidsamples.service.RateLimitService;
+import com.kuspidsamples.service.StripedRateLimiter;
+import com.kuspidsamples.util.Constants;
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
+/**
+ * Per-route limits from {@link RateLimitPolicyRegistry}, checked after load shedding
+ * and ahead of Spring Security so a rejected request never reaches signature checks.
+ */
 @Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 20)
 public class RateLimitFilter extends OncePerRequestFilter {
 
     private static final Logger logger = LoggerFactory.getLogger(RateLimitFilter.class);
 
+    public static final String HEADER_LIMIT = "X-RateLimit-Limit";
+    public static final String HEADER_REMAINING = "X-RateLimit-Remaining";
+
+    static final String TIER_ANONYMOUS = "anonymous";
+    static final String TIER_USER = "user";
+
     private final RateLimitService rateLimitService;
+    private final RateLimitPolicyRegistry policyRegistry;
+    private final JwtTokenProvider tokenProvider;
+    private final TokenRevocationService revocationService;
+    private final ClientIpResolver clientIpResolver;
+    private final IpRuleService ipRuleService;
+    private final HeavyHitterTracker heavyHitterTracker;
     private final ObjectMapper objectMapper;
 
-    public RateLimitFilter(RateLimitService rateLimitService, ObjectMapper objectMapper) {
+    // Rejections are logged as a periodic summary, not one line each
+    private final long rejectionLogIntervalNanos;
+    private final AtomicLong nextRejectionLog = new AtomicLong(System.nanoTime());
+    private final LongAdder unloggedRejections = new LongAdder();
+
+    // The resolver's address is per thread and reused downstream; keep our own copy for after the chain
+    private final ThreadLocal<ClientAddress> trackedAddress = ThreadLocal.withInitial(ClientAddress::new);
+
+    public RateLimitFilter(RateLimitService rateLimitService,
+                           RateLimitPolicyRegistry policyRegistry,
+                           JwtTokenProvider tokenProvider,
+                           TokenRevocationService revocationService,
+                           ClientIpResolver clientIpResolver,
+                           IpRuleService ipRuleService,
+                           HeavyHitterTracker heavyHitterTracker,
+                           ObjectMapper objectMapper,
+                           @Value("${rate-limit.rejection-log-interval:10s}") Duration rejectionLogInterval) {
         this.rateLimitService = rateLimitService;
+        this.policyRegistry = policyRegistry;
+        this.tokenProvider = tokenProvider;
+        this.revocationService = revocationService;
+        this.clientIpResolver = clientIpResolver;
+        this.ipRuleService = ipRuleService;
+        this.heavyHitterTracker = heavyHitterTracker;
         this.objectMapper = objectMapper;
+        this.rejectionLogIntervalNanos = rejectionLogInterval.toNanos();
     }
 
     @Override
@@ -36,43 +94,127 @@ public class RateLimitFilter extends OncePerRequestFilter {
                                     HttpServletResponse response,
                                     FilterChain filterChain) throws ServletException, IOException {
 
-        String key = getClientIP(request);
+        // IP rules come first: a blocked client costs one trie walk, an allowed one skips limits
+        ClientAddress address = clientIpResolver.resolve(request);
+        if (address != null) {
+            IpRuleTrie.Action action = ipRuleService.check(address);
+            if (action == IpRuleTrie.Action.BLOCK) {
+                sendError(response, HttpStatus.FORBIDDEN, "Access denied.");
+                return;
+            }
+            if (action == IpRuleTrie.Action.ALLOW) {
+                filterChain.doFilter(request, response);
+                return;
+            }
+        }
+
         String path = request.getRequestURI();
+        RateLimitPolicy policy = policyRegistry.resolve(request.getMethod(), path);
+        if (policy == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
 
-        // Apply stricter rate limiting for authentication endpoints
-        boolean allowed;
-        if (path.startsWith("/api/auth/")) {
-            allowed = rateLimitService.tryConsumeAuth(key);
+        // Signed-in clients are limited per user, wherever they connect from;
+        // everyone else per IP. Only tokens already verified (by the JWT filter, on an
+        // earlier request) and not revoked since select a user bucket: this filter runs
+        // before the security chain does any signature work, so a forged, unseen or
+        // revoked token is charged to its IP.
+        Claims claims = cachedClaims(request);
+        RateLimitResult result;
+        long keyHash;
+        Object key;
+        if (claims != null) {
+            String userKey = "user:" + claims.getSubject();
+            result = rateLimitService.tryConsume(policy, tierOf(claims), userKey);
+            keyHash = StripedRateLimiter.hash(userKey);
+            key = userKey;
+        } else if (address != null) {
+            address = clientIpResolver.toKeyAddress(address);
+            result = rateLimitService.tryConsume(policy, TIER_ANONYMOUS, address);
+            ClientAddress tracked = trackedAddress.get();
+            tracked.copyFrom(address);
+            keyHash = tracked.key();
+            key = tracked;
         } else {
-            allowed = rateLimitService.tryConsume(key);
+            String ipKey = "ip:" + request.getRemoteAddr();
+            result = rateLimitService.tryConsume(policy, TIER_ANONYMOUS, ipKey);
+            keyHash = StripedRateLimiter.hash(ipKey);
+            key = ipKey;
         }
+        response.setHeader(HEADER_LIMIT, String.valueOf(result.limit()));
+        response.setHeader(HEADER_REMAINING, String.valueOf(result.remaining()));
 
-        if (!allowed) {
-            logger.warn("Rate limit exceeded for IP: {} on path: {}", key, path);
-            sendRateLimitError(response);
+        if (!result.allowed()) {
+            heavyHitterTracker.recordRejection(keyHash, key);
+            logRejection(key, path, policy);
+            sendRateLimitError(response, result);
             return;
         }
 
-        filterChain.doFilter(request, response);
+        long start = System.nanoTime();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            heavyHitterTracker.recordRequest(keyHash, key, System.nanoTime() - start);
+        }
     }
 
-    private String getClientIP(HttpServletRequest request) {
-        String xfHeader = request.getHeader("X-Forwarded-For");
-        if (xfHeader == null || xfHeader.isEmpty()) {
-            return request.getRemoteAddr();
+    /**
+     * At most one WARN per interval: this rejection, how many went unlogged since the
+     * last line and who is being rejected most
+     */
+    private void logRejection(Object key, String path, RateLimitPolicy policy) {
+        long now = System.nanoTime();
+        long due = nextRejectionLog.get();
+        if (now - due < 0 || !nextRejectionLog.compareAndSet(due, now + rejectionLogIntervalNanos)) {
+            unloggedRejections.increment();
+            return;
         }
-        return xfHeader.split(",")[0].trim();
+        List<HeavyHitter> top = heavyHitterTracker.topRejections();
+        logger.warn("Rate limit exceeded for {} on path: {} (policy {}); {} more rejections since last report, top offenders: {}",
+                key, path, policy.getName(), unloggedRejections.sumThenReset(), top.subList(0, Math.min(5, top.size())));
+    }
+
+    private Claims cachedClaims(HttpServletRequest request) {
+        String bearerToken = request.getHeader(Constants.HEADER_STRING);
+        if (StringUtils.hasText(bearerToken) && bearerToken.startsWith(Constants.TOKEN_PREFIX)) {
+            return tokenProvider.cachedClaims(bearerToken.substring(Constants.TOKEN_PREFIX.length()))
+                    .filter(claims -> !revocationService.isRevoked(claims.getId()))
+                    .orElse(null);
+        }
+        return null;
+    }
+
+    /**
+     * Plan tier from the token: an explicit "plan" claim wins, otherwise admin or user by role
+     */
+    static String tierOf(Claims claims) {
+        Object plan = claims.get("plan");
+        if (plan != null) {
+            return plan.toString().toLowerCase(Locale.ROOT);
+        }
+        Object role = claims.get("role");
+        if (role != null && role.toString().startsWith("ROLE_")) {
+            return role.toString().substring("ROLE_".length()).toLowerCase(Locale.ROOT);
+        }
+        return TIER_USER;
+    }
+
+    private void sendRateLimitError(HttpServletResponse response, RateLimitResult result) throws IOException {
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(result.retryAfterSeconds()));
+        sendError(response, HttpStatus.TOO_MANY_REQUESTS, "Too many requests. Please try again later.");
     }
 
-    private void sendRateLimitError(HttpServletResponse response) throws IOException {
-        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+    private void sendError(HttpServletResponse response, HttpStatus status, String message) throws IOException {
+        response.setStatus(status.value());
         response.setContentType(MediaType.APPLICATION_JSON_VALUE);
 
         Map<String, Object> errorDetails = new HashMap<>();
-        errorDetails.put("status", HttpStatus.TOO_MANY_REQUESTS.value());
-        errorDetails.put("message", "Too many requests. Please try again later.");
+        errorDetails.put("status", status.value());
+        errorDetails.put("message", message);
         errorDetails.put("timestamp", LocalDateTime.now().toString());
 
         response.getWriter().write(objectMapper.writeValueAsString(errorDetails));
     }
-}
\ No newline at end of file
+}
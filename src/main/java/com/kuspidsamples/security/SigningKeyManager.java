@@ -0,0 +1,263 @@
+package com.kuspidsamples.security;
+
+import com.kuspidsamples.entity.SigningKey;
+import com.kuspidsamples.repository.SigningKeyRepository;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.UnsupportedJwtException;
+import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.*;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+
+/**
+ * Rotating asymmetric key set for JWT signing, shared by all replicas through the
+ * signing_keys table. New keys are published (JWKS, verifier caches) for a lead
+ * period before anyone signs with them, and stay published until every token they
+ * signed has expired, so replicas never need to coordinate restarts.
+ */
+@Component
+public class SigningKeyManager {
+
+    private static final Logger logger = LoggerFactory.getLogger(SigningKeyManager.class);
+
+    private static final int GCM_IV_BYTES = 12;
+    private static final int GCM_TAG_BITS = 128;
+    private static final long MISS_REFRESH_INTERVAL_NANOS = Duration.ofSeconds(5).toNanos();
+
+    private final SigningKeyRepository signingKeyRepository;
+    private final SignatureAlgorithm algorithm;
+    private final Duration rotationPeriod;
+    private final Duration publishLead;
+    private final Duration tokenLifetime;
+    private final SecretKey wrappingKey;
+    private final SecureRandom secureRandom = new SecureRandom();
+
+    private volatile KeySet keySet = KeySet.EMPTY;
+    private volatile long lastMissRefreshNanos = System.nanoTime() - MISS_REFRESH_INTERVAL_NANOS;
+
+    public SigningKeyManager(SigningKeyRepository signingKeyRepository,
+                             @Value("${jwt.algorithm:ES256}") String algorithm,
+                             @Value("${jwt.keys.rotation-period:7d}") Duration rotationPeriod,
+                             @Value("${jwt.keys.publish-lead:10m}") Duration publishLead,
+                             @Value("${jwt.expiration:3600000}") long jwtExpiration,
+                             @Value("${jwt.keys.encryption-secret:}") String encryptionSecret) {
+        this.signingKeyRepository = signingKeyRepository;
+        // Built before JwtTokenProvider, so an unsupported name must fail here with the same message
+        SignatureAlgorithm resolved = JwtTokenProvider.resolveAlgorithm(algorithm);
+        this.algorithm = resolved.isEllipticCurve() ? resolved : null;
+        this.rotationPeriod = rotationPeriod;
+        this.publishLead = publishLead;
+        this.tokenLifetime = Duration.ofMillis(jwtExpiration);
+        this.wrappingKey = encryptionSecret == null || encryptionSecret.isBlank()
+                ? null
+                : new SecretKeySpec(sha256(encryptionSecret.getBytes(StandardCharsets.UTF_8)), "AES");
+    }
+
+    @PostConstruct
+    public void init() {
+        if (!isEnabled()) {
+            return;
+        }
+        if (wrappingKey == null) {
+            logger.warn("jwt.keys.encryption-secret is not set; signing keys are stored unencrypted");
+        }
+        maintain();
+    }
+
+    public boolean isEnabled() {
+        return algorithm != null;
+    }
+
+    public SignatureAlgorithm getAlgorithm() {
+        return algorithm;
+    }
+
+    /**
+     * Rotate if the active key is close to the end of its signing window,
+     * drop keys nobody can still hold tokens for, and reload the in-memory set.
+     */
+    @Scheduled(fixedDelayString = "${jwt.keys.refresh-interval:60000}")
+    public void maintain() {
+        if (!isEnabled()) {
+            return;
+        }
+        try {
+            Instant now = Instant.now();
+            long purged = signingKeyRepository.deleteByVerifyUntilBefore(now);
+            if (purged > 0) {
+                logger.info("Removed {} expired JWT signing key(s)", purged);
+            }
+            rotateIfNeeded(now);
+            refresh();
+        } catch (Exception e) {
+            // Keep serving with the key set we already have
+            logger.error("JWT signing key maintenance failed", e);
+        }
+    }
+
+    /**
+     * Key id and private key to sign new tokens with
+     */
+    public ActiveKey currentSigningKey() {
+        ActiveKey active = keySet.signing;
+        if (active == null || Instant.now().isAfter(active.signUntil())) {
+            refresh();
+            active = keySet.signing;
+        }
+        if (active == null) {
+            throw new IllegalStateException("No active JWT signing key is available");
+        }
+        return active;
+    }
+
+    /**
+     * Public key for a token's kid header. Unknown ids trigger a (rate limited)
+     * reload so keys created by another replica are picked up immediately.
+     */
+    public PublicKey resolveVerificationKey(String kid) {
+        if (kid == null) {
+            throw new UnsupportedJwtException("Token has no kid header");
+        }
+        VerificationKey key = keySet.verification.get(kid);
+        if (key == null) {
+            long now = System.nanoTime();
+            if (now - lastMissRefreshNanos >= MISS_REFRESH_INTERVAL_NANOS) {
+                lastMissRefreshNanos = now;
+                refresh();
+                key = keySet.verification.get(kid);
+            }
+        }
+        if (key == null) {
+            throw new UnsupportedJwtException("Unknown signing key id: " + kid);
+        }
+        return key.publicKey();
+    }
+
+    /**
+     * Every key that may still verify a live token, newest first (JWKS content)
+     */
+    public Collection<VerificationKey> publishedKeys() {
+        return keySet.verification.values();
+    }
+
+    private synchronized void refresh() {
+        Instant now = Instant.now();
+        List<SigningKey> keys = signingKeyRepository.findByVerifyUntilAfterOrderByActiveFromDesc(now);
+
+        Map<String, VerificationKey> verification = new LinkedHashMap<>();
+        ActiveKey signing = null;
+        for (SigningKey key : keys) {
+            try {
+                PublicKey publicKey = KeyFactory.getInstance("EC")
+                        .generatePublic(new X509EncodedKeySpec(key.getPublicKey()));
+                verification.put(key.getKid(), new VerificationKey(key.getKid(), key.getAlgorithm(), publicKey));
+
+                if (signing == null && canSign(key, now)) {
+                    PrivateKey privateKey = KeyFactory.getInstance("EC")
+                            .generatePrivate(new PKCS8EncodedKeySpec(unwrap(key)));
+                    signing = new ActiveKey(key.getKid(), privateKey, key.getSignUntil().plus(publishLead));
+                }
+            } catch (GeneralSecurityException e) {
+                logger.error("Skipping unreadable JWT signing key {}", key.getKid(), e);
+            }
+        }
+        keySet = new KeySet(Collections.unmodifiableMap(verification), signing);
+    }
+
+    private void rotateIfNeeded(Instant now) {
+        List<SigningKey> keys = signingKeyRepository.findByVerifyUntilAfterOrderByActiveFromDesc(now);
+        SigningKey newest = keys.stream()
+                .filter(key -> algorithm.getValue().equals(key.getAlgorithm()))
+                .findFirst()
+                .orElse(null);
+
+        if (newest != null && newest.getSignUntil().minus(publishLead).isAfter(now)) {
+            return;
+        }
+
+        // Publish ahead of use, unless nothing can sign right now
+        boolean anySignable = keys.stream().anyMatch(key -> canSign(key, now));
+        Instant activeFrom = anySignable ? now.plus(publishLead) : now;
+
+        KeyPair keyPair = Keys.keyPairFor(algorithm);
+        SigningKey key = new SigningKey();
+        key.setKid(UUID.randomUUID().toString());
+        key.setAlgorithm(algorithm.getValue());
+        key.setPublicKey(keyPair.getPublic().getEncoded());
+        key.setPrivateKey(wrap(keyPair.getPrivate().getEncoded()));
+        key.setEncrypted(wrappingKey != null);
+        key.setActiveFrom(activeFrom);
+        key.setSignUntil(activeFrom.plus(rotationPeriod));
+        key.setVerifyUntil(activeFrom.plus(rotationPeriod).plus(publishLead).plus(tokenLifetime));
+        signingKeyRepository.save(key);
+
+        logger.info("Generated JWT signing key {} ({}), active from {}", key.getKid(), key.getAlgorithm(), activeFrom);
+    }
+
+    private boolean canSign(SigningKey key, Instant now) {
+        return algorithm.getValue().equals(key.getAlgorithm())
+                && !key.getActiveFrom().isAfter(now)
+                && now.isBefore(key.getSignUntil().plus(publishLead));
+    }
+
+    private byte[] wrap(byte[] encoded) {
+        if (wrappingKey == null) {
+            return encoded;
+        }
+        try {
+            byte[] iv = new byte[GCM_IV_BYTES];
+            secureRandom.nextBytes(iv);
+            Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+            cipher.init(Cipher.ENCRYPT_MODE, wrappingKey, new GCMParameterSpec(GCM_TAG_BITS, iv));
+            byte[] ciphertext = cipher.doFinal(encoded);
+            return ByteBuffer.allocate(iv.length + ciphertext.length).put(iv).put(ciphertext).array();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Could not encrypt JWT signing key", e);
+        }
+    }
+
+    private byte[] unwrap(SigningKey key) throws GeneralSecurityException {
+        if (!Boolean.TRUE.equals(key.getEncrypted())) {
+            return key.getPrivateKey();
+        }
+        if (wrappingKey == null) {
+            throw new GeneralSecurityException("Key is encrypted but jwt.keys.encryption-secret is not set");
+        }
+        byte[] stored = key.getPrivateKey();
+        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        cipher.init(Cipher.DECRYPT_MODE, wrappingKey, new GCMParameterSpec(GCM_TAG_BITS, stored, 0, GCM_IV_BYTES));
+        return cipher.doFinal(stored, GCM_IV_BYTES, stored.length - GCM_IV_BYTES);
+    }
+
+    private static byte[] sha256(byte[] input) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(input);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    public record ActiveKey(String kid, PrivateKey privateKey, Instant signUntil) {}
+
+    public record VerificationKey(String kid, String algorithm, PublicKey publicKey) {}
+
+    private record KeySet(Map<String, VerificationKey> verification, ActiveKey signing) {
+        static final KeySet EMPTY = new KeySet(Map.of(), null);
+    }
+}
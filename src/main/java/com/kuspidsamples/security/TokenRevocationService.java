@@ -0,0 +1,248 @@
+package com.kuspidsamples.security;
+
+import com.kuspidsamples.entity.RevokedToken;
+import com.kuspidsamples.repository.RevokedTokenRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * In-memory list of revoked access tokens (by jti), shared by all replicas through
+ * the revoked_tokens table. Lookups never touch the database: a Bloom filter answers
+ * "definitely not revoked" for almost every request, and only its rare hits fall
+ * through to the exact set. Each replica polls for rows newer than its watermark.
+ */
+@Component
+public class TokenRevocationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TokenRevocationService.class);
+
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+    private static final int MIN_CAPACITY = 1024;
+
+    private final RevokedTokenRepository revokedTokenRepository;
+    private final TransactionTemplate insertTransaction;
+    private final int batchSize;
+    private final Duration syncOverlap;
+
+    /** jti -> token expiry (epoch millis); the source of truth for in-memory checks */
+    private final Map<String, Long> revoked = new ConcurrentHashMap<>();
+
+    private volatile BloomFilter filter = new BloomFilter(MIN_CAPACITY, FALSE_POSITIVE_RATE);
+    private volatile Instant watermark = Instant.EPOCH;
+
+    public TokenRevocationService(RevokedTokenRepository revokedTokenRepository,
+                                  PlatformTransactionManager transactionManager,
+                                  @Value("${jwt.revocation.sync-batch-size:1000}") int batchSize,
+                                  @Value("${jwt.revocation.sync-overlap:30s}") Duration syncOverlap) {
+        this.revokedTokenRepository = revokedTokenRepository;
+        this.insertTransaction = new TransactionTemplate(transactionManager);
+        this.insertTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.batchSize = batchSize;
+        this.syncOverlap = syncOverlap;
+    }
+
+    @PostConstruct
+    public void init() {
+        sync();
+    }
+
+    /**
+     * True if the token id was revoked. O(1) and allocation-free on the common path.
+     */
+    public boolean isRevoked(String jti) {
+        if (jti == null || !filter.mightContain(jti)) {
+            return false;
+        }
+        Long expiresAt = revoked.get(jti);
+        return expiresAt != null && expiresAt > System.currentTimeMillis();
+    }
+
+    /**
+     * Revoke a token until its own expiry. Takes effect locally at once and on
+     * other replicas at their next sync. The row is inserted and flushed in its own
+     * transaction, so a duplicate jti fails here rather than at the caller's commit.
+     */
+    public void revoke(String jti, Instant expiresAt) {
+        if (jti == null || expiresAt == null || !expiresAt.isAfter(Instant.now())) {
+            return;
+        }
+        if (revoked.containsKey(jti)) {
+            return;
+        }
+        try {
+            insertTransaction.executeWithoutResult(status -> {
+                if (!revokedTokenRepository.existsByJti(jti)) {
+                    revokedTokenRepository.saveAndFlush(new RevokedToken(jti, expiresAt, Instant.now()));
+                }
+            });
+        } catch (DataIntegrityViolationException e) {
+            // Already revoked by a concurrent request or another replica
+        }
+        add(jti, expiresAt.toEpochMilli());
+    }
+
+    /**
+     * Pull rows revoked since the last watermark. The window reaches back by the
+     * configured overlap so rows committed late, or stamped by a replica whose clock
+     * lags ours, are still picked up; re-adding a known jti is a no-op.
+     */
+    @Scheduled(fixedDelayString = "${jwt.revocation.sync-interval:5000}")
+    public void sync() {
+        try {
+            Instant since = watermark.minus(syncOverlap);
+            Instant newest = watermark;
+            for (int page = 0; ; page++) {
+                List<RevokedToken> batch = revokedTokenRepository
+                        .findByRevokedAtGreaterThanEqualOrderByRevokedAtAsc(since, PageRequest.of(page, batchSize));
+                for (RevokedToken token : batch) {
+                    add(token.getJti(), token.getExpiresAt().toEpochMilli());
+                    if (token.getRevokedAt().isAfter(newest)) {
+                        newest = token.getRevokedAt();
+                    }
+                }
+                if (batch.size() < batchSize) {
+                    break;
+                }
+            }
+            watermark = newest;
+        } catch (Exception e) {
+            logger.error("Token revocation sync failed; serving the list we already have", e);
+        }
+    }
+
+    /**
+     * Drop entries whose tokens have expired (locally and in the table) and rebuild
+     * the Bloom filter sized for what is left, which also resets its false-positive rate.
+     */
+    @Scheduled(fixedDelayString = "${jwt.revocation.compact-interval:600000}")
+    public void compact() {
+        long now = System.currentTimeMillis();
+        revoked.values().removeIf(expiresAt -> expiresAt <= now);
+        rebuildFilter();
+
+        try {
+            long purged = revokedTokenRepository.deleteByExpiresAtBefore(Instant.ofEpochMilli(now));
+            if (purged > 0) {
+                logger.info("Removed {} expired revoked-token row(s)", purged);
+            }
+        } catch (Exception e) {
+            logger.error("Could not purge expired revoked tokens", e);
+        }
+    }
+
+    public int size() {
+        return revoked.size();
+    }
+
+    private void add(String jti, long expiresAt) {
+        if (expiresAt <= System.currentTimeMillis()) {
+            return;
+        }
+        // Exact set first, so a filter hit always finds the entry
+        if (revoked.putIfAbsent(jti, expiresAt) == null) {
+            BloomFilter current = filter;
+            current.put(jti);
+            if (revoked.size() > current.capacity()) {
+                rebuildFilter();
+            }
+        }
+    }
+
+    private synchronized void rebuildFilter() {
+        BloomFilter rebuilt = new BloomFilter(Math.max(MIN_CAPACITY, revoked.size() * 2), FALSE_POSITIVE_RATE);
+        for (String jti : revoked.keySet()) {
+            rebuilt.put(jti);
+        }
+        filter = rebuilt;
+        // Entries added while we copied may have gone into the old filter only
+        for (String jti : revoked.keySet()) {
+            rebuilt.put(jti);
+        }
+    }
+
+    /**
+     * Fixed-size Bloom filter over strings, safe for concurrent put/mightContain.
+     * Uses double hashing (h1 + i*h2) over a 64-bit FNV-1a hash of the chars.
+     */
+    static final class BloomFilter {
+
+        private final AtomicLongArray bits;
+        private final long bitCount;
+        private final int hashCount;
+        private final int capacity;
+
+        BloomFilter(int capacity, double falsePositiveRate) {
+            long m = (long) Math.ceil(-capacity * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+            int words = (int) Math.max(1, (m + 63) >>> 6);
+            this.bits = new AtomicLongArray(words);
+            this.bitCount = (long) words << 6;
+            this.hashCount = Math.max(1, (int) Math.round((double) bitCount / capacity * Math.log(2)));
+            this.capacity = capacity;
+        }
+
+        int capacity() {
+            return capacity;
+        }
+
+        void put(String value) {
+            long h1 = hash(value);
+            long h2 = mix(h1);
+            for (int i = 0; i < hashCount; i++) {
+                long index = Math.floorMod(h1 + i * h2, bitCount);
+                int word = (int) (index >>> 6);
+                long mask = 1L << index;
+                long current;
+                do {
+                    current = bits.get(word);
+                    if ((current & mask) != 0) {
+                        break;
+                    }
+                } while (!bits.compareAndSet(word, current, current | mask));
+            }
+        }
+
+        boolean mightContain(String value) {
+            long h1 = hash(value);
+            long h2 = mix(h1);
+            for (int i = 0; i < hashCount; i++) {
+                long index = Math.floorMod(h1 + i * h2, bitCount);
+                if ((bits.get((int) (index >>> 6)) & (1L << index)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static long hash(String value) {
+            long hash = 0xcbf29ce484222325L;
+            for (int i = 0; i < value.length(); i++) {
+                hash ^= value.charAt(i);
+                hash *= 0x100000001b3L;
+            }
+            return hash;
+        }
+
+        private static long mix(long hash) {
+            hash ^= hash >>> 33;
+            hash *= 0xff51afd7ed558ccdL;
+            hash ^= hash >>> 33;
+            return hash | 1;
+        }
+    }
+}
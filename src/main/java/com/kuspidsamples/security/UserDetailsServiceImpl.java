@@ -36,7 +36,7 @@ public class UserDetailsServiceImpl implements UserDetailsService {
                 user.getEnabled(),
                 user.getAccountNonExpired(),
                 user.getCredentialsNonExpired(),
-                user.getAccountNonLocked(),
+                !user.isLockActive(), // timed locks lapse on their own
                 getAuthorities(user)
         );
     }
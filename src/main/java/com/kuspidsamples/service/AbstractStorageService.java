@@ -0,0 +1,165 @@
+package com.kuspidsamples.service;
+
+import com.kuspidsamples.entity.PendingAssetDeletion;
+import com.kuspidsamples.entity.StoredAsset;
+import com.kuspidsamples.exception.BadRequestException;
+import com.kuspidsamples.repository.PendingAssetDeletionRepository;
+import com.kuspidsamples.repository.StoredAssetRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * The upload path every backend shares: spool the part, deduplicate by content hash,
+ * downscale, store, and register the new asset. Backends only implement
+ * {@link #store} and deletion.
+ */
+public abstract class AbstractStorageService implements StorageService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AbstractStorageService.class);
+
+    private final StoredAssetRepository storedAssetRepository;
+    private final PendingAssetDeletionRepository pendingAssetDeletionRepository;
+    private final ImageProcessingService imageProcessingService;
+
+    protected AbstractStorageService(StoredAssetRepository storedAssetRepository,
+                                     PendingAssetDeletionRepository pendingAssetDeletionRepository,
+                                     ImageProcessingService imageProcessingService) {
+        this.storedAssetRepository = storedAssetRepository;
+        this.pendingAssetDeletionRepository = pendingAssetDeletionRepository;
+        this.imageProcessingService = imageProcessingService;
+    }
+
+    /**
+     * The part is moved to a temp file (a rename when the container already spooled it
+     * to disk), hashed and stored from there, so the upload never holds the whole file
+     * in memory.
+     */
+    @Override
+    public Map<String, Object> uploadFile(MultipartFile file, String folder) {
+        Path spooled = null;
+        try {
+            spooled = Files.createTempFile("upload-", ".part");
+            file.transferTo(spooled.toFile());
+            return uploadFile(spooled.toFile(), folder);
+        } catch (IOException e) {
+            throw new BadRequestException("Failed to upload file: " + e.getMessage());
+        } finally {
+            deleteQuietly(spooled);
+        }
+    }
+
+    /**
+     * Content that was uploaded before (same SHA-256) is not stored again: the existing
+     * asset is returned and shared. Callers take and drop references to the result
+     * through {@link StoredAssetService}. New images are downscaled and recompressed
+     * by {@link ImageProcessingService} first; the hash is of the original, so a repeat
+     * upload is recognised before any of that work is done.
+     * <p>
+     * A reused asset is touched first, which restarts its grace period: the caller then
+     * has that long to acquire it before the reclaim sweep may take it. If the sweep
+     * got there first the touch finds no row and the content is uploaded again.
+     */
+    @Override
+    public Map<String, Object> uploadFile(File file, String folder) {
+        Path processed = null;
+        try {
+            String hash = sha256(file);
+            Optional<StoredAsset> existing = storedAssetRepository.findByHash(hash);
+            if (existing.isPresent() && storedAssetRepository.touch(existing.get().getId(), Instant.now()) > 0) {
+                logger.debug("Reusing asset {} for identical upload", existing.get().getPublicId());
+                return toResult(existing.get().getUrl(), existing.get().getPublicId());
+            }
+
+            processed = imageProcessingService.process(file);
+
+            // Generate unique filename
+            String publicId = folder + "/" + UUID.randomUUID().toString();
+
+            StoredFile stored = store(processed != null ? processed.toFile() : file, publicId, folder);
+            return register(hash, stored.url(), stored.publicId());
+
+        } catch (IOException e) {
+            throw new BadRequestException("Failed to upload file: " + e.getMessage());
+        } finally {
+            deleteQuietly(processed);
+        }
+    }
+
+    /**
+     * Write the content under (roughly) the given public id
+     *
+     * @return where it ended up; the public id may differ from the one asked for
+     */
+    protected abstract StoredFile store(File content, String publicId, String folder) throws IOException;
+
+    /**
+     * Record a new asset under its content hash. If another request registered the
+     * same content meanwhile, theirs wins and this copy is queued for deletion.
+     */
+    private Map<String, Object> register(String hash, String url, String publicId) {
+        try {
+            storedAssetRepository.saveAndFlush(new StoredAsset(hash, publicId, url, Instant.now()));
+            return toResult(url, publicId);
+        } catch (DataIntegrityViolationException e) {
+            Optional<StoredAsset> winner = storedAssetRepository.findByHash(hash);
+            if (winner.isEmpty()) {
+                // Not a hash collision after all; the asset stays untracked
+                logger.warn("Could not record asset {}", publicId, e);
+                return toResult(url, publicId);
+            }
+            pendingAssetDeletionRepository.save(new PendingAssetDeletion(publicId, Instant.now()));
+            return toResult(winner.get().getUrl(), winner.get().getPublicId());
+        }
+    }
+
+    private static Map<String, Object> toResult(String url, String publicId) {
+        return Map.of("url", url, "publicId", publicId);
+    }
+
+    /**
+     * Hex SHA-256 of the file, read once with a fixed-size buffer
+     */
+    static String sha256(File file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+        try (InputStream in = new DigestInputStream(Files.newInputStream(file.toPath()), digest)) {
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private void deleteQuietly(Path path) {
+        if (path == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            logger.warn("Could not delete upload spool file {}", path, e);
+        }
+    }
+
+    protected record StoredFile(String url, String publicId) {
+    }
+}
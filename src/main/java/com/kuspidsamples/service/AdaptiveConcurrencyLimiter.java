@@ -0,0 +1,162 @@
+package com.kuspidsamples.service;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * In-flight request limit that follows observed latency (gradient algorithm, as in
+ * Netflix concurrency-limits' Gradient2). A long-term average of response time is
+ * the baseline; each sample window compares its own average against it:
+ *
+ * <pre>
+ *   gradient = clamp(tolerance * longRtt / shortRtt, 0.5, 1.0)
+ *   newLimit = limit * gradient + sqrt(limit)
+ *   limit    = limit + smoothing * (newLimit - limit)
+ * </pre>
+ *
+ * While latency holds steady the sqrt term lets the limit grow; when a dependency
+ * slows down and requests start queueing, the gradient drops below one and the
+ * limit shrinks until latency recovers. Lower priorities may only use a fraction of
+ * the limit, so they are turned away first as it comes down.
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    public enum Priority {
+        /** Health checks and preflights: never shed */
+        CRITICAL(1.0),
+        /** Authenticated writes */
+        HIGH(1.0),
+        /** Authenticated reads and sign-in */
+        MEDIUM(0.8),
+        /** Anonymous reads, mostly public listings */
+        LOW(0.5);
+
+        private final double share;
+
+        Priority(double share) {
+            this.share = share;
+        }
+
+        public double getShare() {
+            return share;
+        }
+    }
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double tolerance;
+    private final double smoothing;
+    private final long windowNanos;
+    private final int minWindowSamples;
+    private final LongSupplier clock;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final LongAdder windowRttSum = new LongAdder();
+    private final LongAdder windowSamples = new LongAdder();
+    private final AtomicLong windowEnd;
+    private final AtomicInteger windowMaxInFlight = new AtomicInteger();
+
+    // Written only by the thread that closes a window
+    private volatile double limit;
+    private volatile double longRttNanos;
+
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit,
+                                      double tolerance, double smoothing, long windowNanos, int minWindowSamples) {
+        this(initialLimit, minLimit, maxLimit, tolerance, smoothing, windowNanos, minWindowSamples, System::nanoTime);
+    }
+
+    AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, double tolerance, double smoothing,
+                               long windowNanos, int minWindowSamples, LongSupplier clock) {
+        this.minLimit = Math.max(1, minLimit);
+        this.maxLimit = Math.max(this.minLimit, maxLimit);
+        this.limit = Math.min(Math.max(initialLimit, this.minLimit), this.maxLimit);
+        this.tolerance = Math.max(1.0, tolerance);
+        this.smoothing = Math.min(Math.max(smoothing, 0.01), 1.0);
+        this.windowNanos = windowNanos;
+        this.minWindowSamples = Math.max(1, minWindowSamples);
+        this.clock = clock;
+        this.windowEnd = new AtomicLong(clock.getAsLong() + windowNanos);
+    }
+
+    /**
+     * Claim an in-flight slot. Returns false when the priority's share of the limit
+     * is used up; on true the caller must call {@link #release} exactly once.
+     */
+    public boolean tryAcquire(Priority priority) {
+        int current = inFlight.incrementAndGet();
+        if (priority != Priority.CRITICAL && current > Math.max(1, (int) (limit * priority.getShare()))) {
+            inFlight.decrementAndGet();
+            return false;
+        }
+        windowMaxInFlight.accumulateAndGet(current, Math::max);
+        return true;
+    }
+
+    /**
+     * Give the slot back and record how long the request took
+     *
+     * @param rttNanos server time for the request, or a negative value to skip the sample
+     */
+    public void release(long rttNanos) {
+        inFlight.decrementAndGet();
+        if (rttNanos >= 0) {
+            windowRttSum.add(rttNanos);
+            windowSamples.increment();
+        }
+
+        long now = clock.getAsLong();
+        long end = windowEnd.get();
+        if (now - end >= 0 && windowEnd.compareAndSet(end, now + windowNanos)) {
+            closeWindow();
+        }
+    }
+
+    private void closeWindow() {
+        long samples = windowSamples.sumThenReset();
+        long rttSum = windowRttSum.sumThenReset();
+        int peakInFlight = windowMaxInFlight.getAndSet(inFlight.get());
+        if (samples < minWindowSamples) {
+            // Too little traffic to say anything; keep the sums for the next window
+            windowSamples.add(samples);
+            windowRttSum.add(rttSum);
+            return;
+        }
+
+        double shortRtt = (double) rttSum / samples;
+        double longRtt = longRttNanos;
+        if (longRtt == 0) {
+            longRtt = shortRtt;
+        } else {
+            longRtt += (shortRtt - longRtt) / 20;
+            if (longRtt > shortRtt * 2) {
+                // Latency dropped for good (e.g. a cache warmed up): let the baseline follow quickly
+                longRtt = shortRtt * 2;
+            }
+        }
+        longRttNanos = longRtt;
+
+        double current = limit;
+        if (peakInFlight < current / 2 && shortRtt <= longRtt * tolerance) {
+            // Not using the limit we have, so latency says nothing about a higher one
+            return;
+        }
+        double gradient = Math.max(0.5, Math.min(1.0, tolerance * longRtt / shortRtt));
+        double target = current * gradient + Math.sqrt(current);
+        double next = current + smoothing * (target - current);
+        limit = Math.max(minLimit, Math.min(maxLimit, next));
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public double getLongRttMillis() {
+        return longRttNanos / 1_000_000.0;
+    }
+}
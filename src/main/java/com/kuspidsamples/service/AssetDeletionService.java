@@ -0,0 +1,224 @@
+package com.kuspidsamples.service;
+
+import com.kuspidsamples.entity.PendingAssetDeletion;
+import com.kuspidsamples.repository.PendingAssetDeletionRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Outbox for {@link StorageService} deletions. Callers record the asset in
+ * pending_asset_deletions inside the transaction that drops the last reference to it,
+ * so the delete is never lost and never happens for a change that rolled back. A
+ * scheduled dispatcher drains the table in batches of up to 100 public ids per call
+ * (one Admin API call on Cloudinary); ids that fail are retried with exponential
+ * back-off.
+ * <p>
+ * Several instances may pick up the same row; deleting an asset twice is harmless
+ * because "not found" counts as done.
+ */
+@Service
+public class AssetDeletionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AssetDeletionService.class);
+
+    private final PendingAssetDeletionRepository pendingAssetDeletionRepository;
+    private final StorageService storageService;
+    private final int batchSize;
+    private final int maxBatches;
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+
+    private final AtomicLong pending = new AtomicLong();
+    private final Counter deletedAssets;
+    private final Counter retriedAssets;
+
+    public AssetDeletionService(PendingAssetDeletionRepository pendingAssetDeletionRepository,
+                                StorageService storageService,
+                                MeterRegistry meterRegistry,
+                                @Value("${asset-deletion.batch-size:100}") int batchSize,
+                                @Value("${asset-deletion.max-batches:20}") int maxBatches,
+                                @Value("${asset-deletion.initial-backoff:30s}") Duration initialBackoff,
+                                @Value("${asset-deletion.max-backoff:6h}") Duration maxBackoff) {
+        this.pendingAssetDeletionRepository = pendingAssetDeletionRepository;
+        this.storageService = storageService;
+        this.batchSize = Math.min(Math.max(1, batchSize), StorageService.MAX_BATCH_DELETE);
+        this.maxBatches = maxBatches;
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+
+        Gauge.builder("asset_deletions.pending", pending, AtomicLong::get)
+                .description("Stored assets waiting to be deleted, as of the last dispatch")
+                .register(meterRegistry);
+        this.deletedAssets = Counter.builder("asset_deletions.deleted")
+                .description("Stored assets deleted by the outbox dispatcher")
+                .register(meterRegistry);
+        this.retriedAssets = Counter.builder("asset_deletions.retried")
+                .description("Asset deletions that failed and were rescheduled")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Schedule an asset for deletion. Joins the caller's transaction, so call it in
+     * the same one that removes the reference.
+     */
+    @Transactional
+    public void enqueue(String publicId) {
+        enqueue(publicId, Duration.ZERO);
+    }
+
+    /**
+     * Schedule an asset for deletion no earlier than delay from now
+     */
+    @Transactional
+    public void enqueue(String publicId, Duration delay) {
+        if (publicId == null || publicId.isBlank()) {
+            return;
+        }
+        Instant now = Instant.now();
+        PendingAssetDeletion deletion = new PendingAssetDeletion(publicId, now);
+        deletion.setNextAttemptAt(now.plus(delay));
+        pendingAssetDeletionRepository.save(deletion);
+    }
+
+    /**
+     * Take an asset back out of the queue because something references it again.
+     * Joins the caller's transaction; has no effect once the asset has been deleted.
+     */
+    @Transactional
+    public int cancel(String publicId) {
+        return pendingAssetDeletionRepository.deleteByPublicId(publicId);
+    }
+
+    /**
+     * Schedule deletion of an asset whose row was never committed. If the database is
+     * what failed, the outbox may be unreachable too, so fall back to a direct delete.
+     */
+    public void discard(String publicId) {
+        try {
+            enqueue(publicId);
+        } catch (RuntimeException e) {
+            logger.warn("Could not queue deletion of {}; deleting directly", publicId, e);
+            storageService.deleteFile(publicId);
+        }
+    }
+
+    /**
+     * Delete due assets, batch by batch, up to maxBatches per run. A batch whose API
+     * call fails ends the run: the next batch would most likely fail the same way.
+     */
+    @Scheduled(initialDelayString = "${asset-deletion.initial-delay:30000}",
+            fixedDelayString = "${asset-deletion.interval:15000}")
+    public int dispatch() {
+        Instant now = Instant.now();
+        int deleted = 0;
+
+        try {
+            for (int batch = 0; batch < maxBatches; batch++) {
+                List<PendingAssetDeletion> due = pendingAssetDeletionRepository.findDue(now, PageRequest.of(0, batchSize));
+                if (due.isEmpty()) {
+                    break;
+                }
+                int batchDeleted = deleteBatch(due, now);
+                if (batchDeleted < 0) {
+                    break;
+                }
+                deleted += batchDeleted;
+                if (due.size() < batchSize) {
+                    break;
+                }
+            }
+            pending.set(pendingAssetDeletionRepository.count());
+        } catch (Exception e) {
+            logger.error("Asset deletion dispatch failed after deleting {} assets", deleted, e);
+        } finally {
+            deletedAssets.increment(deleted);
+            if (deleted > 0) {
+                logger.info("Deleted {} stored assets", deleted);
+            }
+        }
+        return deleted;
+    }
+
+    /**
+     * @return assets deleted, or -1 if the API call failed
+     */
+    private int deleteBatch(List<PendingAssetDeletion> due, Instant now) {
+        Set<String> publicIds = new LinkedHashSet<>();
+        for (PendingAssetDeletion deletion : due) {
+            publicIds.add(deletion.getPublicId());
+        }
+
+        Set<String> gone;
+        String error;
+        boolean callFailed = false;
+        try {
+            gone = storageService.deleteFiles(new ArrayList<>(publicIds));
+            error = "Not deleted by storage";
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Deleting {} stored assets failed: {}", publicIds.size(), e.getMessage());
+            gone = Set.of();
+            error = e.getMessage();
+            callFailed = true;
+        }
+
+        List<Long> done = new ArrayList<>();
+        List<PendingAssetDeletion> retry = new ArrayList<>();
+        for (PendingAssetDeletion deletion : due) {
+            if (gone.contains(deletion.getPublicId())) {
+                done.add(deletion.getId());
+            } else {
+                int attempts = deletion.getAttempts() + 1;
+                deletion.setAttempts(attempts);
+                deletion.setNextAttemptAt(now.plus(backoff(attempts)));
+                deletion.setLastError(truncate(error));
+                retry.add(deletion);
+            }
+        }
+
+        if (!done.isEmpty()) {
+            pendingAssetDeletionRepository.deleteByIdIn(done);
+        }
+        if (!retry.isEmpty()) {
+            pendingAssetDeletionRepository.saveAll(retry);
+            retriedAssets.increment(retry.size());
+        }
+        return callFailed ? -1 : done.size();
+    }
+
+    /**
+     * initialBackoff doubled for every failed attempt after the first, capped at maxBackoff
+     */
+    Duration backoff(int attempts) {
+        int doublings = Math.min(Math.max(attempts - 1, 0), 30);
+        Duration delay = initialBackoff.multipliedBy(1L << doublings);
+        return delay.compareTo(maxBackoff) > 0 ? maxBackoff : delay;
+    }
+
+    private static String truncate(String message) {
+        if (message == null) {
+            return null;
+        }
+        return message.length() <= 500 ? message : message.substring(0, 500);
+    }
+
+    public long getPending() {
+        return pending.get();
+    }
+}
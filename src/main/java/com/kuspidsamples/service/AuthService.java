@@ -11,41 +11,81 @@ import com.kuspidsamples.exception.UnauthorizedException;
 import com.kuspidsamples.repository.RefreshTokenRepository;
 import com.kuspidsamples.repository.UserRepository;
 import com.kuspidsamples.security.JwtTokenProvider;
+import com.kuspidsamples.security.TokenRevocationService;
 import com.kuspidsamples.util.Constants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.LockedException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Duration;
 import java.time.Instant;
-import java.util.UUID;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.HexFormat;
 
 @Service
 public class AuthService {
 
+    private static final Logger logger = LoggerFactory.getLogger(AuthService.class);
+
+    private static final int REFRESH_TOKEN_BYTES = 32;
+    private static final int MAX_SESSION_ATTEMPTS = 3;
+    // Clients that send no deviceId get one session per User-Agent: "ua-" + 32 hex chars
+    private static final String USER_AGENT_DEVICE_PREFIX = "ua-";
+    private static final int USER_AGENT_DEVICE_BYTES = 16;
+
+    private final SecureRandom secureRandom = new SecureRandom();
     private final UserRepository userRepository;
     private final RefreshTokenRepository refreshTokenRepository;
     private final PasswordEncoder passwordEncoder;
     private final AuthenticationManager authenticationManager;
     private final JwtTokenProvider tokenProvider;
+    private final TokenRevocationService revocationService;
+    private final LoginAttemptService loginAttemptService;
+    private final TransactionTemplate sessionTransaction;
+    private final Duration lockDuration;
 
     public AuthService(UserRepository userRepository,
                        RefreshTokenRepository refreshTokenRepository,
                        PasswordEncoder passwordEncoder,
                        AuthenticationManager authenticationManager,
-                       JwtTokenProvider tokenProvider) {
+                       JwtTokenProvider tokenProvider,
+                       TokenRevocationService revocationService,
+                       LoginAttemptService loginAttemptService,
+                       PlatformTransactionManager transactionManager,
+                       @Value("${login.throttle.lock-duration:30m}") Duration lockDuration) {
         this.userRepository = userRepository;
         this.refreshTokenRepository = refreshTokenRepository;
         this.passwordEncoder = passwordEncoder;
         this.authenticationManager = authenticationManager;
         this.tokenProvider = tokenProvider;
+        this.revocationService = revocationService;
+        this.loginAttemptService = loginAttemptService;
+        this.sessionTransaction = new TransactionTemplate(transactionManager);
+        this.sessionTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.lockDuration = lockDuration;
     }
 
     @Transactional
-    public AuthResponse register(RegisterRequest request) {
+    public AuthResponse register(RegisterRequest request, String userAgent) {
         if (userRepository.existsByUsername(request.getUsername())) {
             throw new BadRequestException(Constants.USERNAME_ALREADY_EXISTS);
         }
@@ -63,8 +103,11 @@ public class AuthService {
 
         user = userRepository.save(user);
 
-        String accessToken = tokenProvider.generateTokenFromUsername(user.getUsername());
-        String refreshToken = createRefreshToken(user);
+        // The user only exists in this transaction, so no other session can race for its row
+        String deviceId = resolveDeviceId(request.getDeviceId(), userAgent);
+        String accessToken = tokenProvider.generateToken(user);
+        String refreshToken = generateRawToken();
+        saveRefreshToken(user, deviceId, hashToken(refreshToken));
 
         return new AuthResponse(
                 accessToken,
@@ -72,18 +115,38 @@ public class AuthService {
                 user.getId(),
                 user.getUsername(),
                 user.getEmail(),
-                user.getRole()
+                user.getRole(),
+                deviceId
         );
     }
 
-    @Transactional
-    public AuthResponse login(LoginRequest request) {
-        Authentication authentication = authenticationManager.authenticate(
-                new UsernamePasswordAuthenticationToken(
-                        request.getUsernameOrEmail(),
-                        request.getPassword()
-                )
-        );
+    /**
+     * Not one transaction: the last-login update and the refresh session are each
+     * written in their own short transaction, so no connection is held across BCrypt
+     * and a lost race for the session row can be retried.
+     */
+    public AuthResponse login(LoginRequest request, String clientIp, String userAgent) {
+        // Throttled attempts stop here, before BCrypt or any database access
+        loginAttemptService.checkAllowed(request.getUsernameOrEmail(), clientIp);
+
+        Authentication authentication;
+        try {
+            authentication = authenticationManager.authenticate(
+                    new UsernamePasswordAuthenticationToken(
+                            request.getUsernameOrEmail(),
+                            request.getPassword()
+                    )
+            );
+        } catch (BadCredentialsException e) {
+            int failures = loginAttemptService.recordFailure(request.getUsernameOrEmail(), clientIp);
+            if (failures > 0) {
+                lockAccount(request.getUsernameOrEmail(), failures);
+            }
+            throw e;
+        } catch (LockedException e) {
+            throw new UnauthorizedException(Constants.ACCOUNT_LOCKED);
+        }
+        loginAttemptService.recordSuccess(request.getUsernameOrEmail());
         SecurityContextHolder.getContext().setAuthentication(authentication);
 
         User user = userRepository.findByUsernameOrEmail(
@@ -91,7 +154,7 @@ public class AuthService {
                 request.getUsernameOrEmail()
         ).orElseThrow(() -> new UnauthorizedException(Constants.INVALID_CREDENTIALS));
 
-        if (!user.getAccountNonLocked()) {
+        if (user.isLockActive()) {
             throw new UnauthorizedException(Constants.ACCOUNT_LOCKED);
         }
         if (!user.getEnabled()) {
@@ -102,8 +165,9 @@ public class AuthService {
         user.resetFailedLoginAttempts();
         userRepository.save(user);
 
-        String accessToken = tokenProvider.generateToken(authentication);
-        String refreshToken = createRefreshToken(user);
+        String deviceId = resolveDeviceId(request.getDeviceId(), userAgent);
+        String accessToken = tokenProvider.generateToken(user);
+        String refreshToken = issueRefreshToken(user, deviceId);
 
         return new AuthResponse(
                 accessToken,
@@ -111,45 +175,145 @@ public class AuthService {
                 user.getId(),
                 user.getUsername(),
                 user.getEmail(),
-                user.getRole()
+                user.getRole(),
+                deviceId
         );
     }
 
-    @Transactional
+    /**
+     * Exchange a refresh token for a new access token and a new refresh token.
+     * Presenting a token that was already rotated away means it leaked, so the
+     * whole device session is revoked. Of two concurrent refreshes with the same
+     * token only the first rotates the row; the other is rejected.
+     * The revocation and expired-token deletes must survive the Unauthorized response.
+     */
+    @Transactional(noRollbackFor = UnauthorizedException.class)
     public AuthResponse refreshToken(String refreshTokenString) {
-        RefreshToken refreshToken = refreshTokenRepository.findByToken(refreshTokenString)
-                .orElseThrow(() -> new UnauthorizedException(Constants.INVALID_TOKEN));
+        if (refreshTokenString == null || refreshTokenString.isBlank()) {
+            throw new UnauthorizedException(Constants.INVALID_TOKEN);
+        }
+        byte[] tokenHash = hashToken(refreshTokenString);
+
+        RefreshToken refreshToken = refreshTokenRepository.findByTokenHash(tokenHash).orElse(null);
+        if (refreshToken == null) {
+            refreshTokenRepository.findByPreviousTokenHash(tokenHash).ifPresent(reused -> {
+                logger.warn("Refresh token reuse detected for user {} on device {}; revoking session",
+                        reused.getUser().getId(), reused.getDeviceId());
+                refreshTokenRepository.delete(reused);
+            });
+            throw new UnauthorizedException(Constants.INVALID_TOKEN);
+        }
 
         if (refreshToken.getExpiryDate().isBefore(Instant.now())) {
             refreshTokenRepository.delete(refreshToken);
             throw new UnauthorizedException(Constants.TOKEN_EXPIRED);
         }
 
+        // Rotate: the presented token becomes the "previous" one and stops working
+        String newRefreshToken = generateRawToken();
+        int rotated = refreshTokenRepository.rotate(refreshToken.getId(), refreshToken.getVersion(),
+                hashToken(newRefreshToken), tokenHash, Instant.now().plusMillis(Constants.REFRESH_TOKEN_VALIDITY));
+        if (rotated == 0) {
+            throw new UnauthorizedException(Constants.INVALID_TOKEN);
+        }
+
         User user = refreshToken.getUser();
-        String accessToken = tokenProvider.generateTokenFromUsername(user.getUsername());
+        String accessToken = tokenProvider.generateToken(user);
 
         return new AuthResponse(
                 accessToken,
-                refreshTokenString,
+                newRefreshToken,
                 user.getId(),
                 user.getUsername(),
                 user.getEmail(),
-                user.getRole()
+                user.getRole(),
+                refreshToken.getDeviceId()
         );
     }
 
+    /**
+     * End the session: drop the refresh token and revoke the access token presented
+     * with the request, so it stops working before its natural expiry
+     */
     @Transactional
-    public void logout(String refreshTokenString) {
-        refreshTokenRepository.deleteByToken(refreshTokenString);
+    public void logout(String refreshTokenString, String accessToken) {
+        if (accessToken != null && !accessToken.isBlank()) {
+            tokenProvider.resolveClaims(accessToken).ifPresent(claims ->
+                    revocationService.revoke(claims.getId(), claims.getExpiration().toInstant()));
+        }
+        if (refreshTokenString == null || refreshTokenString.isBlank()) {
+            return;
+        }
+        refreshTokenRepository.deleteByTokenHash(hashToken(refreshTokenString));
     }
 
-    private String createRefreshToken(User user) {
-        RefreshToken refreshToken = new RefreshToken();
-        refreshToken.setToken(UUID.randomUUID().toString());
+    /**
+     * Persist a timed lock; this is the only database write a brute-force run causes
+     */
+    private void lockAccount(String usernameOrEmail, int failures) {
+        LocalDateTime lockedUntil = LocalDateTime.now().plus(lockDuration);
+        if (userRepository.lockAccount(usernameOrEmail, failures, lockedUntil) > 0) {
+            logger.warn("Locked account {} until {} after {} failed login attempts",
+                    usernameOrEmail, lockedUntil, failures);
+        }
+    }
+
+    /**
+     * Upsert the single refresh session for (user, device) in its own transaction and
+     * return its raw token. Two logins for the same device can both find no row and
+     * both insert, or both update the same row; the loser retries and updates the
+     * row the winner committed.
+     */
+    private String issueRefreshToken(User user, String deviceId) {
+        String rawToken = generateRawToken();
+        byte[] tokenHash = hashToken(rawToken);
+        for (int attempt = 1; ; attempt++) {
+            try {
+                sessionTransaction.executeWithoutResult(status -> saveRefreshToken(user, deviceId, tokenHash));
+                return rawToken;
+            } catch (DataIntegrityViolationException | OptimisticLockingFailureException e) {
+                if (attempt == MAX_SESSION_ATTEMPTS) {
+                    throw e;
+                }
+                logger.debug("Refresh session for user {} on device {} changed concurrently; retrying",
+                        user.getId(), deviceId);
+            }
+        }
+    }
+
+    private void saveRefreshToken(User user, String deviceId, byte[] tokenHash) {
+        RefreshToken refreshToken = refreshTokenRepository.findByUserAndDeviceId(user, deviceId)
+                .orElseGet(() -> new RefreshToken(null, deviceId, null, user));
+        refreshToken.setTokenHash(tokenHash);
+        refreshToken.setPreviousTokenHash(null);
         refreshToken.setExpiryDate(Instant.now().plusMillis(Constants.REFRESH_TOKEN_VALIDITY));
-        refreshToken.setUser(user);
 
-        refreshToken = refreshTokenRepository.save(refreshToken);
-        return refreshToken.getToken();
+        refreshTokenRepository.save(refreshToken);
+    }
+
+    /**
+     * The client's own device id, or one derived from its User-Agent, so clients
+     * that never send one keep reusing a single row instead of adding one per login
+     */
+    static String resolveDeviceId(String deviceId, String userAgent) {
+        if (deviceId != null && !deviceId.isBlank()) {
+            return deviceId.trim();
+        }
+        byte[] digest = hashToken(userAgent == null ? "" : userAgent);
+        return USER_AGENT_DEVICE_PREFIX + HexFormat.of().formatHex(digest, 0, USER_AGENT_DEVICE_BYTES);
+    }
+
+    private String generateRawToken() {
+        byte[] bytes = new byte[REFRESH_TOKEN_BYTES];
+        secureRandom.nextBytes(bytes);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    private static byte[] hashToken(String rawToken) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(rawToken.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
     }
 }
@@ -0,0 +1,261 @@
+package com.kuspidsamples.service;
+
+import com.cloudinary.api.ApiResponse;
+import com.cloudinary.api.exceptions.ApiException;
+import com.cloudinary.api.exceptions.GeneralError;
+import com.cloudinary.api.exceptions.RateLimited;
+import com.kuspidsamples.exception.ServiceUnavailableException;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketException;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps a slow or failing Cloudinary from tying up request threads. Every upload and
+ * delete goes through {@link #execute}:
+ * <ul>
+ *   <li>a {@link CircuitBreaker} refuses calls outright while Cloudinary keeps timing
+ *   out or refusing connections;</li>
+ *   <li>a bulkhead caps concurrent calls, waiting at most maxWait for a slot;</li>
+ *   <li>each call carries connect, pool and read timeouts (see {@link #uploadTimeouts}).</li>
+ * </ul>
+ * Refusals, transport failures and server-side errors (5xx, and 420/429 throttling)
+ * count against the breaker and surface as {@link ServiceUnavailableException} (503
+ * with Retry-After). Errors a request caused, such as an invalid file, are passed
+ * through and count as successes: the service is up. Anything else is passed through
+ * without being counted either way.
+ * <p>
+ * Uploader calls should set return_error, so that Cloudinary's error answers come back
+ * with their status code; they are raised as {@link ErrorResponse}.
+ */
+@Component
+@ConditionalOnProperty(name = "storage.type", havingValue = "cloudinary", matchIfMissing = true)
+public class CloudinaryCallGuard {
+
+    private static final Logger logger = LoggerFactory.getLogger(CloudinaryCallGuard.class);
+
+    private static final String UNAVAILABLE = "Image storage is unavailable. Please try again shortly.";
+
+    private final CircuitBreaker circuitBreaker;
+    private final Semaphore bulkhead;
+    private final int maxConcurrent;
+    private final Duration maxWait;
+    private final Map<String, Object> uploadTimeouts;
+    private final Map<String, Object> apiTimeouts;
+    private final MeterRegistry meterRegistry;
+
+    public CloudinaryCallGuard(MeterRegistry meterRegistry,
+                               @Value("${cloudinary.http.upload-timeout:60s}") Duration uploadTimeout,
+                               @Value("${cloudinary.http.api-timeout:15s}") Duration apiTimeout,
+                               @Value("${cloudinary.http.connect-timeout:5s}") Duration connectTimeout,
+                               @Value("${cloudinary.bulkhead.max-concurrent:10}") int maxConcurrent,
+                               @Value("${cloudinary.bulkhead.max-wait:1s}") Duration maxWait,
+                               @Value("${cloudinary.circuit-breaker.window-size:20}") int windowSize,
+                               @Value("${cloudinary.circuit-breaker.minimum-calls:10}") int minimumCalls,
+                               @Value("${cloudinary.circuit-breaker.failure-rate:0.5}") double failureRate,
+                               @Value("${cloudinary.circuit-breaker.open-duration:30s}") Duration openDuration,
+                               @Value("${cloudinary.circuit-breaker.half-open-calls:3}") int halfOpenCalls) {
+        this.meterRegistry = meterRegistry;
+        // A pooled connection is waited for as long as a bulkhead slot
+        this.uploadTimeouts = timeouts(uploadTimeout, connectTimeout, maxWait);
+        this.apiTimeouts = timeouts(apiTimeout, connectTimeout, maxWait);
+        this.maxConcurrent = Math.max(1, maxConcurrent);
+        this.maxWait = maxWait;
+        this.bulkhead = new Semaphore(this.maxConcurrent);
+        this.circuitBreaker = new CircuitBreaker(windowSize, minimumCalls, failureRate,
+                openDuration.toNanos(), halfOpenCalls);
+
+        Gauge.builder("cloudinary.bulkhead.in_flight", bulkhead, b -> this.maxConcurrent - b.availablePermits())
+                .description("Cloudinary calls in progress")
+                .register(meterRegistry);
+        Gauge.builder("cloudinary.bulkhead.waiting", bulkhead, Semaphore::getQueueLength)
+                .description("Calls waiting for a Cloudinary slot")
+                .register(meterRegistry);
+        Gauge.builder("cloudinary.circuit.state", circuitBreaker, c -> c.getState().getLevel())
+                .description("Cloudinary circuit breaker: 0 closed, 1 half-open, 2 open")
+                .register(meterRegistry);
+        Gauge.builder("cloudinary.circuit.opened", circuitBreaker, CircuitBreaker::getTimesOpened)
+                .description("Times the Cloudinary circuit breaker has opened")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Run one Cloudinary call
+     *
+     * @param operation metric tag, e.g. "upload"
+     * @throws ServiceUnavailableException if the call was refused, timed out or could not connect
+     * @throws IOException any other failure of the call, unchanged
+     */
+    public <T> T execute(String operation, CloudinaryCall<T> call) throws IOException {
+        if (!circuitBreaker.tryAcquire()) {
+            rejected(operation, "circuit_open");
+            throw new ServiceUnavailableException(UNAVAILABLE, retryAfterSeconds());
+        }
+        try {
+            if (!bulkhead.tryAcquire(maxWait.toNanos(), TimeUnit.NANOSECONDS)) {
+                circuitBreaker.onIgnored();
+                rejected(operation, "bulkhead_full");
+                throw new ServiceUnavailableException(UNAVAILABLE, retryAfterSeconds());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            circuitBreaker.onIgnored();
+            throw new ServiceUnavailableException(UNAVAILABLE, retryAfterSeconds());
+        }
+
+        long start = System.nanoTime();
+        String outcome = "success";
+        try {
+            T result = call.run();
+            ErrorResponse error = ErrorResponse.from(result);
+            if (error != null) {
+                throw error;
+            }
+            circuitBreaker.onSuccess();
+            return result;
+        } catch (IOException | RuntimeException e) {
+            if (isUnavailable(e)) {
+                outcome = "unavailable";
+                circuitBreaker.onFailure();
+                logger.warn("Cloudinary {} failed: {}", operation, e.toString());
+                throw new ServiceUnavailableException(UNAVAILABLE, retryAfterSeconds());
+            }
+            outcome = "error";
+            if (isClientError(e)) {
+                circuitBreaker.onSuccess();
+            } else {
+                circuitBreaker.onIgnored();
+            }
+            throw e;
+        } finally {
+            bulkhead.release();
+            Timer.builder("cloudinary.calls")
+                    .description("Cloudinary calls by operation and outcome")
+                    .tag("operation", operation)
+                    .tag("outcome", outcome)
+                    .register(meterRegistry)
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Timeouts, refused or reset connections, unresolvable hosts, server errors and
+     * throttling: Cloudinary is not answering or cannot serve the request, as opposed to
+     * rejecting it. Admin API errors arrive as the SDK's exceptions, possibly wrapped.
+     */
+    static boolean isUnavailable(Exception e) {
+        if (e instanceof InterruptedIOException || e instanceof SocketException || e instanceof UnknownHostException) {
+            return true;
+        }
+        if (e instanceof ErrorResponse response) {
+            return response.isServerSide();
+        }
+        Throwable cause = e.getCause() != null ? e.getCause() : e;
+        return cause instanceof GeneralError || cause instanceof RateLimited;
+    }
+
+    /**
+     * Cloudinary answered and refused the request itself (bad input, auth, not found)
+     */
+    static boolean isClientError(Exception e) {
+        if (e instanceof ErrorResponse) {
+            return true;
+        }
+        return e instanceof ApiException || e.getCause() instanceof ApiException;
+    }
+
+    /**
+     * Per-call timeout options for uploads; add them to the call's options
+     */
+    public Map<String, Object> uploadTimeouts() {
+        return uploadTimeouts;
+    }
+
+    /**
+     * Per-call timeout options for destroy and Admin API calls
+     */
+    public Map<String, Object> apiTimeouts() {
+        return apiTimeouts;
+    }
+
+    public CircuitBreaker.State getCircuitState() {
+        return circuitBreaker.getState();
+    }
+
+    private long retryAfterSeconds() {
+        return Math.max(1, TimeUnit.NANOSECONDS.toSeconds(circuitBreaker.getRemainingOpenNanos()));
+    }
+
+    private void rejected(String operation, String reason) {
+        meterRegistry.counter("cloudinary.rejected", "operation", operation, "reason", reason).increment();
+    }
+
+    /**
+     * The SDK reads these as Integer milliseconds: "timeout" is the socket read
+     * timeout, the others bound connecting and leasing a connection from the pool
+     */
+    private static Map<String, Object> timeouts(Duration read, Duration connect, Duration connectionRequest) {
+        return Map.of(
+                "timeout", toMillis(read),
+                "connect_timeout", toMillis(connect),
+                "connection_request_timeout", toMillis(connectionRequest));
+    }
+
+    private static int toMillis(Duration timeout) {
+        return (int) Math.min(Integer.MAX_VALUE, Math.max(1, timeout.toMillis()));
+    }
+
+    /**
+     * An error Cloudinary answered an uploader call with (return_error=true)
+     */
+    public static final class ErrorResponse extends IOException {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int status;
+
+        ErrorResponse(int status, String message) {
+            super("Cloudinary answered " + status + ": " + message);
+            this.status = status;
+        }
+
+        /**
+         * The error in an uploader result, or null if the call succeeded. Admin API
+         * responses never carry one; that API throws instead.
+         */
+        static ErrorResponse from(Object result) {
+            if (result instanceof ApiResponse
+                    || !(result instanceof Map<?, ?> map) || !(map.get("error") instanceof Map<?, ?> error)) {
+                return null;
+            }
+            int status = error.get("http_code") instanceof Number code ? code.intValue() : 500;
+            return new ErrorResponse(status, String.valueOf(error.get("message")));
+        }
+
+        public int getStatus() {
+            return status;
+        }
+
+        boolean isServerSide() {
+            return status >= 500 || status == 420 || status == 429;
+        }
+    }
+
+    @FunctionalInterface
+    public interface CloudinaryCall<T> {
+        T run() throws IOException;
+    }
+}
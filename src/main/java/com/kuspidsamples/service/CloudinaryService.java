@@ -1,62 +1,241 @@
 package com.kuspidsamples.service;
 
+import com.cloudinary.Api;
 import com.cloudinary.Cloudinary;
+import com.cloudinary.Uploader;
 import com.cloudinary.utils.ObjectUtils;
-import com.kuspidsamples.exception.BadRequestException;
+import com.kuspidsamples.exception.ServiceUnavailableException;
+import com.kuspidsamples.repository.PendingAssetDeletionRepository;
+import com.kuspidsamples.repository.StoredAssetRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
-import org.springframework.web.multipart.MultipartFile;
 
+import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
-import java.util.UUID;
+import java.util.Set;
 
+/**
+ * Keeps uploads in Cloudinary, which also serves and transforms them. The default
+ * {@link StorageService}; also signs client-direct uploads (see {@link DirectUploadService}).
+ * Every call that goes over the network runs through {@link CloudinaryCallGuard}.
+ */
 @Service
-public class CloudinaryService {
+@ConditionalOnProperty(name = "storage.type", havingValue = "cloudinary", matchIfMissing = true)
+public class CloudinaryService extends AbstractStorageService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CloudinaryService.class);
+
+    /**
+     * Uploads are stored as images. Assets from before that used resource_type=auto
+     * may be videos or raw files, which the image endpoints report as not found.
+     */
+    private static final List<String> LEGACY_RESOURCE_TYPES = List.of("video", "raw");
+
+    /** Formats a client-direct upload may have; Cloudinary rejects any other */
+    public static final String DIRECT_UPLOAD_FORMATS = "jpg,png,webp";
 
     private final Cloudinary cloudinary;
+    private final CloudinaryCallGuard callGuard;
+
+    // cloudinary.uploader() and api() set up a new HTTP client on every call; keep
+    // one of each so connections are pooled and kept alive
+    private volatile Uploader uploader;
+    private volatile Api api;
 
-    public CloudinaryService(Cloudinary cloudinary) {
+    public CloudinaryService(Cloudinary cloudinary,
+                             StoredAssetRepository storedAssetRepository,
+                             PendingAssetDeletionRepository pendingAssetDeletionRepository,
+                             ImageProcessingService imageProcessingService,
+                             CloudinaryCallGuard callGuard) {
+        super(storedAssetRepository, pendingAssetDeletionRepository, imageProcessingService);
         this.cloudinary = cloudinary;
+        this.callGuard = callGuard;
+    }
+
+    @Override
+    protected StoredFile store(File content, String publicId, String folder) throws IOException {
+        // The HTTP client streams the file with a fixed-size buffer
+        Map<?, ?> uploadResult = callGuard.execute("upload", () -> uploader().upload(
+                content,
+                withTimeouts(callGuard.uploadTimeouts(),
+                        "public_id", publicId,
+                        "folder", folder,
+                        "resource_type", "image",
+                        "return_error", true)
+        ));
+        return new StoredFile(uploadResult.get("secure_url").toString(), uploadResult.get("public_id").toString());
     }
 
     /**
-     * Upload file to Cloudinary
+     * Sign the parameters of an upload the client sends to Cloudinary itself, including
+     * {@link #DIRECT_UPLOAD_FORMATS}, which the client must send as allowed_formats.
+     * Cloudinary rejects the signature once the timestamp is an hour old.
      */
-    public Map<String, Object> uploadFile(MultipartFile file, String folder) {
-        try {
-            // Generate unique filename
-            String publicId = folder + "/" + UUID.randomUUID().toString();
+    public String signUpload(String publicId, long timestamp) {
+        Map<String, Object> params = Map.of(
+                "public_id", publicId,
+                "timestamp", timestamp,
+                "allowed_formats", DIRECT_UPLOAD_FORMATS);
+        return cloudinary.apiSignRequest(params, cloudinary.config.apiSecret);
+    }
+
+    /**
+     * Size in bytes of an uploaded image, from the Admin API. A signed upload cannot
+     * cap the file size, so direct uploads are checked after the fact.
+     */
+    public long uploadedBytes(String publicId) throws IOException {
+        Map<?, ?> resource = callGuard.execute("resource", () -> {
+            try {
+                return api().resource(publicId, withTimeouts(callGuard.apiTimeouts()));
+            } catch (IOException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IOException(e.getMessage(), e);
+            }
+        });
+        if (!(resource.get("bytes") instanceof Number bytes)) {
+            throw new IOException("No size reported for " + publicId);
+        }
+        return bytes.longValue();
+    }
 
-            // Upload to Cloudinary
-            Map<String, Object> uploadResult = cloudinary.uploader().upload(
-                    file.getBytes(),
-                    ObjectUtils.asMap(
-                            "public_id", publicId,
-                            "folder", folder,
-                            "resource_type", "auto"
-                    )
-            );
+    /**
+     * Check the signature Cloudinary put on a client's upload response
+     */
+    public boolean verifyUploadSignature(String publicId, String version, String signature) {
+        return cloudinary.verifyApiResponseSignature(publicId, version, signature);
+    }
 
-            // Return URL and public_id
-            return Map.of(
-                    "url", uploadResult.get("secure_url").toString(),
-                    "publicId", uploadResult.get("public_id").toString()
-            );
+    /**
+     * Endpoint for client-direct image uploads
+     */
+    public String directUploadUrl() {
+        return cloudinary.cloudinaryApiUrl("upload", ObjectUtils.asMap("resource_type", "image"));
+    }
 
-        } catch (IOException e) {
-            throw new BadRequestException("Failed to upload file: " + e.getMessage());
-        }
+    public String getApiKey() {
+        return cloudinary.config.apiKey;
     }
 
     /**
-     * Delete file from Cloudinary
+     * HTTPS delivery URL of an uploaded image version
      */
+    public String deliveryUrl(String publicId, String version) {
+        return cloudinary.url().secure(true).resourceType("image").version(version).generate(publicId);
+    }
+
+    @Override
     public void deleteFile(String publicId) {
         try {
-            cloudinary.uploader().destroy(publicId, ObjectUtils.emptyMap());
-        } catch (IOException e) {
+            if (destroy(publicId, "image")) {
+                return;
+            }
+            for (String resourceType : LEGACY_RESOURCE_TYPES) {
+                if (destroy(publicId, resourceType)) {
+                    return;
+                }
+            }
+        } catch (IOException | ServiceUnavailableException e) {
             // Log error but don't throw exception
-            System.err.println("Failed to delete file from Cloudinary: " + e.getMessage());
+            logger.warn("Failed to delete file {} from Cloudinary: {}", publicId, e.getMessage());
+        }
+    }
+
+    /**
+     * @return false if there is no asset of that type under the id
+     */
+    private boolean destroy(String publicId, String resourceType) throws IOException {
+        Map<?, ?> response = callGuard.execute("destroy", () -> uploader().destroy(publicId,
+                withTimeouts(callGuard.apiTimeouts(), "resource_type", resourceType, "return_error", true)));
+        return !"not found".equals(response.get("result"));
+    }
+
+    /**
+     * One Admin API call for images; {@link #MAX_BATCH_DELETE} is Cloudinary's limit
+     * per delete_resources call. Ids the image endpoint does not know are tried again
+     * as video and raw, and count as gone once no type has them.
+     */
+    @Override
+    public Set<String> deleteFiles(List<String> publicIds) throws IOException {
+        if (publicIds.size() > MAX_BATCH_DELETE) {
+            throw new IllegalArgumentException("At most " + MAX_BATCH_DELETE + " assets per call");
+        }
+        Set<String> gone = new HashSet<>();
+        List<String> notFound = deleteResources(publicIds, "image", gone);
+        for (String resourceType : LEGACY_RESOURCE_TYPES) {
+            if (notFound.isEmpty()) {
+                break;
+            }
+            notFound = deleteResources(notFound, resourceType, gone);
+        }
+        gone.addAll(notFound);
+        return gone;
+    }
+
+    /**
+     * Delete one resource type; adds the deleted ids to gone and returns the ids
+     * Cloudinary reported as not found
+     */
+    private List<String> deleteResources(List<String> publicIds, String resourceType, Set<String> gone)
+            throws IOException {
+        Map<?, ?> response = callGuard.execute("delete_resources", () -> {
+            try {
+                return api().deleteResources(publicIds,
+                        withTimeouts(callGuard.apiTimeouts(), "resource_type", resourceType));
+            } catch (IOException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IOException(e.getMessage(), e);
+            }
+        });
+
+        List<String> notFound = new ArrayList<>();
+        if (response.get("deleted") instanceof Map<?, ?> deleted) {
+            deleted.forEach((publicId, status) -> {
+                if ("deleted".equals(status)) {
+                    gone.add(publicId.toString());
+                } else if ("not_found".equals(status)) {
+                    notFound.add(publicId.toString());
+                }
+            });
+        }
+        return notFound;
+    }
+
+    /**
+     * Call options as name/value pairs, plus the timeouts
+     */
+    private static Map<String, Object> withTimeouts(Map<String, Object> timeouts, Object... options) {
+        Map<String, Object> merged = new HashMap<>();
+        for (int i = 0; i + 1 < options.length; i += 2) {
+            merged.put(options[i].toString(), options[i + 1]);
+        }
+        merged.putAll(timeouts);
+        return merged;
+    }
+
+    private Uploader uploader() {
+        Uploader current = uploader;
+        if (current == null) {
+            current = cloudinary.uploader();
+            uploader = current;
+        }
+        return current;
+    }
+
+    private Api api() {
+        Api current = api;
+        if (current == null) {
+            current = cloudinary.api();
+            api = current;
         }
+        return current;
     }
-}
\ No newline at end of file
+}
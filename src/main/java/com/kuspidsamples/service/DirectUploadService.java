@@ -0,0 +1,148 @@
+package com.kuspidsamples.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.kuspidsamples.dto.request.DirectUploadConfirmRequest;
+import com.kuspidsamples.dto.request.DirectUploadRequest;
+import com.kuspidsamples.dto.response.DirectUploadResponse;
+import com.kuspidsamples.entity.User;
+import com.kuspidsamples.exception.BadRequestException;
+import com.kuspidsamples.util.Constants;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.Locale;
+import java.util.UUID;
+
+/**
+ * Lets clients upload images straight to Cloudinary, so the bytes never pass through
+ * this service. A grant fixes the public_id (under {@link Constants#CLOUDINARY_FOLDER})
+ * and what it will be attached to; the client uploads with the signed parameters and
+ * then confirms with the signed response Cloudinary gave it. The signature also limits
+ * the formats; the size is checked on confirm.
+ * <p>
+ * Every grant also queues its public_id for deletion once the signature can no longer
+ * be used; confirming cancels that, so an upload that is never confirmed is cleaned up
+ * even across restarts. Grants themselves are held in memory by the instance that
+ * issued them. Only available with Cloudinary storage.
+ */
+@Service
+@ConditionalOnProperty(name = "storage.type", havingValue = "cloudinary", matchIfMissing = true)
+public class DirectUploadService {
+
+    public static final String TARGET_SAMPLE = "SAMPLE";
+    public static final String TARGET_PROFILE = "PROFILE";
+
+    /** How long Cloudinary accepts a signed timestamp, plus a margin for clock skew */
+    private static final Duration SIGNATURE_LIFETIME = Duration.ofHours(1).plusMinutes(5);
+
+    private final CloudinaryService cloudinaryService;
+    private final SampleService sampleService;
+    private final UserService userService;
+    private final AssetDeletionService assetDeletionService;
+    private final Duration ttl;
+    private final DataSize maxFileSize;
+    private final Cache<String, Grant> grants;
+
+    public DirectUploadService(CloudinaryService cloudinaryService,
+                               SampleService sampleService,
+                               UserService userService,
+                               AssetDeletionService assetDeletionService,
+                               @Value("${upload.direct.ttl:15m}") Duration ttl,
+                               @Value("${upload.direct.max-file-size:10MB}") DataSize maxFileSize) {
+        this.cloudinaryService = cloudinaryService;
+        this.sampleService = sampleService;
+        this.userService = userService;
+        this.assetDeletionService = assetDeletionService;
+        this.ttl = ttl;
+        this.maxFileSize = maxFileSize;
+        this.grants = Caffeine.newBuilder()
+                .expireAfterWrite(ttl)
+                .maximumSize(100_000)
+                .build();
+    }
+
+    /**
+     * Signed parameters for one image upload by the current user
+     */
+    public DirectUploadResponse issue(DirectUploadRequest request) {
+        User user = userService.getCurrentUser();
+        String target = request.getTarget().toUpperCase(Locale.ROOT);
+
+        String folder;
+        switch (target) {
+            case TARGET_SAMPLE -> {
+                if (request.getSampleId() == null) {
+                    throw new BadRequestException("Sample ID is required");
+                }
+                sampleService.checkCanUpdate(request.getSampleId());
+                folder = Constants.CLOUDINARY_FOLDER;
+            }
+            case TARGET_PROFILE -> folder = Constants.CLOUDINARY_FOLDER + "/profiles";
+            default -> throw new BadRequestException("Target must be SAMPLE or PROFILE");
+        }
+
+        String publicId = folder + "/" + UUID.randomUUID();
+        long timestamp = Instant.now().getEpochSecond();
+        String signature = cloudinaryService.signUpload(publicId, timestamp);
+
+        assetDeletionService.enqueue(publicId, SIGNATURE_LIFETIME);
+        grants.put(publicId, new Grant(user.getUsername(), target, request.getSampleId()));
+
+        return new DirectUploadResponse(cloudinaryService.directUploadUrl(), cloudinaryService.getApiKey(),
+                publicId, timestamp, signature, CloudinaryService.DIRECT_UPLOAD_FORMATS, LocalDateTime.now().plus(ttl));
+    }
+
+    /**
+     * Attach a finished direct upload to the sample or profile it was granted for.
+     * An upload over the size limit is refused and left queued for deletion.
+     *
+     * @return the updated SampleResponse or UserResponse
+     */
+    public Object confirm(DirectUploadConfirmRequest request) {
+        String username = userService.getCurrentUser().getUsername();
+        String publicId = request.getPublicId();
+
+        if (!cloudinaryService.verifyUploadSignature(publicId, request.getVersion(), request.getSignature())) {
+            throw new BadRequestException("Invalid upload signature");
+        }
+
+        Grant grant = grants.getIfPresent(publicId);
+        if (grant == null || !grant.username().equals(username)) {
+            throw new BadRequestException("Upload not found or expired");
+        }
+        checkSize(publicId);
+
+        // Single use: a second confirm must not swap the same image in twice
+        if (!grants.asMap().remove(publicId, grant)) {
+            throw new BadRequestException("Upload not found or expired");
+        }
+
+        String url = cloudinaryService.deliveryUrl(publicId, request.getVersion());
+        if (TARGET_PROFILE.equals(grant.target())) {
+            return userService.attachProfileImage(username, url, publicId);
+        }
+        return sampleService.attachImage(grant.sampleId(), username, url, publicId);
+    }
+
+    private void checkSize(String publicId) {
+        long bytes;
+        try {
+            bytes = cloudinaryService.uploadedBytes(publicId);
+        } catch (IOException e) {
+            throw new BadRequestException("Could not check the uploaded image: " + e.getMessage());
+        }
+        if (bytes > maxFileSize.toBytes()) {
+            throw new BadRequestException("Image is larger than " + maxFileSize.toMegabytes() + " MB");
+        }
+    }
+
+    private record Grant(String username, String target, Long sampleId) {
+    }
+}
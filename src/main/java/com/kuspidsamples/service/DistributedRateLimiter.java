@@ -0,0 +1,258 @@
+package com.kuspidsamples.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import io.github.bucket4j.BucketConfiguration;
+import io.github.bucket4j.distributed.BucketProxy;
+import io.github.bucket4j.distributed.proxy.ProxyManager;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Rate limiting against buckets shared by every replica (see RateLimitConfig).
+ * Instead of one database round trip per request, a node leases a small batch of
+ * tokens from the shared bucket and hands them out locally until the batch is spent
+ * or the lease expires. Larger leases mean fewer round trips; the cost is accuracy,
+ * since tokens parked on one node cannot be used by another until the lease ends.
+ * Unspent tokens are then given back to the shared bucket. The global limit itself
+ * is never exceeded, except while the store is unreachable: then every key is allowed
+ * for a lease period without asking it again.
+ */
+@Service
+@ConditionalOnProperty(name = "rate-limit.distributed.enabled", havingValue = "true")
+public class DistributedRateLimiter {
+
+    private static final Logger logger = LoggerFactory.getLogger(DistributedRateLimiter.class);
+
+    private static final int MAX_PENDING_RETURNS = 10_000;
+
+    private final ProxyManager<Long> proxyManager;
+    private final long leaseSize;
+    private final long leaseTtlNanos;
+    private final Cache<String, Lease> leases;
+    /** Renewals in flight; other threads for the same key wait on these, not on a map lock */
+    private final ConcurrentHashMap<String, CompletableFuture<Lease>> renewals = new ConcurrentHashMap<>();
+    private final Counter leaseRequests;
+    /** Gives unspent tokens back off the cache's and the requests' threads */
+    private final ThreadPoolExecutor leaseReturns;
+    /** Until then the store is treated as down and not asked at all */
+    private volatile long storeRetryAtNanos = System.nanoTime();
+
+    public DistributedRateLimiter(ProxyManager<Long> proxyManager,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${rate-limit.distributed.lease-size:5}") long leaseSize,
+                                  @Value("${rate-limit.distributed.lease-ttl:2s}") Duration leaseTtl,
+                                  @Value("${rate-limit.max-buckets:100000}") long maxBuckets) {
+        this.proxyManager = proxyManager;
+        this.leaseSize = leaseSize;
+        this.leaseTtlNanos = leaseTtl.toNanos();
+        // One thread is enough for the returns; if they back up, dropping some only
+        // leaves the shared buckets stricter until they refill
+        this.leaseReturns = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(MAX_PENDING_RETURNS),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "rate-limit-lease-return");
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.DiscardPolicy());
+        this.leases = Caffeine.newBuilder()
+                .maximumSize(maxBuckets)
+                .expireAfterWrite(leaseTtl)
+                .removalListener((String key, Lease lease, RemovalCause cause) -> {
+                    if (lease != null && lease.hasTokensToReturn()) {
+                        leaseReturns.execute(() -> lease.release(key));
+                    }
+                })
+                .build();
+        this.leaseRequests = Counter.builder("rate_limit.distributed.lease.requests")
+                .description("Round trips to the shared bucket store")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Take one token for the key, leasing a new batch from the shared bucket when the
+     * local one is spent. A lease that came back empty is kept until it expires, so a
+     * client over its limit does not cost a round trip per rejected request.
+     * Remaining counts reflect this node's lease, not the shared bucket.
+     */
+    public RateLimitResult tryConsume(String key, long limit, Supplier<BucketConfiguration> configuration) {
+        Lease lease = leases.getIfPresent(key);
+        if (lease != null) {
+            if (lease.tryTake()) {
+                return lease.allowed(limit);
+            }
+            if (lease.isDenial()) {
+                return lease.denied(limit);
+            }
+        }
+
+        Lease renewed = renew(key, lease, configuration);
+        return renewed.tryTake() ? renewed.allowed(limit) : renewed.denied(limit);
+    }
+
+    /**
+     * One thread per key goes to the store; the others wait for its lease. The round
+     * trip happens outside any map lock, so keys that share a hash bin never wait on
+     * each other. Replacing the old lease gives its unspent tokens back.
+     */
+    private Lease renew(String key, Lease spent, Supplier<BucketConfiguration> configuration) {
+        CompletableFuture<Lease> renewal = new CompletableFuture<>();
+        CompletableFuture<Lease> pending = renewals.putIfAbsent(key, renewal);
+        if (pending != null) {
+            return pending.join();
+        }
+        try {
+            Lease current = leases.getIfPresent(key);
+            Lease renewed = current != null && current != spent && current.isLive()
+                    ? current
+                    : acquire(key, configuration);
+            if (renewed != current) {
+                leases.put(key, renewed);
+            }
+            renewal.complete(renewed);
+            return renewed;
+        } catch (Throwable t) {
+            renewal.completeExceptionally(t);
+            throw t;
+        } finally {
+            renewals.remove(key, renewal);
+        }
+    }
+
+    /**
+     * Run pending expirations now, which returns their unspent tokens (tests)
+     */
+    void cleanUp() {
+        leases.cleanUp();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        leaseReturns.shutdown();
+    }
+
+    private Lease acquire(String key, Supplier<BucketConfiguration> configuration) {
+        long now = System.nanoTime();
+        long retryAt = storeRetryAtNanos;
+        if (now - retryAt < 0) {
+            return Lease.failOpen(retryAt);
+        }
+        leaseRequests.increment();
+        try {
+            BucketProxy bucket = proxyManager.builder().build(toBucketId(key), configuration);
+            long granted = bucket.tryConsumeAsMuchAsPossible(leaseSize);
+            if (granted > 0) {
+                return new Lease(bucket, granted, now + leaseTtlNanos, 0);
+            }
+            // Denied: ask once how long until a token is back, and cache the answer
+            long nanosToWait = bucket.estimateAbilityToConsume(1).getNanosToWaitForRefill();
+            return new Lease(null, 0, now + Math.min(leaseTtlNanos, Math.max(nanosToWait, 1)), nanosToWait);
+        } catch (Exception e) {
+            // Fail open: an unavailable store must not take the API down with it. Keep
+            // the decision for a lease period, or every request would wait on the store
+            // (and for a pool connection) again.
+            storeRetryAtNanos = now + leaseTtlNanos;
+            logger.error("Shared rate limit store unavailable; allowing all requests for {} ms (failed on {})",
+                    TimeUnit.NANOSECONDS.toMillis(leaseTtlNanos), key, e);
+            return Lease.failOpen(now + leaseTtlNanos);
+        }
+    }
+
+    /**
+     * 64-bit FNV-1a of the key; the bucket table is keyed by BIGINT
+     */
+    static long toBucketId(String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    private static final class Lease {
+
+        /** Where unspent tokens go back to; null for denials and fail-open leases */
+        private final BucketProxy bucket;
+        private final long granted;
+        private final AtomicLong remaining;
+        private final long expiresAtNanos;
+        private final long nanosToWait;
+
+        Lease(BucketProxy bucket, long granted, long expiresAtNanos, long nanosToWait) {
+            this.bucket = bucket;
+            this.granted = granted;
+            this.remaining = new AtomicLong(granted);
+            this.expiresAtNanos = expiresAtNanos;
+            this.nanosToWait = nanosToWait;
+        }
+
+        /**
+         * Allows every request until it expires, and has nothing to give back
+         */
+        static Lease failOpen(long expiresAtNanos) {
+            return new Lease(null, Long.MAX_VALUE, expiresAtNanos, 0);
+        }
+
+        RateLimitResult allowed(long limit) {
+            return new RateLimitResult(true, limit, Math.min(Math.max(remaining.get(), 0), limit), 0);
+        }
+
+        RateLimitResult denied(long limit) {
+            return new RateLimitResult(false, limit, 0, nanosToWait);
+        }
+
+        boolean tryTake() {
+            if (System.nanoTime() - expiresAtNanos >= 0) {
+                return false;
+            }
+            return remaining.getAndDecrement() > 0;
+        }
+
+        boolean isLive() {
+            return remaining.get() > 0 && System.nanoTime() - expiresAtNanos < 0;
+        }
+
+        boolean hasTokensToReturn() {
+            return bucket != null && remaining.get() > 0;
+        }
+
+        boolean isDenial() {
+            return granted == 0 && System.nanoTime() - expiresAtNanos < 0;
+        }
+
+        /**
+         * Give unspent tokens back to the shared bucket. Zeroing the count first means
+         * a thread still holding this lease can no longer take from it.
+         */
+        void release(String key) {
+            long unspent = remaining.getAndSet(0);
+            if (bucket == null || unspent <= 0) {
+                return;
+            }
+            try {
+                bucket.addTokens(unspent);
+            } catch (Exception e) {
+                logger.warn("Could not return {} unspent token(s) for {}", unspent, key, e);
+            }
+        }
+    }
+}
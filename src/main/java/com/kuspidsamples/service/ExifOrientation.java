@@ -0,0 +1,135 @@
+package com.kuspidsamples.service;
+
+import java.awt.geom.AffineTransform;
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads the EXIF Orientation tag (0x0112) from a JPEG without decoding it, and maps
+ * it to the transform that makes the pixels upright. Only the segments before the
+ * image data are scanned; anything unexpected is treated as "already upright".
+ */
+final class ExifOrientation {
+
+    static final int NORMAL = 1;
+
+    private static final int TAG_ORIENTATION = 0x0112;
+    private static final byte[] EXIF_HEADER = "Exif\0\0".getBytes(StandardCharsets.ISO_8859_1);
+
+    private ExifOrientation() {
+    }
+
+    /**
+     * @return the orientation, 1 to 8, or {@link #NORMAL} when there is none
+     */
+    static int read(InputStream input) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(input));
+        try {
+            if (in.readUnsignedShort() != 0xFFD8) {
+                return NORMAL;
+            }
+            while (true) {
+                int marker = in.readUnsignedShort();
+                // Start of scan or end of image: the metadata segments are behind us
+                if ((marker & 0xFF00) != 0xFF00 || marker == 0xFFDA || marker == 0xFFD9) {
+                    return NORMAL;
+                }
+                int length = in.readUnsignedShort() - 2;
+                if (length < 0) {
+                    return NORMAL;
+                }
+                if (marker == 0xFFE1 && length > EXIF_HEADER.length + 8) {
+                    byte[] segment = new byte[length];
+                    in.readFully(segment);
+                    if (startsWith(segment, EXIF_HEADER)) {
+                        return fromTiff(segment, EXIF_HEADER.length);
+                    }
+                } else {
+                    in.skipNBytes(length);
+                }
+            }
+        } catch (EOFException e) {
+            return NORMAL;
+        }
+    }
+
+    private static int fromTiff(byte[] b, int start) {
+        boolean littleEndian;
+        if (b[start] == 'I' && b[start + 1] == 'I') {
+            littleEndian = true;
+        } else if (b[start] == 'M' && b[start + 1] == 'M') {
+            littleEndian = false;
+        } else {
+            return NORMAL;
+        }
+
+        long ifd = start + readInt(b, start + 4, littleEndian);
+        if (ifd < start || ifd + 2 > b.length) {
+            return NORMAL;
+        }
+        int entries = readShort(b, (int) ifd, littleEndian);
+        for (int i = 0; i < entries; i++) {
+            int entry = (int) ifd + 2 + i * 12;
+            if (entry + 12 > b.length) {
+                break;
+            }
+            if (readShort(b, entry, littleEndian) == TAG_ORIENTATION) {
+                // SHORT value, left-justified in the 4-byte value field
+                int value = readShort(b, entry + 8, littleEndian);
+                return value >= 1 && value <= 8 ? value : NORMAL;
+            }
+        }
+        return NORMAL;
+    }
+
+    /**
+     * Whether the upright image is the stored one turned on its side (width and height swap)
+     */
+    static boolean swapsDimensions(int orientation) {
+        return orientation >= 5 && orientation <= 8;
+    }
+
+    /**
+     * Transform from stored pixels of size width x height to upright pixels
+     */
+    static AffineTransform toUpright(int orientation, double width, double height) {
+        return switch (orientation) {
+            case 2 -> new AffineTransform(-1, 0, 0, 1, width, 0);        // mirror horizontally
+            case 3 -> new AffineTransform(-1, 0, 0, -1, width, height);  // rotate 180
+            case 4 -> new AffineTransform(1, 0, 0, -1, 0, height);       // mirror vertically
+            case 5 -> new AffineTransform(0, 1, 1, 0, 0, 0);             // transpose
+            case 6 -> new AffineTransform(0, 1, -1, 0, height, 0);       // rotate 90 clockwise
+            case 7 -> new AffineTransform(0, -1, -1, 0, height, width);  // transverse
+            case 8 -> new AffineTransform(0, -1, 1, 0, 0, width);        // rotate 90 counter-clockwise
+            default -> new AffineTransform();
+        };
+    }
+
+    private static boolean startsWith(byte[] b, byte[] prefix) {
+        if (b.length < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (b[i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int readShort(byte[] b, int offset, boolean littleEndian) {
+        int b0 = b[offset] & 0xFF;
+        int b1 = b[offset + 1] & 0xFF;
+        return littleEndian ? (b1 << 8) | b0 : (b0 << 8) | b1;
+    }
+
+    private static long readInt(byte[] b, int offset, boolean littleEndian) {
+        long high = readShort(b, offset, littleEndian);
+        long low = readShort(b, offset + 2, littleEndian);
+        return littleEndian ? (low << 16) | high : (high << 16) | low;
+    }
+}
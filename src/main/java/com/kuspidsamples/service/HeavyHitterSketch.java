@@ -0,0 +1,128 @@
+package com.kuspidsamples.service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-memory top-K for one weighted stream of keys. A Count-Min sketch estimates
+ * every key's total without storing keys at all; only keys whose estimate beats the
+ * smallest of the current top K get a slot in the candidate table (Space-Saving
+ * style: the newcomer evicts the minimum). Counts are over-estimates by at most
+ * total / width with high probability, never under-estimates.
+ * <p>
+ * Keys are passed as a 64-bit hash plus a label source; the label's toString() is
+ * only called when the key enters the table, so the common path does not allocate.
+ */
+public class HeavyHitterSketch {
+
+    private static final long[] SEEDS = {
+            0x9E3779B97F4A7C15L, 0xC2B2AE3D27D4EB4FL, 0x165667B19E3779F9L, 0x27D4EB2F165667C5L
+    };
+
+    private final AtomicLongArray counts;
+    private final int width;
+    private final int mask;
+    private final int capacity;
+
+    private final Map<Long, Entry> candidates = new HashMap<>();
+    private volatile long admissionThreshold;
+
+    /**
+     * @param capacity how many top keys to keep
+     * @param width    counters per sketch row, rounded up to a power of two (4 rows, 8 bytes each)
+     */
+    public HeavyHitterSketch(int capacity, int width) {
+        this.capacity = Math.max(1, capacity);
+        this.width = Integer.highestOneBit(Math.max(width - 1, 1)) << 1;
+        this.mask = this.width - 1;
+        this.counts = new AtomicLongArray(this.width * SEEDS.length);
+    }
+
+    public void add(long keyHash, Object label, long weight) {
+        if (weight <= 0) {
+            return;
+        }
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < SEEDS.length; row++) {
+            int index = row * width + (int) (StripedRateLimiter.mix(keyHash ^ SEEDS[row]) & mask);
+            estimate = Math.min(estimate, counts.addAndGet(index, weight));
+        }
+
+        // Cheap unsynchronized test first: most keys never come close to the top K
+        if (estimate > admissionThreshold) {
+            admit(keyHash, label, estimate);
+        }
+    }
+
+    private synchronized void admit(long keyHash, Object label, long estimate) {
+        Entry entry = candidates.get(keyHash);
+        if (entry != null) {
+            entry.count = Math.max(entry.count, estimate);
+        } else {
+            if (candidates.size() >= capacity) {
+                Entry min = minimum();
+                if (min.count >= estimate) {
+                    return;
+                }
+                candidates.remove(min.hash);
+            }
+            candidates.put(keyHash, new Entry(keyHash, String.valueOf(label), estimate));
+        }
+        admissionThreshold = candidates.size() < capacity ? 0 : minimum().count;
+    }
+
+    /**
+     * Halve every count so the ranking reflects recent traffic rather than all time
+     */
+    public synchronized void decay() {
+        for (int i = 0; i < counts.length(); i++) {
+            long value;
+            do {
+                value = counts.get(i);
+            } while (value != 0 && !counts.compareAndSet(i, value, value >> 1));
+        }
+        candidates.values().removeIf(entry -> (entry.count >>= 1) == 0);
+        admissionThreshold = candidates.size() < capacity ? 0 : minimum().count;
+    }
+
+    /**
+     * Current top keys, largest first
+     */
+    public synchronized List<HeavyHitter> top() {
+        List<HeavyHitter> result = new ArrayList<>(candidates.size());
+        for (Entry entry : candidates.values()) {
+            result.add(new HeavyHitter(entry.label, entry.count));
+        }
+        result.sort(Comparator.comparingLong(HeavyHitter::count).reversed());
+        return result;
+    }
+
+    private Entry minimum() {
+        Entry min = null;
+        for (Entry entry : candidates.values()) {
+            if (min == null || entry.count < min.count) {
+                min = entry;
+            }
+        }
+        return min;
+    }
+
+    public record HeavyHitter(String key, long count) {
+    }
+
+    private static final class Entry {
+        final long hash;
+        final String label;
+        long count;
+
+        Entry(long hash, String label, long count) {
+            this.hash = hash;
+            this.label = label;
+            this.count = count;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.kuspidsamples.service;
+
+import com.kuspidsamples.service.HeavyHitterSketch.HeavyHitter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/**
+ * Top clients by requests, rate limit rejections and server time, each in its own
+ * fixed-size {@link HeavyHitterSketch}. Counts are halved every decay interval, so
+ * the lists show who is heavy now, not who was heavy last week.
+ */
+@Service
+public class HeavyHitterTracker {
+
+    private final HeavyHitterSketch requests;
+    private final HeavyHitterSketch rejections;
+    private final HeavyHitterSketch serverTime;
+
+    public HeavyHitterTracker(@Value("${heavy-hitters.top-k:50}") int topK,
+                              @Value("${heavy-hitters.sketch-width:4096}") int sketchWidth) {
+        this.requests = new HeavyHitterSketch(topK, sketchWidth);
+        this.rejections = new HeavyHitterSketch(topK, sketchWidth);
+        this.serverTime = new HeavyHitterSketch(topK, sketchWidth);
+    }
+
+    public void recordRequest(long keyHash, Object key, long serverNanos) {
+        requests.add(keyHash, key, 1);
+        // Whole microseconds keep the counters well clear of overflow
+        serverTime.add(keyHash, key, serverNanos / 1_000);
+    }
+
+    public void recordRejection(long keyHash, Object key) {
+        rejections.add(keyHash, key, 1);
+    }
+
+    public List<HeavyHitter> topRequests() {
+        return requests.top();
+    }
+
+    public List<HeavyHitter> topRejections() {
+        return rejections.top();
+    }
+
+    /**
+     * Counts are microseconds of server time
+     */
+    public List<HeavyHitter> topServerTime() {
+        return serverTime.top();
+    }
+
+    @Scheduled(fixedDelayString = "${heavy-hitters.decay-interval:60000}")
+    public void decay() {
+        requests.decay();
+        rejections.decay();
+        serverTime.decay();
+    }
+}
@@ -0,0 +1,258 @@
+package com.kuspidsamples.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Shrinks images before they are uploaded. Only the header is read to decide: JPEGs
+ * and PNGs whose longest edge is over the limit, that carry an EXIF rotation, or that
+ * are simply heavy are decoded (subsampled while decoding when they are at least twice
+ * the limit, so a 12 MP photo never sits in memory at full size), turned upright,
+ * scaled to fit and re-encoded. Everything else is uploaded as it came.
+ * <p>
+ * Decoding is memory- and CPU-hungry, so it runs on a small fixed pool. When the pool
+ * is busy or an image takes too long, the original is uploaded instead.
+ */
+@Service
+public class ImageProcessingService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImageProcessingService.class);
+
+    private final boolean enabled;
+    private final int maxEdge;
+    private final float jpegQuality;
+    private final long recompressAboveBytes;
+    private final Duration timeout;
+    private final ThreadPoolExecutor executor;
+
+    private final Counter processedImages;
+    private final Counter savedBytes;
+    private final MeterRegistry meterRegistry;
+
+    public ImageProcessingService(MeterRegistry meterRegistry,
+                                  @Value("${image.processing.enabled:true}") boolean enabled,
+                                  @Value("${image.processing.max-edge:2048}") int maxEdge,
+                                  @Value("${image.processing.jpeg-quality:0.85}") float jpegQuality,
+                                  @Value("${image.processing.recompress-above:512KB}") DataSize recompressAbove,
+                                  @Value("${image.processing.workers:2}") int workers,
+                                  @Value("${image.processing.queue-capacity:16}") int queueCapacity,
+                                  @Value("${image.processing.timeout:20s}") Duration timeout) {
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.maxEdge = maxEdge;
+        this.jpegQuality = jpegQuality;
+        this.recompressAboveBytes = recompressAbove.toBytes();
+        this.timeout = timeout;
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "image-processing-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+
+        this.processedImages = Counter.builder("image.processing.processed")
+                .description("Images resized or recompressed before upload")
+                .register(meterRegistry);
+        this.savedBytes = Counter.builder("image.processing.saved")
+                .description("Bytes not uploaded thanks to resizing and recompression")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Smaller, upright version of the image, or null to upload the original. The
+     * caller owns the returned file and must delete it.
+     */
+    public Path process(File image) {
+        if (!enabled) {
+            return null;
+        }
+
+        Future<Path> future;
+        try {
+            future = executor.submit(() -> transform(image));
+        } catch (RejectedExecutionException e) {
+            skipped("busy");
+            return null;
+        }
+
+        try {
+            return future.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            skipped("timeout");
+            return null;
+        } catch (ExecutionException e) {
+            logger.warn("Could not process image; uploading original", e.getCause());
+            skipped("error");
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.cancel(true);
+            return null;
+        }
+    }
+
+    Path transform(File image) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(image)) {
+            if (input == null) {
+                return null;
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                skipped("unsupported");
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                String format = reader.getFormatName().toLowerCase(Locale.ROOT);
+                boolean jpeg = format.equals("jpeg") || format.equals("jpg");
+                if (!jpeg && !format.equals("png")) {
+                    skipped("unsupported");
+                    return null;
+                }
+
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                int orientation = jpeg ? readOrientation(image) : ExifOrientation.NORMAL;
+                int longest = Math.max(width, height);
+                long originalBytes = image.length();
+                boolean reshape = longest > maxEdge || orientation != ExifOrientation.NORMAL;
+                if (!reshape && originalBytes <= recompressAboveBytes) {
+                    return null;
+                }
+
+                // Let the decoder drop whole rows and columns first; far cheaper than scaling later
+                ImageReadParam param = reader.getDefaultReadParam();
+                int subsampling = longest / maxEdge;
+                if (subsampling >= 2) {
+                    param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                }
+                BufferedImage decoded = reader.read(0, param);
+
+                BufferedImage result = resize(decoded, orientation, jpeg);
+                Path output = Files.createTempFile("upload-processed-", jpeg ? ".jpg" : ".png");
+                try {
+                    write(result, output, jpeg);
+                    long processedBytes = Files.size(output);
+                    if (Thread.currentThread().isInterrupted() || (!reshape && processedBytes >= originalBytes)) {
+                        Files.deleteIfExists(output);
+                        return null;
+                    }
+                    processedImages.increment();
+                    savedBytes.increment(Math.max(0, originalBytes - processedBytes));
+                    logger.debug("Processed {}x{} {} ({} bytes) to {}x{} ({} bytes)", width, height, format,
+                            originalBytes, result.getWidth(), result.getHeight(), processedBytes);
+                    return output;
+                } catch (IOException | RuntimeException e) {
+                    Files.deleteIfExists(output);
+                    throw e;
+                }
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Scale to fit maxEdge and turn upright in a single draw
+     */
+    private BufferedImage resize(BufferedImage source, int orientation, boolean jpeg) {
+        int width = source.getWidth();
+        int height = source.getHeight();
+        double scale = Math.min(1.0, (double) maxEdge / Math.max(width, height));
+        int scaledWidth = Math.max(1, (int) Math.round(width * scale));
+        int scaledHeight = Math.max(1, (int) Math.round(height * scale));
+
+        boolean swap = ExifOrientation.swapsDimensions(orientation);
+        int type = !jpeg && source.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+        BufferedImage target = new BufferedImage(swap ? scaledHeight : scaledWidth, swap ? scaledWidth : scaledHeight, type);
+
+        AffineTransform transform = ExifOrientation.toUpright(orientation, scaledWidth, scaledHeight);
+        transform.scale((double) scaledWidth / width, (double) scaledHeight / height);
+
+        Graphics2D graphics = target.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(source, transform, null);
+        } finally {
+            graphics.dispose();
+        }
+        return target;
+    }
+
+    private void write(BufferedImage image, Path output, boolean jpeg) throws IOException {
+        if (!jpeg) {
+            // PNG is lossless: the saving comes from fewer pixels, there is no quality knob
+            ImageIO.write(image, "png", output.toFile());
+            return;
+        }
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        try (ImageOutputStream out = ImageIO.createImageOutputStream(output.toFile())) {
+            writer.setOutput(out);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(jpegQuality);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    private static int readOrientation(File image) {
+        try (InputStream in = Files.newInputStream(image.toPath())) {
+            return ExifOrientation.read(in);
+        } catch (IOException e) {
+            return ExifOrientation.NORMAL;
+        }
+    }
+
+    private void skipped(String reason) {
+        meterRegistry.counter("image.processing.skipped", "reason", reason).increment();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,79 @@
+package com.kuspidsamples.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.kuspidsamples.dto.response.ImageVariants;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * Cloudinary transformation URLs for stored images, so clients fetch only the bytes
+ * they show. A delivery URL is ".../image/upload/v123/folder/id.jpg"; a variant puts
+ * a transformation after "upload/". The variants of an image are built once and
+ * cached by public id, so mapping a page of samples only looks them up.
+ * <p>
+ * Images that are not Cloudinary delivery URLs (local storage) have no variants.
+ */
+@Service
+public class ImageVariantService {
+
+    private static final String UPLOAD_SEGMENT = "/image/upload/";
+
+    private final String thumbnail;
+    private final String medium;
+    private final String optimized;
+    private final String avatar;
+    private final Cache<String, ImageVariants> cache;
+
+    public ImageVariantService(MeterRegistry meterRegistry,
+                               @Value("${image.variants.thumbnail:c_fill,w_128,h_128,f_auto,q_auto}") String thumbnail,
+                               @Value("${image.variants.medium:c_limit,w_800,h_800,f_auto,q_auto}") String medium,
+                               @Value("${image.variants.optimized:f_auto,q_auto}") String optimized,
+                               @Value("${image.variants.avatar:c_thumb,g_face,w_256,h_256,f_auto,q_auto}") String avatar,
+                               @Value("${image.variants.cache-size:20000}") long cacheSize) {
+        this.thumbnail = thumbnail + "/";
+        this.medium = medium + "/";
+        this.optimized = optimized + "/";
+        this.avatar = avatar + "/";
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "image_variants");
+    }
+
+    /**
+     * @return the variants, or null if the image cannot be transformed
+     */
+    public ImageVariants variantsOf(String publicId, String url) {
+        if (url == null) {
+            return null;
+        }
+        if (publicId == null) {
+            return build(url);
+        }
+        ImageVariants cached = cache.getIfPresent(publicId);
+        if (cached != null) {
+            return cached;
+        }
+        ImageVariants built = build(url);
+        if (built != null) {
+            cache.put(publicId, built);
+        }
+        return built;
+    }
+
+    private ImageVariants build(String url) {
+        int at = url.indexOf(UPLOAD_SEGMENT);
+        if (at < 0) {
+            return null;
+        }
+        String prefix = url.substring(0, at + UPLOAD_SEGMENT.length());
+        String rest = url.substring(at + UPLOAD_SEGMENT.length());
+        return new ImageVariants(prefix + thumbnail + rest, prefix + medium + rest,
+                prefix + optimized + rest, prefix + avatar + rest);
+    }
+}
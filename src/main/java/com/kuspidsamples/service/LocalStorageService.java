@@ -0,0 +1,162 @@
+package com.kuspidsamples.service;
+
+import com.kuspidsamples.exception.ResourceNotFoundException;
+import com.kuspidsamples.repository.PendingAssetDeletionRepository;
+import com.kuspidsamples.repository.StoredAssetRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Keeps uploads on the local filesystem under storage.local.root and serves them at
+ * storage.local.base-url (see {@link com.kuspidsamples.controller.LocalFileController}).
+ * For single-node installs and for running the whole upload path offline.
+ * <p>
+ * Files are copied in with {@link FileChannel#transferTo}, which lets the kernel move
+ * the bytes without passing them through the heap, into a temp file that is renamed
+ * into place, so a reader never sees a partial image.
+ */
+@Service
+@ConditionalOnProperty(name = "storage.type", havingValue = "local")
+public class LocalStorageService extends AbstractStorageService {
+
+    private static final Logger logger = LoggerFactory.getLogger(LocalStorageService.class);
+
+    private final Path root;
+    private final String baseUrl;
+
+    public LocalStorageService(StoredAssetRepository storedAssetRepository,
+                               PendingAssetDeletionRepository pendingAssetDeletionRepository,
+                               ImageProcessingService imageProcessingService,
+                               @Value("${storage.local.root:uploads}") String root,
+                               @Value("${storage.local.base-url:/files}") String baseUrl) throws IOException {
+        super(storedAssetRepository, pendingAssetDeletionRepository, imageProcessingService);
+        this.root = Files.createDirectories(Path.of(root)).toRealPath();
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        logger.info("Storing uploads in {}", this.root);
+    }
+
+    /**
+     * The public id keeps the extension, so the file can be served with the right
+     * content type without another lookup
+     */
+    @Override
+    protected StoredFile store(File content, String publicId, String folder) throws IOException {
+        String storedId = publicId + extension(content.toPath());
+        Path target = resolve(storedId);
+        Files.createDirectories(target.getParent());
+
+        Path temp = Files.createTempFile(target.getParent(), ".upload-", ".tmp");
+        try {
+            try (FileChannel in = FileChannel.open(content.toPath(), StandardOpenOption.READ);
+                 FileChannel out = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                long size = in.size();
+                long position = 0;
+                while (position < size) {
+                    position += in.transferTo(position, size - position, out);
+                }
+                out.force(true);
+            }
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        return new StoredFile(baseUrl + "/" + storedId, storedId);
+    }
+
+    @Override
+    public void deleteFile(String publicId) {
+        try {
+            Files.deleteIfExists(resolve(publicId));
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Failed to delete file {}: {}", publicId, e.getMessage());
+        }
+    }
+
+    /**
+     * Deletes one by one; a file that cannot be deleted is left out of the result and retried
+     */
+    @Override
+    public Set<String> deleteFiles(List<String> publicIds) throws IOException {
+        if (publicIds.size() > MAX_BATCH_DELETE) {
+            throw new IllegalArgumentException("At most " + MAX_BATCH_DELETE + " assets per call");
+        }
+        Set<String> gone = new HashSet<>();
+        for (String publicId : publicIds) {
+            try {
+                Files.deleteIfExists(resolve(publicId));
+                gone.add(publicId);
+            } catch (IOException e) {
+                logger.warn("Failed to delete file {}: {}", publicId, e.getMessage());
+            } catch (ResourceNotFoundException e) {
+                // Could never have been stored here
+                gone.add(publicId);
+            }
+        }
+        return gone;
+    }
+
+    /**
+     * The stored file for a path under base-url
+     *
+     * @throws ResourceNotFoundException if there is no such file
+     */
+    public Path locate(String publicId) {
+        Path file = resolve(publicId);
+        if (!Files.isRegularFile(file)) {
+            throw new ResourceNotFoundException("File not found");
+        }
+        return file;
+    }
+
+    /**
+     * Resolve a public id under root, refusing anything that would escape it
+     */
+    private Path resolve(String publicId) {
+        Path file = root.resolve(publicId).normalize();
+        if (publicId.isBlank() || !file.startsWith(root) || file.equals(root)) {
+            throw new ResourceNotFoundException("File not found");
+        }
+        return file;
+    }
+
+    /**
+     * Extension from the first bytes, since the spooled upload no longer has its name
+     */
+    static String extension(Path file) throws IOException {
+        byte[] head = new byte[12];
+        int read;
+        try (InputStream in = Files.newInputStream(file)) {
+            read = in.readNBytes(head, 0, head.length);
+        }
+        if (read >= 3 && (head[0] & 0xFF) == 0xFF && (head[1] & 0xFF) == 0xD8 && (head[2] & 0xFF) == 0xFF) {
+            return ".jpg";
+        }
+        if (read >= 8 && (head[0] & 0xFF) == 0x89 && head[1] == 'P' && head[2] == 'N' && head[3] == 'G') {
+            return ".png";
+        }
+        if (read >= 6 && head[0] == 'G' && head[1] == 'I' && head[2] == 'F' && head[3] == '8') {
+            return ".gif";
+        }
+        if (read >= 12 && head[0] == 'R' && head[1] == 'I' && head[2] == 'F' && head[3] == 'F'
+                && head[8] == 'W' && head[9] == 'E' && head[10] == 'B' && head[11] == 'P') {
+            return ".webp";
+        }
+        return "";
+    }
+}
@@ -0,0 +1,158 @@
+package com.kuspidsamples.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.kuspidsamples.exception.TooManyRequestsException;
+import com.kuspidsamples.util.Constants;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Locale;
+
+/**
+ * In-memory failed-login tracking per account and per client IP.
+ * Failures are counted in sliding windows; past the threshold each further failure
+ * doubles the back-off, and blocked attempts are rejected before any password hashing
+ * or database access. Only crossing the lock threshold is reported back for persisting.
+ */
+@Service
+public class LoginAttemptService {
+
+    private static final int MAX_BACKOFF_SHIFT = 20;
+
+    private final long windowMillis;
+    private final int accountMaxFailures;
+    private final int ipMaxFailures;
+    private final int lockThreshold;
+    private final long baseDelayMillis;
+    private final long maxDelayMillis;
+
+    private final Cache<String, FailureWindow> accountFailures;
+    private final Cache<String, FailureWindow> ipFailures;
+
+    public LoginAttemptService(@Value("${login.throttle.window:15m}") Duration window,
+                               @Value("${login.throttle.account.max-failures:5}") int accountMaxFailures,
+                               @Value("${login.throttle.ip.max-failures:20}") int ipMaxFailures,
+                               @Value("${login.throttle.lock-threshold:10}") int lockThreshold,
+                               @Value("${login.throttle.base-delay:1s}") Duration baseDelay,
+                               @Value("${login.throttle.max-delay:15m}") Duration maxDelay,
+                               @Value("${login.throttle.max-entries:100000}") long maxEntries) {
+        this.windowMillis = window.toMillis();
+        this.accountMaxFailures = accountMaxFailures;
+        this.ipMaxFailures = ipMaxFailures;
+        this.lockThreshold = lockThreshold;
+        this.baseDelayMillis = baseDelay.toMillis();
+        this.maxDelayMillis = maxDelay.toMillis();
+
+        // An idle entry is useless after two windows (or the longest back-off)
+        Duration idle = Duration.ofMillis(Math.max(2 * windowMillis, maxDelayMillis));
+        this.accountFailures = Caffeine.newBuilder().maximumSize(maxEntries).expireAfterAccess(idle).build();
+        this.ipFailures = Caffeine.newBuilder().maximumSize(maxEntries).expireAfterAccess(idle).build();
+    }
+
+    /**
+     * Reject the attempt if the account or the client IP is in back-off
+     */
+    public void checkAllowed(String usernameOrEmail, String clientIp) {
+        long now = System.currentTimeMillis();
+        long waitMillis = Math.max(
+                remainingBlock(accountFailures, normalize(usernameOrEmail), now),
+                remainingBlock(ipFailures, clientIp, now));
+        if (waitMillis > 0) {
+            throw new TooManyRequestsException(Constants.TOO_MANY_LOGIN_ATTEMPTS,
+                    Math.max(1, (waitMillis + 999) / 1000));
+        }
+    }
+
+    /**
+     * Count a failed attempt. Returns the account's failure count when this failure
+     * crossed the lock threshold (the caller should persist the lock), otherwise 0.
+     */
+    public int recordFailure(String usernameOrEmail, String clientIp) {
+        long now = System.currentTimeMillis();
+        if (clientIp != null) {
+            ipFailures.get(clientIp, k -> new FailureWindow())
+                    .recordFailure(now, windowMillis, ipMaxFailures, baseDelayMillis, maxDelayMillis);
+        }
+
+        String account = normalize(usernameOrEmail);
+        if (account == null) {
+            return 0;
+        }
+        int failures = accountFailures.get(account, k -> new FailureWindow())
+                .recordFailure(now, windowMillis, accountMaxFailures, baseDelayMillis, maxDelayMillis);
+        return failures == lockThreshold ? failures : 0;
+    }
+
+    /**
+     * Forget an account's failures after a successful login. The IP window is kept,
+     * so one valid account cannot be used to reset a spraying client.
+     */
+    public void recordSuccess(String usernameOrEmail) {
+        String account = normalize(usernameOrEmail);
+        if (account != null) {
+            accountFailures.invalidate(account);
+        }
+    }
+
+    private static long remainingBlock(Cache<String, FailureWindow> cache, String key, long now) {
+        if (key == null) {
+            return 0;
+        }
+        FailureWindow window = cache.getIfPresent(key);
+        return window == null ? 0 : window.remainingBlock(now);
+    }
+
+    private static String normalize(String usernameOrEmail) {
+        if (usernameOrEmail == null || usernameOrEmail.isBlank()) {
+            return null;
+        }
+        return usernameOrEmail.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Sliding-window failure counter: the previous fixed window is weighted by how
+     * much of it still overlaps the sliding window. Constant memory per key.
+     */
+    static final class FailureWindow {
+
+        private long windowStart;
+        private int previousCount;
+        private int currentCount;
+        private long blockedUntil;
+
+        synchronized int recordFailure(long now, long windowMillis, int maxFailures,
+                                       long baseDelayMillis, long maxDelayMillis) {
+            roll(now, windowMillis);
+            currentCount++;
+
+            double previousWeight = 1.0 - (double) (now - windowStart) / windowMillis;
+            int failures = currentCount + (int) (previousCount * previousWeight);
+
+            if (failures >= maxFailures) {
+                int shift = Math.min(failures - maxFailures, MAX_BACKOFF_SHIFT);
+                long delay = Math.min(baseDelayMillis << shift, maxDelayMillis);
+                blockedUntil = Math.max(blockedUntil, now + delay);
+            }
+            return failures;
+        }
+
+        synchronized long remainingBlock(long now) {
+            return Math.max(0, blockedUntil - now);
+        }
+
+        private void roll(long now, long windowMillis) {
+            if (windowStart == 0) {
+                windowStart = now;
+                return;
+            }
+            long elapsedWindows = (now - windowStart) / windowMillis;
+            if (elapsedWindows >= 1) {
+                previousCount = elapsedWindows == 1 ? currentCount : 0;
+                currentCount = 0;
+                windowStart += elapsedWindows * windowMillis;
+            }
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.kuspidsamples.service;
+
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.BucketConfiguration;
+import io.github.bucket4j.Refill;
+import org.springframework.util.AntPathMatcher;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * One named rate limit: the routes it covers and a limit per plan tier, all
+ * refilled over the same period. Immutable; a reload builds new instances.
+ * The version is a fingerprint of the definition, so buckets survive a reload
+ * that leaves the policy unchanged and start fresh when it changes.
+ */
+public class RateLimitPolicy {
+
+    private static final AntPathMatcher PATH_MATCHER = new AntPathMatcher();
+
+    private final String name;
+    private final List<Route> routes;
+    private final Duration period;
+    private final long defaultLimit;
+    private final Map<String, Long> tierLimits;
+    private final String version;
+
+    public RateLimitPolicy(String name, List<Route> routes, Duration period,
+                           long defaultLimit, Map<String, Long> tierLimits) {
+        this.name = name;
+        this.routes = List.copyOf(routes);
+        this.period = period;
+        this.defaultLimit = defaultLimit;
+        this.tierLimits = Map.copyOf(tierLimits);
+        // Deterministic across replicas, since distributed buckets are keyed by it
+        this.version = Integer.toHexString(
+                (routes + "|" + period + "|" + defaultLimit + "|" + new TreeMap<>(tierLimits)).hashCode());
+    }
+
+    public boolean matches(String method, String path) {
+        for (Route route : routes) {
+            if (route.matches(method, path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Requests per period for the tier; tiers without their own limit get the policy default
+     */
+    public long limitFor(String tier) {
+        return tierLimits.getOrDefault(tier, defaultLimit);
+    }
+
+    public BucketConfiguration configurationFor(String tier) {
+        long limit = limitFor(tier);
+        return BucketConfiguration.builder()
+                .addLimit(Bandwidth.classic(limit, Refill.intervally(limit, period)))
+                .build();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Duration getPeriod() {
+        return period;
+    }
+
+    public String getVersion() {
+        return version;
+    }
+
+    /**
+     * An Ant-style path pattern, optionally restricted to one HTTP method ("POST /api/samples/**")
+     */
+    public record Route(String method, String pattern) {
+
+        public static Route parse(String spec) {
+            String trimmed = spec.trim();
+            int space = trimmed.indexOf(' ');
+            if (space < 0) {
+                return new Route(null, trimmed);
+            }
+            return new Route(trimmed.substring(0, space).toUpperCase(Locale.ROOT), trimmed.substring(space + 1).trim());
+        }
+
+        boolean matches(String requestMethod, String path) {
+            return (method == null || method.equals(requestMethod)) && PATH_MATCHER.match(pattern, path);
+        }
+    }
+}
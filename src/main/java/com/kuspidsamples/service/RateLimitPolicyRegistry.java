@@ -0,0 +1,139 @@
+package com.kuspidsamples.service;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.core.io.Resource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Loads rate limit policies from a properties file and re-reads it periodically,
+ * so limits can change without a restart. Policies are tried in the order listed
+ * under "policies"; the first one whose routes match the request applies.
+ *
+ * <pre>
+ * policies=auth,default
+ * auth.routes=/api/auth/**
+ * auth.period=1m
+ * auth.limit=10
+ * default.routes=/**
+ * default.period=1m
+ * default.limit=100
+ * default.limit.user=300
+ * </pre>
+ */
+@Component
+public class RateLimitPolicyRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(RateLimitPolicyRegistry.class);
+
+    private final Resource location;
+
+    private volatile List<RateLimitPolicy> policies = List.of();
+    private volatile String loadedContent;
+
+    public RateLimitPolicyRegistry(
+            @Value("${rate-limit.policies.location:classpath:rate-limit-policies.properties}") Resource location) {
+        this.location = location;
+    }
+
+    @PostConstruct
+    public void init() {
+        reload();
+        if (policies.isEmpty()) {
+            throw new IllegalStateException("No rate limit policies could be loaded from " + location);
+        }
+    }
+
+    /**
+     * First policy covering the request, or null if none does (not rate limited)
+     */
+    public RateLimitPolicy resolve(String method, String path) {
+        for (RateLimitPolicy policy : policies) {
+            if (policy.matches(method, path)) {
+                return policy;
+            }
+        }
+        return null;
+    }
+
+    public List<RateLimitPolicy> getPolicies() {
+        return policies;
+    }
+
+    /**
+     * Re-read the file; a broken edit is logged and the previous policies stay in force
+     */
+    @Scheduled(initialDelayString = "${rate-limit.policies.reload-interval:30000}",
+            fixedDelayString = "${rate-limit.policies.reload-interval:30000}")
+    public void reload() {
+        try (InputStream in = location.getInputStream()) {
+            String content = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            if (content.equals(loadedContent)) {
+                return;
+            }
+            List<RateLimitPolicy> parsed = parse(content);
+            policies = parsed;
+            loadedContent = content;
+            logger.info("Loaded {} rate limit policies from {}", parsed.size(), location);
+        } catch (IOException | RuntimeException e) {
+            logger.error("Could not load rate limit policies from {}; keeping the current set", location, e);
+        }
+    }
+
+    static List<RateLimitPolicy> parse(String content) throws IOException {
+        Properties properties = new Properties();
+        properties.load(new StringReader(content));
+
+        List<RateLimitPolicy> parsed = new ArrayList<>();
+        for (String name : split(required(properties, "policies"))) {
+            List<RateLimitPolicy.Route> routes = new ArrayList<>();
+            for (String route : split(required(properties, name + ".routes"))) {
+                routes.add(RateLimitPolicy.Route.parse(route));
+            }
+
+            Map<String, Long> tierLimits = new HashMap<>();
+            String tierPrefix = name + ".limit.";
+            for (String key : properties.stringPropertyNames()) {
+                if (key.startsWith(tierPrefix)) {
+                    tierLimits.put(key.substring(tierPrefix.length()), Long.parseLong(properties.getProperty(key).trim()));
+                }
+            }
+
+            parsed.add(new RateLimitPolicy(
+                    name,
+                    routes,
+                    DurationStyle.detectAndParse(properties.getProperty(name + ".period", "1m").trim()),
+                    Long.parseLong(required(properties, name + ".limit").trim()),
+                    tierLimits));
+        }
+        return parsed;
+    }
+
+    private static String required(Properties properties, String key) {
+        String value = properties.getProperty(key);
+        if (value == null || value.isBlank()) {
+            throw new IllegalArgumentException("Missing rate limit property " + key);
+        }
+        return value;
+    }
+
+    private static List<String> split(String value) {
+        List<String> parts = new ArrayList<>();
+        for (String part : value.split(",")) {
+            if (!part.isBlank()) {
+                parts.add(part.trim());
+            }
+        }
+        return parts;
+    }
+}
@@ -0,0 +1,21 @@
+package com.kuspidsamples.service;
+
+import io.github.bucket4j.ConsumptionProbe;
+
+/**
+ * Outcome of one rate limit check, with what the response headers need
+ */
+public record RateLimitResult(boolean allowed, long limit, long remaining, long nanosToWait) {
+
+    public static RateLimitResult from(ConsumptionProbe probe, long limit) {
+        return new RateLimitResult(probe.isConsumed(), limit, probe.getRemainingTokens(),
+                probe.isConsumed() ? 0 : probe.getNanosToWaitForRefill());
+    }
+
+    /**
+     * Whole seconds to wait before retrying, rounded up (Retry-After)
+     */
+    public long retryAfterSeconds() {
+        return Math.max(1, (nanosToWait + 999_999_999L) / 1_000_000_000L);
+    }
+}
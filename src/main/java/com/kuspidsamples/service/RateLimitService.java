@@ -1,68 +1,138 @@
 package com.kuspidsamples.service;
 
-import io.github.bucket4j.Bandwidth;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.kuspidsamples.security.ClientAddress;
 import io.github.bucket4j.Bucket;
-import io.github.bucket4j.Refill;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.time.Duration;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.Optional;
 
+/**
+ * Token buckets per (policy, tier, client key), held in a bounded cache. A bucket
+ * left idle for a full refill period is back at full capacity, so evicting it then
+ * is indistinguishable from keeping it; the size cap bounds memory under key floods.
+ * With rate-limit.engine=striped the buckets are primitive slots in a
+ * {@link StripedRateLimiter} instead (no cache lookup or bucket objects per key).
+ * With rate-limit.distributed.enabled the same limits are enforced across all
+ * replicas through {@link DistributedRateLimiter}, whichever engine is set.
+ */
 @Service
 public class RateLimitService {
 
-    private final Map<String, Bucket> cache = new ConcurrentHashMap<>();
-
     /**
-     * Resolve a bucket for the given key (IP address or user ID)
-     * Default: 100 requests per minute
+     * Rough heap cost of one entry: the local bucket and its state, the key string
+     * and the cache node. Used only for the memory estimate gauge.
      */
-    public Bucket resolveBucket(String key) {
-        return cache.computeIfAbsent(key, k -> createNewBucket());
+    private static final long ESTIMATED_BYTES_PER_BUCKET = 400;
+
+    public static final String ENGINE_BUCKET4J = "bucket4j";
+    public static final String ENGINE_STRIPED = "striped";
+
+    private final Cache<String, PolicyBucket> cache;
+    private final DistributedRateLimiter distributedRateLimiter;
+    private final StripedRateLimiter stripedRateLimiter;
+
+    public RateLimitService(MeterRegistry meterRegistry,
+                            @Value("${rate-limit.max-buckets:100000}") long maxBuckets,
+                            Optional<DistributedRateLimiter> distributedRateLimiter,
+                            @Value("${rate-limit.engine:bucket4j}") String engine,
+                            @Value("${rate-limit.striped.slots:262144}") int stripedSlots,
+                            @Value("${rate-limit.striped.reclaim-after:60s}") Duration stripedReclaimAfter) {
+        this.distributedRateLimiter = distributedRateLimiter.orElse(null);
+        this.stripedRateLimiter = ENGINE_STRIPED.equalsIgnoreCase(engine.trim())
+                ? new StripedRateLimiter(stripedSlots, stripedReclaimAfter.toMillis())
+                : null;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxBuckets)
+                .expireAfter(new Expiry<String, PolicyBucket>() {
+                    @Override
+                    public long expireAfterCreate(String key, PolicyBucket value, long currentTime) {
+                        return value.idleNanos();
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, PolicyBucket value,
+                                                  long currentTime, long currentDuration) {
+                        return value.idleNanos();
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, PolicyBucket value,
+                                                long currentTime, long currentDuration) {
+                        return value.idleNanos();
+                    }
+                })
+                .recordStats()
+                .build();
+
+        // size, hits, misses and evictions
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "rate_limit_buckets");
+        Gauge.builder("rate_limit.buckets.memory.estimated", cache,
+                        c -> c.estimatedSize() * ESTIMATED_BYTES_PER_BUCKET)
+                .description("Estimated heap used by rate limit buckets")
+                .baseUnit("bytes")
+                .register(meterRegistry);
     }
 
     /**
-     * Resolve bucket for authentication endpoints (stricter)
-     * 10 requests per minute
+     * Take one token from the client's bucket under the given policy and tier
      */
-    public Bucket resolveAuthBucket(String key) {
-        return cache.computeIfAbsent("auth:" + key, k -> createAuthBucket());
+    public RateLimitResult tryConsume(RateLimitPolicy policy, String tier, String clientKey) {
+        long limit = policy.limitFor(tier);
+        if (stripedRateLimiter != null && distributedRateLimiter == null) {
+            return tryConsumeStriped(policy, tier, clientKey, limit);
+        }
+
+        // Policy version in the key: changed limits start from fresh buckets
+        String key = policy.getName() + ':' + policy.getVersion() + ':' + tier + ':' + clientKey;
+        if (distributedRateLimiter != null) {
+            return distributedRateLimiter.tryConsume(key, limit, () -> policy.configurationFor(tier));
+        }
+
+        PolicyBucket entry = cache.get(key, k -> new PolicyBucket(
+                Bucket.builder().addLimit(policy.configurationFor(tier).getBandwidths()[0]).build(),
+                policy.getPeriod().toNanos()));
+        return RateLimitResult.from(entry.bucket().tryConsumeAndReturnRemaining(1), limit);
     }
 
     /**
-     * Standard rate limit: 100 requests per minute
+     * Same as {@link #tryConsume(RateLimitPolicy, String, String)} for an anonymous client
+     * address. The striped engine keys on the address bits directly, without building a string.
      */
-    private Bucket createNewBucket() {
-        Bandwidth limit = Bandwidth.classic(100, Refill.intervally(100, Duration.ofMinutes(1)));
-        return Bucket.builder()
-                .addLimit(limit)
-                .build();
+    public RateLimitResult tryConsume(RateLimitPolicy policy, String tier, ClientAddress address) {
+        if (stripedRateLimiter != null && distributedRateLimiter == null) {
+            return tryConsumeStriped(policy, tier, address.key(), policy.limitFor(tier));
+        }
+        return tryConsume(policy, tier, "ip:" + address);
     }
 
-    /**
-     * Strict rate limit for authentication: 10 requests per minute
-     */
-    private Bucket createAuthBucket() {
-        Bandwidth limit = Bandwidth.classic(10, Refill.intervally(10, Duration.ofMinutes(1)));
-        return Bucket.builder()
-                .addLimit(limit)
-                .build();
+    private RateLimitResult tryConsumeStriped(RateLimitPolicy policy, String tier, String clientKey, long limit) {
+        return tryConsumeStriped(policy, tier, StripedRateLimiter.hash(clientKey), limit);
     }
 
-    /**
-     * Check if request is allowed
-     */
-    public boolean tryConsume(String key) {
-        Bucket bucket = resolveBucket(key);
-        return bucket.tryConsume(1);
+    private RateLimitResult tryConsumeStriped(RateLimitPolicy policy, String tier, long clientHash, long limit) {
+        // Policy, version and tier hashes are cached on their (long-lived) strings
+        long scope = StripedRateLimiter.mix(((long) policy.getName().hashCode() << 32)
+                ^ ((long) policy.getVersion().hashCode() * 31 + tier.hashCode()));
+        long result = stripedRateLimiter.tryAcquire(scope ^ clientHash, limit, policy.getPeriod().toMillis());
+        return result >= 0
+                ? new RateLimitResult(true, limit, result, 0)
+                : new RateLimitResult(false, limit, 0, -result);
     }
 
     /**
-     * Check if auth request is allowed
+     * Number of live buckets (approximate)
      */
-    public boolean tryConsumeAuth(String key) {
-        Bucket bucket = resolveAuthBucket(key);
-        return bucket.tryConsume(1);
+    public long getBucketCount() {
+        return cache.estimatedSize();
     }
-}
\ No newline at end of file
+
+    private record PolicyBucket(Bucket bucket, long idleNanos) {}
+}
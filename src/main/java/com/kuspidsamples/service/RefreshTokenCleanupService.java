@@ -0,0 +1,97 @@
+package com.kuspidsamples.service;
+
+import com.kuspidsamples.repository.RefreshTokenRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Removes expired refresh tokens in small batches. Each batch is its own short
+ * transaction, so the purge never holds long locks on refresh_tokens.
+ */
+@Service
+public class RefreshTokenCleanupService {
+
+    private static final Logger logger = LoggerFactory.getLogger(RefreshTokenCleanupService.class);
+
+    private final RefreshTokenRepository refreshTokenRepository;
+    private final int batchSize;
+    private final int maxBatches;
+
+    private final AtomicLong tableSize = new AtomicLong();
+    private final Counter purgedTokens;
+    private final Timer purgeTimer;
+
+    public RefreshTokenCleanupService(RefreshTokenRepository refreshTokenRepository,
+                                      MeterRegistry meterRegistry,
+                                      @Value("${refresh-token.purge.batch-size:500}") int batchSize,
+                                      @Value("${refresh-token.purge.max-batches:200}") int maxBatches) {
+        this.refreshTokenRepository = refreshTokenRepository;
+        this.batchSize = batchSize;
+        this.maxBatches = maxBatches;
+
+        Gauge.builder("refresh_tokens.rows", tableSize, AtomicLong::get)
+                .description("Rows in refresh_tokens as of the last purge")
+                .register(meterRegistry);
+        this.purgedTokens = Counter.builder("refresh_tokens.purged")
+                .description("Expired refresh tokens deleted by the purge job")
+                .register(meterRegistry);
+        this.purgeTimer = Timer.builder("refresh_tokens.purge.duration")
+                .description("Time spent per purge run")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Delete expired tokens, batch by batch, up to maxBatches per run
+     */
+    @Scheduled(initialDelayString = "${refresh-token.purge.initial-delay:60000}",
+            fixedDelayString = "${refresh-token.purge.interval:300000}")
+    public int purgeExpiredTokens() {
+        long start = System.nanoTime();
+        Instant now = Instant.now();
+        int purged = 0;
+
+        try {
+            for (int batch = 0; batch < maxBatches; batch++) {
+                List<Long> ids = refreshTokenRepository.findExpiredIds(now, PageRequest.of(0, batchSize));
+                if (ids.isEmpty()) {
+                    break;
+                }
+                purged += refreshTokenRepository.deleteByIdIn(ids);
+                if (ids.size() < batchSize) {
+                    break;
+                }
+            }
+            tableSize.set(refreshTokenRepository.count());
+        } catch (Exception e) {
+            logger.error("Refresh token purge failed after deleting {} rows", purged, e);
+        } finally {
+            long elapsedNanos = System.nanoTime() - start;
+            purgeTimer.record(elapsedNanos, TimeUnit.NANOSECONDS);
+            purgedTokens.increment(purged);
+
+            if (purged > 0) {
+                double seconds = Math.max(elapsedNanos / 1e9, 1e-3);
+                logger.info("Purged {} expired refresh tokens in {} ms ({} rows/s)",
+                        purged, TimeUnit.NANOSECONDS.toMillis(elapsedNanos), Math.round(purged / seconds));
+            }
+        }
+        return purged;
+    }
+
+    public long getTableSize() {
+        return tableSize.get();
+    }
+}
@@ -12,10 +12,14 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.File;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -23,39 +27,82 @@ import java.util.stream.Collectors;
 @Service
 public class SampleService {
 
+    private static final Logger logger = LoggerFactory.getLogger(SampleService.class);
+
     private final SampleRepository sampleRepository;
     private final UserService userService;
-    private final CloudinaryService cloudinaryService;
+    private final StorageService storageService;
+    private final StoredAssetService storedAssetService;
+    private final TransactionTemplate transactionTemplate;
+    private final ImageVariantService imageVariantService;
 
     public SampleService(SampleRepository sampleRepository,
                          UserService userService,
-                         CloudinaryService cloudinaryService) {
+                         StorageService storageService,
+                         StoredAssetService storedAssetService,
+                         TransactionTemplate transactionTemplate,
+                         ImageVariantService imageVariantService) {
         this.sampleRepository = sampleRepository;
         this.userService = userService;
-        this.cloudinaryService = cloudinaryService;
+        this.storageService = storageService;
+        this.storedAssetService = storedAssetService;
+        this.transactionTemplate = transactionTemplate;
+        this.imageVariantService = imageVariantService;
     }
 
     /**
-     * Create a new sample
+     * Create a new sample. The image is uploaded before any transaction is opened,
+     * so a slow upload does not hold a pooled connection; if saving the row then
+     * fails, the uploaded image is deleted again.
      */
-    @Transactional
     public SampleResponse createSample(SampleRequest request, MultipartFile image) {
         User currentUser = userService.getCurrentUser();
 
+        // Upload image if provided
+        Map<String, Object> uploadResult = null;
+        if (image != null && !image.isEmpty()) {
+            uploadResult = storageService.uploadFile(image, Constants.CLOUDINARY_FOLDER);
+        }
+        return saveNewSample(request, currentUser, uploadResult);
+    }
+
+    /**
+     * Create a sample for a user from an image already on disk (upload jobs run
+     * without a security context, so the owner is passed in)
+     */
+    public SampleResponse createSample(SampleRequest request, File image, String username) {
+        User owner = userService.getUserByUsername(username);
+
+        Map<String, Object> uploadResult = null;
+        if (image != null) {
+            uploadResult = storageService.uploadFile(image, Constants.CLOUDINARY_FOLDER);
+        }
+        return saveNewSample(request, owner, uploadResult);
+    }
+
+    private SampleResponse saveNewSample(SampleRequest request, User owner, Map<String, Object> uploadResult) {
         Sample sample = new Sample();
         sample.setName(request.getName());
         sample.setDescription(request.getDescription());
-        sample.setUser(currentUser);
-
-        // Upload image if provided
-        if (image != null && !image.isEmpty()) {
-            Map<String, Object> uploadResult = cloudinaryService.uploadFile(image, Constants.CLOUDINARY_FOLDER);
+        sample.setUser(owner);
+        if (uploadResult != null) {
             sample.setImageUrl(uploadResult.get("url").toString());
             sample.setImagePublicId(uploadResult.get("publicId").toString());
         }
 
-        sample = sampleRepository.save(sample);
-        return mapToSampleResponse(sample);
+        try {
+            // Mapped inside the transaction: the owner may be a lazy proxy off the request thread
+            return transactionTemplate.execute(status -> {
+                SampleResponse saved = mapToSampleResponse(sampleRepository.save(sample));
+                if (uploadResult != null) {
+                    storedAssetService.acquire(sample.getImagePublicId());
+                }
+                return saved;
+            });
+        } catch (RuntimeException e) {
+            discardUpload(uploadResult);
+            throw e;
+        }
     }
 
     /**
@@ -97,19 +144,62 @@ public class SampleService {
     }
 
     /**
-     * Update sample
+     * Update sample. As in {@link #createSample}, a new image is uploaded outside the
+     * transaction; the old one is released in the same transaction that replaces
+     * the reference.
      */
-    @Transactional
     public SampleResponse updateSample(Long id, SampleRequest request, MultipartFile image) {
+        Sample sample = findOwnedSample(id, userService.getCurrentUser());
+
+        // Upload new image if provided
+        Map<String, Object> uploadResult = null;
+        if (image != null && !image.isEmpty()) {
+            uploadResult = storageService.uploadFile(image, Constants.CLOUDINARY_FOLDER);
+        }
+        return applyUpdate(sample, request, uploadResult);
+    }
+
+    /**
+     * Update a sample on behalf of a user from an image already on disk (upload jobs)
+     */
+    public SampleResponse updateSample(Long id, SampleRequest request, File image, String username) {
+        Sample sample = findOwnedSample(id, userService.getUserByUsername(username));
+
+        Map<String, Object> uploadResult = null;
+        if (image != null) {
+            uploadResult = storageService.uploadFile(image, Constants.CLOUDINARY_FOLDER);
+        }
+        return applyUpdate(sample, request, uploadResult);
+    }
+
+    /**
+     * Point a user's sample at an image they uploaded to Cloudinary directly
+     */
+    public SampleResponse attachImage(Long id, String username, String url, String publicId) {
+        Sample sample = findOwnedSample(id, userService.getUserByUsername(username));
+        return applyUpdate(sample, new SampleRequest(), Map.of("url", url, "publicId", publicId));
+    }
+
+    /**
+     * Fail fast if the current user may not update the sample, before any work is queued
+     */
+    public void checkCanUpdate(Long id) {
+        findOwnedSample(id, userService.getCurrentUser());
+    }
+
+    private Sample findOwnedSample(Long id, User currentUser) {
         Sample sample = sampleRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException(Constants.SAMPLE_NOT_FOUND));
 
-        User currentUser = userService.getCurrentUser();
-
         // Check if user owns the sample
         if (!sample.getUser().getId().equals(currentUser.getId())) {
             throw new UnauthorizedException(Constants.UNAUTHORIZED_ACCESS);
         }
+        return sample;
+    }
+
+    private SampleResponse applyUpdate(Sample sample, SampleRequest request, Map<String, Object> uploadResult) {
+        String oldPublicId = sample.getImagePublicId();
 
         // Update fields
         if (request.getName() != null && !request.getName().isBlank()) {
@@ -120,21 +210,25 @@ public class SampleService {
             sample.setDescription(request.getDescription());
         }
 
-        // Update image if provided
-        if (image != null && !image.isEmpty()) {
-            // Delete old image if exists
-            if (sample.getImagePublicId() != null) {
-                cloudinaryService.deleteFile(sample.getImagePublicId());
-            }
-
-            // Upload new image
-            Map<String, Object> uploadResult = cloudinaryService.uploadFile(image, Constants.CLOUDINARY_FOLDER);
+        if (uploadResult != null) {
             sample.setImageUrl(uploadResult.get("url").toString());
             sample.setImagePublicId(uploadResult.get("publicId").toString());
         }
 
-        sample = sampleRepository.save(sample);
-        return mapToSampleResponse(sample);
+        try {
+            return transactionTemplate.execute(status -> {
+                SampleResponse saved = mapToSampleResponse(sampleRepository.save(sample));
+                // Swap references; the old image goes once nothing else shares it
+                if (uploadResult != null) {
+                    storedAssetService.acquire(sample.getImagePublicId());
+                    storedAssetService.release(oldPublicId);
+                }
+                return saved;
+            });
+        } catch (RuntimeException e) {
+            discardUpload(uploadResult);
+            throw e;
+        }
     }
 
     /**
@@ -152,19 +246,28 @@ public class SampleService {
             throw new UnauthorizedException(Constants.UNAUTHORIZED_ACCESS);
         }
 
-        // Delete image from Cloudinary if exists
-        if (sample.getImagePublicId() != null) {
-            cloudinaryService.deleteFile(sample.getImagePublicId());
-        }
+        // Release the image; its deletion commits or rolls back with the sample
+        storedAssetService.release(sample.getImagePublicId());
 
         sampleRepository.delete(sample);
     }
 
+    /**
+     * Compensate for an upload whose row was never written
+     */
+    private void discardUpload(Map<String, Object> uploadResult) {
+        if (uploadResult != null) {
+            String publicId = uploadResult.get("publicId").toString();
+            logger.warn("Saving sample failed; discarding uploaded image {}", publicId);
+            storedAssetService.discard(publicId);
+        }
+    }
+
     /**
      * Map Sample entity to SampleResponse DTO
      */
     private SampleResponse mapToSampleResponse(Sample sample) {
-        return new SampleResponse(
+        SampleResponse response = new SampleResponse(
                 sample.getId(),
                 sample.getName(),
                 sample.getDescription(),
@@ -174,5 +277,7 @@ public class SampleService {
                 sample.getCreatedAt(),
                 sample.getUpdatedAt()
         );
+        response.setImageVariants(imageVariantService.variantsOf(sample.getImagePublicId(), sample.getImageUrl()));
+        return response;
     }
 }
\ No newline at end of file
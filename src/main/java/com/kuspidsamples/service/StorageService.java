@@ -0,0 +1,49 @@
+package com.kuspidsamples.service;
+
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Where uploaded images are kept. storage.type picks the implementation:
+ * cloudinary (the default, {@link CloudinaryService}) or local ({@link LocalStorageService}).
+ * Assets are addressed by a public id that the implementation chooses; the upload
+ * result carries it with the URL clients load the image from.
+ */
+public interface StorageService {
+
+    /** Most public ids a single {@link #deleteFiles} call accepts */
+    int MAX_BATCH_DELETE = 100;
+
+    /**
+     * Store an uploaded part
+     *
+     * @return "url" and "publicId" of the stored asset
+     */
+    Map<String, Object> uploadFile(MultipartFile file, String folder);
+
+    /**
+     * Store a file on disk; the file is left in place
+     *
+     * @return "url" and "publicId" of the stored asset
+     */
+    Map<String, Object> uploadFile(File file, String folder);
+
+    /**
+     * Delete an asset. Best effort: failures are only logged, so callers that must
+     * not leak the asset go through {@link AssetDeletionService} instead.
+     */
+    void deleteFile(String publicId);
+
+    /**
+     * Delete up to {@link #MAX_BATCH_DELETE} assets
+     *
+     * @return the public ids that are gone, including ones that no longer existed
+     * @throws IOException if nothing can be assumed deleted
+     */
+    Set<String> deleteFiles(List<String> publicIds) throws IOException;
+}
@@ -0,0 +1,135 @@
+package com.kuspidsamples.service;
+
+import com.kuspidsamples.entity.StoredAsset;
+import com.kuspidsamples.repository.StoredAssetRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Reference counts for deduplicated assets (see {@link StorageService#uploadFile}).
+ * Samples and profiles acquire the asset they point at and release the one they stop
+ * pointing at, in the same transaction as the row change.
+ * <p>
+ * An asset whose count drops to zero is not deleted straight away: another upload of
+ * the same content may have just been handed it and be about to acquire it. Assets
+ * left unreferenced for the grace period are reclaimed by a scheduled sweep and go
+ * through the {@link AssetDeletionService} outbox. Assets uploaded before
+ * deduplication have no row and are queued for deletion as soon as they are released.
+ */
+@Service
+public class StoredAssetService {
+
+    private static final Logger logger = LoggerFactory.getLogger(StoredAssetService.class);
+
+    private final StoredAssetRepository storedAssetRepository;
+    private final AssetDeletionService assetDeletionService;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration grace;
+    private final int batchSize;
+
+    private final Counter reclaimedAssets;
+
+    public StoredAssetService(StoredAssetRepository storedAssetRepository,
+                              AssetDeletionService assetDeletionService,
+                              TransactionTemplate transactionTemplate,
+                              MeterRegistry meterRegistry,
+                              @Value("${stored-assets.reclaim.grace:10m}") Duration grace,
+                              @Value("${stored-assets.reclaim.batch-size:100}") int batchSize) {
+        this.storedAssetRepository = storedAssetRepository;
+        this.assetDeletionService = assetDeletionService;
+        this.transactionTemplate = transactionTemplate;
+        this.grace = grace;
+        this.batchSize = batchSize;
+
+        this.reclaimedAssets = Counter.builder("stored_assets.reclaimed")
+                .description("Unreferenced assets handed to the deletion outbox")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Count a new reference to the asset. Joins the caller's transaction.
+     */
+    @Transactional
+    public void acquire(String publicId) {
+        if (publicId == null) {
+            return;
+        }
+        if (storedAssetRepository.incrementRefCount(publicId, Instant.now()) == 0
+                && assetDeletionService.cancel(publicId) > 0) {
+            // Untracked: a direct upload, whose deletion was queued in case it was never
+            // confirmed, or an asset reclaimed between upload and save. Keep it.
+            logger.debug("Cancelled pending deletion of {}", publicId);
+        }
+    }
+
+    /**
+     * Drop a reference to the asset. Joins the caller's transaction.
+     */
+    @Transactional
+    public void release(String publicId) {
+        if (publicId == null) {
+            return;
+        }
+        if (storedAssetRepository.decrementRefCount(publicId, Instant.now()) == 0
+                && !storedAssetRepository.existsByPublicId(publicId)) {
+            // Not deduplicated: this was the only reference
+            assetDeletionService.enqueue(publicId);
+        }
+    }
+
+    /**
+     * Give up an upload whose row was never committed. Tracked assets are left to the
+     * sweep, since an identical upload may be sharing them.
+     */
+    public void discard(String publicId) {
+        if (!storedAssetRepository.existsByPublicId(publicId)) {
+            assetDeletionService.discard(publicId);
+        }
+    }
+
+    /**
+     * Hand assets that have had no references for the grace period to the deletion
+     * outbox, one short transaction each so a concurrent acquire is never lost. The
+     * delete re-checks the cutoff, so an asset just handed to a duplicate upload (which
+     * touches it) is skipped even if it was selected before.
+     */
+    @Scheduled(initialDelayString = "${stored-assets.reclaim.initial-delay:60000}",
+            fixedDelayString = "${stored-assets.reclaim.interval:300000}")
+    public int reclaimUnreferenced() {
+        int reclaimed = 0;
+        try {
+            Instant cutoff = Instant.now().minus(grace);
+            List<StoredAsset> candidates = storedAssetRepository.findUnreferenced(
+                    cutoff, PageRequest.of(0, batchSize));
+            for (StoredAsset asset : candidates) {
+                Boolean removed = transactionTemplate.execute(status -> {
+                    if (storedAssetRepository.deleteIfUnreferenced(asset.getId(), cutoff) == 0) {
+                        return false;
+                    }
+                    assetDeletionService.enqueue(asset.getPublicId());
+                    return true;
+                });
+                if (Boolean.TRUE.equals(removed)) {
+                    reclaimed++;
+                }
+            }
+        } catch (Exception e) {
+            logger.error("Reclaiming unreferenced assets failed after {}", reclaimed, e);
+        } finally {
+            reclaimedAssets.increment(reclaimed);
+        }
+        return reclaimed;
+    }
+}
@@ -0,0 +1,144 @@
+package com.kuspidsamples.service;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Allocation-free token buckets packed into one {@link AtomicLongArray}.
+ * Each slot is a single long updated by CAS:
+ *
+ * <pre>
+ *   63        48 47        32 31                     0
+ *  [ fingerprint | tokens     | last refill (ms tick)  ]
+ * </pre>
+ *
+ * A key hashes to two candidate slots; it uses the one holding its fingerprint,
+ * otherwise claims one that is empty or idle long enough to be full again anyway.
+ * If both are busy with other keys it shares the first (it may be limited early,
+ * never late). Capacity is capped at 65535 tokens per bucket and ticks wrap every
+ * 49 days, which only matters for buckets idle that long.
+ */
+public class StripedRateLimiter {
+
+    private static final long TOKEN_MASK = 0xFFFFL;
+    private static final long TICK_MASK = 0xFFFFFFFFL;
+    private static final int FINGERPRINT_SHIFT = 48;
+    private static final int TOKEN_SHIFT = 32;
+    public static final long MAX_CAPACITY = TOKEN_MASK;
+
+    private final AtomicLongArray slots;
+    private final int mask;
+    private final long reclaimAfterMillis;
+    private final long originNanos = System.nanoTime();
+
+    /**
+     * @param slotCount          rounded up to a power of two; 8 bytes each
+     * @param reclaimAfterMillis how long a slot must sit unused before another key may take it
+     */
+    public StripedRateLimiter(int slotCount, long reclaimAfterMillis) {
+        int size = Integer.highestOneBit(Math.max(slotCount - 1, 1)) << 1;
+        this.slots = new AtomicLongArray(size);
+        this.mask = size - 1;
+        this.reclaimAfterMillis = reclaimAfterMillis;
+    }
+
+    /**
+     * Take one token from the bucket for the key hash.
+     *
+     * @return tokens left (>= 0) if allowed, otherwise minus the nanoseconds until a token is available
+     */
+    public long tryAcquire(long keyHash, long capacity, long periodMillis) {
+        long cap = Math.min(Math.max(capacity, 1), MAX_CAPACITY);
+        long period = Math.max(periodMillis, 1);
+        long now = currentTick();
+        long fingerprint = ((keyHash >>> FINGERPRINT_SHIFT) | 1) & TOKEN_MASK;
+        int slot = selectSlot(keyHash, fingerprint, now, Math.max(period, reclaimAfterMillis));
+
+        while (true) {
+            long current = slots.get(slot);
+            long owner = current >>> FINGERPRINT_SHIFT;
+            long tokens;
+            long tick;
+
+            if (current == 0 || (owner != fingerprint && elapsed(now, current) >= Math.max(period, reclaimAfterMillis))) {
+                // Fresh or reclaimed slot: a full bucket, now ours
+                owner = fingerprint;
+                tokens = cap;
+                tick = now;
+            } else {
+                tokens = Math.min((current >>> TOKEN_SHIFT) & TOKEN_MASK, cap);
+                tick = current & TICK_MASK;
+                long elapsed = elapsed(now, current);
+                long refill = elapsed * cap / period;
+                if (refill > 0) {
+                    tokens = Math.min(cap, tokens + refill);
+                    // Advance only by the time the refilled tokens cost, so partial progress is kept
+                    tick = tokens == cap ? now : (tick + refill * period / cap) & TICK_MASK;
+                }
+            }
+
+            if (tokens == 0) {
+                long msPerToken = (period + cap - 1) / cap;
+                long waitMillis = Math.max(1, msPerToken - elapsed(now, current));
+                return -waitMillis * 1_000_000L;
+            }
+
+            long next = (owner << FINGERPRINT_SHIFT) | ((tokens - 1) << TOKEN_SHIFT) | tick;
+            if (slots.compareAndSet(slot, current, next)) {
+                return tokens - 1;
+            }
+        }
+    }
+
+    /**
+     * 64-bit FNV-1a over the chars, computed without allocating
+     */
+    public static long hash(CharSequence key) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            hash ^= key.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return mix(hash);
+    }
+
+    public static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    public int getSlotCount() {
+        return slots.length();
+    }
+
+    private int selectSlot(long keyHash, long fingerprint, long now, long reclaimAfter) {
+        int first = (int) keyHash & mask;
+        long firstState = slots.get(first);
+        if (firstState >>> FINGERPRINT_SHIFT == fingerprint) {
+            return first;
+        }
+        int second = (int) (keyHash >>> 24) & mask;
+        long secondState = slots.get(second);
+        if (secondState >>> FINGERPRINT_SHIFT == fingerprint) {
+            return second;
+        }
+        if (firstState == 0 || elapsed(now, firstState) >= reclaimAfter) {
+            return first;
+        }
+        if (secondState == 0 || elapsed(now, secondState) >= reclaimAfter) {
+            return second;
+        }
+        return first;
+    }
+
+    private static long elapsed(long now, long state) {
+        return (now - (state & TICK_MASK)) & TICK_MASK;
+    }
+
+    private long currentTick() {
+        return ((System.nanoTime() - originNanos) / 1_000_000L) & TICK_MASK;
+    }
+}
@@ -0,0 +1,289 @@
+package com.kuspidsamples.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.kuspidsamples.dto.request.SampleRequest;
+import com.kuspidsamples.dto.response.UploadJobResponse;
+import com.kuspidsamples.exception.BadRequestException;
+import com.kuspidsamples.exception.ResourceNotFoundException;
+import com.kuspidsamples.exception.ServiceUnavailableException;
+import com.kuspidsamples.exception.TooManyRequestsException;
+import com.kuspidsamples.exception.UnauthorizedException;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs image uploads in the background. The request thread only spools the part to
+ * disk and queues a job; a fixed pool of workers does the Cloudinary upload and the
+ * row write. Job state is kept in memory for a while after it finishes and pushed to
+ * the owner on /user/queue/uploads at every change of status (not byte by byte: the
+ * Cloudinary HTTP client takes no progress callback, and local storage copies in one
+ * transfer). On shutdown workers get a bounded time to finish; jobs still unfinished
+ * then are reported FAILED. Status is only known to the instance that accepted the job.
+ */
+@Service
+public class UploadJobService {
+
+    private static final Logger logger = LoggerFactory.getLogger(UploadJobService.class);
+
+    public static final String DESTINATION = "/queue/uploads";
+
+    public static final String TYPE_SAMPLE_CREATE = "SAMPLE_CREATE";
+    public static final String TYPE_SAMPLE_UPDATE = "SAMPLE_UPDATE";
+    public static final String TYPE_PROFILE_UPDATE = "PROFILE_UPDATE";
+
+    public static final String STATUS_QUEUED = "QUEUED";
+    public static final String STATUS_PROCESSING = "PROCESSING";
+    public static final String STATUS_COMPLETED = "COMPLETED";
+    public static final String STATUS_FAILED = "FAILED";
+
+    private final SampleService sampleService;
+    private final UserService userService;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final ThreadPoolExecutor executor;
+    private final Cache<String, TrackedJob> jobs;
+    private final Duration shutdownTimeout;
+
+    public UploadJobService(SampleService sampleService,
+                            UserService userService,
+                            SimpMessagingTemplate messagingTemplate,
+                            MeterRegistry meterRegistry,
+                            @Value("${upload.jobs.workers:4}") int workers,
+                            @Value("${upload.jobs.queue-capacity:100}") int queueCapacity,
+                            @Value("${upload.jobs.retention:1h}") Duration retention,
+                            @Value("${upload.jobs.shutdown-timeout:20s}") Duration shutdownTimeout) {
+        this.sampleService = sampleService;
+        this.userService = userService;
+        this.messagingTemplate = messagingTemplate;
+        this.shutdownTimeout = shutdownTimeout;
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "upload-job-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.jobs = Caffeine.newBuilder()
+                .expireAfterWrite(retention)
+                .maximumSize(10_000)
+                .build();
+
+        Gauge.builder("upload.jobs.queued", executor, e -> e.getQueue().size())
+                .description("Upload jobs waiting for a worker")
+                .register(meterRegistry);
+        Gauge.builder("upload.jobs.active", executor, ThreadPoolExecutor::getActiveCount)
+                .description("Upload jobs being processed")
+                .register(meterRegistry);
+    }
+
+    public UploadJobResponse submitCreateSample(SampleRequest request, MultipartFile image) {
+        return submit(TYPE_SAMPLE_CREATE, image,
+                (file, username) -> sampleService.createSample(request, file, username));
+    }
+
+    public UploadJobResponse submitUpdateSample(Long id, SampleRequest request, MultipartFile image) {
+        // Not found and not owner are answered now, not discovered by the worker later
+        sampleService.checkCanUpdate(id);
+        return submit(TYPE_SAMPLE_UPDATE, image,
+                (file, username) -> sampleService.updateSample(id, request, file, username));
+    }
+
+    public UploadJobResponse submitProfileUpdate(String fullName, MultipartFile image) {
+        return submit(TYPE_PROFILE_UPDATE, image,
+                (file, username) -> userService.updateProfile(username, fullName, file));
+    }
+
+    /**
+     * Status of one of the current user's jobs; other users' jobs are reported as not found
+     */
+    public UploadJobResponse getJob(String jobId) {
+        TrackedJob job = jobs.getIfPresent(jobId);
+        if (job == null || !job.owner().equals(currentUsername())) {
+            throw new ResourceNotFoundException("Upload job not found");
+        }
+        return job.view();
+    }
+
+    private UploadJobResponse submit(String type, MultipartFile image, UploadWork work) {
+        String username = currentUsername();
+        Path spooled = spool(image);
+
+        LocalDateTime now = LocalDateTime.now();
+        UploadJobResponse queued = new UploadJobResponse(
+                UUID.randomUUID().toString(), type, STATUS_QUEUED, null, null, now, now);
+        jobs.put(queued.getJobId(), new TrackedJob(username, queued));
+
+        try {
+            executor.execute(new QueuedJob(queued, username, spooled, work));
+        } catch (RejectedExecutionException e) {
+            jobs.invalidate(queued.getJobId());
+            deleteQuietly(spooled);
+            if (executor.isShutdown()) {
+                throw new ServiceUnavailableException("Server is restarting. Please try again shortly.", 5);
+            }
+            throw new TooManyRequestsException("Upload queue is full. Please try again shortly.", 5);
+        }
+        return queued;
+    }
+
+    private void run(UploadJobResponse queued, String username, Path spooled, UploadWork work) {
+        publish(username, queued, STATUS_PROCESSING, null, null);
+        try {
+            Object result = work.run(spooled == null ? null : spooled.toFile(), username);
+            publish(username, queued, STATUS_COMPLETED, result, null);
+        } catch (BadRequestException | ResourceNotFoundException | UnauthorizedException
+                 | ServiceUnavailableException e) {
+            publish(username, queued, STATUS_FAILED, null, e.getMessage());
+        } catch (RuntimeException e) {
+            logger.error("Upload job {} failed", queued.getJobId(), e);
+            publish(username, queued, STATUS_FAILED, null, "Upload failed");
+        } finally {
+            deleteQuietly(spooled);
+        }
+    }
+
+    private void publish(String username, UploadJobResponse job, String status, Object result, String error) {
+        UploadJobResponse update = new UploadJobResponse(job.getJobId(), job.getType(), status, result, error,
+                job.getCreatedAt(), LocalDateTime.now());
+        jobs.put(job.getJobId(), new TrackedJob(username, update));
+        try {
+            messagingTemplate.convertAndSendToUser(username, DESTINATION, update);
+        } catch (RuntimeException e) {
+            // Clients that are not connected can still poll the status endpoint
+            logger.debug("Could not push upload job {} update", job.getJobId(), e);
+        }
+    }
+
+    /**
+     * Move the part out of the request before it ends; the container deletes its own copy
+     */
+    private Path spool(MultipartFile image) {
+        if (image == null || image.isEmpty()) {
+            return null;
+        }
+        Path spooled = null;
+        try {
+            spooled = Files.createTempFile("upload-job-", ".part");
+            image.transferTo(spooled.toFile());
+            return spooled;
+        } catch (IOException e) {
+            deleteQuietly(spooled);
+            throw new BadRequestException("Failed to upload file: " + e.getMessage());
+        }
+    }
+
+    private String currentUsername() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !authentication.isAuthenticated()) {
+            throw new UnauthorizedException("User not authenticated");
+        }
+        return authentication.getName();
+    }
+
+    private void deleteQuietly(Path path) {
+        if (path == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            logger.warn("Could not delete upload spool file {}", path, e);
+        }
+    }
+
+    /**
+     * Let queued and running jobs finish for up to the shutdown timeout, then stop the
+     * workers and report what is left as FAILED. Runs when the context starts closing,
+     * while the message broker can still deliver that last update; @PreDestroy is the
+     * fallback when the context is not closed normally. A second call does nothing new.
+     */
+    @EventListener(ContextClosedEvent.class)
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+        List<Runnable> neverStarted = List.of();
+        try {
+            if (!executor.awaitTermination(shutdownTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                neverStarted = executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            neverStarted = executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        for (Runnable runnable : neverStarted) {
+            if (runnable instanceof QueuedJob job) {
+                deleteQuietly(job.spooled);
+            }
+        }
+
+        int failed = 0;
+        for (TrackedJob job : List.copyOf(jobs.asMap().values())) {
+            String status = job.view().getStatus();
+            if (STATUS_QUEUED.equals(status) || STATUS_PROCESSING.equals(status)) {
+                publish(job.owner(), job.view(), STATUS_FAILED, null, "Server restarted. Please upload again.");
+                failed++;
+            }
+        }
+        if (failed > 0) {
+            logger.warn("{} upload jobs did not finish within {} of shutdown", failed, shutdownTimeout);
+        }
+    }
+
+    @FunctionalInterface
+    interface UploadWork {
+        Object run(File image, String username);
+    }
+
+    private record TrackedJob(String owner, UploadJobResponse view) {
+    }
+
+    /**
+     * A submitted job; kept as its own type so shutdown can clean up the ones never started
+     */
+    private final class QueuedJob implements Runnable {
+
+        private final UploadJobResponse queued;
+        private final String username;
+        private final Path spooled;
+        private final UploadWork work;
+
+        QueuedJob(UploadJobResponse queued, String username, Path spooled, UploadWork work) {
+            this.queued = queued;
+            this.username = username;
+            this.spooled = spooled;
+            this.work = work;
+        }
+
+        @Override
+        public void run() {
+            UploadJobService.this.run(queued, username, spooled, work);
+        }
+    }
+}
@@ -12,25 +12,40 @@ import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.File;
 import java.util.Map;
 
 @Service
 public class UserService {
 
+    private static final Logger logger = LoggerFactory.getLogger(UserService.class);
+
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
-    private final CloudinaryService cloudinaryService;
+    private final StorageService storageService;
+    private final StoredAssetService storedAssetService;
+    private final TransactionTemplate transactionTemplate;
+    private final ImageVariantService imageVariantService;
 
     public UserService(UserRepository userRepository,
                        PasswordEncoder passwordEncoder,
-                       CloudinaryService cloudinaryService) {
+                       StorageService storageService,
+                       StoredAssetService storedAssetService,
+                       TransactionTemplate transactionTemplate,
+                       ImageVariantService imageVariantService) {
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
-        this.cloudinaryService = cloudinaryService;
+        this.storageService = storageService;
+        this.storedAssetService = storedAssetService;
+        this.transactionTemplate = transactionTemplate;
+        this.imageVariantService = imageVariantService;
     }
 
     /**
@@ -81,35 +96,77 @@ public class UserService {
     }
 
     /**
-     * Update user profile
+     * Update user profile. The image is uploaded with no transaction open and the
+     * row written in a short one afterwards, which also releases the old image;
+     * if it fails, the new image is discarded instead.
      */
-    @Transactional
     public UserResponse updateProfile(String fullName, MultipartFile profileImage) {
         User user = getCurrentUser();
 
+        // Upload new profile image if provided
+        Map<String, Object> uploadResult = null;
+        if (profileImage != null && !profileImage.isEmpty()) {
+            uploadResult = storageService.uploadFile(
+                    profileImage,
+                    Constants.CLOUDINARY_FOLDER + "/profiles"
+            );
+        }
+        return saveProfile(user, fullName, uploadResult);
+    }
+
+    /**
+     * Update a user's profile from an image already on disk (upload jobs run
+     * without a security context, so the user is passed in)
+     */
+    public UserResponse updateProfile(String username, String fullName, File profileImage) {
+        User user = getUserByUsername(username);
+
+        Map<String, Object> uploadResult = null;
+        if (profileImage != null) {
+            uploadResult = storageService.uploadFile(profileImage, Constants.CLOUDINARY_FOLDER + "/profiles");
+        }
+        return saveProfile(user, fullName, uploadResult);
+    }
+
+    /**
+     * Set a user's profile image to one they uploaded to Cloudinary directly
+     */
+    public UserResponse attachProfileImage(String username, String url, String publicId) {
+        return saveProfile(getUserByUsername(username), null, Map.of("url", url, "publicId", publicId));
+    }
+
+    private UserResponse saveProfile(User user, String fullName, Map<String, Object> uploadResult) {
+        String oldPublicId = user.getProfileImagePublicId();
+
         // Update full name
         if (fullName != null && !fullName.isBlank()) {
             user.setFullName(fullName);
         }
 
-        // Update profile image if provided
-        if (profileImage != null && !profileImage.isEmpty()) {
-            // Delete old image if exists
-            if (user.getProfileImagePublicId() != null) {
-                cloudinaryService.deleteFile(user.getProfileImagePublicId());
-            }
-
-            // Upload new image
-            Map<String, Object> uploadResult = cloudinaryService.uploadFile(
-                    profileImage,
-                    Constants.CLOUDINARY_FOLDER + "/profiles"
-            );
+        if (uploadResult != null) {
             user.setProfileImageUrl(uploadResult.get("url").toString());
             user.setProfileImagePublicId(uploadResult.get("publicId").toString());
         }
 
-        user = userRepository.save(user);
-        return mapToUserResponse(user);
+        User saved;
+        try {
+            saved = transactionTemplate.execute(status -> {
+                User updated = userRepository.save(user);
+                // Swap references; the old image goes once nothing else shares it
+                if (uploadResult != null) {
+                    storedAssetService.acquire(user.getProfileImagePublicId());
+                    storedAssetService.release(oldPublicId);
+                }
+                return updated;
+            });
+        } catch (RuntimeException e) {
+            if (uploadResult != null) {
+                logger.warn("Saving profile failed; discarding uploaded image {}", uploadResult.get("publicId"));
+                storedAssetService.discard(uploadResult.get("publicId").toString());
+            }
+            throw e;
+        }
+        return mapToUserResponse(saved);
     }
 
     /**
@@ -136,9 +193,12 @@ public class UserService {
     public void deleteAccount() {
         User user = getCurrentUser();
 
-        // Delete profile image if exists
-        if (user.getProfileImagePublicId() != null) {
-            cloudinaryService.deleteFile(user.getProfileImagePublicId());
+        // Release the profile image in the same transaction as the account
+        storedAssetService.release(user.getProfileImagePublicId());
+
+        // Samples go with the account (cascade), so their images must go too
+        for (Sample sample : user.getSamples()) {
+            storedAssetService.release(sample.getImagePublicId());
         }
 
         userRepository.delete(user);
@@ -148,7 +208,7 @@ public class UserService {
      * Map User entity to UserResponse DTO
      */
     private UserResponse mapToUserResponse(User user) {
-        return new UserResponse(
+        UserResponse response = new UserResponse(
                 user.getId(),
                 user.getUsername(),
                 user.getEmail(),
@@ -158,13 +218,16 @@ public class UserService {
                 user.getCreatedAt(),
                 user.getUpdatedAt()
         );
+        response.setProfileImageVariants(
+                imageVariantService.variantsOf(user.getProfileImagePublicId(), user.getProfileImageUrl()));
+        return response;
     }
 
     /**
      * Map Sample entity to SampleResponse DTO
      */
     private SampleResponse mapToSampleResponse(Sample sample) {
-        return new SampleResponse(
+        SampleResponse response = new SampleResponse(
                 sample.getId(),
                 sample.getName(),
                 sample.getDescription(),
@@ -174,5 +237,7 @@ public class UserService {
                 sample.getCreatedAt(),
                 sample.getUpdatedAt()
         );
+        response.setImageVariants(imageVariantService.variantsOf(sample.getImagePublicId(), sample.getImageUrl()));
+        return response;
     }
 }
\ No newline at end of file
@@ -13,6 +13,9 @@ public class Constants {
     public static final String AUTH_BASE_PATH = API_BASE_PATH + "/auth";
     public static final String USER_BASE_PATH = API_BASE_PATH + "/users";
     public static final String SAMPLE_BASE_PATH = API_BASE_PATH + "/samples";
+    public static final String ADMIN_BASE_PATH = API_BASE_PATH + "/admin";
+    public static final String UPLOAD_BASE_PATH = API_BASE_PATH + "/uploads";
+    public static final String FILES_BASE_PATH = "/files";
 
     // Public endpoints (no authentication required)
     public static final String[] PUBLIC_URLS = {
@@ -20,7 +23,8 @@ public class Constants {
             AUTH_BASE_PATH + "/register",
             AUTH_BASE_PATH + "/refresh",
             "/error",
-            "/health"
+            "/health",
+            "/.well-known/jwks.json"
     };
 
     // Error Messages
@@ -30,6 +34,7 @@ public class Constants {
     public static final String INVALID_CREDENTIALS = "Invalid username or password";
     public static final String ACCOUNT_LOCKED = "Account is locked due to multiple failed login attempts";
     public static final String ACCOUNT_DISABLED = "Account is disabled";
+    public static final String TOO_MANY_LOGIN_ATTEMPTS = "Too many failed login attempts. Please try again later";
     public static final String TOKEN_EXPIRED = "Token has expired";
     public static final String INVALID_TOKEN = "Invalid token";
     public static final String SAMPLE_NOT_FOUND = "Sample not found";
@@ -0,0 +1,102 @@
+package com.kuspidsamples.benchmark;
+
+import com.kuspidsamples.entity.SigningKey;
+import com.kuspidsamples.repository.SigningKeyRepository;
+import com.kuspidsamples.security.JwtTokenProvider;
+import com.kuspidsamples.security.SigningKeyManager;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Issue/verify throughput of JwtTokenProvider for each supported algorithm. ES* runs
+ * against a real SigningKeyManager whose signing_keys table is an in-memory list.
+ *
+ * Run with:
+ *   mvn test-compile exec:exec -Dexec.classpathScope=test -Dexec.executable=java \
+ *       -Dexec.args="-cp %classpath com.kuspidsamples.benchmark.JwtTokenBenchmark"
+ *
+ * The GC profiler reports allocation per operation (gc.alloc.rate.norm).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtTokenBenchmark {
+
+    private static final String SECRET =
+            "benchmark-secret-benchmark-secret-benchmark-secret-benchmark-secret";
+
+    @Param({"ES256", "ES384", "ES512", "HS256", "HS384", "HS512"})
+    public String algorithm;
+
+    private JwtTokenProvider tokenProvider;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        SigningKeyManager keyManager = new SigningKeyManager(inMemorySigningKeys(), algorithm,
+                Duration.ofDays(7), Duration.ofMinutes(10), 3_600_000L, SECRET);
+        keyManager.init();
+        tokenProvider = new JwtTokenProvider(SECRET, 3_600_000L, 10_000L, algorithm, keyManager);
+        tokenProvider.init();
+        token = tokenProvider.generateTokenFromUsername("benchmark-user");
+    }
+
+    @Benchmark
+    public String issue() {
+        return tokenProvider.generateTokenFromUsername("benchmark-user");
+    }
+
+    @Benchmark
+    public Object verifyUncached() {
+        return tokenProvider.parseClaims(token);
+    }
+
+    @Benchmark
+    public Object verifyCached() {
+        return tokenProvider.resolveClaims(token);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Object verifyCachedContended() {
+        return tokenProvider.resolveClaims(token);
+    }
+
+    /**
+     * Just the queries SigningKeyManager makes, answered from a list
+     */
+    private static SigningKeyRepository inMemorySigningKeys() {
+        List<SigningKey> keys = new ArrayList<>();
+        return (SigningKeyRepository) Proxy.newProxyInstance(SigningKeyRepository.class.getClassLoader(),
+                new Class<?>[]{SigningKeyRepository.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "save" -> {
+                        keys.add((SigningKey) args[0]);
+                        yield args[0];
+                    }
+                    case "findByVerifyUntilAfterOrderByActiveFromDesc" -> List.copyOf(keys);
+                    case "deleteByVerifyUntilBefore" -> 0L;
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(JwtTokenBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,77 @@
+package com.kuspidsamples.benchmark;
+
+import com.kuspidsamples.service.RateLimitPolicy;
+import com.kuspidsamples.service.RateLimitService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rate limit check throughput of the bucket4j engine (Caffeine + Bucket per key)
+ * against the striped primitive engine, over a population of client keys.
+ *
+ * Run with:
+ *   mvn test-compile exec:exec -Dexec.classpathScope=test -Dexec.executable=java \
+ *       -Dexec.args="-cp %classpath com.kuspidsamples.benchmark.RateLimitBenchmark"
+ *
+ * main() repeats the run at 1, 4, 16 and 64 threads; the GC profiler reports
+ * allocation per check (gc.alloc.rate.norm).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RateLimitBenchmark {
+
+    private static final int CLIENTS = 10_000;
+
+    @Param({"bucket4j", "striped"})
+    public String engine;
+
+    private RateLimitService rateLimitService;
+    private RateLimitPolicy policy;
+    private String[] clientKeys;
+
+    @Setup
+    public void setUp() {
+        rateLimitService = new RateLimitService(new SimpleMeterRegistry(), 100_000, Optional.empty(), engine, 262_144,
+                Duration.ofMinutes(1));
+        policy = new RateLimitPolicy("default", List.of(RateLimitPolicy.Route.parse("/**")),
+                Duration.ofMinutes(1), 1_000, Map.of());
+
+        clientKeys = new String[CLIENTS];
+        for (int i = 0; i < CLIENTS; i++) {
+            clientKeys[i] = "ip:10." + (i >> 16) + "." + ((i >> 8) & 0xff) + "." + (i & 0xff);
+        }
+    }
+
+    @Benchmark
+    public Object tryConsume() {
+        String key = clientKeys[ThreadLocalRandom.current().nextInt(CLIENTS)];
+        return rateLimitService.tryConsume(policy, "anonymous", key);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        for (int threads : new int[]{1, 4, 16, 64}) {
+            Options options = new OptionsBuilder()
+                    .include(RateLimitBenchmark.class.getSimpleName())
+                    .threads(threads)
+                    .addProfiler(GCProfiler.class)
+                    .build();
+            new Runner(options).run();
+        }
+    }
+}
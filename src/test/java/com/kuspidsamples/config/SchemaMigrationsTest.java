@@ -0,0 +1,104 @@
+package com.kuspidsamples.config;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SchemaMigrationsTest {
+
+    private Connection connection;
+    private SchemaMigrations schemaMigrations;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        connection = dataSource.getConnection();
+        schemaMigrations = new SchemaMigrations(dataSource);
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("SHUTDOWN");
+        }
+        connection.close();
+    }
+
+    @Test
+    void afterPropertiesSet_LegacyRefreshTokens_DeletesRowsAndDropsTokenColumn() throws SQLException {
+        // Arrange - the table as the raw-token version left it
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE refresh_tokens (id BIGINT PRIMARY KEY, token VARCHAR(255) NOT NULL UNIQUE,"
+                    + " expiry_date TIMESTAMP NOT NULL, user_id BIGINT NOT NULL)");
+            statement.execute("INSERT INTO refresh_tokens VALUES (1, 'raw-1', CURRENT_TIMESTAMP, 1)");
+            statement.execute("INSERT INTO refresh_tokens VALUES (2, 'raw-2', CURRENT_TIMESTAMP, 2)");
+        }
+
+        // Act
+        schemaMigrations.afterPropertiesSet();
+
+        // Assert - empty, so Hibernate can add the NOT NULL hash and device columns
+        assertEquals(0, count("SELECT COUNT(*) FROM refresh_tokens"));
+        assertEquals(0, count("SELECT COUNT(*) FROM INFORMATION_SCHEMA.COLUMNS"
+                + " WHERE TABLE_NAME = 'REFRESH_TOKENS' AND COLUMN_NAME = 'TOKEN'"));
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("ALTER TABLE refresh_tokens ADD COLUMN device_id VARCHAR(64) NOT NULL");
+        }
+    }
+
+    @Test
+    void afterPropertiesSet_CurrentRefreshTokens_LeavesRowsAlone() throws SQLException {
+        // Arrange
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE refresh_tokens (id BIGINT PRIMARY KEY, token_hash BINARY(32) NOT NULL,"
+                    + " device_id VARCHAR(64) NOT NULL, expiry_date TIMESTAMP NOT NULL, user_id BIGINT NOT NULL)");
+            statement.execute("INSERT INTO refresh_tokens VALUES (1, X'00', 'device', CURRENT_TIMESTAMP, 1)");
+        }
+
+        // Act - twice, as on two restarts
+        schemaMigrations.afterPropertiesSet();
+        schemaMigrations.afterPropertiesSet();
+
+        // Assert
+        assertEquals(1, count("SELECT COUNT(*) FROM refresh_tokens"));
+    }
+
+    @Test
+    void afterPropertiesSet_RefreshTokensWithoutVersion_AddsVersionToExistingRows() throws SQLException {
+        // Arrange - a populated table from before optimistic locking
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE refresh_tokens (id BIGINT PRIMARY KEY, token_hash BINARY(32) NOT NULL,"
+                    + " device_id VARCHAR(64) NOT NULL, expiry_date TIMESTAMP NOT NULL, user_id BIGINT NOT NULL)");
+            statement.execute("INSERT INTO refresh_tokens VALUES (1, X'00', 'device', CURRENT_TIMESTAMP, 1)");
+        }
+
+        // Act - twice, as on two restarts
+        schemaMigrations.afterPropertiesSet();
+        schemaMigrations.afterPropertiesSet();
+
+        // Assert
+        assertEquals(1, count("SELECT COUNT(*) FROM refresh_tokens WHERE version = 0"));
+    }
+
+    @Test
+    void afterPropertiesSet_EmptyDatabase_DoesNothing() {
+        assertDoesNotThrow(() -> schemaMigrations.afterPropertiesSet());
+    }
+
+    private long count(String sql) throws SQLException {
+        try (Statement statement = connection.createStatement(); ResultSet result = statement.executeQuery(sql)) {
+            result.next();
+            return result.getLong(1);
+        }
+    }
+}
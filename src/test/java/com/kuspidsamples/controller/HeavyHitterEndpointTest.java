@@ -0,0 +1,99 @@
+package com.kuspidsamples.controller;
+
+import com.kuspidsamples.config.ProdSecurityConfig;
+import com.kuspidsamples.config.SecurityConfig;
+import com.kuspidsamples.service.HeavyHitterTracker;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.mock.web.MockServletContext;
+import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.support.AnnotationConfigWebApplicationContext;
+import org.springframework.web.servlet.config.annotation.EnableWebMvc;
+
+import java.util.Map;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class HeavyHitterEndpointTest {
+
+    @ParameterizedTest
+    @ValueSource(classes = {SecurityConfig.class, ProdSecurityConfig.class})
+    void heavyHitters_OnlyAdminsGetTopClientsAsJson(Class<?> securityConfig) throws Exception {
+        // Arrange - the endpoint behind each security configuration the app can start with
+        try (AnnotationConfigWebApplicationContext context = new AnnotationConfigWebApplicationContext()) {
+            context.setServletContext(new MockServletContext());
+            context.register(securityConfig, EndpointConfig.class);
+            context.refresh();
+            HeavyHitterTracker tracker = context.getBean(HeavyHitterTracker.class);
+            tracker.recordRequest(1L, "user:alice", 3_000_000);
+            tracker.recordRequest(1L, "user:alice", 2_000_000);
+            tracker.recordRequest(2L, "203.0.113.0", 1_000_000);
+            tracker.recordRejection(2L, "203.0.113.0");
+            MockMvc mockMvc = MockMvcBuilders.webAppContextSetup(context).apply(springSecurity()).build();
+
+            // Act & Assert
+            mockMvc.perform(get("/actuator/heavyhitters"))
+                    .andExpect(status().isForbidden());
+            mockMvc.perform(get("/actuator/heavyhitters").with(user("bob").roles("USER")))
+                    .andExpect(status().isForbidden());
+            mockMvc.perform(get("/actuator/heavyhitters").with(user("admin").roles("ADMIN")))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.requests[0].key").value("user:alice"))
+                    .andExpect(jsonPath("$.requests[0].count").value(2))
+                    .andExpect(jsonPath("$.rejections", hasSize(1)))
+                    .andExpect(jsonPath("$.rejections[0].key").value("203.0.113.0"))
+                    .andExpect(jsonPath("$.serverTimeMillis[0].key").value("user:alice"))
+                    .andExpect(jsonPath("$.serverTimeMillis[0].count").value(5));
+        }
+    }
+
+    /**
+     * The actuator serves the endpoint at this path; a plain controller stands in for it here
+     */
+    @Configuration
+    @EnableWebMvc
+    @EnableWebSecurity
+    static class EndpointConfig {
+
+        @Bean
+        HeavyHitterTracker heavyHitterTracker() {
+            return new HeavyHitterTracker(10, 256);
+        }
+
+        @Bean
+        HeavyHitterEndpoint heavyHitterEndpoint(HeavyHitterTracker tracker) {
+            return new HeavyHitterEndpoint(tracker);
+        }
+
+        @Bean
+        ActuatorPath actuatorPath(HeavyHitterEndpoint endpoint) {
+            return new ActuatorPath(endpoint);
+        }
+    }
+
+    @RestController
+    static class ActuatorPath {
+
+        private final HeavyHitterEndpoint endpoint;
+
+        ActuatorPath(HeavyHitterEndpoint endpoint) {
+            this.endpoint = endpoint;
+        }
+
+        @GetMapping("/actuator/heavyhitters")
+        Map<String, Object> heavyHitters() {
+            return endpoint.heavyHitters();
+        }
+    }
+}
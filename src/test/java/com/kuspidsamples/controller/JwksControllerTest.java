@@ -0,0 +1,115 @@
+package com.kuspidsamples.controller;
+
+import com.kuspidsamples.security.JwtTokenProvider;
+import com.kuspidsamples.security.SigningKeyManager;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigInteger;
+import java.security.AlgorithmParameters;
+import java.security.KeyFactory;
+import java.security.KeyPair;
+import java.security.PublicKey;
+import java.security.interfaces.ECPublicKey;
+import java.security.spec.ECFieldFp;
+import java.security.spec.ECGenParameterSpec;
+import java.security.spec.ECParameterSpec;
+import java.security.spec.ECPoint;
+import java.security.spec.ECPublicKeySpec;
+import java.security.spec.EllipticCurve;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class JwksControllerTest {
+
+    @Mock
+    private SigningKeyManager keyManager;
+
+    @Test
+    void jwks_PublishedKeyVerifiesTokenSignedWithPrivateKey() throws Exception {
+        // Arrange
+        KeyPair keyPair = Keys.keyPairFor(SignatureAlgorithm.ES256);
+        when(keyManager.publishedKeys()).thenReturn(List.of(
+                new SigningKeyManager.VerificationKey("kid-1", "ES256", keyPair.getPublic())));
+        when(keyManager.currentSigningKey()).thenReturn(
+                new SigningKeyManager.ActiveKey("kid-1", keyPair.getPrivate(), Instant.now().plusSeconds(60)));
+        JwtTokenProvider tokenProvider = new JwtTokenProvider("", 3_600_000, 100, "ES256", keyManager);
+        tokenProvider.init();
+        String token = tokenProvider.generateTokenFromUsername("testuser");
+
+        // Act
+        Map<String, Object> jwks = new JwksController(keyManager).jwks().getBody();
+
+        // Assert
+        List<?> keys = (List<?>) jwks.get("keys");
+        assertEquals(1, keys.size());
+        Map<?, ?> jwk = (Map<?, ?>) keys.get(0);
+        assertEquals("EC", jwk.get("kty"));
+        assertEquals("ES256", jwk.get("alg"));
+        assertEquals("kid-1", jwk.get("kid"));
+        assertEquals("P-256", jwk.get("crv"));
+        assertEquals(43, jwk.get("x").toString().length());
+
+        PublicKey published = fromJwk(jwk, "secp256r1");
+        assertEquals("testuser", Jwts.parserBuilder().setSigningKey(published).build()
+                .parseClaimsJws(token).getBody().getSubject());
+    }
+
+    @Test
+    void jwks_P521Key_IsPublishedAsP521() {
+        // Arrange
+        KeyPair keyPair = Keys.keyPairFor(SignatureAlgorithm.ES512);
+        when(keyManager.publishedKeys()).thenReturn(List.of(
+                new SigningKeyManager.VerificationKey("kid-2", "ES512", keyPair.getPublic())));
+
+        // Act
+        Map<String, Object> jwks = new JwksController(keyManager).jwks().getBody();
+
+        // Assert
+        Map<?, ?> jwk = (Map<?, ?>) ((List<?>) jwks.get("keys")).get(0);
+        assertEquals("P-521", jwk.get("crv"));
+        assertEquals(88, jwk.get("y").toString().length());
+    }
+
+    @Test
+    void jwks_KeyOnUnknownCurve_Throws() {
+        // Arrange - secp256k1 has the same field size as P-256
+        BigInteger p = new BigInteger("FFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFEFFFFFC2F", 16);
+        EllipticCurve secp256k1 = new EllipticCurve(new ECFieldFp(p), BigInteger.ZERO, BigInteger.valueOf(7));
+        ECPoint generator = new ECPoint(
+                new BigInteger("79BE667EF9DCBBAC55A06295CE870B07029BFCDB2DCE28D959F2815B16F81798", 16),
+                new BigInteger("483ADA7726A3C4655DA4FBFC0E1108A8FD17B448A68554199C47D08FFB10D4B8", 16));
+        ECParameterSpec params = new ECParameterSpec(secp256k1, generator,
+                new BigInteger("FFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFEBAAEDCE6AF48A03BBFD25E8CD0364141", 16), 1);
+        ECPublicKey key = mock(ECPublicKey.class);
+        when(key.getParams()).thenReturn(params);
+        when(keyManager.publishedKeys()).thenReturn(List.of(
+                new SigningKeyManager.VerificationKey("kid-3", "ES256", key)));
+
+        // Act & Assert
+        assertThrows(IllegalStateException.class, () -> new JwksController(keyManager).jwks());
+    }
+
+    private static PublicKey fromJwk(Map<?, ?> jwk, String stdName) throws Exception {
+        AlgorithmParameters parameters = AlgorithmParameters.getInstance("EC");
+        parameters.init(new ECGenParameterSpec(stdName));
+        ECPoint point = new ECPoint(coordinate(jwk.get("x")), coordinate(jwk.get("y")));
+        return KeyFactory.getInstance("EC").generatePublic(
+                new ECPublicKeySpec(point, parameters.getParameterSpec(ECParameterSpec.class)));
+    }
+
+    private static BigInteger coordinate(Object encoded) {
+        return new BigInteger(1, Base64.getUrlDecoder().decode(encoded.toString()));
+    }
+}
@@ -0,0 +1,146 @@
+package com.kuspidsamples.controller;
+
+import com.kuspidsamples.exception.GlobalExceptionHandler;
+import com.kuspidsamples.repository.PendingAssetDeletionRepository;
+import com.kuspidsamples.repository.StoredAssetRepository;
+import com.kuspidsamples.service.ImageProcessingService;
+import com.kuspidsamples.service.LocalStorageService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.head;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@ExtendWith(MockitoExtension.class)
+class LocalFileControllerTest {
+
+    private static final String CONTENT = "0123456789";
+    private static final String CACHE_CONTROL = "public, max-age=31536000, immutable";
+
+    @Mock
+    private StoredAssetRepository storedAssetRepository;
+
+    @Mock
+    private PendingAssetDeletionRepository pendingAssetDeletionRepository;
+
+    @Mock
+    private ImageProcessingService imageProcessingService;
+
+    @TempDir
+    Path tempDir;
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        Path root = tempDir.resolve("uploads");
+        Files.createDirectories(root.resolve("samples"));
+        Files.writeString(root.resolve("samples/abc.txt"), CONTENT, StandardCharsets.US_ASCII);
+        Files.writeString(tempDir.resolve("secret.txt"), "do not serve", StandardCharsets.US_ASCII);
+
+        LocalStorageService localStorageService = new LocalStorageService(storedAssetRepository,
+                pendingAssetDeletionRepository, imageProcessingService, root.toString(), "http://localhost:8080/files/");
+        mockMvc = MockMvcBuilders.standaloneSetup(new LocalFileController(localStorageService))
+                .setControllerAdvice(new GlobalExceptionHandler())
+                .build();
+    }
+
+    @Test
+    void serve_WithoutRange_ReturnsWholeFileWithCacheHeaders() throws Exception {
+        mockMvc.perform(get("/files/samples/abc.txt"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, CACHE_CONTROL))
+                .andExpect(header().string(HttpHeaders.ACCEPT_RANGES, "bytes"))
+                .andExpect(header().exists(HttpHeaders.ETAG))
+                .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, CONTENT.length()))
+                .andExpect(content().string(CONTENT));
+    }
+
+    @Test
+    void serve_WithSingleRange_Returns206AndOnlyThoseBytes() throws Exception {
+        mockMvc.perform(get("/files/samples/abc.txt").header(HttpHeaders.RANGE, "bytes=2-5"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 2-5/10"))
+                .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, 4))
+                .andExpect(content().string("2345"));
+    }
+
+    @Test
+    void serve_WithRangePastEnd_Returns416WithLength() throws Exception {
+        mockMvc.perform(get("/files/samples/abc.txt").header(HttpHeaders.RANGE, "bytes=10-"))
+                .andExpect(status().isRequestedRangeNotSatisfiable())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes */10"));
+    }
+
+    @Test
+    void serve_WithStaleIfRange_ReturnsWholeFile() throws Exception {
+        mockMvc.perform(get("/files/samples/abc.txt")
+                        .header(HttpHeaders.RANGE, "bytes=2-5")
+                        .header(HttpHeaders.IF_RANGE, "\"stale\""))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_RANGE))
+                .andExpect(content().string(CONTENT));
+    }
+
+    @Test
+    void serve_WithMatchingIfRange_HonoursRange() throws Exception {
+        // Arrange
+        String etag = etag();
+
+        // Act & Assert
+        mockMvc.perform(get("/files/samples/abc.txt")
+                        .header(HttpHeaders.RANGE, "bytes=-3")
+                        .header(HttpHeaders.IF_RANGE, etag))
+                .andExpect(status().isPartialContent())
+                .andExpect(content().string("789"));
+    }
+
+    @Test
+    void serve_WithMatchingEtag_Returns304AndKeepsCacheControl() throws Exception {
+        // Arrange
+        String etag = etag();
+
+        // Act & Assert
+        mockMvc.perform(get("/files/samples/abc.txt").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, CACHE_CONTROL))
+                .andExpect(header().string(HttpHeaders.ETAG, etag))
+                .andExpect(content().string(""));
+    }
+
+    @Test
+    void serve_Head_SendsHeadersWithoutBody() throws Exception {
+        mockMvc.perform(head("/files/samples/abc.txt").header(HttpHeaders.RANGE, "bytes=0-3"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, 4))
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 0-3/10"))
+                .andExpect(content().string(""));
+    }
+
+    @Test
+    void serve_PathOutsideRoot_Returns404() throws Exception {
+        mockMvc.perform(get("/files/samples/../../secret.txt"))
+                .andExpect(status().isNotFound())
+                .andExpect(content().string(containsString("File not found")));
+    }
+
+    private String etag() throws Exception {
+        return mockMvc.perform(get("/files/samples/abc.txt"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+    }
+}
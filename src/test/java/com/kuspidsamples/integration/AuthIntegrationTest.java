@@ -15,7 +15,9 @@ import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
 
+import static org.hamcrest.Matchers.not;
 import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -178,7 +180,44 @@ class AuthIntegrationTest {
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.success").value(true))
                 .andExpect(jsonPath("$.data.accessToken").exists())
-                .andExpect(jsonPath("$.data.refreshToken").value(refreshToken));
+                .andExpect(jsonPath("$.data.refreshToken").value(not(refreshToken)));
+    }
+
+    @Test
+    void refreshToken_ReusingRotatedToken_RevokesSession() throws Exception {
+        // Arrange - Register and rotate the refresh token once
+        RegisterRequest registerRequest = new RegisterRequest();
+        registerRequest.setUsername("testuser");
+        registerRequest.setEmail("test@example.com");
+        registerRequest.setPassword("password123");
+
+        MvcResult registerResult = mockMvc.perform(post("/api/auth/register")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(registerRequest)))
+                .andReturn();
+
+        String originalToken = objectMapper.readTree(registerResult.getResponse().getContentAsString())
+                .get("data").get("refreshToken").asText();
+
+        MvcResult refreshResult = mockMvc.perform(post("/api/auth/refresh")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"refreshToken\": \"" + originalToken + "\"}"))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        String rotatedToken = objectMapper.readTree(refreshResult.getResponse().getContentAsString())
+                .get("data").get("refreshToken").asText();
+
+        // Act & Assert - Replaying the old token is rejected and kills the rotated one too
+        mockMvc.perform(post("/api/auth/refresh")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"refreshToken\": \"" + originalToken + "\"}"))
+                .andExpect(status().isUnauthorized());
+
+        mockMvc.perform(post("/api/auth/refresh")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"refreshToken\": \"" + rotatedToken + "\"}"))
+                .andExpect(status().isUnauthorized());
     }
 
     @Test
@@ -210,4 +249,40 @@ class AuthIntegrationTest {
                 .andExpect(jsonPath("$.success").value(true))
                 .andExpect(jsonPath("$.message").value("Logout successful"));
     }
-}
\ No newline at end of file
+
+    @Test
+    void logout_WithAccessToken_RevokesAccessToken() throws Exception {
+        // Arrange - Register and get both tokens
+        RegisterRequest registerRequest = new RegisterRequest();
+        registerRequest.setUsername("testuser");
+        registerRequest.setEmail("test@example.com");
+        registerRequest.setPassword("password123");
+
+        MvcResult registerResult = mockMvc.perform(post("/api/auth/register")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(registerRequest)))
+                .andReturn();
+
+        String responseBody = registerResult.getResponse().getContentAsString();
+        AuthResponse authResponse = objectMapper.readValue(
+                objectMapper.readTree(responseBody).get("data").toString(),
+                AuthResponse.class
+        );
+
+        String bearer = "Bearer " + authResponse.getAccessToken();
+
+        mockMvc.perform(get("/api/users/me").header("Authorization", bearer))
+                .andExpect(status().isOk());
+
+        // Act
+        mockMvc.perform(post("/api/auth/logout")
+                        .header("Authorization", bearer)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"refreshToken\": \"" + authResponse.getRefreshToken() + "\"}"))
+                .andExpect(status().isOk());
+
+        // Assert
+        mockMvc.perform(get("/api/users/me").header("Authorization", bearer))
+                .andExpect(status().isUnauthorized());
+    }
+}
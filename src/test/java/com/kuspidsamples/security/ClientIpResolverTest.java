@@ -0,0 +1,80 @@
+package com.kuspidsamples.security;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ClientIpResolverTest {
+
+    private ClientIpResolver resolver;
+
+    @BeforeEach
+    void setUp() {
+        resolver = new ClientIpResolver(List.of("10.0.0.0/8", "fd00::/8"), 32, 64);
+    }
+
+    @Test
+    void resolve_FromUntrustedPeer_IgnoresForwardedFor() {
+        // Arrange
+        MockHttpServletRequest request = request("203.0.113.7", "1.2.3.4");
+
+        // Act & Assert
+        assertEquals("203.0.113.7", resolver.resolve(request).toString());
+    }
+
+    @Test
+    void resolve_FromTrustedProxy_TakesRightmostUntrustedHop() {
+        // Arrange - the client prepended a fake address
+        MockHttpServletRequest request = request("10.0.0.2", "6.6.6.6, 198.51.100.9, 10.0.0.1");
+
+        // Act & Assert
+        assertEquals("198.51.100.9", resolver.resolve(request).toString());
+    }
+
+    @Test
+    void resolve_WithGarbageHop_StopsAtLastTrustedAddress() {
+        // Arrange
+        MockHttpServletRequest request = request("10.0.0.2", "198.51.100.9, not-an-ip, 10.0.0.1");
+
+        // Act & Assert
+        assertEquals("10.0.0.1", resolver.resolve(request).toString());
+    }
+
+    @Test
+    void resolveKeyAddress_AggregatesIpv6ToSlash64() {
+        // Arrange
+        MockHttpServletRequest first = request("fd00::1", "2001:db8:1:2:aaaa::1");
+        MockHttpServletRequest second = request("fd00::1", "[2001:db8:1:2:bbbb::5]:443");
+
+        // Act
+        long firstKey = resolver.resolveKeyAddress(first).key();
+        long secondKey = resolver.resolveKeyAddress(second).key();
+
+        // Assert
+        assertEquals(firstKey, secondKey);
+    }
+
+    @Test
+    void parse_MapsIpv4MappedIpv6ToIpv4() {
+        // Arrange
+        ClientAddress address = new ClientAddress();
+
+        // Act & Assert
+        assertTrue(address.parse("::ffff:192.0.2.1"));
+        assertFalse(address.isIpv6());
+        assertEquals("192.0.2.1", address.toString());
+        assertFalse(address.parse("1:2:3:4:5:6:7:8:9"));
+        assertFalse(address.parse("256.1.1.1"));
+    }
+
+    private static MockHttpServletRequest request(String remoteAddr, String forwardedFor) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setRemoteAddr(remoteAddr);
+        request.addHeader("X-Forwarded-For", forwardedFor);
+        return request;
+    }
+}
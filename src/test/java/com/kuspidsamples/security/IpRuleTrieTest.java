@@ -0,0 +1,104 @@
+package com.kuspidsamples.security;
+
+import com.kuspidsamples.security.IpRuleTrie.Action;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IpRuleTrieTest {
+
+    @Test
+    void lookup_WithNestedRules_MostSpecificWins() {
+        // Arrange
+        IpRuleTrie trie = IpRuleTrie.build(List.of(
+                IpRule.parseLine("block 203.0.113.0/24"),
+                IpRule.parseLine("allow 203.0.113.128/25"),
+                IpRule.parseLine("block 203.0.113.200")));
+
+        // Act & Assert
+        assertEquals(Action.BLOCK, trie.lookup(address("203.0.113.5")));
+        assertEquals(Action.ALLOW, trie.lookup(address("203.0.113.130")));
+        assertEquals(Action.BLOCK, trie.lookup(address("203.0.113.200")));
+        assertEquals(Action.NONE, trie.lookup(address("203.0.114.1")));
+    }
+
+    @Test
+    void lookup_Ipv6Prefix_MatchesWholeNetwork() {
+        // Arrange
+        IpRuleTrie trie = IpRuleTrie.build(List.of(IpRule.parseLine("block 2001:db8:abcd::/48")));
+
+        // Act & Assert
+        assertEquals(Action.BLOCK, trie.lookup(address("2001:db8:abcd:12::1")));
+        assertEquals(Action.NONE, trie.lookup(address("2001:db8:abce::1")));
+    }
+
+    @Test
+    void lookup_Ipv4RuleAndMappedAddress_Match() {
+        // Arrange
+        IpRuleTrie trie = IpRuleTrie.build(List.of(IpRule.parseLine("block 198.51.100.0/24")));
+
+        // Act & Assert
+        assertEquals(Action.BLOCK, trie.lookup(address("::ffff:198.51.100.7")));
+        assertEquals(Action.NONE, trie.lookup(address("::c633:6407")));
+    }
+
+    @Test
+    void lookup_DefaultRoute_CoversEveryIpv4Address() {
+        // Arrange
+        IpRuleTrie trie = IpRuleTrie.build(List.of(
+                IpRule.parseLine("block 0.0.0.0/0"),
+                IpRule.parseLine("allow 10.1.2.3")));
+
+        // Act & Assert
+        assertEquals(Action.BLOCK, trie.lookup(address("8.8.8.8")));
+        assertEquals(Action.ALLOW, trie.lookup(address("10.1.2.3")));
+        assertEquals(Action.NONE, trie.lookup(address("2001:db8::1")));
+    }
+
+    @Test
+    void build_CompressesSingleChildChains() {
+        // Arrange & Act
+        IpRuleTrie trie = IpRuleTrie.build(List.of(
+                IpRule.parseLine("block 203.0.113.0/24"),
+                IpRule.parseLine("block 198.51.100.0/24")));
+
+        // Assert - root, one branch point and two rule nodes instead of ~120 bit nodes
+        assertEquals(2, trie.getRuleCount());
+        assertTrue(trie.getNodeCount() <= 4);
+    }
+
+    @Test
+    void lookup_EmptyTrie_ReturnsNone() {
+        assertEquals(Action.NONE, IpRuleTrie.EMPTY.lookup(address("192.0.2.1")));
+    }
+
+    @Test
+    void parse_MasksHostBitsAndRejectsGarbage() {
+        // Act & Assert
+        assertEquals("203.0.113.0/24", IpRule.parse(Action.BLOCK, "203.0.113.9/24").cidr());
+        assertThrows(IllegalArgumentException.class, () -> IpRule.parse(Action.BLOCK, "203.0.113.0/33"));
+        assertThrows(IllegalArgumentException.class, () -> IpRule.parseLine("drop 203.0.113.0/24"));
+    }
+
+    @Test
+    void parseFile_SkipsCommentsAndBlankLines() {
+        // Arrange
+        String content = "# office\nallow 198.51.100.0/24\n\nblock 203.0.113.0/24 # scraper\n";
+
+        // Act
+        List<IpRule> rules = IpRuleService.parse(content);
+
+        // Assert
+        assertEquals(2, rules.size());
+        assertEquals(Action.ALLOW, rules.get(0).action());
+        assertEquals("203.0.113.0/24", rules.get(1).cidr());
+    }
+
+    private static ClientAddress address(String value) {
+        ClientAddress address = new ClientAddress();
+        assertTrue(address.parse(value));
+        return address;
+    }
+}
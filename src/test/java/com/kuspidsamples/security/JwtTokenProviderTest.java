@@ -0,0 +1,169 @@
+package com.kuspidsamples.security;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.security.KeyPair;
+import java.time.Instant;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class JwtTokenProviderTest {
+
+    private static final String SECRET = "0123456789abcdef0123456789abcdef";
+
+    private JwtTokenProvider jwtTokenProvider;
+
+    @BeforeEach
+    void setUp() {
+        jwtTokenProvider = provider(3_600_000, 100);
+    }
+
+    @Test
+    void resolveClaims_SameTokenTwice_ServesSecondFromCache() {
+        // Arrange
+        String token = jwtTokenProvider.generateTokenFromUsername("testuser");
+
+        // Act
+        Claims first = jwtTokenProvider.resolveClaims(token).orElseThrow();
+        Claims second = jwtTokenProvider.resolveClaims(token).orElseThrow();
+
+        // Assert
+        assertSame(first, second);
+        assertEquals("testuser", second.getSubject());
+        assertEquals(1, jwtTokenProvider.cachedTokenCount());
+    }
+
+    @Test
+    void resolveClaims_InvalidToken_IsNotCached() {
+        // Arrange
+        String token = jwtTokenProvider.generateTokenFromUsername("testuser");
+        String tampered = token.substring(0, token.length() - 2) + (token.endsWith("A") ? "BB" : "AA");
+
+        // Act
+        Optional<Claims> claims = jwtTokenProvider.resolveClaims(tampered);
+
+        // Assert
+        assertTrue(claims.isEmpty());
+        assertEquals(0, jwtTokenProvider.cachedTokenCount());
+    }
+
+    @Test
+    void resolveClaims_AfterTokenExpires_IsNotServedFromCache() throws InterruptedException {
+        // Arrange - exp is in whole seconds, so this token lives between 1 and 2 seconds
+        JwtTokenProvider shortLived = provider(2_000, 100);
+        String token = shortLived.generateTokenFromUsername("testuser");
+        Claims claims = shortLived.resolveClaims(token).orElseThrow();
+        assertEquals(1, shortLived.cachedTokenCount());
+
+        // Act
+        Thread.sleep(Math.max(0, claims.getExpiration().getTime() - System.currentTimeMillis()) + 50);
+
+        // Assert
+        assertTrue(shortLived.resolveClaims(token).isEmpty());
+        assertEquals(0, shortLived.cachedTokenCount());
+    }
+
+    @Test
+    void resolveClaims_ManyTokens_CacheStaysWithinMaxSize() {
+        // Arrange
+        JwtTokenProvider bounded = provider(3_600_000, 5);
+
+        // Act
+        for (int i = 0; i < 50; i++) {
+            String token = bounded.generateTokenFromUsername("user" + i);
+            assertTrue(bounded.resolveClaims(token).isPresent());
+        }
+
+        // Assert
+        assertTrue(bounded.cachedTokenCount() <= 5);
+    }
+
+    @Test
+    void cachedClaims_OnlyAnswersForTokensAlreadyVerified() {
+        // Arrange
+        String token = jwtTokenProvider.generateTokenFromUsername("testuser");
+        String forged = token.substring(0, token.length() - 2) + (token.endsWith("A") ? "BB" : "AA");
+
+        // Act
+        Optional<Claims> beforeVerify = jwtTokenProvider.cachedClaims(token);
+        jwtTokenProvider.resolveClaims(token);
+        jwtTokenProvider.resolveClaims(forged);
+
+        // Assert
+        assertTrue(beforeVerify.isEmpty());
+        assertEquals("testuser", jwtTokenProvider.cachedClaims(token).orElseThrow().getSubject());
+        assertTrue(jwtTokenProvider.cachedClaims(forged).isEmpty());
+    }
+
+    @Test
+    void resolveAlgorithm_AcceptsEcAndHmacNamesInAnyCase() {
+        assertEquals(SignatureAlgorithm.ES256, JwtTokenProvider.resolveAlgorithm("es256"));
+        assertEquals(SignatureAlgorithm.ES512, JwtTokenProvider.resolveAlgorithm(" ES512 "));
+        assertEquals(SignatureAlgorithm.HS384, JwtTokenProvider.resolveAlgorithm("Hs384"));
+    }
+
+    @Test
+    void resolveAlgorithm_RsaNoneOrUnknown_ThrowsIllegalState() {
+        assertThrows(IllegalStateException.class, () -> JwtTokenProvider.resolveAlgorithm("RS256"));
+        assertThrows(IllegalStateException.class, () -> JwtTokenProvider.resolveAlgorithm("none"));
+        assertThrows(IllegalStateException.class, () -> JwtTokenProvider.resolveAlgorithm("ES999"));
+    }
+
+    @Test
+    void hmacAlgorithm_WithWeakSecret_GeneratesKeyAndStillVerifies() {
+        // Arrange - HS512 needs 64 bytes, SECRET has 32
+        JwtTokenProvider provider = new JwtTokenProvider(SECRET, 3_600_000, 100, "HS512", null);
+        provider.init();
+
+        // Act
+        String token = provider.generateTokenFromUsername("testuser");
+
+        // Assert
+        assertEquals("HS512", Jwts.parserBuilder().build().parse(unsigned(token)).getHeader().get("alg"));
+        assertEquals("testuser", provider.resolveClaims(token).orElseThrow().getSubject());
+    }
+
+    @Test
+    void ecAlgorithm_SignsWithActiveKeyAndVerifiesByKid() {
+        // Arrange
+        KeyPair keyPair = Keys.keyPairFor(SignatureAlgorithm.ES256);
+        SigningKeyManager keyManager = mock(SigningKeyManager.class);
+        when(keyManager.currentSigningKey()).thenReturn(
+                new SigningKeyManager.ActiveKey("kid-1", keyPair.getPrivate(), Instant.now().plusSeconds(60)));
+        when(keyManager.resolveVerificationKey("kid-1")).thenReturn(keyPair.getPublic());
+        JwtTokenProvider provider = new JwtTokenProvider("", 3_600_000, 100, "ES256", keyManager);
+        provider.init();
+
+        // Act
+        String token = provider.generateTokenFromUsername("testuser");
+
+        // Assert
+        JwsHeader<?> header = Jwts.parserBuilder().setSigningKey(keyPair.getPublic()).build()
+                .parseClaimsJws(token).getHeader();
+        assertEquals("ES256", header.getAlgorithm());
+        assertEquals("kid-1", header.getKeyId());
+        assertEquals("testuser", provider.resolveClaims(token).orElseThrow().getSubject());
+        verify(keyManager).resolveVerificationKey("kid-1");
+    }
+
+    /**
+     * Header and claims of a signed token, without the signature
+     */
+    private static String unsigned(String token) {
+        return token.substring(0, token.lastIndexOf('.') + 1);
+    }
+
+    private static JwtTokenProvider provider(long expirationMs, long cacheMaxSize) {
+        JwtTokenProvider provider = new JwtTokenProvider(SECRET, expirationMs, cacheMaxSize, "HS256", null);
+        provider.init();
+        return provider;
+    }
+}
@@ -0,0 +1,68 @@
+package com.kuspidsamples.security;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kuspidsamples.service.AdaptiveConcurrencyLimiter.Priority;
+import io.jsonwebtoken.Jwts;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.time.Duration;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class LoadSheddingFilterTest {
+
+    @Mock
+    private JwtTokenProvider tokenProvider;
+
+    private LoadSheddingFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        filter = new LoadSheddingFilter(new SimpleMeterRegistry(), new ObjectMapper(), tokenProvider,
+                true, 20, 5, 200, 1.5, 0.2, Duration.ofSeconds(1), 20);
+    }
+
+    @Test
+    void classify_WriteWithVerifiedToken_IsHighPriority() {
+        // Arrange
+        when(tokenProvider.cachedClaims("verified")).thenReturn(Optional.of(Jwts.claims().setSubject("alice")));
+
+        // Act & Assert
+        assertEquals(Priority.HIGH, filter.classify(request("POST", "verified")));
+    }
+
+    @Test
+    void classify_WithUnverifiedToken_IsTreatedAsAnonymous() {
+        // Arrange - a made-up bearer value must not buy a higher priority
+        when(tokenProvider.cachedClaims("made-up")).thenReturn(Optional.empty());
+
+        // Act & Assert
+        assertEquals(Priority.LOW, filter.classify(request("GET", "made-up")));
+        assertEquals(Priority.MEDIUM, filter.classify(request("POST", "made-up")));
+    }
+
+    @Test
+    void classify_HealthCheck_IsCriticalWithoutLookingAtToken() {
+        // Arrange
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/actuator/health");
+        request.addHeader("Authorization", "Bearer anything");
+
+        // Act & Assert
+        assertEquals(Priority.CRITICAL, filter.classify(request));
+    }
+
+    private static MockHttpServletRequest request(String method, String token) {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, "/api/samples");
+        request.addHeader("Authorization", "Bearer " + token);
+        return request;
+    }
+}
@@ -0,0 +1,123 @@
+package com.kuspidsamples.security;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kuspidsamples.service.HeavyHitterSketch.HeavyHitter;
+import com.kuspidsamples.service.HeavyHitterTracker;
+import com.kuspidsamples.service.RateLimitPolicy;
+import com.kuspidsamples.service.RateLimitPolicyRegistry;
+import com.kuspidsamples.service.RateLimitService;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.core.annotation.Order;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class RateLimitFilterTest {
+
+    private static final String TOKEN = "header.payload.signature";
+
+    @Mock
+    private RateLimitPolicyRegistry policyRegistry;
+
+    @Mock
+    private JwtTokenProvider tokenProvider;
+
+    @Mock
+    private TokenRevocationService revocationService;
+
+    private HeavyHitterTracker heavyHitterTracker;
+
+    private RateLimitFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        heavyHitterTracker = new HeavyHitterTracker(10, 256);
+        filter = new RateLimitFilter(
+                new RateLimitService(new SimpleMeterRegistry(), 100, Optional.empty(),
+                        RateLimitService.ENGINE_BUCKET4J, 1024, Duration.ofMinutes(1)),
+                policyRegistry, tokenProvider, revocationService,
+                new ClientIpResolver(List.of(), 32, 64),
+                new IpRuleService("", new SimpleMeterRegistry()),
+                heavyHitterTracker, new ObjectMapper(), Duration.ofSeconds(10));
+    }
+
+    @Test
+    void doFilter_WithVerifiedToken_ChargesUserBucket() throws Exception {
+        // Arrange
+        Claims claims = claims("alice", "jti-1");
+        when(tokenProvider.cachedClaims(TOKEN)).thenReturn(Optional.of(claims));
+        when(revocationService.isRevoked("jti-1")).thenReturn(false);
+
+        // Act
+        MockHttpServletResponse response = perform("203.0.113.7");
+
+        // Assert
+        assertEquals(200, response.getStatus());
+        assertEquals("user:alice", onlyRequestKey());
+    }
+
+    @Test
+    void doFilter_WithRevokedToken_ChargesClientIp() throws Exception {
+        // Arrange - the token verified earlier but was revoked (logout) since
+        Claims claims = claims("alice", "jti-1");
+        when(tokenProvider.cachedClaims(TOKEN)).thenReturn(Optional.of(claims));
+        when(revocationService.isRevoked("jti-1")).thenReturn(true);
+
+        // Act
+        MockHttpServletResponse response = perform("203.0.113.7");
+
+        // Assert
+        assertEquals(200, response.getStatus());
+        assertEquals("203.0.113.7", onlyRequestKey());
+    }
+
+    @Test
+    void order_RunsBeforeSpringSecurity() {
+        // Arrange
+        int order = RateLimitFilter.class.getAnnotation(Order.class).value();
+
+        // Act & Assert - after load shedding, before the security filter chain
+        assertTrue(order > LoadSheddingFilter.class.getAnnotation(Order.class).value());
+        assertTrue(order < SecurityProperties.DEFAULT_FILTER_ORDER);
+    }
+
+    private MockHttpServletResponse perform(String remoteAddr) throws Exception {
+        when(policyRegistry.resolve("GET", "/api/samples")).thenReturn(new RateLimitPolicy("default",
+                List.of(RateLimitPolicy.Route.parse("/**")), Duration.ofMinutes(1), 10, Map.of()));
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/samples");
+        request.setRemoteAddr(remoteAddr);
+        request.addHeader("Authorization", "Bearer " + TOKEN);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+
+    private String onlyRequestKey() {
+        List<HeavyHitter> top = heavyHitterTracker.topRequests();
+        assertEquals(1, top.size());
+        return top.get(0).key();
+    }
+
+    private static Claims claims(String subject, String jti) {
+        Claims claims = Jwts.claims().setSubject(subject);
+        claims.setId(jti);
+        return claims;
+    }
+}
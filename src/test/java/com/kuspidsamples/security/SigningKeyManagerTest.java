@@ -0,0 +1,135 @@
+package com.kuspidsamples.security;
+
+import com.kuspidsamples.entity.SigningKey;
+import com.kuspidsamples.repository.SigningKeyRepository;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SigningKeyManagerTest {
+
+    @Mock
+    private SigningKeyRepository signingKeyRepository;
+
+    /** Rows of the signing_keys table */
+    private final List<SigningKey> stored = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(signingKeyRepository.save(any(SigningKey.class))).thenAnswer(inv -> {
+            stored.add(inv.getArgument(0));
+            return inv.getArgument(0);
+        });
+        lenient().when(signingKeyRepository.findByVerifyUntilAfterOrderByActiveFromDesc(any(Instant.class)))
+                .thenAnswer(inv -> {
+                    Instant now = inv.getArgument(0);
+                    return stored.stream()
+                            .filter(key -> key.getVerifyUntil().isAfter(now))
+                            .sorted(Comparator.comparing(SigningKey::getActiveFrom).reversed())
+                            .toList();
+                });
+    }
+
+    @Test
+    void init_WithNoKeys_CreatesKeyThatSignsImmediately() {
+        // Arrange
+        SigningKeyManager keyManager = manager(Duration.ofDays(7), "");
+
+        // Act
+        keyManager.init();
+
+        // Assert
+        assertEquals(1, stored.size());
+        assertEquals(stored.get(0).getKid(), keyManager.currentSigningKey().kid());
+        assertEquals(1, keyManager.publishedKeys().size());
+    }
+
+    @Test
+    void maintain_NearEndOfSigningWindow_PublishesNextKeyBeforeSigningWithIt() {
+        // Arrange - a rotation period shorter than the publish lead is always due
+        SigningKeyManager keyManager = manager(Duration.ofMinutes(5), "");
+        keyManager.init();
+        String firstKid = keyManager.currentSigningKey().kid();
+
+        // Act
+        keyManager.maintain();
+
+        // Assert - both keys verify, the old one keeps signing until the new one is active
+        assertEquals(2, stored.size());
+        SigningKey next = stored.get(1);
+        assertTrue(next.getActiveFrom().isAfter(Instant.now()));
+        assertEquals(firstKid, keyManager.currentSigningKey().kid());
+        assertEquals(List.of(next.getKid(), firstKid),
+                keyManager.publishedKeys().stream().map(SigningKeyManager.VerificationKey::kid).toList());
+        assertNotNull(keyManager.resolveVerificationKey(next.getKid()));
+        assertTrue(stored.get(0).getVerifyUntil().isAfter(stored.get(0).getSignUntil()));
+    }
+
+    @Test
+    void currentSigningKey_AfterRestart_UnwrapsPersistedEncryptedKey() {
+        // Arrange
+        SigningKeyManager first = manager(Duration.ofDays(7), "wrapping-secret");
+        first.init();
+        SigningKey persisted = stored.get(0);
+        assertTrue(persisted.getEncrypted());
+
+        // Act - a new instance reads the same row
+        SigningKeyManager restarted = manager(Duration.ofDays(7), "wrapping-secret");
+        restarted.init();
+        SigningKeyManager.ActiveKey active = restarted.currentSigningKey();
+
+        // Assert
+        assertEquals(1, stored.size());
+        assertEquals(persisted.getKid(), active.kid());
+        String token = Jwts.builder().setSubject("testuser")
+                .signWith(active.privateKey(), SignatureAlgorithm.ES256).compact();
+        assertEquals("testuser", Jwts.parserBuilder()
+                .setSigningKey(first.resolveVerificationKey(persisted.getKid())).build()
+                .parseClaimsJws(token).getBody().getSubject());
+    }
+
+    @Test
+    void currentSigningKey_WithWrongWrappingSecret_RefusesToSign() {
+        // Arrange
+        manager(Duration.ofDays(7), "wrapping-secret").init();
+
+        // Act
+        SigningKeyManager misconfigured = manager(Duration.ofDays(7), "another-secret");
+        misconfigured.init();
+
+        // Assert - the public half is still published, but nothing can sign
+        assertEquals(1, misconfigured.publishedKeys().size());
+        assertThrows(IllegalStateException.class, misconfigured::currentSigningKey);
+    }
+
+    @Test
+    void constructor_ResolvesAlgorithmLikeTokenProvider() {
+        // Lower-case HMAC names turn the key set off, whatever the default locale
+        assertFalse(new SigningKeyManager(signingKeyRepository, "hs256", Duration.ofDays(7),
+                Duration.ofMinutes(10), 3_600_000, "").isEnabled());
+        IllegalStateException unsupported = assertThrows(IllegalStateException.class,
+                () -> new SigningKeyManager(signingKeyRepository, "ES999", Duration.ofDays(7),
+                        Duration.ofMinutes(10), 3_600_000, ""));
+        assertTrue(unsupported.getMessage().startsWith("Unsupported jwt.algorithm ES999"));
+    }
+
+    private SigningKeyManager manager(Duration rotationPeriod, String encryptionSecret) {
+        return new SigningKeyManager(signingKeyRepository, "ES256", rotationPeriod,
+                Duration.ofMinutes(10), 3_600_000, encryptionSecret);
+    }
+}
@@ -0,0 +1,69 @@
+package com.kuspidsamples.security;
+
+import com.kuspidsamples.entity.RevokedToken;
+import com.kuspidsamples.repository.RevokedTokenRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TokenRevocationServiceTest {
+
+    @Mock
+    private RevokedTokenRepository revokedTokenRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private TokenRevocationService revocationService;
+
+    @BeforeEach
+    void setUp() {
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        revocationService = new TokenRevocationService(revokedTokenRepository, transactionManager,
+                1000, Duration.ofSeconds(30));
+    }
+
+    @Test
+    void revoke_InsertsAndFlushesInItsOwnTransaction() {
+        // Act
+        revocationService.revoke("jti-1", Instant.now().plusSeconds(60));
+
+        // Assert
+        ArgumentCaptor<TransactionDefinition> definition = ArgumentCaptor.forClass(TransactionDefinition.class);
+        verify(transactionManager).getTransaction(definition.capture());
+        assertEquals(TransactionDefinition.PROPAGATION_REQUIRES_NEW, definition.getValue().getPropagationBehavior());
+        verify(revokedTokenRepository).saveAndFlush(any(RevokedToken.class));
+        verify(transactionManager).commit(any());
+        assertTrue(revocationService.isRevoked("jti-1"));
+    }
+
+    @Test
+    void revoke_DuplicateJti_RollsBackAndStillRevokesLocally() {
+        // Arrange - another replica inserted the same jti after our existence check
+        when(revokedTokenRepository.saveAndFlush(any(RevokedToken.class)))
+                .thenThrow(new DataIntegrityViolationException("duplicate jti"));
+
+        // Act
+        assertDoesNotThrow(() -> revocationService.revoke("jti-1", Instant.now().plusSeconds(60)));
+
+        // Assert
+        verify(transactionManager).rollback(any());
+        verify(transactionManager, never()).commit(any());
+        assertTrue(revocationService.isRevoked("jti-1"));
+    }
+}
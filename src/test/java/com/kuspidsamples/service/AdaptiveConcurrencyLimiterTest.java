@@ -0,0 +1,136 @@
+package com.kuspidsamples.service;
+
+import com.kuspidsamples.service.AdaptiveConcurrencyLimiter.Priority;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdaptiveConcurrencyLimiterTest {
+
+    private static final long WINDOW = 1_000_000_000L;
+    private static final long MS = 1_000_000L;
+
+    private AtomicLong clock;
+    private AdaptiveConcurrencyLimiter limiter;
+
+    @BeforeEach
+    void setUp() {
+        clock = new AtomicLong();
+        limiter = new AdaptiveConcurrencyLimiter(20, 5, 200, 1.5, 0.5, WINDOW, 10, clock::get);
+    }
+
+    @Test
+    void tryAcquire_AtLimit_ShedsLowPriorityFirst() {
+        // Arrange - 10 in flight is the LOW share (half) of 20
+        for (int i = 0; i < 10; i++) {
+            assertTrue(limiter.tryAcquire(Priority.HIGH));
+        }
+
+        // Act & Assert
+        assertFalse(limiter.tryAcquire(Priority.LOW));
+        assertTrue(limiter.tryAcquire(Priority.MEDIUM));
+        assertTrue(limiter.tryAcquire(Priority.HIGH));
+        assertEquals(12, limiter.getInFlight());
+    }
+
+    @Test
+    void tryAcquire_Critical_IsNeverShed() {
+        // Arrange
+        for (int i = 0; i < 20; i++) {
+            limiter.tryAcquire(Priority.HIGH);
+        }
+
+        // Act & Assert
+        assertFalse(limiter.tryAcquire(Priority.HIGH));
+        assertTrue(limiter.tryAcquire(Priority.CRITICAL));
+    }
+
+    @Test
+    void release_WhenLatencyRises_LowersLimit() {
+        // Arrange - a busy baseline at 10 ms
+        runWindow(18, 10 * MS);
+        int before = limiter.getLimit();
+
+        // Act - the database slows down and requests take 50 ms
+        for (int i = 0; i < 5; i++) {
+            runWindow(18, 50 * MS);
+        }
+
+        // Assert
+        assertTrue(limiter.getLimit() < before, "limit should drop from " + before + " but is " + limiter.getLimit());
+    }
+
+    @Test
+    void release_SteadyLatencyUnderLoad_RaisesLimit() {
+        // Arrange
+        int before = limiter.getLimit();
+
+        // Act
+        for (int i = 0; i < 3; i++) {
+            runWindow(limiter.getLimit(), 10 * MS);
+        }
+
+        // Assert
+        assertTrue(limiter.getLimit() > before);
+    }
+
+    @Test
+    void release_SevereSlowdown_CutsLimitSharply() {
+        // Arrange
+        runWindow(18, 10 * MS);
+
+        // Act - a dependency hangs and everything takes a second
+        for (int i = 0; i < 10; i++) {
+            runWindow(18, 1000 * MS);
+        }
+
+        // Assert
+        assertTrue(limiter.getLimit() <= 10, "limit is " + limiter.getLimit());
+    }
+
+    @Test
+    void release_SevereSlowdown_StopsAtMinLimit() {
+        // Arrange
+        limiter = new AdaptiveConcurrencyLimiter(20, 15, 200, 1.5, 0.5, WINDOW, 10, clock::get);
+        runWindow(18, 10 * MS);
+
+        // Act
+        for (int i = 0; i < 10; i++) {
+            runWindow(18, 1000 * MS);
+        }
+
+        // Assert
+        assertEquals(15, limiter.getLimit());
+    }
+
+    @Test
+    void release_SteadyLatency_StopsAtMaxLimit() {
+        // Act
+        for (int i = 0; i < 100; i++) {
+            runWindow(limiter.getLimit(), 10 * MS);
+        }
+
+        // Assert
+        assertEquals(200, limiter.getLimit());
+    }
+
+    /**
+     * Offer `concurrency` requests at once, finish the admitted ones with the given latency, then close the window
+     */
+    private void runWindow(int concurrency, long rttNanos) {
+        int admitted = 0;
+        for (int i = 0; i < concurrency; i++) {
+            if (limiter.tryAcquire(Priority.HIGH)) {
+                admitted++;
+            }
+        }
+        for (int i = 0; i < admitted - 1; i++) {
+            limiter.release(rttNanos);
+        }
+        clock.addAndGet(WINDOW);
+        limiter.release(rttNanos);
+    }
+}
@@ -0,0 +1,177 @@
+package com.kuspidsamples.service;
+
+import com.kuspidsamples.entity.PendingAssetDeletion;
+import com.kuspidsamples.repository.PendingAssetDeletionRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AssetDeletionServiceTest {
+
+    @Mock
+    private PendingAssetDeletionRepository pendingAssetDeletionRepository;
+
+    @Mock
+    private StorageService storageService;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private AssetDeletionService assetDeletionService;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        assetDeletionService = new AssetDeletionService(pendingAssetDeletionRepository, storageService,
+                meterRegistry, 2, 10, Duration.ofSeconds(30), Duration.ofMinutes(10));
+    }
+
+    @Test
+    void enqueue_SavesPendingDeletion() {
+        // Act
+        assetDeletionService.enqueue("samples/abc");
+
+        // Assert
+        ArgumentCaptor<PendingAssetDeletion> captor = ArgumentCaptor.forClass(PendingAssetDeletion.class);
+        verify(pendingAssetDeletionRepository).save(captor.capture());
+        assertEquals("samples/abc", captor.getValue().getPublicId());
+        assertEquals(0, captor.getValue().getAttempts());
+        assertNotNull(captor.getValue().getNextAttemptAt());
+    }
+
+    @Test
+    void enqueue_WithDelay_SchedulesFirstAttemptLater() {
+        // Act
+        assetDeletionService.enqueue("samples/abc", Duration.ofHours(1));
+
+        // Assert
+        ArgumentCaptor<PendingAssetDeletion> captor = ArgumentCaptor.forClass(PendingAssetDeletion.class);
+        verify(pendingAssetDeletionRepository).save(captor.capture());
+        assertTrue(captor.getValue().getNextAttemptAt().isAfter(Instant.now().plusSeconds(3500)));
+    }
+
+    @Test
+    void discard_WhenOutboxUnavailable_DeletesDirectly() {
+        // Arrange
+        when(pendingAssetDeletionRepository.save(any(PendingAssetDeletion.class)))
+                .thenThrow(new IllegalStateException("db down"));
+
+        // Act
+        assetDeletionService.discard("samples/abc");
+
+        // Assert
+        verify(storageService).deleteFile("samples/abc");
+    }
+
+    @Test
+    void dispatch_DeletesInBatchesUntilShortBatch() throws IOException {
+        // Arrange
+        when(pendingAssetDeletionRepository.findDue(any(Instant.class), any(Pageable.class)))
+                .thenReturn(List.of(pending(1L, "a"), pending(2L, "b")))
+                .thenReturn(List.of(pending(3L, "c")));
+        when(storageService.deleteFiles(List.of("a", "b"))).thenReturn(Set.of("a", "b"));
+        when(storageService.deleteFiles(List.of("c"))).thenReturn(Set.of("c"));
+        when(pendingAssetDeletionRepository.count()).thenReturn(0L);
+
+        // Act
+        int deleted = assetDeletionService.dispatch();
+
+        // Assert
+        assertEquals(3, deleted);
+        verify(pendingAssetDeletionRepository).deleteByIdIn(List.of(1L, 2L));
+        verify(pendingAssetDeletionRepository).deleteByIdIn(List.of(3L));
+        verify(pendingAssetDeletionRepository, never()).saveAll(anyList());
+        assertEquals(3.0, meterRegistry.get("asset_deletions.deleted").counter().count());
+    }
+
+    @Test
+    void dispatch_WhenSomeIdsNotDeleted_ReschedulesOnlyThose() throws IOException {
+        // Arrange
+        PendingAssetDeletion stuck = pending(2L, "b");
+        when(pendingAssetDeletionRepository.findDue(any(Instant.class), any(Pageable.class)))
+                .thenReturn(List.of(pending(1L, "a"), stuck))
+                .thenReturn(Collections.emptyList());
+        when(storageService.deleteFiles(List.of("a", "b"))).thenReturn(Set.of("a"));
+
+        // Act
+        int deleted = assetDeletionService.dispatch();
+
+        // Assert
+        assertEquals(1, deleted);
+        verify(pendingAssetDeletionRepository).deleteByIdIn(List.of(1L));
+        verify(pendingAssetDeletionRepository).saveAll(List.of(stuck));
+        assertEquals(1, stuck.getAttempts());
+        assertTrue(stuck.getNextAttemptAt().isAfter(Instant.now().plusSeconds(20)));
+        assertNotNull(stuck.getLastError());
+    }
+
+    @Test
+    void dispatch_WhenApiCallFails_BacksOffBatchAndStops() throws IOException {
+        // Arrange
+        PendingAssetDeletion first = pending(1L, "a");
+        PendingAssetDeletion second = pending(2L, "b");
+        second.setAttempts(3);
+        when(pendingAssetDeletionRepository.findDue(any(Instant.class), any(Pageable.class)))
+                .thenReturn(List.of(first, second));
+        when(storageService.deleteFiles(anyList())).thenThrow(new IOException("rate limited"));
+
+        // Act
+        int deleted = assetDeletionService.dispatch();
+
+        // Assert
+        assertEquals(0, deleted);
+        verify(pendingAssetDeletionRepository, times(1)).findDue(any(Instant.class), any(Pageable.class));
+        verify(pendingAssetDeletionRepository, never()).deleteByIdIn(anyList());
+        verify(pendingAssetDeletionRepository).saveAll(List.of(first, second));
+        assertEquals("rate limited", first.getLastError());
+        assertEquals(4, second.getAttempts());
+        assertTrue(second.getNextAttemptAt().isAfter(first.getNextAttemptAt()));
+    }
+
+    @Test
+    void dispatch_WithSamePublicIdQueuedTwice_SendsItOnce() throws IOException {
+        // Arrange
+        when(pendingAssetDeletionRepository.findDue(any(Instant.class), any(Pageable.class)))
+                .thenReturn(List.of(pending(1L, "a"), pending(2L, "a")))
+                .thenReturn(Collections.emptyList());
+        when(storageService.deleteFiles(List.of("a"))).thenReturn(Set.of("a"));
+
+        // Act
+        int deleted = assetDeletionService.dispatch();
+
+        // Assert
+        assertEquals(2, deleted);
+        verify(pendingAssetDeletionRepository).deleteByIdIn(List.of(1L, 2L));
+    }
+
+    @Test
+    void backoff_DoublesUpToMaximum() {
+        assertEquals(Duration.ofSeconds(30), assetDeletionService.backoff(1));
+        assertEquals(Duration.ofSeconds(60), assetDeletionService.backoff(2));
+        assertEquals(Duration.ofSeconds(240), assetDeletionService.backoff(4));
+        assertEquals(Duration.ofMinutes(10), assetDeletionService.backoff(6));
+        assertEquals(Duration.ofMinutes(10), assetDeletionService.backoff(1000));
+    }
+
+    private static PendingAssetDeletion pending(Long id, String publicId) {
+        PendingAssetDeletion deletion = new PendingAssetDeletion(publicId, Instant.now().minusSeconds(60));
+        deletion.setId(id);
+        return deletion;
+    }
+}
@@ -0,0 +1,236 @@
+package com.kuspidsamples.service;
+
+import com.kuspidsamples.dto.request.LoginRequest;
+import com.kuspidsamples.dto.response.AuthResponse;
+import com.kuspidsamples.entity.RefreshToken;
+import com.kuspidsamples.entity.Role;
+import com.kuspidsamples.entity.User;
+import com.kuspidsamples.exception.UnauthorizedException;
+import com.kuspidsamples.repository.RefreshTokenRepository;
+import com.kuspidsamples.repository.UserRepository;
+import com.kuspidsamples.security.JwtTokenProvider;
+import com.kuspidsamples.security.TokenRevocationService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.AdditionalMatchers.aryEq;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AuthServiceTest {
+
+    private static final String USER_AGENT = "Mozilla/5.0 (Android 14; Mobile)";
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private RefreshTokenRepository refreshTokenRepository;
+
+    @Mock
+    private PasswordEncoder passwordEncoder;
+
+    @Mock
+    private AuthenticationManager authenticationManager;
+
+    @Mock
+    private JwtTokenProvider tokenProvider;
+
+    @Mock
+    private TokenRevocationService revocationService;
+
+    @Mock
+    private LoginAttemptService loginAttemptService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private AuthService authService;
+
+    private User testUser;
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        authService = new AuthService(userRepository, refreshTokenRepository, passwordEncoder,
+                authenticationManager, tokenProvider, revocationService, loginAttemptService,
+                transactionManager, Duration.ofMinutes(30));
+
+        testUser = new User();
+        testUser.setId(1L);
+        testUser.setUsername("testuser");
+        testUser.setEmail("test@example.com");
+        testUser.setRole(Role.ROLE_USER);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void login_ConcurrentInsertForSameDevice_RetriesAsUpdate() {
+        // Arrange - both logins found no row; the other one committed its insert first
+        stubSuccessfulLogin();
+        RefreshToken committedByOther = new RefreshToken(new byte[32], "phone-1", Instant.now(), testUser);
+        committedByOther.setId(7L);
+        committedByOther.setVersion(0L);
+        when(refreshTokenRepository.findByUserAndDeviceId(testUser, "phone-1"))
+                .thenReturn(Optional.empty())
+                .thenReturn(Optional.of(committedByOther));
+        when(refreshTokenRepository.save(any(RefreshToken.class)))
+                .thenThrow(new DataIntegrityViolationException("uk_refresh_token_user_device"))
+                .thenAnswer(inv -> inv.getArgument(0));
+
+        // Act
+        AuthResponse response = authService.login(loginRequest("phone-1"), "10.0.0.1", USER_AGENT);
+
+        // Assert - the second attempt updated the committed row with our token
+        verify(transactionManager).rollback(any());
+        verify(transactionManager).commit(any());
+        assertArrayEquals(sha256(response.getRefreshToken()), committedByOther.getTokenHash());
+        assertEquals("phone-1", response.getDeviceId());
+    }
+
+    @Test
+    void login_ConcurrentUpdateOfSameRow_Retries() {
+        // Arrange - another login updated the row between our read and our commit
+        stubSuccessfulLogin();
+        RefreshToken existing = new RefreshToken(new byte[32], "phone-1", Instant.now(), testUser);
+        existing.setVersion(3L);
+        when(refreshTokenRepository.findByUserAndDeviceId(testUser, "phone-1")).thenReturn(Optional.of(existing));
+        doThrow(new ObjectOptimisticLockingFailureException(RefreshToken.class, 7L))
+                .doNothing()
+                .when(transactionManager).commit(any());
+
+        // Act
+        AuthResponse response = authService.login(loginRequest("phone-1"), "10.0.0.1", USER_AGENT);
+
+        // Assert
+        verify(refreshTokenRepository, times(2)).save(existing);
+        assertArrayEquals(sha256(response.getRefreshToken()), existing.getTokenHash());
+    }
+
+    @Test
+    void login_WithoutDeviceId_ReusesOneSessionPerUserAgent() {
+        // Arrange
+        stubSuccessfulLogin();
+        when(refreshTokenRepository.findByUserAndDeviceId(eq(testUser), anyString())).thenReturn(Optional.empty());
+
+        // Act
+        AuthResponse first = authService.login(loginRequest(null), "10.0.0.1", USER_AGENT);
+        AuthResponse second = authService.login(loginRequest(" "), "10.0.0.2", USER_AGENT);
+
+        // Assert - both logins look up the same (user, device) row
+        assertEquals(first.getDeviceId(), second.getDeviceId());
+        assertTrue(first.getDeviceId().startsWith("ua-"));
+        assertTrue(first.getDeviceId().length() <= 64);
+        verify(refreshTokenRepository, times(2)).findByUserAndDeviceId(testUser, first.getDeviceId());
+    }
+
+    @Test
+    void resolveDeviceId_PrefersClientIdAndSeparatesUserAgents() {
+        assertEquals("tablet", AuthService.resolveDeviceId(" tablet ", USER_AGENT));
+        assertNotEquals(AuthService.resolveDeviceId(null, USER_AGENT),
+                AuthService.resolveDeviceId(null, "curl/8.5.0"));
+        assertEquals(AuthService.resolveDeviceId(null, null), AuthService.resolveDeviceId("", null));
+    }
+
+    @Test
+    void refreshToken_RotatesTheVersionItRead() {
+        // Arrange
+        RefreshToken stored = storedToken("old-token", 4L);
+        when(refreshTokenRepository.findByTokenHash(aryEq(sha256("old-token")))).thenReturn(Optional.of(stored));
+        when(refreshTokenRepository.rotate(eq(7L), eq(4L), any(byte[].class), aryEq(sha256("old-token")),
+                any(Instant.class))).thenReturn(1);
+        when(tokenProvider.generateToken(testUser)).thenReturn("access-token");
+
+        // Act
+        AuthResponse response = authService.refreshToken("old-token");
+
+        // Assert
+        ArgumentCaptor<byte[]> newHash = ArgumentCaptor.forClass(byte[].class);
+        verify(refreshTokenRepository).rotate(eq(7L), eq(4L), newHash.capture(), any(byte[].class), any(Instant.class));
+        assertArrayEquals(sha256(response.getRefreshToken()), newHash.getValue());
+        assertEquals("phone-1", response.getDeviceId());
+    }
+
+    @Test
+    void refreshToken_LosingConcurrentRotation_ThrowsUnauthorized() {
+        // Arrange - a parallel refresh with the same token bumped the version first
+        RefreshToken stored = storedToken("old-token", 4L);
+        when(refreshTokenRepository.findByTokenHash(aryEq(sha256("old-token")))).thenReturn(Optional.of(stored));
+        when(refreshTokenRepository.rotate(eq(7L), eq(4L), any(byte[].class), any(byte[].class), any(Instant.class)))
+                .thenReturn(0);
+
+        // Act & Assert
+        assertThrows(UnauthorizedException.class, () -> authService.refreshToken("old-token"));
+        verify(tokenProvider, never()).generateToken(any(User.class));
+        verify(refreshTokenRepository, never()).delete(any());
+    }
+
+    @Test
+    void refreshToken_ReplayOfRotatedToken_RevokesDeviceSession() {
+        // Arrange
+        RefreshToken stored = storedToken("new-token", 5L);
+        when(refreshTokenRepository.findByTokenHash(aryEq(sha256("old-token")))).thenReturn(Optional.empty());
+        when(refreshTokenRepository.findByPreviousTokenHash(aryEq(sha256("old-token")))).thenReturn(Optional.of(stored));
+
+        // Act & Assert
+        assertThrows(UnauthorizedException.class, () -> authService.refreshToken("old-token"));
+        verify(refreshTokenRepository).delete(stored);
+    }
+
+    private void stubSuccessfulLogin() {
+        when(authenticationManager.authenticate(any())).thenReturn(
+                new UsernamePasswordAuthenticationToken("testuser", null, List.of()));
+        when(userRepository.findByUsernameOrEmail("testuser", "testuser")).thenReturn(Optional.of(testUser));
+        when(tokenProvider.generateToken(testUser)).thenReturn("access-token");
+    }
+
+    private LoginRequest loginRequest(String deviceId) {
+        LoginRequest request = new LoginRequest();
+        request.setUsernameOrEmail("testuser");
+        request.setPassword("password123");
+        request.setDeviceId(deviceId);
+        return request;
+    }
+
+    private RefreshToken storedToken(String rawToken, long version) {
+        RefreshToken token = new RefreshToken(sha256(rawToken), "phone-1",
+                Instant.now().plus(Duration.ofDays(1)), testUser);
+        token.setId(7L);
+        token.setVersion(version);
+        return token;
+    }
+
+    private static byte[] sha256(String value) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.kuspidsamples.service;
+
+import com.kuspidsamples.service.CircuitBreaker.State;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CircuitBreakerTest {
+
+    private static final long OPEN = 30_000_000_000L;
+
+    private AtomicLong clock;
+    private CircuitBreaker circuitBreaker;
+
+    @BeforeEach
+    void setUp() {
+        clock = new AtomicLong();
+        circuitBreaker = new CircuitBreaker(10, 4, 0.5, OPEN, 2, clock::get);
+    }
+
+    @Test
+    void onFailure_BelowMinimumCalls_StaysClosed() {
+        // Act
+        fail(3);
+
+        // Assert
+        assertEquals(State.CLOSED, circuitBreaker.getState());
+        assertTrue(circuitBreaker.tryAcquire());
+    }
+
+    @Test
+    void onFailure_AtFailureRate_OpensAndRefusesCalls() {
+        // Arrange
+        succeed(2);
+
+        // Act
+        fail(2);
+
+        // Assert
+        assertEquals(State.OPEN, circuitBreaker.getState());
+        assertFalse(circuitBreaker.tryAcquire());
+        assertEquals(OPEN, circuitBreaker.getRemainingOpenNanos());
+        assertEquals(1, circuitBreaker.getTimesOpened());
+    }
+
+    @Test
+    void onFailure_OldFailuresOutsideWindow_AreForgotten() {
+        // Arrange - 3 failures, then 10 successes push them out of the window
+        fail(3);
+        succeed(10);
+
+        // Act
+        fail(4);
+
+        // Assert - 4 of the last 10
+        assertEquals(State.CLOSED, circuitBreaker.getState());
+    }
+
+    @Test
+    void tryAcquire_AfterOpenDuration_AllowsTrialCallsThenCloses() {
+        // Arrange
+        fail(4);
+        clock.addAndGet(OPEN);
+
+        // Act & Assert - two trials, a third call waits for them
+        assertTrue(circuitBreaker.tryAcquire());
+        assertTrue(circuitBreaker.tryAcquire());
+        assertFalse(circuitBreaker.tryAcquire());
+        assertEquals(State.HALF_OPEN, circuitBreaker.getState());
+
+        circuitBreaker.onSuccess();
+        circuitBreaker.onSuccess();
+        assertEquals(State.CLOSED, circuitBreaker.getState());
+
+        // The window starts empty again
+        fail(3);
+        assertEquals(State.CLOSED, circuitBreaker.getState());
+    }
+
+    @Test
+    void onFailure_DuringTrial_OpensAgain() {
+        // Arrange
+        fail(4);
+        clock.addAndGet(OPEN);
+        assertTrue(circuitBreaker.tryAcquire());
+
+        // Act
+        circuitBreaker.onFailure();
+
+        // Assert
+        assertEquals(State.OPEN, circuitBreaker.getState());
+        assertFalse(circuitBreaker.tryAcquire());
+        assertEquals(2, circuitBreaker.getTimesOpened());
+    }
+
+    @Test
+    void onIgnored_DuringTrial_FreesTheTrialSlot() {
+        // Arrange
+        fail(4);
+        clock.addAndGet(OPEN);
+        assertTrue(circuitBreaker.tryAcquire());
+        assertTrue(circuitBreaker.tryAcquire());
+
+        // Act
+        circuitBreaker.onIgnored();
+
+        // Assert
+        assertTrue(circuitBreaker.tryAcquire());
+    }
+
+    private void fail(int calls) {
+        for (int i = 0; i < calls; i++) {
+            assertTrue(circuitBreaker.tryAcquire());
+            circuitBreaker.onFailure();
+        }
+    }
+
+    private void succeed(int calls) {
+        for (int i = 0; i < calls; i++) {
+            assertTrue(circuitBreaker.tryAcquire());
+            circuitBreaker.onSuccess();
+        }
+    }
+}
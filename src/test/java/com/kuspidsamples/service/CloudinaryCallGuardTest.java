@@ -0,0 +1,183 @@
+package com.kuspidsamples.service;
+
+import com.cloudinary.api.exceptions.NotFound;
+import com.cloudinary.api.exceptions.RateLimited;
+import com.kuspidsamples.exception.ServiceUnavailableException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CloudinaryCallGuardTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private CloudinaryCallGuard callGuard;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        callGuard = new CloudinaryCallGuard(meterRegistry, Duration.ofSeconds(60), Duration.ofSeconds(15),
+                Duration.ofSeconds(5), 1, Duration.ofMillis(50), 10, 2, 0.5, Duration.ofSeconds(30), 1);
+    }
+
+    @Test
+    void execute_Success_ReturnsResultAndRecordsTimer() throws IOException {
+        // Act
+        String result = callGuard.execute("upload", () -> "ok");
+
+        // Assert
+        assertEquals("ok", result);
+        assertEquals(1, meterRegistry.get("cloudinary.calls")
+                .tags("operation", "upload", "outcome", "success").timer().count());
+    }
+
+    @Test
+    void execute_Timeout_ThrowsServiceUnavailable() {
+        // Act & Assert
+        assertThrows(ServiceUnavailableException.class, () -> callGuard.execute("upload", () -> {
+            throw new SocketTimeoutException("Read timed out");
+        }));
+        assertEquals(1, meterRegistry.get("cloudinary.calls")
+                .tags("operation", "upload", "outcome", "unavailable").timer().count());
+    }
+
+    @Test
+    void execute_OtherIOException_IsRethrownAndDoesNotOpenCircuit() {
+        // Act
+        for (int i = 0; i < 3; i++) {
+            IOException thrown = assertThrows(IOException.class, () -> callGuard.execute("upload", () -> {
+                throw new IOException("Invalid image file");
+            }));
+            assertEquals("Invalid image file", thrown.getMessage());
+        }
+
+        // Assert
+        assertEquals(CircuitBreaker.State.CLOSED, callGuard.getCircuitState());
+    }
+
+    @Test
+    void execute_ServerErrorResponses_OpenCircuit() {
+        // Act - uploader calls with return_error=true answer errors as a map
+        for (int i = 0; i < 2; i++) {
+            assertThrows(ServiceUnavailableException.class, () -> callGuard.execute("upload",
+                    () -> Map.of("error", Map.of("message", "Bad gateway", "http_code", 502))));
+        }
+
+        // Assert
+        assertEquals(CircuitBreaker.State.OPEN, callGuard.getCircuitState());
+    }
+
+    @Test
+    void execute_AdminApiRateLimited_ThrowsServiceUnavailable() {
+        // Act & Assert - the Admin API throws; CloudinaryService wraps it in an IOException
+        assertThrows(ServiceUnavailableException.class, () -> callGuard.execute("delete_resources", () -> {
+            throw new IOException("Rate limit exceeded", new RateLimited("Rate limit exceeded"));
+        }));
+    }
+
+    @Test
+    void execute_ClientErrorResponse_IsRethrownWithStatus() {
+        // Act
+        CloudinaryCallGuard.ErrorResponse thrown = assertThrows(CloudinaryCallGuard.ErrorResponse.class,
+                () -> callGuard.execute("upload",
+                        () -> Map.of("error", Map.of("message", "Invalid image file", "http_code", 400))));
+
+        // Assert
+        assertEquals(400, thrown.getStatus());
+        assertTrue(thrown.getMessage().contains("Invalid image file"));
+        assertEquals(CircuitBreaker.State.CLOSED, callGuard.getCircuitState());
+    }
+
+    @Test
+    void execute_UnclassifiedErrors_DoNotDiluteFailures() {
+        // Arrange - counted as successes these would keep the failure rate below half
+        for (int i = 0; i < 3; i++) {
+            assertThrows(IllegalStateException.class, () -> callGuard.execute("upload", () -> {
+                throw new IllegalStateException("unexpected");
+            }));
+        }
+
+        // Act
+        for (int i = 0; i < 2; i++) {
+            assertThrows(ServiceUnavailableException.class, () -> callGuard.execute("upload", () -> {
+                throw new SocketTimeoutException("Read timed out");
+            }));
+        }
+
+        // Assert
+        assertEquals(CircuitBreaker.State.OPEN, callGuard.getCircuitState());
+    }
+
+    @Test
+    void execute_AdminApiNotFound_IsRethrownAndDoesNotOpenCircuit() {
+        // Act
+        for (int i = 0; i < 3; i++) {
+            assertThrows(IOException.class, () -> callGuard.execute("resource", () -> {
+                throw new IOException("Resource not found", new NotFound("Resource not found"));
+            }));
+        }
+
+        // Assert
+        assertEquals(CircuitBreaker.State.CLOSED, callGuard.getCircuitState());
+    }
+
+    @Test
+    void execute_RepeatedConnectFailures_OpenCircuitAndFailFast() {
+        // Arrange
+        for (int i = 0; i < 2; i++) {
+            assertThrows(ServiceUnavailableException.class, () -> callGuard.execute("destroy", () -> {
+                throw new ConnectException("Connection refused");
+            }));
+        }
+
+        // Act
+        ServiceUnavailableException thrown = assertThrows(ServiceUnavailableException.class,
+                () -> callGuard.execute("destroy", () -> fail("must not be called")));
+
+        // Assert
+        assertEquals(CircuitBreaker.State.OPEN, callGuard.getCircuitState());
+        assertTrue(thrown.getRetryAfterSeconds() > 0);
+        assertEquals(1.0, meterRegistry.get("cloudinary.rejected")
+                .tags("operation", "destroy", "reason", "circuit_open").counter().count());
+    }
+
+    @Test
+    void execute_BulkheadFull_RejectsAfterMaxWait() throws Exception {
+        // Arrange - hold the only slot
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            executor.submit(() -> callGuard.execute("upload", () -> {
+                started.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return null;
+            }));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+
+            // Act & Assert
+            assertThrows(ServiceUnavailableException.class, () -> callGuard.execute("upload", () -> "second"));
+            assertEquals(1.0, meterRegistry.get("cloudinary.rejected")
+                    .tags("operation", "upload", "reason", "bulkhead_full").counter().count());
+            assertEquals(1.0, meterRegistry.get("cloudinary.bulkhead.in_flight").gauge().value());
+        } finally {
+            release.countDown();
+            executor.shutdown();
+        }
+    }
+}
@@ -1,19 +1,42 @@
 package com.kuspidsamples.service;
 
+import com.cloudinary.Api;
 import com.cloudinary.Cloudinary;
 import com.cloudinary.Uploader;
+import com.cloudinary.api.ApiResponse;
+import com.cloudinary.http44.ApiUtils;
+import com.cloudinary.utils.ObjectUtils;
+import com.kuspidsamples.entity.PendingAssetDeletion;
+import com.kuspidsamples.entity.StoredAsset;
 import com.kuspidsamples.exception.BadRequestException;
+import com.kuspidsamples.exception.ServiceUnavailableException;
+import com.kuspidsamples.repository.PendingAssetDeletionRepository;
+import com.kuspidsamples.repository.StoredAssetRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.HttpPost;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.net.SocketTimeoutException;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -28,16 +51,32 @@ class CloudinaryServiceTest {
     @Mock
     private Uploader uploader;
 
+    @Mock
+    private Api api;
+
+    @Mock
+    private StoredAssetRepository storedAssetRepository;
+
+    @Mock
+    private PendingAssetDeletionRepository pendingAssetDeletionRepository;
+
+    @Mock
+    private ImageProcessingService imageProcessingService;
+
     @Mock
     private MultipartFile multipartFile;
 
-    @InjectMocks
     private CloudinaryService cloudinaryService;
 
     private Map<String, Object> mockUploadResult;
 
     @BeforeEach
     void setUp() {
+        CloudinaryCallGuard callGuard = new CloudinaryCallGuard(new SimpleMeterRegistry(),
+                Duration.ofSeconds(60), Duration.ofSeconds(15), Duration.ofSeconds(5), 4, Duration.ofMillis(100),
+                20, 10, 0.5, Duration.ofSeconds(30), 3);
+        cloudinaryService = new CloudinaryService(cloudinary, storedAssetRepository,
+                pendingAssetDeletionRepository, imageProcessingService, callGuard);
         mockUploadResult = new HashMap<>();
         mockUploadResult.put("secure_url", "https://cloudinary.com/uploaded-image.jpg");
         mockUploadResult.put("public_id", "folder/test-uuid");
@@ -48,10 +87,8 @@ class CloudinaryServiceTest {
     @Test
     void uploadFile_WithValidFile_ReturnsUploadResult() throws IOException {
         // Arrange
-        byte[] fileBytes = "test file content".getBytes();
-        when(multipartFile.getBytes()).thenReturn(fileBytes);
         when(cloudinary.uploader()).thenReturn(uploader);
-        when(uploader.upload(any(byte[].class), anyMap())).thenReturn(mockUploadResult);
+        when(uploader.upload(any(File.class), anyMap())).thenReturn(mockUploadResult);
 
         // Act
         Map<String, Object> result = cloudinaryService.uploadFile(multipartFile, "test-folder");
@@ -61,13 +98,14 @@ class CloudinaryServiceTest {
         assertEquals("https://cloudinary.com/uploaded-image.jpg", result.get("url"));
         assertEquals("folder/test-uuid", result.get("publicId"));
         verify(cloudinary).uploader();
-        verify(uploader).upload(eq(fileBytes), anyMap());
+        verify(multipartFile).transferTo(any(File.class));
+        verify(uploader).upload(any(File.class), anyMap());
     }
 
     @Test
     void uploadFile_WithIOException_ThrowsBadRequestException() throws IOException {
         // Arrange
-        when(multipartFile.getBytes()).thenThrow(new IOException("File read error"));
+        doThrow(new IOException("File read error")).when(multipartFile).transferTo(any(File.class));
 
         // Act & Assert
         BadRequestException exception = assertThrows(
@@ -81,10 +119,8 @@ class CloudinaryServiceTest {
     @Test
     void uploadFile_WithCloudinaryError_ThrowsBadRequestException() throws IOException {
         // Arrange
-        byte[] fileBytes = "test file content".getBytes();
-        when(multipartFile.getBytes()).thenReturn(fileBytes);
         when(cloudinary.uploader()).thenReturn(uploader);
-        when(uploader.upload(any(byte[].class), anyMap()))
+        when(uploader.upload(any(File.class), anyMap()))
                 .thenThrow(new IOException("Cloudinary upload failed"));
 
         // Act & Assert
@@ -99,18 +135,16 @@ class CloudinaryServiceTest {
     @Test
     void uploadFile_WithDifferentFolder_UsesCorrectFolder() throws IOException {
         // Arrange
-        byte[] fileBytes = "test file content".getBytes();
         String customFolder = "custom-folder";
-        when(multipartFile.getBytes()).thenReturn(fileBytes);
         when(cloudinary.uploader()).thenReturn(uploader);
-        when(uploader.upload(any(byte[].class), anyMap())).thenReturn(mockUploadResult);
+        when(uploader.upload(any(File.class), anyMap())).thenReturn(mockUploadResult);
 
         // Act
         Map<String, Object> result = cloudinaryService.uploadFile(multipartFile, customFolder);
 
         // Assert
         assertNotNull(result);
-        verify(uploader).upload(any(byte[].class), argThat(map ->
+        verify(uploader).upload(any(File.class), argThat(map ->
                 map.containsKey("folder") && map.get("folder").equals(customFolder)
         ));
     }
@@ -118,10 +152,8 @@ class CloudinaryServiceTest {
     @Test
     void uploadFile_GeneratesUniquePublicId() throws IOException {
         // Arrange
-        byte[] fileBytes = "test file content".getBytes();
-        when(multipartFile.getBytes()).thenReturn(fileBytes);
         when(cloudinary.uploader()).thenReturn(uploader);
-        when(uploader.upload(any(byte[].class), anyMap())).thenReturn(mockUploadResult);
+        when(uploader.upload(any(File.class), anyMap())).thenReturn(mockUploadResult);
 
         // Act
         Map<String, Object> result1 = cloudinaryService.uploadFile(multipartFile, "test-folder");
@@ -131,25 +163,23 @@ class CloudinaryServiceTest {
         assertNotNull(result1);
         assertNotNull(result2);
         // Both uploads should have been called with public_id parameter
-        verify(uploader, times(2)).upload(any(byte[].class), argThat(map ->
+        verify(uploader, times(2)).upload(any(File.class), argThat(map ->
                 map.containsKey("public_id")
         ));
     }
 
     @Test
-    void uploadFile_SetsResourceTypeToAuto() throws IOException {
+    void uploadFile_SetsResourceTypeToImage() throws IOException {
         // Arrange
-        byte[] fileBytes = "test file content".getBytes();
-        when(multipartFile.getBytes()).thenReturn(fileBytes);
         when(cloudinary.uploader()).thenReturn(uploader);
-        when(uploader.upload(any(byte[].class), anyMap())).thenReturn(mockUploadResult);
+        when(uploader.upload(any(File.class), anyMap())).thenReturn(mockUploadResult);
 
         // Act
         cloudinaryService.uploadFile(multipartFile, "test-folder");
 
         // Assert
-        verify(uploader).upload(any(byte[].class), argThat(map ->
-                map.containsKey("resource_type") && map.get("resource_type").equals("auto")
+        verify(uploader).upload(any(File.class), argThat(map ->
+                map.containsKey("resource_type") && map.get("resource_type").equals("image")
         ));
     }
 
@@ -206,14 +236,12 @@ class CloudinaryServiceTest {
     @Test
     void uploadFile_ReturnsCorrectUrlAndPublicId() throws IOException {
         // Arrange
-        byte[] fileBytes = "test file content".getBytes();
         Map<String, Object> uploadResult = new HashMap<>();
         uploadResult.put("secure_url", "https://res.cloudinary.com/demo/image/upload/sample.jpg");
         uploadResult.put("public_id", "samples/sample-123-456");
 
-        when(multipartFile.getBytes()).thenReturn(fileBytes);
         when(cloudinary.uploader()).thenReturn(uploader);
-        when(uploader.upload(any(byte[].class), anyMap())).thenReturn(uploadResult);
+        when(uploader.upload(any(File.class), anyMap())).thenReturn(uploadResult);
 
         // Act
         Map<String, Object> result = cloudinaryService.uploadFile(multipartFile, "samples");
@@ -225,19 +253,54 @@ class CloudinaryServiceTest {
     }
 
     @Test
-    void uploadFile_WithLargeFile_UploadsSuccessfully() throws IOException {
+    void uploadFile_WithLargeFile_StreamsFromDiskWithoutReadingBytes() throws IOException {
         // Arrange
-        byte[] largeFileBytes = new byte[1024 * 1024 * 5]; // 5 MB
-        when(multipartFile.getBytes()).thenReturn(largeFileBytes);
         when(cloudinary.uploader()).thenReturn(uploader);
-        when(uploader.upload(any(byte[].class), anyMap())).thenReturn(mockUploadResult);
+        when(uploader.upload(any(File.class), anyMap())).thenReturn(mockUploadResult);
 
         // Act
         Map<String, Object> result = cloudinaryService.uploadFile(multipartFile, "test-folder");
 
         // Assert
         assertNotNull(result);
-        verify(uploader).upload(eq(largeFileBytes), anyMap());
+        verify(multipartFile, never()).getBytes();
+        verify(multipartFile, never()).getInputStream();
+    }
+
+    @Test
+    void uploadFile_DeletesSpoolFileAfterUpload() throws IOException {
+        // Arrange
+        File[] spooled = new File[1];
+        when(cloudinary.uploader()).thenReturn(uploader);
+        when(uploader.upload(any(File.class), anyMap())).thenAnswer(invocation -> {
+            spooled[0] = invocation.getArgument(0);
+            assertTrue(spooled[0].exists());
+            return mockUploadResult;
+        });
+
+        // Act
+        cloudinaryService.uploadFile(multipartFile, "test-folder");
+
+        // Assert
+        assertNotNull(spooled[0]);
+        assertFalse(spooled[0].exists());
+    }
+
+    @Test
+    void uploadFile_WhenUploadFails_StillDeletesSpoolFile() throws IOException {
+        // Arrange
+        File[] spooled = new File[1];
+        when(cloudinary.uploader()).thenReturn(uploader);
+        when(uploader.upload(any(File.class), anyMap())).thenAnswer(invocation -> {
+            spooled[0] = invocation.getArgument(0);
+            throw new IOException("Cloudinary upload failed");
+        });
+
+        // Act
+        assertThrows(BadRequestException.class, () -> cloudinaryService.uploadFile(multipartFile, "test-folder"));
+
+        // Assert
+        assertFalse(spooled[0].exists());
     }
 
     @Test
@@ -257,4 +320,307 @@ class CloudinaryServiceTest {
         verify(uploader).destroy(eq("file2"), anyMap());
         verify(uploader).destroy(eq("file3"), anyMap());
     }
-}
\ No newline at end of file
+
+    @Test
+    void deleteFiles_ReturnsDeletedAndNotFoundIds() throws Exception {
+        // Arrange
+        ApiResponse response = mock(ApiResponse.class);
+        when(response.get("deleted")).thenReturn(Map.of("a", "deleted", "b", "not_found", "c", "error"));
+        ApiResponse missing = mock(ApiResponse.class);
+        when(missing.get("deleted")).thenReturn(Map.of("b", "not_found"));
+        when(cloudinary.api()).thenReturn(api);
+        when(api.deleteResources(eq(List.of("a", "b", "c")), anyMap())).thenReturn(response);
+        when(api.deleteResources(eq(List.of("b")), anyMap())).thenReturn(missing);
+
+        // Act
+        Set<String> gone = cloudinaryService.deleteFiles(List.of("a", "b", "c"));
+
+        // Assert - "b" is gone only after no resource type has it
+        assertEquals(Set.of("a", "b"), gone);
+        verify(api).deleteResources(eq(List.of("b")), argThat(map -> "video".equals(map.get("resource_type"))));
+        verify(api).deleteResources(eq(List.of("b")), argThat(map -> "raw".equals(map.get("resource_type"))));
+    }
+
+    @Test
+    void deleteFiles_LegacyNonImageAsset_IsDeletedByItsOwnType() throws Exception {
+        // Arrange - uploaded with resource_type=auto as a video
+        ApiResponse asImage = mock(ApiResponse.class);
+        when(asImage.get("deleted")).thenReturn(Map.of("clip", "not_found"));
+        ApiResponse asVideo = mock(ApiResponse.class);
+        when(asVideo.get("deleted")).thenReturn(Map.of("clip", "deleted"));
+        when(cloudinary.api()).thenReturn(api);
+        when(api.deleteResources(eq(List.of("clip")), argThat(map -> map != null && "image".equals(map.get("resource_type")))))
+                .thenReturn(asImage);
+        when(api.deleteResources(eq(List.of("clip")), argThat(map -> map != null && "video".equals(map.get("resource_type")))))
+                .thenReturn(asVideo);
+
+        // Act
+        Set<String> gone = cloudinaryService.deleteFiles(List.of("clip"));
+
+        // Assert
+        assertEquals(Set.of("clip"), gone);
+        verify(api, never()).deleteResources(anyList(), argThat(map -> "raw".equals(map.get("resource_type"))));
+    }
+
+    @Test
+    void deleteFile_NotFoundAsImage_TriesLegacyResourceTypes() throws Exception {
+        // Arrange
+        when(cloudinary.uploader()).thenReturn(uploader);
+        when(uploader.destroy(eq("doc"), argThat(map -> map != null && !"raw".equals(map.get("resource_type")))))
+                .thenReturn(Map.of("result", "not found"));
+        when(uploader.destroy(eq("doc"), argThat(map -> map != null && "raw".equals(map.get("resource_type")))))
+                .thenReturn(Map.of("result", "ok"));
+
+        // Act
+        cloudinaryService.deleteFile("doc");
+
+        // Assert
+        verify(uploader, times(3)).destroy(eq("doc"), anyMap());
+    }
+
+    @Test
+    void signUpload_CoversAllowedFormats() {
+        // Arrange
+        Cloudinary account = new Cloudinary(ObjectUtils.asMap(
+                "cloud_name", "demo", "api_key", "key", "api_secret", "secret"));
+        CloudinaryService service = new CloudinaryService(account, storedAssetRepository,
+                pendingAssetDeletionRepository, imageProcessingService, mock(CloudinaryCallGuard.class));
+
+        // Act
+        String signature = service.signUpload("kuspid-samples/abc", 1700000000L);
+
+        // Assert - a client that drops or widens allowed_formats no longer matches
+        assertEquals(account.apiSignRequest(ObjectUtils.asMap("public_id", "kuspid-samples/abc",
+                "timestamp", 1700000000L, "allowed_formats", "jpg,png,webp"), "secret"), signature);
+        assertNotEquals(account.apiSignRequest(ObjectUtils.asMap("public_id", "kuspid-samples/abc",
+                "timestamp", 1700000000L), "secret"), signature);
+    }
+
+    @Test
+    void uploadedBytes_ReadsSizeFromAdminApi() throws Exception {
+        // Arrange
+        ApiResponse resource = mock(ApiResponse.class);
+        when(resource.get("bytes")).thenReturn(2048);
+        when(cloudinary.api()).thenReturn(api);
+        when(api.resource(eq("kuspid-samples/abc"), anyMap())).thenReturn(resource);
+
+        // Act & Assert
+        assertEquals(2048L, cloudinaryService.uploadedBytes("kuspid-samples/abc"));
+    }
+
+    @Test
+    void deleteFiles_WhenApiCallFails_ThrowsIOException() throws Exception {
+        // Arrange
+        when(cloudinary.api()).thenReturn(api);
+        when(api.deleteResources(anyList(), anyMap())).thenThrow(new RuntimeException("rate limited"));
+
+        // Act & Assert
+        assertThrows(IOException.class, () -> cloudinaryService.deleteFiles(List.of("a")));
+    }
+
+    @Test
+    void uploadFile_WithKnownContent_ReusesExistingAssetWithoutUploading() throws IOException {
+        // Arrange
+        StoredAsset existing = new StoredAsset("hash", "samples/existing", "https://cloudinary.com/existing.jpg",
+                Instant.now());
+        existing.setId(5L);
+        when(storedAssetRepository.findByHash(anyString())).thenReturn(Optional.of(existing));
+        when(storedAssetRepository.touch(eq(5L), any(Instant.class))).thenReturn(1);
+
+        // Act
+        Map<String, Object> result = cloudinaryService.uploadFile(multipartFile, "samples");
+
+        // Assert
+        assertEquals("samples/existing", result.get("publicId"));
+        assertEquals("https://cloudinary.com/existing.jpg", result.get("url"));
+        verify(cloudinary, never()).uploader();
+        verify(storedAssetRepository, never()).saveAndFlush(any());
+    }
+
+    @Test
+    void uploadFile_WhenKnownAssetReclaimedMeanwhile_UploadsAgain() throws IOException {
+        // Arrange - the sweep deleted the row between our lookup and our touch
+        StoredAsset reclaimed = new StoredAsset("hash", "samples/reclaimed", "https://cloudinary.com/reclaimed.jpg",
+                Instant.now());
+        reclaimed.setId(5L);
+        when(storedAssetRepository.findByHash(anyString())).thenReturn(Optional.of(reclaimed));
+        when(storedAssetRepository.touch(eq(5L), any(Instant.class))).thenReturn(0);
+        when(cloudinary.uploader()).thenReturn(uploader);
+        when(uploader.upload(any(File.class), anyMap())).thenReturn(mockUploadResult);
+
+        // Act
+        Map<String, Object> result = cloudinaryService.uploadFile(multipartFile, "samples");
+
+        // Assert
+        assertEquals("folder/test-uuid", result.get("publicId"));
+        verify(storedAssetRepository).saveAndFlush(any(StoredAsset.class));
+    }
+
+    @Test
+    void uploadFile_WithNewContent_RecordsAssetUnderContentHash() throws IOException {
+        // Arrange
+        Path file = Files.createTempFile("cloudinary-test-", ".jpg");
+        Files.writeString(file, "abc");
+        when(cloudinary.uploader()).thenReturn(uploader);
+        when(uploader.upload(any(File.class), anyMap())).thenReturn(mockUploadResult);
+
+        try {
+            // Act
+            cloudinaryService.uploadFile(file.toFile(), "samples");
+        } finally {
+            Files.delete(file);
+        }
+
+        // Assert
+        verify(storedAssetRepository).findByHash("ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad");
+        verify(storedAssetRepository).saveAndFlush(argThat(asset ->
+                asset.getHash().equals("ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad")
+                        && asset.getPublicId().equals("folder/test-uuid")
+                        && asset.getRefCount() == 0));
+    }
+
+    @Test
+    void uploadFile_WhenSameContentRegisteredConcurrently_KeepsFirstAndQueuesOwnCopy() throws IOException {
+        // Arrange
+        StoredAsset winner = new StoredAsset("hash", "samples/winner", "https://cloudinary.com/winner.jpg",
+                Instant.now());
+        when(storedAssetRepository.findByHash(anyString()))
+                .thenReturn(Optional.empty())
+                .thenReturn(Optional.of(winner));
+        when(cloudinary.uploader()).thenReturn(uploader);
+        when(uploader.upload(any(File.class), anyMap())).thenReturn(mockUploadResult);
+        when(storedAssetRepository.saveAndFlush(any(StoredAsset.class)))
+                .thenThrow(new DataIntegrityViolationException("duplicate hash"));
+
+        // Act
+        Map<String, Object> result = cloudinaryService.uploadFile(multipartFile, "samples");
+
+        // Assert
+        assertEquals("samples/winner", result.get("publicId"));
+        verify(pendingAssetDeletionRepository).save(argThat((PendingAssetDeletion deletion) ->
+                deletion.getPublicId().equals("folder/test-uuid")));
+    }
+
+    @Test
+    void sha256_HashesFileContent() throws IOException {
+        // Arrange
+        Path file = Files.createTempFile("cloudinary-test-", ".bin");
+        Files.write(file, "hello".getBytes(StandardCharsets.UTF_8));
+
+        try {
+            // Act
+            String hash = CloudinaryService.sha256(file.toFile());
+
+            // Assert
+            assertEquals("2cf24dba5fb0a30e26e83b2ac5b9e29e1b161e5c1fa7425e73043362938b9824", hash);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    void uploadFile_WhenImageProcessed_UploadsSmallerCopyAndDeletesIt() throws IOException {
+        // Arrange
+        Path processed = Files.createTempFile("processed-", ".jpg");
+        when(imageProcessingService.process(any(File.class))).thenReturn(processed);
+        when(cloudinary.uploader()).thenReturn(uploader);
+        when(uploader.upload(any(File.class), anyMap())).thenReturn(mockUploadResult);
+
+        // Act
+        cloudinaryService.uploadFile(multipartFile, "samples");
+
+        // Assert
+        verify(uploader).upload(eq(processed.toFile()), anyMap());
+        assertFalse(Files.exists(processed));
+    }
+
+    @Test
+    void uploadFile_WithKnownContent_SkipsImageProcessing() throws IOException {
+        // Arrange
+        StoredAsset existing = new StoredAsset("hash", "samples/existing", "https://cloudinary.com/existing.jpg",
+                Instant.now());
+        existing.setId(5L);
+        when(storedAssetRepository.findByHash(anyString())).thenReturn(Optional.of(existing));
+        when(storedAssetRepository.touch(eq(5L), any(Instant.class))).thenReturn(1);
+
+        // Act
+        cloudinaryService.uploadFile(multipartFile, "samples");
+
+        // Assert
+        verify(imageProcessingService, never()).process(any());
+    }
+
+    @Test
+    void uploadFile_WhenCloudinaryTimesOut_ThrowsServiceUnavailable() throws IOException {
+        // Arrange
+        when(cloudinary.uploader()).thenReturn(uploader);
+        when(uploader.upload(any(File.class), anyMap())).thenThrow(new SocketTimeoutException("Read timed out"));
+
+        // Act & Assert
+        assertThrows(ServiceUnavailableException.class, () -> cloudinaryService.uploadFile(multipartFile, "samples"));
+    }
+
+    @Test
+    void uploadFile_PassesUploadTimeoutAndReusesUploader() throws IOException {
+        // Arrange
+        when(cloudinary.uploader()).thenReturn(uploader);
+        when(uploader.upload(any(File.class), anyMap())).thenReturn(mockUploadResult);
+
+        // Act
+        cloudinaryService.uploadFile(multipartFile, "samples");
+        cloudinaryService.uploadFile(multipartFile, "samples");
+
+        // Assert
+        verify(cloudinary, times(1)).uploader();
+        verify(uploader, times(2)).upload(any(File.class), argThat(map -> Integer.valueOf(60_000).equals(map.get("timeout"))));
+    }
+
+    @Test
+    void uploadFile_WhenCloudinaryAnswersWithError_ThrowsBadRequest() throws IOException {
+        // Arrange - return_error makes the SDK hand back the error with its status
+        when(cloudinary.uploader()).thenReturn(uploader);
+        when(uploader.upload(any(File.class), argThat(map -> Boolean.TRUE.equals(map.get("return_error")))))
+                .thenReturn(Map.of("error", Map.of("message", "Invalid image file", "http_code", 400)));
+
+        // Act & Assert
+        BadRequestException thrown = assertThrows(BadRequestException.class,
+                () -> cloudinaryService.uploadFile(multipartFile, "samples"));
+        assertTrue(thrown.getMessage().contains("Invalid image file"));
+        verify(storedAssetRepository, never()).saveAndFlush(any());
+    }
+
+    @Test
+    void uploadFile_TimeoutsReachHttpRequestInMilliseconds() throws IOException {
+        // Arrange
+        when(cloudinary.uploader()).thenReturn(uploader);
+        when(uploader.upload(any(File.class), anyMap())).thenReturn(mockUploadResult);
+        cloudinaryService.uploadFile(multipartFile, "samples");
+        ArgumentCaptor<Map> options = ArgumentCaptor.forClass(Map.class);
+        verify(uploader).upload(any(File.class), options.capture());
+
+        // Act - what the SDK's HTTP strategy does with the options
+        HttpPost post = new HttpPost("https://api.cloudinary.com/v1_1/demo/image/upload");
+        ApiUtils.setTimeouts(post, options.getValue());
+
+        // Assert
+        RequestConfig config = post.getConfig();
+        assertEquals(60_000, config.getSocketTimeout());
+        assertEquals(5_000, config.getConnectTimeout());
+        assertEquals(100, config.getConnectionRequestTimeout());
+    }
+
+    @Test
+    void deleteFile_PassesApiTimeoutsInMilliseconds() throws IOException {
+        // Arrange
+        when(cloudinary.uploader()).thenReturn(uploader);
+        when(uploader.destroy(eq("a"), anyMap())).thenReturn(Map.of("result", "ok"));
+
+        // Act
+        cloudinaryService.deleteFile("a");
+
+        // Assert
+        verify(uploader).destroy(eq("a"), argThat(map -> Integer.valueOf(15_000).equals(map.get("timeout"))
+                && Integer.valueOf(5_000).equals(map.get("connect_timeout"))
+                && "image".equals(map.get("resource_type"))));
+    }
+}
@@ -0,0 +1,191 @@
+package com.kuspidsamples.service;
+
+import com.kuspidsamples.dto.request.DirectUploadConfirmRequest;
+import com.kuspidsamples.dto.request.DirectUploadRequest;
+import com.kuspidsamples.dto.response.DirectUploadResponse;
+import com.kuspidsamples.dto.response.SampleResponse;
+import com.kuspidsamples.dto.response.UserResponse;
+import com.kuspidsamples.entity.User;
+import com.kuspidsamples.exception.BadRequestException;
+import com.kuspidsamples.exception.UnauthorizedException;
+import com.kuspidsamples.util.Constants;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DirectUploadServiceTest {
+
+    @Mock
+    private CloudinaryService cloudinaryService;
+
+    @Mock
+    private SampleService sampleService;
+
+    @Mock
+    private UserService userService;
+
+    @Mock
+    private AssetDeletionService assetDeletionService;
+
+    private DirectUploadService directUploadService;
+
+    private User testUser;
+
+    @BeforeEach
+    void setUp() {
+        directUploadService = new DirectUploadService(cloudinaryService, sampleService, userService,
+                assetDeletionService, Duration.ofMinutes(15), DataSize.ofMegabytes(10));
+
+        testUser = new User();
+        testUser.setId(1L);
+        testUser.setUsername("testuser");
+        lenient().when(userService.getCurrentUser()).thenReturn(testUser);
+        lenient().when(cloudinaryService.signUpload(anyString(), anyLong())).thenReturn("signed");
+        lenient().when(cloudinaryService.directUploadUrl())
+                .thenReturn("https://api.cloudinary.com/v1_1/demo/image/upload");
+    }
+
+    @Test
+    void issue_ForProfile_SignsPublicIdUnderProfilesFolder() {
+        // Act
+        DirectUploadResponse upload = directUploadService.issue(new DirectUploadRequest("profile", null));
+
+        // Assert
+        assertTrue(upload.getPublicId().startsWith(Constants.CLOUDINARY_FOLDER + "/profiles/"));
+        assertEquals("signed", upload.getSignature());
+        assertEquals(CloudinaryService.DIRECT_UPLOAD_FORMATS, upload.getAllowedFormats());
+        verify(cloudinaryService).signUpload(upload.getPublicId(), upload.getTimestamp());
+        verify(assetDeletionService).enqueue(eq(upload.getPublicId()), any(Duration.class));
+    }
+
+    @Test
+    void issue_ForSampleNotOwned_ThrowsBeforeSigning() {
+        // Arrange
+        doThrow(new UnauthorizedException(Constants.UNAUTHORIZED_ACCESS)).when(sampleService).checkCanUpdate(5L);
+
+        // Act & Assert
+        assertThrows(UnauthorizedException.class,
+                () -> directUploadService.issue(new DirectUploadRequest("SAMPLE", 5L)));
+        verify(cloudinaryService, never()).signUpload(anyString(), anyLong());
+    }
+
+    @Test
+    void issue_ForSampleWithoutId_ThrowsBadRequest() {
+        assertThrows(BadRequestException.class,
+                () -> directUploadService.issue(new DirectUploadRequest("SAMPLE", null)));
+    }
+
+    @Test
+    void confirm_WithValidSignature_AttachesToGrantedSample() {
+        // Arrange
+        DirectUploadResponse upload = directUploadService.issue(new DirectUploadRequest("SAMPLE", 5L));
+        String publicId = upload.getPublicId();
+        when(cloudinaryService.verifyUploadSignature(publicId, "1700000000", "response-sig")).thenReturn(true);
+        when(cloudinaryService.deliveryUrl(publicId, "1700000000")).thenReturn("https://cdn/" + publicId);
+        SampleResponse sample = new SampleResponse();
+        when(sampleService.attachImage(5L, "testuser", "https://cdn/" + publicId, publicId)).thenReturn(sample);
+
+        // Act
+        Object result = directUploadService.confirm(
+                new DirectUploadConfirmRequest(publicId, "1700000000", "response-sig"));
+
+        // Assert
+        assertSame(sample, result);
+    }
+
+    @Test
+    void confirm_ForProfile_AttachesProfileImage() {
+        // Arrange
+        String publicId = directUploadService.issue(new DirectUploadRequest("PROFILE", null)).getPublicId();
+        when(cloudinaryService.verifyUploadSignature(anyString(), anyString(), anyString())).thenReturn(true);
+        when(cloudinaryService.deliveryUrl(publicId, "1")).thenReturn("https://cdn/" + publicId);
+        UserResponse user = new UserResponse();
+        when(userService.attachProfileImage("testuser", "https://cdn/" + publicId, publicId)).thenReturn(user);
+
+        // Act
+        Object result = directUploadService.confirm(new DirectUploadConfirmRequest(publicId, "1", "sig"));
+
+        // Assert
+        assertSame(user, result);
+    }
+
+    @Test
+    void confirm_WithInvalidSignature_ThrowsBadRequest() {
+        // Arrange
+        String publicId = directUploadService.issue(new DirectUploadRequest("PROFILE", null)).getPublicId();
+        when(cloudinaryService.verifyUploadSignature(anyString(), anyString(), anyString())).thenReturn(false);
+
+        // Act & Assert
+        assertThrows(BadRequestException.class,
+                () -> directUploadService.confirm(new DirectUploadConfirmRequest(publicId, "1", "forged")));
+        verify(userService, never()).attachProfileImage(any(), any(), any());
+    }
+
+    @Test
+    void confirm_Twice_AttachesOnlyOnce() {
+        // Arrange
+        String publicId = directUploadService.issue(new DirectUploadRequest("PROFILE", null)).getPublicId();
+        when(cloudinaryService.verifyUploadSignature(anyString(), anyString(), anyString())).thenReturn(true);
+        DirectUploadConfirmRequest request = new DirectUploadConfirmRequest(publicId, "1", "sig");
+        directUploadService.confirm(request);
+
+        // Act & Assert
+        assertThrows(BadRequestException.class, () -> directUploadService.confirm(request));
+        verify(userService, times(1)).attachProfileImage(eq("testuser"), any(), eq(publicId));
+    }
+
+    @Test
+    void confirm_OverSizeLimit_ThrowsAndDoesNotAttach() throws IOException {
+        // Arrange
+        String publicId = directUploadService.issue(new DirectUploadRequest("PROFILE", null)).getPublicId();
+        when(cloudinaryService.verifyUploadSignature(anyString(), anyString(), anyString())).thenReturn(true);
+        when(cloudinaryService.uploadedBytes(publicId)).thenReturn(DataSize.ofMegabytes(10).toBytes() + 1);
+
+        // Act & Assert - the deletion queued on issue stays, so the image is discarded
+        assertThrows(BadRequestException.class,
+                () -> directUploadService.confirm(new DirectUploadConfirmRequest(publicId, "1", "sig")));
+        verify(userService, never()).attachProfileImage(any(), any(), any());
+    }
+
+    @Test
+    void confirm_WhenSizeCannotBeChecked_KeepsGrantForRetry() throws IOException {
+        // Arrange
+        String publicId = directUploadService.issue(new DirectUploadRequest("PROFILE", null)).getPublicId();
+        when(cloudinaryService.verifyUploadSignature(anyString(), anyString(), anyString())).thenReturn(true);
+        when(cloudinaryService.uploadedBytes(publicId)).thenThrow(new IOException("timeout")).thenReturn(1024L);
+        DirectUploadConfirmRequest request = new DirectUploadConfirmRequest(publicId, "1", "sig");
+
+        // Act
+        assertThrows(BadRequestException.class, () -> directUploadService.confirm(request));
+        directUploadService.confirm(request);
+
+        // Assert
+        verify(userService).attachProfileImage(eq("testuser"), any(), eq(publicId));
+    }
+
+    @Test
+    void confirm_ByAnotherUser_ThrowsBadRequest() {
+        // Arrange
+        String publicId = directUploadService.issue(new DirectUploadRequest("PROFILE", null)).getPublicId();
+        User otherUser = new User();
+        otherUser.setUsername("otheruser");
+        when(userService.getCurrentUser()).thenReturn(otherUser);
+        when(cloudinaryService.verifyUploadSignature(anyString(), anyString(), anyString())).thenReturn(true);
+
+        // Act & Assert
+        assertThrows(BadRequestException.class,
+                () -> directUploadService.confirm(new DirectUploadConfirmRequest(publicId, "1", "sig")));
+        verify(userService, never()).attachProfileImage(any(), any(), any());
+    }
+}
@@ -0,0 +1,149 @@
+package com.kuspidsamples.service;
+
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.BucketConfiguration;
+import io.github.bucket4j.EstimationProbe;
+import io.github.bucket4j.Refill;
+import io.github.bucket4j.distributed.BucketProxy;
+import io.github.bucket4j.distributed.proxy.ProxyManager;
+import io.github.bucket4j.distributed.proxy.RemoteBucketBuilder;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DistributedRateLimiterTest {
+
+    private static final Supplier<BucketConfiguration> CONFIGURATION = () -> BucketConfiguration.builder()
+            .addLimit(Bandwidth.classic(10, Refill.intervally(10, Duration.ofMinutes(1))))
+            .build();
+
+    @Mock
+    private ProxyManager<Long> proxyManager;
+
+    @Mock
+    private RemoteBucketBuilder<Long> bucketBuilder;
+
+    /** The shared bucket as seen through the store */
+    @Mock
+    private BucketProxy bucket;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        when(proxyManager.builder()).thenReturn(bucketBuilder);
+        when(bucketBuilder.build(anyLong(), any(Supplier.class))).thenReturn(bucket);
+    }
+
+    @Test
+    void tryConsume_SpendsLeaseLocallyAndRenewsWhenEmpty() {
+        // Arrange
+        when(bucket.tryConsumeAsMuchAsPossible(3)).thenReturn(3L);
+        DistributedRateLimiter limiter = limiter(3, Duration.ofMinutes(1));
+
+        // Act
+        for (int i = 0; i < 4; i++) {
+            assertTrue(limiter.tryConsume("user:testuser", 10, CONFIGURATION).allowed());
+        }
+
+        // Assert - one round trip per lease, and the spent lease had nothing to give back
+        verify(bucket, times(2)).tryConsumeAsMuchAsPossible(3);
+        assertEquals(2, meterRegistry.get("rate_limit.distributed.lease.requests").counter().count());
+        limiter.cleanUp();
+        verify(bucket, never()).addTokens(anyLong());
+    }
+
+    @Test
+    void tryConsume_WhenSharedBucketIsEmpty_CachesDenialUntilRefill() {
+        // Arrange
+        when(bucket.tryConsumeAsMuchAsPossible(3)).thenReturn(0L);
+        when(bucket.estimateAbilityToConsume(1)).thenReturn(EstimationProbe.canNotBeConsumed(0, 5_000_000_000L));
+        DistributedRateLimiter limiter = limiter(3, Duration.ofMinutes(1));
+
+        // Act
+        RateLimitResult first = limiter.tryConsume("ip:10.0.0.1", 10, CONFIGURATION);
+        RateLimitResult second = limiter.tryConsume("ip:10.0.0.1", 10, CONFIGURATION);
+
+        // Assert - the second rejection is answered without a round trip
+        assertFalse(first.allowed());
+        assertFalse(second.allowed());
+        assertEquals(5, second.retryAfterSeconds());
+        verify(bucket, times(1)).tryConsumeAsMuchAsPossible(3);
+    }
+
+    @Test
+    void tryConsume_AfterLeaseExpires_ReturnsUnspentTokensAndLeasesAgain() throws InterruptedException {
+        // Arrange
+        when(bucket.tryConsumeAsMuchAsPossible(5)).thenReturn(5L);
+        DistributedRateLimiter limiter = limiter(5, Duration.ofMillis(50));
+        assertTrue(limiter.tryConsume("user:testuser", 10, CONFIGURATION).allowed());
+        assertTrue(limiter.tryConsume("user:testuser", 10, CONFIGURATION).allowed());
+
+        AtomicReference<String> returnedOn = new AtomicReference<>();
+        doAnswer(inv -> {
+            returnedOn.set(Thread.currentThread().getName());
+            return null;
+        }).when(bucket).addTokens(anyLong());
+
+        // Act
+        Thread.sleep(100);
+        limiter.cleanUp();
+
+        // Assert - given back on the limiter's own thread, not the common pool
+        verify(bucket, timeout(1000)).addTokens(3);
+        assertEquals("rate-limit-lease-return", returnedOn.get());
+        assertTrue(limiter.tryConsume("user:testuser", 10, CONFIGURATION).allowed());
+        verify(bucket, times(2)).tryConsumeAsMuchAsPossible(5);
+    }
+
+    @Test
+    void tryConsume_WhenStoreFails_AllowsAndReturnsNothing() {
+        // Arrange
+        when(bucket.tryConsumeAsMuchAsPossible(3)).thenThrow(new IllegalStateException("store down"));
+        DistributedRateLimiter limiter = limiter(3, Duration.ofMinutes(1));
+
+        // Act
+        RateLimitResult result = limiter.tryConsume("user:testuser", 10, CONFIGURATION);
+
+        // Assert
+        assertTrue(result.allowed());
+        limiter.cleanUp();
+        verify(bucket, never()).addTokens(anyLong());
+    }
+
+    @Test
+    void tryConsume_WhenStoreFails_AllowsEveryKeyWithoutAskingAgainForLeaseTtl() {
+        // Arrange
+        when(bucket.tryConsumeAsMuchAsPossible(3)).thenThrow(new IllegalStateException("connection timeout"));
+        DistributedRateLimiter limiter = limiter(3, Duration.ofMinutes(1));
+
+        // Act
+        for (int i = 0; i < 50; i++) {
+            RateLimitResult result = limiter.tryConsume("ip:10.0.0." + (i % 5), 10, CONFIGURATION);
+
+            // Assert
+            assertTrue(result.allowed());
+            assertTrue(result.remaining() <= 10);
+        }
+        verify(bucket, times(1)).tryConsumeAsMuchAsPossible(3);
+        assertEquals(1, meterRegistry.get("rate_limit.distributed.lease.requests").counter().count());
+    }
+
+    private DistributedRateLimiter limiter(long leaseSize, Duration leaseTtl) {
+        return new DistributedRateLimiter(proxyManager, meterRegistry, leaseSize, leaseTtl, 1000);
+    }
+}
@@ -0,0 +1,80 @@
+package com.kuspidsamples.service;
+
+import com.kuspidsamples.service.HeavyHitterSketch.HeavyHitter;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HeavyHitterSketchTest {
+
+    @Test
+    void top_UnderBackgroundNoise_FindsHeavyKeys() {
+        // Arrange - 20k one-off clients plus three heavy ones
+        HeavyHitterSketch sketch = new HeavyHitterSketch(10, 4096);
+        Random random = new Random(42);
+
+        // Act
+        for (int i = 0; i < 20_000; i++) {
+            String noise = "ip:" + random.nextInt(1_000_000);
+            sketch.add(StripedRateLimiter.hash(noise), noise, 1);
+            if (i % 10 == 0) {
+                add(sketch, "user:attacker", 1);
+            }
+            if (i % 20 == 0) {
+                add(sketch, "ip:203.0.113.0", 1);
+            }
+            if (i % 50 == 0) {
+                add(sketch, "user:scraper", 1);
+            }
+        }
+
+        // Assert
+        List<HeavyHitter> top = sketch.top();
+        assertEquals("user:attacker", top.get(0).key());
+        assertEquals("ip:203.0.113.0", top.get(1).key());
+        assertEquals("user:scraper", top.get(2).key());
+        assertTrue(top.get(0).count() >= 2_000, "Count-Min never under-counts");
+        assertTrue(top.size() <= 10);
+    }
+
+    @Test
+    void add_WithWeights_RanksByTotalWeight() {
+        // Arrange
+        HeavyHitterSketch sketch = new HeavyHitterSketch(5, 1024);
+
+        // Act - few slow requests beat many fast ones
+        for (int i = 0; i < 100; i++) {
+            add(sketch, "user:fast", 10);
+        }
+        for (int i = 0; i < 5; i++) {
+            add(sketch, "user:slow", 5_000);
+        }
+
+        // Assert
+        assertEquals("user:slow", sketch.top().get(0).key());
+        assertEquals(25_000, sketch.top().get(0).count());
+    }
+
+    @Test
+    void decay_HalvesCountsAndDropsEmptyEntries() {
+        // Arrange
+        HeavyHitterSketch sketch = new HeavyHitterSketch(5, 1024);
+        add(sketch, "user:a", 8);
+        add(sketch, "user:b", 1);
+
+        // Act
+        sketch.decay();
+
+        // Assert
+        List<HeavyHitter> top = sketch.top();
+        assertEquals(1, top.size());
+        assertEquals(new HeavyHitter("user:a", 4), top.get(0));
+    }
+
+    private static void add(HeavyHitterSketch sketch, String key, long weight) {
+        sketch.add(StripedRateLimiter.hash(key), key, weight);
+    }
+}
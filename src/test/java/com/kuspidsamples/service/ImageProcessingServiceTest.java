@@ -0,0 +1,207 @@
+package com.kuspidsamples.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ImageProcessingServiceTest {
+
+    @TempDir
+    Path tempDir;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private ImageProcessingService imageProcessingService;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        imageProcessingService = new ImageProcessingService(meterRegistry, true, 512, 0.8f,
+                DataSize.ofKilobytes(512), 1, 4, Duration.ofSeconds(20));
+    }
+
+    @AfterEach
+    void tearDown() {
+        imageProcessingService.shutdown();
+    }
+
+    @Test
+    void process_WithOversizedJpeg_DownscalesToMaxEdge() throws IOException {
+        // Arrange
+        File original = writeImage(jpeg(2000, 1000), "jpg");
+
+        // Act
+        Path processed = imageProcessingService.process(original);
+
+        // Assert
+        assertNotNull(processed);
+        BufferedImage result = ImageIO.read(processed.toFile());
+        assertEquals(512, result.getWidth());
+        assertEquals(256, result.getHeight());
+        assertTrue(Files.size(processed) < original.length());
+        assertEquals(1.0, meterRegistry.get("image.processing.processed").counter().count());
+        Files.delete(processed);
+    }
+
+    @Test
+    void process_WithSmallLightJpeg_KeepsOriginal() throws IOException {
+        // Arrange
+        File original = writeImage(jpeg(300, 200), "jpg");
+
+        // Act & Assert
+        assertNull(imageProcessingService.process(original));
+    }
+
+    @Test
+    void process_WithRotatedExif_TurnsImageUpright() throws IOException {
+        // Arrange: stored landscape, orientation 6 (display rotated 90 degrees clockwise)
+        BufferedImage landscape = jpeg(400, 200);
+        File original = tempDir.resolve("rotated.jpg").toFile();
+        Files.write(original.toPath(), withOrientation(encode(landscape, "jpg"), 6));
+
+        // Act
+        Path processed = imageProcessingService.process(original);
+
+        // Assert
+        assertNotNull(processed);
+        BufferedImage result = ImageIO.read(processed.toFile());
+        assertEquals(200, result.getWidth());
+        assertEquals(400, result.getHeight());
+        // The red left edge of the stored image ends up along the top
+        Color top = new Color(result.getRGB(100, 2));
+        assertTrue(top.getRed() > 200 && top.getBlue() < 60);
+        Files.delete(processed);
+    }
+
+    @Test
+    void process_WithOversizedPng_KeepsAlpha() throws IOException {
+        // Arrange
+        BufferedImage image = new BufferedImage(1024, 1024, BufferedImage.TYPE_INT_ARGB);
+        File original = writeImage(image, "png");
+
+        // Act
+        Path processed = imageProcessingService.process(original);
+
+        // Assert
+        assertNotNull(processed);
+        BufferedImage result = ImageIO.read(processed.toFile());
+        assertEquals(512, result.getWidth());
+        assertTrue(result.getColorModel().hasAlpha());
+        assertEquals(0, result.getRGB(10, 10) >>> 24);
+        Files.delete(processed);
+    }
+
+    @Test
+    void process_WithNonImage_KeepsOriginal() throws IOException {
+        // Arrange
+        File original = tempDir.resolve("notes.txt").toFile();
+        Files.writeString(original.toPath(), "not an image");
+
+        // Act & Assert
+        assertNull(imageProcessingService.process(original));
+    }
+
+    @Test
+    void process_WhenDisabled_KeepsOriginal() throws IOException {
+        // Arrange
+        imageProcessingService = new ImageProcessingService(meterRegistry, false, 512, 0.8f,
+                DataSize.ofKilobytes(512), 1, 4, Duration.ofSeconds(20));
+        File original = writeImage(jpeg(2000, 1000), "jpg");
+
+        // Act & Assert
+        assertNull(imageProcessingService.process(original));
+    }
+
+    @Test
+    void exifOrientation_ReadsBigAndLittleEndianTags() throws IOException {
+        byte[] jpeg = encode(jpeg(10, 10), "jpg");
+
+        assertEquals(6, ExifOrientation.read(new ByteArrayInputStream(withOrientation(jpeg, 6))));
+        assertEquals(8, ExifOrientation.read(new ByteArrayInputStream(withOrientationLittleEndian(jpeg, 8))));
+        assertEquals(ExifOrientation.NORMAL, ExifOrientation.read(new ByteArrayInputStream(jpeg)));
+        assertEquals(ExifOrientation.NORMAL, ExifOrientation.read(new ByteArrayInputStream(new byte[]{1, 2, 3})));
+    }
+
+    /**
+     * Red left half, blue right half
+     */
+    private static BufferedImage jpeg(int width, int height) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setColor(Color.RED);
+        graphics.fillRect(0, 0, width / 2, height);
+        graphics.setColor(Color.BLUE);
+        graphics.fillRect(width / 2, 0, width - width / 2, height);
+        graphics.dispose();
+        return image;
+    }
+
+    private File writeImage(BufferedImage image, String format) throws IOException {
+        File file = tempDir.resolve("image-" + System.nanoTime() + "." + format).toFile();
+        ImageIO.write(image, format, file);
+        return file;
+    }
+
+    private static byte[] encode(BufferedImage image, String format) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, format, out);
+        return out.toByteArray();
+    }
+
+    /**
+     * Insert an APP1 Exif segment (big-endian TIFF, one IFD entry) right after SOI
+     */
+    private static byte[] withOrientation(byte[] jpeg, int orientation) {
+        byte[] tiff = {
+                'M', 'M', 0, 42, 0, 0, 0, 8,          // header, IFD0 at offset 8
+                0, 1,                                 // one entry
+                0x01, 0x12, 0, 3, 0, 0, 0, 1,         // Orientation, SHORT, count 1
+                0, (byte) orientation, 0, 0,          // value
+                0, 0, 0, 0                            // no next IFD
+        };
+        return insertApp1(jpeg, tiff);
+    }
+
+    private static byte[] withOrientationLittleEndian(byte[] jpeg, int orientation) {
+        byte[] tiff = {
+                'I', 'I', 42, 0, 8, 0, 0, 0,
+                1, 0,
+                0x12, 0x01, 3, 0, 1, 0, 0, 0,
+                (byte) orientation, 0, 0, 0,
+                0, 0, 0, 0
+        };
+        return insertApp1(jpeg, tiff);
+    }
+
+    private static byte[] insertApp1(byte[] jpeg, byte[] tiff) {
+        byte[] header = "Exif\0\0".getBytes();
+        int length = 2 + header.length + tiff.length;
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(jpeg, 0, 2);
+        out.write(0xFF);
+        out.write(0xE1);
+        out.write(length >> 8);
+        out.write(length & 0xFF);
+        out.write(header, 0, header.length);
+        out.write(tiff, 0, tiff.length);
+        out.write(jpeg, 2, jpeg.length - 2);
+        return out.toByteArray();
+    }
+}
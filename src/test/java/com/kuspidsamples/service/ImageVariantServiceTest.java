@@ -0,0 +1,55 @@
+package com.kuspidsamples.service;
+
+import com.kuspidsamples.dto.response.ImageVariants;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ImageVariantServiceTest {
+
+    private static final String URL =
+            "https://res.cloudinary.com/demo/image/upload/v1700000000/kuspid-samples/abc.jpg";
+
+    private ImageVariantService imageVariantService;
+
+    @BeforeEach
+    void setUp() {
+        imageVariantService = new ImageVariantService(new SimpleMeterRegistry(),
+                "c_fill,w_128,h_128,f_auto,q_auto", "c_limit,w_800,h_800,f_auto,q_auto", "f_auto,q_auto",
+                "c_thumb,g_face,w_256,h_256,f_auto,q_auto", 100);
+    }
+
+    @Test
+    void variantsOf_CloudinaryUrl_InsertsTransformationsAfterUpload() {
+        // Act
+        ImageVariants variants = imageVariantService.variantsOf("kuspid-samples/abc", URL);
+
+        // Assert
+        assertEquals("https://res.cloudinary.com/demo/image/upload/c_fill,w_128,h_128,f_auto,q_auto/"
+                + "v1700000000/kuspid-samples/abc.jpg", variants.getThumbnail());
+        assertEquals("https://res.cloudinary.com/demo/image/upload/c_limit,w_800,h_800,f_auto,q_auto/"
+                + "v1700000000/kuspid-samples/abc.jpg", variants.getMedium());
+        assertEquals("https://res.cloudinary.com/demo/image/upload/f_auto,q_auto/"
+                + "v1700000000/kuspid-samples/abc.jpg", variants.getOptimized());
+        assertEquals("https://res.cloudinary.com/demo/image/upload/c_thumb,g_face,w_256,h_256,f_auto,q_auto/"
+                + "v1700000000/kuspid-samples/abc.jpg", variants.getAvatar());
+    }
+
+    @Test
+    void variantsOf_SamePublicId_ReturnsCachedInstance() {
+        // Act
+        ImageVariants first = imageVariantService.variantsOf("kuspid-samples/abc", URL);
+        ImageVariants second = imageVariantService.variantsOf("kuspid-samples/abc", URL);
+
+        // Assert
+        assertSame(first, second);
+    }
+
+    @Test
+    void variantsOf_LocalOrMissingImage_ReturnsNull() {
+        assertNull(imageVariantService.variantsOf("kuspid-samples/abc.jpg", "/files/kuspid-samples/abc.jpg"));
+        assertNull(imageVariantService.variantsOf(null, null));
+    }
+}
@@ -0,0 +1,127 @@
+package com.kuspidsamples.service;
+
+import com.kuspidsamples.entity.StoredAsset;
+import com.kuspidsamples.exception.ResourceNotFoundException;
+import com.kuspidsamples.repository.PendingAssetDeletionRepository;
+import com.kuspidsamples.repository.StoredAssetRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class LocalStorageServiceTest {
+
+    private static final byte[] JPEG_BYTES = {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF, (byte) 0xE0, 0, 16, 'J', 'F', 'I', 'F'};
+
+    @Mock
+    private StoredAssetRepository storedAssetRepository;
+
+    @Mock
+    private PendingAssetDeletionRepository pendingAssetDeletionRepository;
+
+    @Mock
+    private ImageProcessingService imageProcessingService;
+
+    @TempDir
+    Path tempDir;
+
+    private Path root;
+
+    private LocalStorageService localStorageService;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        root = tempDir.resolve("uploads");
+        localStorageService = new LocalStorageService(storedAssetRepository, pendingAssetDeletionRepository,
+                imageProcessingService, root.toString(), "http://localhost:8080/files/");
+        root = root.toRealPath();
+    }
+
+    @Test
+    void uploadFile_CopiesContentUnderRootWithDetectedExtension() throws IOException {
+        // Arrange
+        Path upload = tempDir.resolve("upload.part");
+        Files.write(upload, JPEG_BYTES);
+        when(storedAssetRepository.saveAndFlush(any(StoredAsset.class))).thenAnswer(inv -> inv.getArgument(0));
+
+        // Act
+        Map<String, Object> result = localStorageService.uploadFile(upload.toFile(), "samples");
+
+        // Assert
+        String publicId = result.get("publicId").toString();
+        assertTrue(publicId.startsWith("samples/"));
+        assertTrue(publicId.endsWith(".jpg"));
+        assertEquals("http://localhost:8080/files/" + publicId, result.get("url"));
+        assertArrayEquals(JPEG_BYTES, Files.readAllBytes(root.resolve(publicId)));
+        assertTrue(Files.exists(upload));
+        try (var files = Files.list(root.resolve("samples"))) {
+            assertEquals(1, files.count());
+        }
+    }
+
+    @Test
+    void deleteFiles_ReportsMissingFilesAsGone() throws IOException {
+        // Arrange
+        Files.createDirectories(root.resolve("samples"));
+        Files.write(root.resolve("samples/a.jpg"), JPEG_BYTES);
+
+        // Act
+        Set<String> gone = localStorageService.deleteFiles(List.of("samples/a.jpg", "samples/missing.jpg"));
+
+        // Assert
+        assertEquals(Set.of("samples/a.jpg", "samples/missing.jpg"), gone);
+        assertFalse(Files.exists(root.resolve("samples/a.jpg")));
+    }
+
+    @Test
+    void locate_ExistingFile_ReturnsPath() throws IOException {
+        // Arrange
+        Files.createDirectories(root.resolve("samples"));
+        Files.write(root.resolve("samples/a.jpg"), JPEG_BYTES);
+
+        // Act & Assert
+        assertEquals(root.resolve("samples/a.jpg"), localStorageService.locate("samples/a.jpg"));
+    }
+
+    @Test
+    void locate_PathOutsideRoot_ThrowsNotFound() throws IOException {
+        // Arrange
+        Files.write(tempDir.resolve("secret.txt"), "secret".getBytes());
+
+        // Act & Assert
+        assertThrows(ResourceNotFoundException.class, () -> localStorageService.locate("../secret.txt"));
+        assertThrows(ResourceNotFoundException.class, () -> localStorageService.locate("samples"));
+        assertThrows(ResourceNotFoundException.class, () -> localStorageService.locate(""));
+    }
+
+    @Test
+    void extension_DetectsImageFormats() throws IOException {
+        Path file = tempDir.resolve("sniff");
+
+        Files.write(file, JPEG_BYTES);
+        assertEquals(".jpg", LocalStorageService.extension(file));
+
+        Files.write(file, new byte[]{(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'});
+        assertEquals(".png", LocalStorageService.extension(file));
+
+        Files.write(file, "RIFF\0\0\0\0WEBPVP8 ".getBytes());
+        assertEquals(".webp", LocalStorageService.extension(file));
+
+        Files.write(file, "plain".getBytes());
+        assertEquals("", LocalStorageService.extension(file));
+    }
+}
@@ -0,0 +1,89 @@
+package com.kuspidsamples.service;
+
+import com.kuspidsamples.exception.TooManyRequestsException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LoginAttemptServiceTest {
+
+    private LoginAttemptService loginAttemptService;
+
+    @BeforeEach
+    void setUp() {
+        // 3 failures per account, 5 per IP, lock at the 4th account failure
+        loginAttemptService = new LoginAttemptService(
+                Duration.ofMinutes(15), 3, 5, 4,
+                Duration.ofSeconds(1), Duration.ofMinutes(15), 1_000);
+    }
+
+    @Test
+    void checkAllowed_BelowThreshold_DoesNotThrow() {
+        // Arrange
+        loginAttemptService.recordFailure("testuser", "10.0.0.1");
+        loginAttemptService.recordFailure("testuser", "10.0.0.1");
+
+        // Act & Assert
+        assertDoesNotThrow(() -> loginAttemptService.checkAllowed("testuser", "10.0.0.1"));
+    }
+
+    @Test
+    void checkAllowed_AfterAccountThreshold_ThrowsWithRetryAfter() {
+        // Arrange
+        for (int i = 0; i < 3; i++) {
+            loginAttemptService.recordFailure("TestUser", "10.0.0." + i);
+        }
+
+        // Act
+        TooManyRequestsException ex = assertThrows(TooManyRequestsException.class,
+                () -> loginAttemptService.checkAllowed("testuser", "10.0.0.99"));
+
+        // Assert
+        assertTrue(ex.getRetryAfterSeconds() >= 1);
+    }
+
+    @Test
+    void checkAllowed_AfterIpThreshold_BlocksOtherAccounts() {
+        // Arrange
+        for (int i = 0; i < 5; i++) {
+            loginAttemptService.recordFailure("user" + i, "10.0.0.1");
+        }
+
+        // Act & Assert
+        assertThrows(TooManyRequestsException.class,
+                () -> loginAttemptService.checkAllowed("someoneelse", "10.0.0.1"));
+        assertDoesNotThrow(() -> loginAttemptService.checkAllowed("someoneelse", "10.0.0.2"));
+    }
+
+    @Test
+    void recordFailure_ReportsLockOnlyWhenThresholdIsCrossed() {
+        // Act
+        int first = loginAttemptService.recordFailure("testuser", null);
+        loginAttemptService.recordFailure("testuser", null);
+        loginAttemptService.recordFailure("testuser", null);
+        int fourth = loginAttemptService.recordFailure("testuser", null);
+        int fifth = loginAttemptService.recordFailure("testuser", null);
+
+        // Assert
+        assertEquals(0, first);
+        assertEquals(4, fourth);
+        assertEquals(0, fifth);
+    }
+
+    @Test
+    void recordSuccess_ClearsAccountFailures() {
+        // Arrange
+        for (int i = 0; i < 3; i++) {
+            loginAttemptService.recordFailure("testuser", null);
+        }
+
+        // Act
+        loginAttemptService.recordSuccess("testuser");
+
+        // Assert
+        assertDoesNotThrow(() -> loginAttemptService.checkAllowed("testuser", null));
+    }
+}
@@ -0,0 +1,112 @@
+package com.kuspidsamples.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RateLimitServiceTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private RateLimitService rateLimitService;
+    private RateLimitPolicy authPolicy;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        rateLimitService = new RateLimitService(meterRegistry, 100, Optional.empty(), RateLimitService.ENGINE_BUCKET4J, 1024,
+                Duration.ofMinutes(1));
+        authPolicy = new RateLimitPolicy("auth", List.of(RateLimitPolicy.Route.parse("/api/auth/**")),
+                Duration.ofMinutes(1), 10, Map.of("admin", 50L));
+    }
+
+    @Test
+    void tryConsume_AfterLimit_RejectsWithRetryAfter() {
+        // Act
+        for (int i = 0; i < 10; i++) {
+            assertTrue(rateLimitService.tryConsume(authPolicy, "anonymous", "ip:10.0.0.1").allowed());
+        }
+        RateLimitResult rejected = rateLimitService.tryConsume(authPolicy, "anonymous", "ip:10.0.0.1");
+
+        // Assert
+        assertFalse(rejected.allowed());
+        assertEquals(10, rejected.limit());
+        assertEquals(0, rejected.remaining());
+        assertTrue(rejected.retryAfterSeconds() >= 1);
+        assertTrue(rateLimitService.tryConsume(authPolicy, "anonymous", "ip:10.0.0.2").allowed());
+    }
+
+    @Test
+    void tryConsume_UsesTierLimitAndReportsRemaining() {
+        // Act
+        RateLimitResult admin = rateLimitService.tryConsume(authPolicy, "admin", "user:root");
+        RateLimitResult user = rateLimitService.tryConsume(authPolicy, "user", "user:testuser");
+
+        // Assert
+        assertEquals(50, admin.limit());
+        assertEquals(49, admin.remaining());
+        assertEquals(10, user.limit());
+        assertEquals(9, user.remaining());
+    }
+
+    @Test
+    void tryConsume_WithStripedEngine_EnforcesLimitPerKey() {
+        // Arrange
+        rateLimitService = new RateLimitService(meterRegistry, 100, Optional.empty(),
+                RateLimitService.ENGINE_STRIPED, 1024, Duration.ofMinutes(1));
+
+        // Act
+        for (int i = 0; i < 10; i++) {
+            RateLimitResult result = rateLimitService.tryConsume(authPolicy, "anonymous", "ip:10.0.0.1");
+            assertTrue(result.allowed());
+            assertEquals(9 - i, result.remaining());
+        }
+        RateLimitResult rejected = rateLimitService.tryConsume(authPolicy, "anonymous", "ip:10.0.0.1");
+
+        // Assert
+        assertFalse(rejected.allowed());
+        assertTrue(rejected.nanosToWait() > 0);
+        assertTrue(rateLimitService.tryConsume(authPolicy, "anonymous", "ip:10.0.0.2").allowed());
+        assertTrue(rateLimitService.tryConsume(authPolicy, "admin", "ip:10.0.0.1").allowed());
+    }
+
+    @Test
+    void metrics_ExportBucketCountAndMemoryEstimate() {
+        // Arrange
+        rateLimitService.tryConsume(authPolicy, "anonymous", "ip:10.0.0.1");
+        rateLimitService.tryConsume(authPolicy, "anonymous", "ip:10.0.0.2");
+
+        // Assert
+        assertEquals(2, rateLimitService.getBucketCount());
+        assertEquals(2.0, meterRegistry.get("cache.size").tag("cache", "rate_limit_buckets").gauge().value());
+        assertTrue(meterRegistry.get("rate_limit.buckets.memory.estimated").gauge().value() > 0);
+    }
+
+    @Test
+    void parsePolicies_MatchesFirstPolicyByMethodAndPath() throws Exception {
+        // Arrange
+        List<RateLimitPolicy> policies = RateLimitPolicyRegistry.parse("""
+                policies=uploads,default
+                uploads.routes=POST /api/samples, PUT /api/samples/**
+                uploads.limit=5
+                uploads.limit.user=20
+                default.routes=/**
+                default.period=30s
+                default.limit=100
+                """);
+
+        // Assert
+        assertEquals(2, policies.size());
+        assertTrue(policies.get(0).matches("POST", "/api/samples"));
+        assertFalse(policies.get(0).matches("GET", "/api/samples"));
+        assertEquals(20, policies.get(0).limitFor("user"));
+        assertEquals(5, policies.get(0).limitFor("anonymous"));
+        assertEquals(Duration.ofSeconds(30), policies.get(1).getPeriod());
+    }
+}
@@ -0,0 +1,87 @@
+package com.kuspidsamples.service;
+
+import com.kuspidsamples.repository.RefreshTokenRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+
+import java.time.Instant;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RefreshTokenCleanupServiceTest {
+
+    @Mock
+    private RefreshTokenRepository refreshTokenRepository;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private RefreshTokenCleanupService cleanupService;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        cleanupService = new RefreshTokenCleanupService(refreshTokenRepository, meterRegistry, 2, 10);
+    }
+
+    @Test
+    void purgeExpiredTokens_DeletesInBatchesUntilShortBatch() {
+        // Arrange
+        when(refreshTokenRepository.findExpiredIds(any(Instant.class), any(Pageable.class)))
+                .thenReturn(List.of(1L, 2L))
+                .thenReturn(List.of(3L));
+        when(refreshTokenRepository.deleteByIdIn(List.of(1L, 2L))).thenReturn(2);
+        when(refreshTokenRepository.deleteByIdIn(List.of(3L))).thenReturn(1);
+        when(refreshTokenRepository.count()).thenReturn(7L);
+
+        // Act
+        int purged = cleanupService.purgeExpiredTokens();
+
+        // Assert
+        assertEquals(3, purged);
+        assertEquals(7L, cleanupService.getTableSize());
+        assertEquals(3.0, meterRegistry.get("refresh_tokens.purged").counter().count());
+        verify(refreshTokenRepository, times(2)).findExpiredIds(any(Instant.class), any(Pageable.class));
+    }
+
+    @Test
+    void purgeExpiredTokens_WithNothingExpired_DeletesNothing() {
+        // Arrange
+        when(refreshTokenRepository.findExpiredIds(any(Instant.class), any(Pageable.class)))
+                .thenReturn(Collections.emptyList());
+        when(refreshTokenRepository.count()).thenReturn(4L);
+
+        // Act
+        int purged = cleanupService.purgeExpiredTokens();
+
+        // Assert
+        assertEquals(0, purged);
+        assertEquals(4L, cleanupService.getTableSize());
+        verify(refreshTokenRepository, never()).deleteByIdIn(anyList());
+    }
+
+    @Test
+    void purgeExpiredTokens_StopsAtMaxBatches() {
+        // Arrange
+        cleanupService = new RefreshTokenCleanupService(refreshTokenRepository, meterRegistry, 2, 3);
+        when(refreshTokenRepository.findExpiredIds(any(Instant.class), any(Pageable.class)))
+                .thenReturn(List.of(1L, 2L));
+        when(refreshTokenRepository.deleteByIdIn(anyList())).thenReturn(2);
+
+        // Act
+        int purged = cleanupService.purgeExpiredTokens();
+
+        // Assert
+        assertEquals(6, purged);
+        verify(refreshTokenRepository, times(3)).deleteByIdIn(anyList());
+    }
+}
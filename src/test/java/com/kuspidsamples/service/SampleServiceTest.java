@@ -1,6 +1,7 @@
 package com.kuspidsamples.service;
 
 import com.kuspidsamples.dto.request.SampleRequest;
+import com.kuspidsamples.dto.response.ImageVariants;
 import com.kuspidsamples.dto.response.SampleResponse;
 import com.kuspidsamples.entity.Role;
 import com.kuspidsamples.entity.Sample;
@@ -19,6 +20,8 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.time.LocalDateTime;
@@ -38,7 +41,16 @@ class SampleServiceTest {
     private UserService userService;
 
     @Mock
-    private CloudinaryService cloudinaryService;
+    private StorageService storageService;
+
+    @Mock
+    private StoredAssetService storedAssetService;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Mock
+    private ImageVariantService imageVariantService;
 
     @InjectMocks
     private SampleService sampleService;
@@ -50,6 +62,10 @@ class SampleServiceTest {
 
     @BeforeEach
     void setUp() {
+        // Run transaction callbacks inline
+        lenient().when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+
         testUser = new User();
         testUser.setId(1L);
         testUser.setUsername("testuser");
@@ -90,7 +106,7 @@ class SampleServiceTest {
         assertNotNull(result);
         assertEquals("Test Sample", result.getName());
         assertEquals(1L, result.getUserId());
-        verify(cloudinaryService, never()).uploadFile(any(), any());
+        verify(storageService, never()).uploadFile(any(MultipartFile.class), any());
         verify(sampleRepository).save(any(Sample.class));
     }
 
@@ -104,7 +120,7 @@ class SampleServiceTest {
         Map<String, Object> uploadResult = new HashMap<>();
         uploadResult.put("url", "https://cloudinary.com/new-sample.jpg");
         uploadResult.put("publicId", "sample_456");
-        when(cloudinaryService.uploadFile(mockFile, Constants.CLOUDINARY_FOLDER))
+        when(storageService.uploadFile(mockFile, Constants.CLOUDINARY_FOLDER))
                 .thenReturn(uploadResult);
         when(sampleRepository.save(any(Sample.class))).thenReturn(testSample);
 
@@ -113,8 +129,9 @@ class SampleServiceTest {
 
         // Assert
         assertNotNull(result);
-        verify(cloudinaryService).uploadFile(mockFile, Constants.CLOUDINARY_FOLDER);
+        verify(storageService).uploadFile(mockFile, Constants.CLOUDINARY_FOLDER);
         verify(sampleRepository).save(any(Sample.class));
+        verify(storedAssetService).acquire("sample_456");
     }
 
     @Test
@@ -130,7 +147,7 @@ class SampleServiceTest {
 
         // Assert
         assertNotNull(result);
-        verify(cloudinaryService, never()).uploadFile(any(), any());
+        verify(storageService, never()).uploadFile(any(MultipartFile.class), any());
         verify(sampleRepository).save(any(Sample.class));
     }
 
@@ -150,6 +167,20 @@ class SampleServiceTest {
         verify(sampleRepository).findById(1L);
     }
 
+    @Test
+    void getSampleById_IncludesImageVariants() {
+        // Arrange
+        ImageVariants variants = new ImageVariants("thumb", "medium", "optimized", "avatar");
+        when(sampleRepository.findById(1L)).thenReturn(Optional.of(testSample));
+        when(imageVariantService.variantsOf("sample_123", "https://cloudinary.com/sample.jpg")).thenReturn(variants);
+
+        // Act
+        SampleResponse result = sampleService.getSampleById(1L);
+
+        // Assert
+        assertSame(variants, result.getImageVariants());
+    }
+
     @Test
     void getSampleById_WhenNotFound_ThrowsResourceNotFoundException() {
         // Arrange
@@ -234,11 +265,11 @@ class SampleServiceTest {
         // Assert
         assertNotNull(result);
         verify(sampleRepository).save(any(Sample.class));
-        verify(cloudinaryService, never()).uploadFile(any(), any());
+        verify(storageService, never()).uploadFile(any(MultipartFile.class), any());
     }
 
     @Test
-    void updateSample_WithNewImage_DeletesOldAndUploadsNew() {
+    void updateSample_WithNewImage_ReleasesOldAndUploadsNew() {
         // Arrange
         MultipartFile mockFile = mock(MultipartFile.class);
         when(mockFile.isEmpty()).thenReturn(false);
@@ -248,7 +279,7 @@ class SampleServiceTest {
         Map<String, Object> uploadResult = new HashMap<>();
         uploadResult.put("url", "https://cloudinary.com/updated-sample.jpg");
         uploadResult.put("publicId", "sample_789");
-        when(cloudinaryService.uploadFile(mockFile, Constants.CLOUDINARY_FOLDER))
+        when(storageService.uploadFile(mockFile, Constants.CLOUDINARY_FOLDER))
                 .thenReturn(uploadResult);
         when(sampleRepository.save(any(Sample.class))).thenReturn(testSample);
 
@@ -257,11 +288,87 @@ class SampleServiceTest {
 
         // Assert
         assertNotNull(result);
-        verify(cloudinaryService).deleteFile("sample_123");
-        verify(cloudinaryService).uploadFile(mockFile, Constants.CLOUDINARY_FOLDER);
+        verify(storedAssetService).acquire("sample_789");
+        verify(storedAssetService).release("sample_123");
+        verify(storageService, never()).deleteFile(any());
+        verify(storageService).uploadFile(mockFile, Constants.CLOUDINARY_FOLDER);
         verify(sampleRepository).save(any(Sample.class));
     }
 
+    @Test
+    void createSample_WhenSaveFails_DeletesUploadedImage() {
+        // Arrange
+        MultipartFile mockFile = mock(MultipartFile.class);
+        when(mockFile.isEmpty()).thenReturn(false);
+        when(userService.getCurrentUser()).thenReturn(testUser);
+        when(storageService.uploadFile(mockFile, Constants.CLOUDINARY_FOLDER))
+                .thenReturn(Map.of("url", "https://cloudinary.com/new-sample.jpg", "publicId", "sample_456"));
+        when(sampleRepository.save(any(Sample.class))).thenThrow(new IllegalStateException("db down"));
+
+        // Act & Assert
+        assertThrows(IllegalStateException.class, () -> sampleService.createSample(sampleRequest, mockFile));
+        verify(storedAssetService).discard("sample_456");
+    }
+
+    @Test
+    void updateSample_WithNewImage_UploadsBeforeSaveAndSwapsReferencesInTransaction() {
+        // Arrange
+        MultipartFile mockFile = mock(MultipartFile.class);
+        when(mockFile.isEmpty()).thenReturn(false);
+        when(sampleRepository.findById(1L)).thenReturn(Optional.of(testSample));
+        when(userService.getCurrentUser()).thenReturn(testUser);
+        when(storageService.uploadFile(mockFile, Constants.CLOUDINARY_FOLDER))
+                .thenReturn(Map.of("url", "https://cloudinary.com/updated-sample.jpg", "publicId", "sample_789"));
+        when(sampleRepository.save(any(Sample.class))).thenReturn(testSample);
+
+        // Act
+        sampleService.updateSample(1L, sampleRequest, mockFile);
+
+        // Assert
+        var inOrder = inOrder(storageService, transactionTemplate, sampleRepository, storedAssetService);
+        inOrder.verify(storageService).uploadFile(mockFile, Constants.CLOUDINARY_FOLDER);
+        inOrder.verify(transactionTemplate).execute(any());
+        inOrder.verify(sampleRepository).save(any(Sample.class));
+        inOrder.verify(storedAssetService).acquire("sample_789");
+        inOrder.verify(storedAssetService).release("sample_123");
+    }
+
+    @Test
+    void updateSample_WhenSaveFails_KeepsOldImageAndDeletesNewOne() {
+        // Arrange
+        MultipartFile mockFile = mock(MultipartFile.class);
+        when(mockFile.isEmpty()).thenReturn(false);
+        when(sampleRepository.findById(1L)).thenReturn(Optional.of(testSample));
+        when(userService.getCurrentUser()).thenReturn(testUser);
+        when(storageService.uploadFile(mockFile, Constants.CLOUDINARY_FOLDER))
+                .thenReturn(Map.of("url", "https://cloudinary.com/updated-sample.jpg", "publicId", "sample_789"));
+        when(sampleRepository.save(any(Sample.class))).thenThrow(new IllegalStateException("db down"));
+
+        // Act & Assert
+        assertThrows(IllegalStateException.class, () -> sampleService.updateSample(1L, sampleRequest, mockFile));
+        verify(storedAssetService).discard("sample_789");
+        verify(storedAssetService, never()).release("sample_123");
+    }
+
+    @Test
+    void attachImage_WithDirectUpload_SwapsImageWithoutUploading() {
+        // Arrange
+        when(sampleRepository.findById(1L)).thenReturn(Optional.of(testSample));
+        when(userService.getUserByUsername("testuser")).thenReturn(testUser);
+        when(sampleRepository.save(any(Sample.class))).thenReturn(testSample);
+
+        // Act
+        sampleService.attachImage(1L, "testuser", "https://cloudinary.com/direct.jpg", "sample_direct");
+
+        // Assert
+        assertEquals("https://cloudinary.com/direct.jpg", testSample.getImageUrl());
+        assertEquals("sample_direct", testSample.getImagePublicId());
+        assertEquals("Test Sample", testSample.getName());
+        verify(storedAssetService).acquire("sample_direct");
+        verify(storedAssetService).release("sample_123");
+        verify(storageService, never()).uploadFile(any(MultipartFile.class), any());
+    }
+
     @Test
     void updateSample_WhenNotOwner_ThrowsUnauthorizedException() {
         // Arrange
@@ -299,7 +406,8 @@ class SampleServiceTest {
         sampleService.deleteSample(1L);
 
         // Assert
-        verify(cloudinaryService).deleteFile("sample_123");
+        verify(storedAssetService).release("sample_123");
+        verify(storageService, never()).deleteFile(any());
         verify(sampleRepository).delete(testSample);
     }
 
@@ -314,7 +422,7 @@ class SampleServiceTest {
         sampleService.deleteSample(1L);
 
         // Assert
-        verify(cloudinaryService, never()).deleteFile(any());
+        verify(storedAssetService, never()).release(notNull());
         verify(sampleRepository).delete(testSample);
     }
 
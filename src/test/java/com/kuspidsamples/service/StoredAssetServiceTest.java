@@ -0,0 +1,142 @@
+package com.kuspidsamples.service;
+
+import com.kuspidsamples.entity.StoredAsset;
+import com.kuspidsamples.repository.StoredAssetRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class StoredAssetServiceTest {
+
+    @Mock
+    private StoredAssetRepository storedAssetRepository;
+
+    @Mock
+    private AssetDeletionService assetDeletionService;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    private StoredAssetService storedAssetService;
+
+    @BeforeEach
+    void setUp() {
+        // Run transaction callbacks inline
+        lenient().when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+
+        storedAssetService = new StoredAssetService(storedAssetRepository, assetDeletionService,
+                transactionTemplate, new SimpleMeterRegistry(), Duration.ofMinutes(10), 100);
+    }
+
+    @Test
+    void acquire_IncrementsReferenceCount() {
+        // Arrange
+        when(storedAssetRepository.incrementRefCount(eq("samples/a"), any(Instant.class))).thenReturn(1);
+
+        // Act
+        storedAssetService.acquire("samples/a");
+
+        // Assert
+        verify(assetDeletionService, never()).cancel(any());
+    }
+
+    @Test
+    void acquire_WhenAssetWasReclaimed_CancelsItsDeletion() {
+        // Arrange
+        when(storedAssetRepository.incrementRefCount(eq("samples/a"), any(Instant.class))).thenReturn(0);
+        when(assetDeletionService.cancel("samples/a")).thenReturn(1);
+
+        // Act
+        storedAssetService.acquire("samples/a");
+
+        // Assert
+        verify(assetDeletionService).cancel("samples/a");
+    }
+
+    @Test
+    void release_WhenStillShared_DoesNotQueueDeletion() {
+        // Arrange
+        when(storedAssetRepository.decrementRefCount(eq("samples/a"), any(Instant.class))).thenReturn(1);
+
+        // Act
+        storedAssetService.release("samples/a");
+
+        // Assert
+        verify(assetDeletionService, never()).enqueue(any());
+    }
+
+    @Test
+    void release_WithUntrackedAsset_QueuesDeletion() {
+        // Arrange
+        when(storedAssetRepository.decrementRefCount(eq("samples/legacy"), any(Instant.class))).thenReturn(0);
+        when(storedAssetRepository.existsByPublicId("samples/legacy")).thenReturn(false);
+
+        // Act
+        storedAssetService.release("samples/legacy");
+
+        // Assert
+        verify(assetDeletionService).enqueue("samples/legacy");
+    }
+
+    @Test
+    void release_WithNull_DoesNothing() {
+        // Act
+        storedAssetService.release(null);
+
+        // Assert
+        verifyNoInteractions(storedAssetRepository, assetDeletionService);
+    }
+
+    @Test
+    void discard_WithTrackedAsset_LeavesItToReclaim() {
+        // Arrange
+        when(storedAssetRepository.existsByPublicId("samples/a")).thenReturn(true);
+
+        // Act
+        storedAssetService.discard("samples/a");
+
+        // Assert
+        verify(assetDeletionService, never()).discard(any());
+    }
+
+    @Test
+    void reclaimUnreferenced_QueuesOnlyAssetsStillUnreferenced() {
+        // Arrange
+        StoredAsset idle = asset(1L, "samples/idle");
+        StoredAsset reacquired = asset(2L, "samples/reacquired");
+        when(storedAssetRepository.findUnreferenced(any(Instant.class), any(Pageable.class)))
+                .thenReturn(List.of(idle, reacquired));
+        when(storedAssetRepository.deleteIfUnreferenced(eq(1L), any(Instant.class))).thenReturn(1);
+        when(storedAssetRepository.deleteIfUnreferenced(eq(2L), any(Instant.class))).thenReturn(0);
+
+        // Act
+        int reclaimed = storedAssetService.reclaimUnreferenced();
+
+        // Assert
+        assertEquals(1, reclaimed);
+        verify(assetDeletionService).enqueue("samples/idle");
+        verify(assetDeletionService, never()).enqueue("samples/reacquired");
+    }
+
+    private static StoredAsset asset(Long id, String publicId) {
+        StoredAsset asset = new StoredAsset("hash-" + id, publicId, "https://cloudinary.com/" + id, Instant.now());
+        asset.setId(id);
+        return asset;
+    }
+}
@@ -0,0 +1,200 @@
+package com.kuspidsamples.service;
+
+import com.kuspidsamples.dto.request.SampleRequest;
+import com.kuspidsamples.dto.response.SampleResponse;
+import com.kuspidsamples.dto.response.UploadJobResponse;
+import com.kuspidsamples.exception.BadRequestException;
+import com.kuspidsamples.exception.ResourceNotFoundException;
+import com.kuspidsamples.exception.ServiceUnavailableException;
+import com.kuspidsamples.exception.TooManyRequestsException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UploadJobServiceTest {
+
+    @Mock
+    private SampleService sampleService;
+
+    @Mock
+    private UserService userService;
+
+    @Mock
+    private SimpMessagingTemplate messagingTemplate;
+
+    private UploadJobService uploadJobService;
+    private SampleRequest request;
+    private MockMultipartFile image;
+
+    @BeforeEach
+    void setUp() {
+        uploadJobService = new UploadJobService(sampleService, userService, messagingTemplate,
+                new SimpleMeterRegistry(), 1, 1, Duration.ofMinutes(5), Duration.ofMillis(200));
+        SecurityContextHolder.getContext().setAuthentication(
+                new TestingAuthenticationToken("alice", null, "ROLE_USER"));
+        request = new SampleRequest();
+        request.setName("Sample");
+        image = new MockMultipartFile("image", "photo.jpg", "image/jpeg", "jpeg bytes".getBytes());
+    }
+
+    @AfterEach
+    void tearDown() {
+        uploadJobService.shutdown();
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void submitCreateSample_ReturnsQueuedJobThenCompletesInBackground() throws Exception {
+        // Arrange
+        SampleResponse created = new SampleResponse();
+        created.setId(7L);
+        when(sampleService.createSample(eq(request), any(File.class), eq("alice"))).thenReturn(created);
+
+        // Act
+        UploadJobResponse job = uploadJobService.submitCreateSample(request, image);
+
+        // Assert
+        assertEquals(UploadJobService.STATUS_QUEUED, job.getStatus());
+        UploadJobResponse done = awaitFinished(job.getJobId());
+        assertEquals(UploadJobService.STATUS_COMPLETED, done.getStatus());
+        assertSame(created, done.getResult());
+        verify(messagingTemplate, timeout(1000).atLeast(2))
+                .convertAndSendToUser(eq("alice"), eq(UploadJobService.DESTINATION), any(UploadJobResponse.class));
+    }
+
+    @Test
+    void submitCreateSample_WorkerGetsSpooledFileAndItIsDeletedAfterwards() throws Exception {
+        // Arrange
+        File[] spooled = new File[1];
+        when(sampleService.createSample(eq(request), any(File.class), eq("alice"))).thenAnswer(invocation -> {
+            spooled[0] = invocation.getArgument(1);
+            assertEquals("jpeg bytes", new String(Files.readAllBytes(spooled[0].toPath())));
+            return new SampleResponse();
+        });
+
+        // Act
+        UploadJobResponse job = uploadJobService.submitCreateSample(request, image);
+        awaitFinished(job.getJobId());
+
+        // Assert
+        assertNotNull(spooled[0]);
+        assertFalse(spooled[0].exists());
+    }
+
+    @Test
+    void submitCreateSample_WhenUploadFails_ReportsFailure() throws Exception {
+        // Arrange
+        when(sampleService.createSample(eq(request), any(File.class), eq("alice")))
+                .thenThrow(new BadRequestException("Failed to upload file: timeout"));
+
+        // Act
+        UploadJobResponse job = uploadJobService.submitCreateSample(request, image);
+
+        // Assert
+        UploadJobResponse done = awaitFinished(job.getJobId());
+        assertEquals(UploadJobService.STATUS_FAILED, done.getStatus());
+        assertEquals("Failed to upload file: timeout", done.getError());
+    }
+
+    @Test
+    void submit_WhenQueueIsFull_RejectsWith429() throws Exception {
+        // Arrange - one job running, one queued
+        CountDownLatch release = new CountDownLatch(1);
+        when(sampleService.createSample(eq(request), any(File.class), eq("alice"))).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return new SampleResponse();
+        });
+        UploadJobResponse running = uploadJobService.submitCreateSample(request, image);
+        awaitStatus(running.getJobId(), UploadJobService.STATUS_PROCESSING);
+        uploadJobService.submitCreateSample(request, image);
+
+        // Act & Assert
+        try {
+            assertThrows(TooManyRequestsException.class, () -> uploadJobService.submitCreateSample(request, image));
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    void shutdown_WhenJobsOutliveTimeout_ReportsThemFailed() throws Exception {
+        // Arrange - one job stuck in the worker, one queued behind it
+        when(sampleService.createSample(eq(request), any(File.class), eq("alice"))).thenAnswer(invocation -> {
+            new CountDownLatch(1).await(5, TimeUnit.SECONDS);
+            return new SampleResponse();
+        });
+        UploadJobResponse running = uploadJobService.submitCreateSample(request, image);
+        awaitStatus(running.getJobId(), UploadJobService.STATUS_PROCESSING);
+        UploadJobResponse queued = uploadJobService.submitCreateSample(request, image);
+
+        // Act
+        uploadJobService.shutdown();
+
+        // Assert - both owners are told, and no new job is taken
+        assertEquals(UploadJobService.STATUS_FAILED, uploadJobService.getJob(running.getJobId()).getStatus());
+        assertEquals(UploadJobService.STATUS_FAILED, uploadJobService.getJob(queued.getJobId()).getStatus());
+        verify(messagingTemplate).convertAndSendToUser(eq("alice"), eq(UploadJobService.DESTINATION),
+                argThat((UploadJobResponse update) -> update.getJobId().equals(queued.getJobId())
+                        && UploadJobService.STATUS_FAILED.equals(update.getStatus())));
+        assertThrows(ServiceUnavailableException.class, () -> uploadJobService.submitCreateSample(request, image));
+    }
+
+    @Test
+    void submitUpdateSample_WhenNotOwner_FailsBeforeQueueing() {
+        // Arrange
+        doThrow(new ResourceNotFoundException("Sample not found")).when(sampleService).checkCanUpdate(9L);
+
+        // Act & Assert
+        assertThrows(ResourceNotFoundException.class, () -> uploadJobService.submitUpdateSample(9L, request, image));
+        verify(sampleService, never()).updateSample(anyLong(), any(), any(File.class), anyString());
+    }
+
+    @Test
+    void getJob_ForAnotherUser_IsNotFound() {
+        // Arrange
+        UploadJobResponse job = uploadJobService.submitCreateSample(request, image);
+        SecurityContextHolder.getContext().setAuthentication(
+                new TestingAuthenticationToken("mallory", null, "ROLE_USER"));
+
+        // Act & Assert
+        assertThrows(ResourceNotFoundException.class, () -> uploadJobService.getJob(job.getJobId()));
+    }
+
+    private UploadJobResponse awaitFinished(String jobId) throws InterruptedException {
+        return awaitStatus(jobId, UploadJobService.STATUS_COMPLETED, UploadJobService.STATUS_FAILED);
+    }
+
+    private UploadJobResponse awaitStatus(String jobId, String... statuses) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (System.nanoTime() < deadline) {
+            UploadJobResponse job = uploadJobService.getJob(jobId);
+            for (String status : statuses) {
+                if (status.equals(job.getStatus())) {
+                    return job;
+                }
+            }
+            Thread.sleep(10);
+        }
+        fail("Upload job never reached " + String.join(" or ", statuses));
+        return null;
+    }
+}
@@ -2,6 +2,7 @@ package com.kuspidsamples.service;
 
 import com.kuspidsamples.dto.response.UserResponse;
 import com.kuspidsamples.entity.Role;
+import com.kuspidsamples.entity.Sample;
 import com.kuspidsamples.entity.User;
 import com.kuspidsamples.exception.ResourceNotFoundException;
 import com.kuspidsamples.exception.UnauthorizedException;
@@ -18,6 +19,8 @@ import org.springframework.security.core.context.SecurityContext;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.time.LocalDateTime;
@@ -39,7 +42,16 @@ class UserServiceTest {
     private PasswordEncoder passwordEncoder;
 
     @Mock
-    private CloudinaryService cloudinaryService;
+    private StorageService storageService;
+
+    @Mock
+    private StoredAssetService storedAssetService;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Mock
+    private ImageVariantService imageVariantService;
 
     @Mock
     private SecurityContext securityContext;
@@ -54,6 +66,10 @@ class UserServiceTest {
 
     @BeforeEach
     void setUp() {
+        // Run transaction callbacks inline
+        lenient().when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+
         testUser = new User();
         testUser.setId(1L);
         testUser.setUsername("testuser");
@@ -211,7 +227,7 @@ class UserServiceTest {
         // Assert
         assertNotNull(result);
         verify(userRepository).save(any(User.class));
-        verify(cloudinaryService, never()).uploadFile(any(), any());
+        verify(storageService, never()).uploadFile(any(MultipartFile.class), any());
     }
 
     @Test
@@ -228,7 +244,7 @@ class UserServiceTest {
         Map<String, Object> uploadResult = new HashMap<>();
         uploadResult.put("url", "https://cloudinary.com/new-image.jpg");
         uploadResult.put("publicId", "profile_456");
-        when(cloudinaryService.uploadFile(any(), anyString())).thenReturn(uploadResult);
+        when(storageService.uploadFile(any(MultipartFile.class), anyString())).thenReturn(uploadResult);
         when(userRepository.save(any(User.class))).thenReturn(testUser);
 
         // Act
@@ -236,11 +252,31 @@ class UserServiceTest {
 
         // Assert
         assertNotNull(result);
-        verify(cloudinaryService).deleteFile("profile_123");
-        verify(cloudinaryService).uploadFile(mockFile, Constants.CLOUDINARY_FOLDER + "/profiles");
+        verify(storedAssetService).release("profile_123");
+        verify(storageService).uploadFile(mockFile, Constants.CLOUDINARY_FOLDER + "/profiles");
         verify(userRepository).save(any(User.class));
     }
 
+    @Test
+    void updateProfile_WhenSaveFails_DeletesNewImageAndKeepsOld() {
+        // Arrange
+        MultipartFile mockFile = mock(MultipartFile.class);
+        when(mockFile.isEmpty()).thenReturn(false);
+        when(securityContext.getAuthentication()).thenReturn(authentication);
+        when(authentication.isAuthenticated()).thenReturn(true);
+        when(authentication.getName()).thenReturn("testuser");
+        SecurityContextHolder.setContext(securityContext);
+        when(userRepository.findByUsername("testuser")).thenReturn(Optional.of(testUser));
+        when(storageService.uploadFile(any(MultipartFile.class), anyString()))
+                .thenReturn(Map.of("url", "https://cloudinary.com/new-image.jpg", "publicId", "profile_456"));
+        when(userRepository.save(any(User.class))).thenThrow(new IllegalStateException("db down"));
+
+        // Act & Assert
+        assertThrows(IllegalStateException.class, () -> userService.updateProfile("Updated Name", mockFile));
+        verify(storedAssetService).discard("profile_456");
+        verify(storedAssetService, never()).release("profile_123");
+    }
+
     @Test
     void changePassword_WithCorrectCurrentPassword_UpdatesPassword() {
         // Arrange
@@ -294,7 +330,32 @@ class UserServiceTest {
         userService.deleteAccount();
 
         // Assert
-        verify(cloudinaryService).deleteFile("profile_123");
+        verify(storedAssetService).release("profile_123");
+        verify(storageService, never()).deleteFile(any());
+        verify(userRepository).delete(testUser);
+    }
+
+    @Test
+    void deleteAccount_WithSampleImages_ReleasesThemWithTheAccount() {
+        // Arrange
+        Sample withImage = new Sample();
+        withImage.setImagePublicId("sample_123");
+        Sample withoutImage = new Sample();
+        testUser.addSample(withImage);
+        testUser.addSample(withoutImage);
+        when(securityContext.getAuthentication()).thenReturn(authentication);
+        when(authentication.isAuthenticated()).thenReturn(true);
+        when(authentication.getName()).thenReturn("testuser");
+        SecurityContextHolder.setContext(securityContext);
+        when(userRepository.findByUsername("testuser")).thenReturn(Optional.of(testUser));
+
+        // Act
+        userService.deleteAccount();
+
+        // Assert
+        verify(storedAssetService).release("profile_123");
+        verify(storedAssetService).release("sample_123");
+        verify(storedAssetService, times(2)).release(notNull());
         verify(userRepository).delete(testUser);
     }
 
@@ -312,7 +373,7 @@ class UserServiceTest {
         userService.deleteAccount();
 
         // Assert
-        verify(cloudinaryService, never()).deleteFile(any());
+        verify(storedAssetService, never()).release(notNull());
         verify(userRepository).delete(testUser);
     }
 }
\ No newline at end of file